@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.wire;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.kura.type.BooleanValue;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.DoubleValue;
+import org.eclipse.kura.type.FloatValue;
+import org.eclipse.kura.type.IntegerValue;
+import org.eclipse.kura.type.LongValue;
+import org.eclipse.kura.type.TypedValue;
+
+/**
+ * The unmodifiable properties of a {@link WireRecord} built from a {@link WireRecordSchema}. The keys are looked up
+ * in the schema and the primitive values are wrapped in a {@link TypedValue} only when first read. The wrapper is
+ * then kept in place of the primitive, so that later reads, by key or by entry, return the same instance.
+ * <br/>
+ * <br/>
+ * The wrappers are cached without synchronization: the {@link TypedValue}s are immutable, with final fields, so a
+ * thread that does not see the wrapper cached by another thread only creates an equal one.
+ */
+final class SchemaProperties extends AbstractMap<String, TypedValue<?>> {
+
+    private final WireRecordSchema schema;
+
+    private final DataType[] types;
+
+    private final long[] primitives;
+
+    /** The values, and the wrappers of the primitive values already read. */
+    private final Object[] values;
+
+    private final int size;
+
+    private Set<Entry<String, TypedValue<?>>> entrySet;
+
+    SchemaProperties(final WireRecordSchema schema, final DataType[] types, final long[] primitives,
+            final Object[] values) {
+        this.schema = schema;
+        this.types = types;
+        this.primitives = primitives;
+        this.values = values;
+
+        int count = 0;
+        for (final DataType type : types) {
+            if (type != null) {
+                count++;
+            }
+        }
+        this.size = count;
+    }
+
+    private TypedValue<?> getValue(final int index) {
+        final Object value = this.values[index];
+        if (value != null) {
+            return (TypedValue<?>) value;
+        }
+
+        final TypedValue<?> typedValue = wrap(this.types[index], this.primitives[index]);
+        this.values[index] = typedValue;
+        return typedValue;
+    }
+
+    private static TypedValue<?> wrap(final DataType type, final long primitive) {
+        switch (type) {
+        case BOOLEAN:
+            return new BooleanValue(primitive != 0);
+        case INTEGER:
+            return new IntegerValue((int) primitive);
+        case LONG:
+            return new LongValue(primitive);
+        case FLOAT:
+            return new FloatValue(Float.intBitsToFloat((int) primitive));
+        case DOUBLE:
+            return new DoubleValue(Double.longBitsToDouble(primitive));
+        default:
+            throw new IllegalStateException("Unexpected primitive type " + type);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(final Object key) {
+        final int index = this.schema.indexOf(key);
+        return index >= 0 && this.types[index] != null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TypedValue<?> get(final Object key) {
+        final int index = this.schema.indexOf(key);
+        if (index < 0 || this.types[index] == null) {
+            return null;
+        }
+        return getValue(index);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Entry<String, TypedValue<?>>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new EntrySet();
+        }
+        return this.entrySet;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, TypedValue<?>>> {
+
+        @Override
+        public int size() {
+            return SchemaProperties.this.size;
+        }
+
+        @Override
+        public Iterator<Entry<String, TypedValue<?>>> iterator() {
+            return new Iterator<Entry<String, TypedValue<?>>>() {
+
+                private int next = advance(0);
+
+                private int advance(int index) {
+                    while (index < SchemaProperties.this.types.length && SchemaProperties.this.types[index] == null) {
+                        index++;
+                    }
+                    return index;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return this.next < SchemaProperties.this.types.length;
+                }
+
+                @Override
+                public Entry<String, TypedValue<?>> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final int index = this.next;
+                    this.next = advance(index + 1);
+                    return new SimpleImmutableEntry<>(SchemaProperties.this.schema.getKey(index), getValue(index));
+                }
+            };
+        }
+    }
+}
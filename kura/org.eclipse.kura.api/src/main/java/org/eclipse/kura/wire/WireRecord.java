@@ -26,7 +26,11 @@ import org.osgi.annotation.versioning.ProviderType;
 
 /**
  * The Class WireRecord represents a record to be transmitted during wire
- * communication between wire emitter and wire receiver
+ * communication between wire emitter and wire receiver.<br/>
+ * <br/>
+ *
+ * The Wire Components emitting records with the same keys over and over can build them from a shared
+ * {@link WireRecordSchema}, which avoids copying the keys and boxing the values of each record into a map.
  *
  * @noextend This class is not intended to be extended by clients.
  * @since 1.2
@@ -49,7 +53,11 @@ public class WireRecord {
     public WireRecord(Map<String, TypedValue<?>> properties) {
         requireNonNull(properties, "Properties cannot be null");
 
-        this.properties = new HashMap<>(properties);
+        this.properties = Collections.unmodifiableMap(new HashMap<>(properties));
+    }
+
+    WireRecord(final SchemaProperties properties) {
+        this.properties = properties;
     }
 
     /**
@@ -58,6 +66,6 @@ public class WireRecord {
      * @return the fields
      */
     public Map<String, TypedValue<?>> getProperties() {
-        return Collections.unmodifiableMap(this.properties);
+        return this.properties;
     }
 }
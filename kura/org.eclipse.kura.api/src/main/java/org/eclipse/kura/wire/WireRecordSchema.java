@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.wire;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.annotation.Immutable;
+import org.eclipse.kura.annotation.NotThreadSafe;
+import org.eclipse.kura.annotation.ThreadSafe;
+import org.eclipse.kura.type.ByteArrayValue;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.StringValue;
+import org.eclipse.kura.type.TypedValue;
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The Class WireRecordSchema represents the ordered set of keys shared by the {@link WireRecord}s emitted over and
+ * over by the same Wire Component, such as the records emitted by an asset on each poll.<br/>
+ * <br/>
+ *
+ * The records built from a schema do not copy their properties into a map of their own: the keys are stored once in
+ * the schema and each record only holds the values, by position, keeping the numeric and boolean values as
+ * primitives until they are read. These records are used through the usual {@link WireRecord#getProperties()} map.
+ *
+ * @noextend This class is not intended to be extended by clients.
+ * @since 1.4
+ */
+@Immutable
+@ThreadSafe
+@ProviderType
+public final class WireRecordSchema {
+
+    private final String[] keys;
+
+    private final Map<String, Integer> indexes;
+
+    /**
+     * Instantiates a new {@link WireRecordSchema}.
+     *
+     * @param keys
+     *            the keys of the records, in order
+     * @throws NullPointerException
+     *             if the list or any of the keys is null
+     * @throws IllegalArgumentException
+     *             if any of the keys is repeated
+     */
+    public WireRecordSchema(final List<String> keys) {
+        requireNonNull(keys, "Keys cannot be null");
+
+        this.keys = new String[keys.size()];
+        this.indexes = new HashMap<>(keys.size() * 4 / 3 + 1);
+        for (int i = 0; i < this.keys.length; i++) {
+            final String key = requireNonNull(keys.get(i), "Key cannot be null").intern();
+            if (this.indexes.put(key, i) != null) {
+                throw new IllegalArgumentException("Duplicate key " + key);
+            }
+            this.keys[i] = key;
+        }
+    }
+
+    /**
+     * Returns the number of keys of this schema.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return this.keys.length;
+    }
+
+    /**
+     * Returns the key at the provided position.
+     *
+     * @param index
+     *            the position of the key
+     * @return the key
+     * @throws IndexOutOfBoundsException
+     *             if the position is not valid
+     */
+    public String getKey(final int index) {
+        return this.keys[index];
+    }
+
+    /**
+     * Returns the position of the provided key.
+     *
+     * @param key
+     *            the key
+     * @return the position of the key, or -1 if the key is not part of this schema
+     */
+    public int indexOf(final Object key) {
+        final Integer index = this.indexes.get(key);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the keys of this schema.
+     *
+     * @return the unmodifiable list of keys, in order
+     */
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(Arrays.asList(this.keys));
+    }
+
+    /**
+     * Returns a new builder of a {@link WireRecord} with this schema.
+     *
+     * @return the builder
+     */
+    public Builder newRecordBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * The Class Builder sets the values of a {@link WireRecord} by the position of their keys in the schema. The
+     * values not set are not part of the record.
+     *
+     * @noextend This class is not intended to be extended by clients.
+     * @since 1.4
+     */
+    @NotThreadSafe
+    @ProviderType
+    public static final class Builder {
+
+        private final WireRecordSchema schema;
+
+        private final DataType[] types;
+
+        private final long[] primitives;
+
+        private final Object[] values;
+
+        private boolean built;
+
+        private Builder(final WireRecordSchema schema) {
+            this.schema = schema;
+            this.types = new DataType[schema.size()];
+            this.primitives = new long[schema.size()];
+            this.values = new Object[schema.size()];
+        }
+
+        private Builder setPrimitive(final int index, final DataType type, final long value) {
+            checkNotBuilt();
+            this.types[index] = type;
+            this.primitives[index] = value;
+            this.values[index] = null;
+            return this;
+        }
+
+        private void checkNotBuilt() {
+            if (this.built) {
+                throw new IllegalStateException("Record already built");
+            }
+        }
+
+        /**
+         * Sets a boolean value.
+         *
+         * @param index
+         *            the position of the key
+         * @param value
+         *            the value
+         * @return this builder
+         */
+        public Builder setBoolean(final int index, final boolean value) {
+            return setPrimitive(index, DataType.BOOLEAN, value ? 1 : 0);
+        }
+
+        /**
+         * Sets an integer value.
+         *
+         * @param index
+         *            the position of the key
+         * @param value
+         *            the value
+         * @return this builder
+         */
+        public Builder setInteger(final int index, final int value) {
+            return setPrimitive(index, DataType.INTEGER, value);
+        }
+
+        /**
+         * Sets a long value.
+         *
+         * @param index
+         *            the position of the key
+         * @param value
+         *            the value
+         * @return this builder
+         */
+        public Builder setLong(final int index, final long value) {
+            return setPrimitive(index, DataType.LONG, value);
+        }
+
+        /**
+         * Sets a float value.
+         *
+         * @param index
+         *            the position of the key
+         * @param value
+         *            the value
+         * @return this builder
+         */
+        public Builder setFloat(final int index, final float value) {
+            return setPrimitive(index, DataType.FLOAT, Float.floatToRawIntBits(value));
+        }
+
+        /**
+         * Sets a double value.
+         *
+         * @param index
+         *            the position of the key
+         * @param value
+         *            the value
+         * @return this builder
+         */
+        public Builder setDouble(final int index, final double value) {
+            return setPrimitive(index, DataType.DOUBLE, Double.doubleToRawLongBits(value));
+        }
+
+        /**
+         * Sets a string value.
+         *
+         * @param index
+         *            the position of the key
+         * @param value
+         *            the value
+         * @return this builder
+         */
+        public Builder setString(final int index, final String value) {
+            return setValue(index, new StringValue(value));
+        }
+
+        /**
+         * Sets a byte array value.
+         *
+         * @param index
+         *            the position of the key
+         * @param value
+         *            the value
+         * @return this builder
+         * @throws NullPointerException
+         *             if the value is null
+         */
+        public Builder setByteArray(final int index, final byte[] value) {
+            return setValue(index, new ByteArrayValue(value));
+        }
+
+        /**
+         * Sets a value of any type.
+         *
+         * @param index
+         *            the position of the key
+         * @param value
+         *            the value
+         * @return this builder
+         * @throws NullPointerException
+         *             if the value is null
+         */
+        public Builder setValue(final int index, final TypedValue<?> value) {
+            requireNonNull(value, "Value cannot be null");
+            checkNotBuilt();
+            this.types[index] = value.getType();
+            this.values[index] = value;
+            return this;
+        }
+
+        /**
+         * Removes the value at the provided position from the record.
+         *
+         * @param index
+         *            the position of the key
+         * @return this builder
+         */
+        public Builder clear(final int index) {
+            checkNotBuilt();
+            this.types[index] = null;
+            this.values[index] = null;
+            return this;
+        }
+
+        /**
+         * Builds the {@link WireRecord}. The builder cannot be used any more afterwards.
+         *
+         * @return the record
+         */
+        public WireRecord build() {
+            checkNotBuilt();
+            this.built = true;
+            return new WireRecord(
+                    new SchemaProperties(this.schema, this.types, this.primitives, this.values));
+        }
+    }
+}
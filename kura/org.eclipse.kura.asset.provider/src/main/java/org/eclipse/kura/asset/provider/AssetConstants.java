@@ -37,7 +37,22 @@ public enum AssetConstants {
     TYPE(CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "type"),
 
     /** Value type Property to be used in the configuration. */
-    VALUE_TYPE(CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "value.type");
+    VALUE_TYPE(CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "value.type"),
+
+    /** Listen Property to be used in the configuration. */
+    LISTEN(CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "listen"),
+
+    /** Report on change Property to be used in the configuration. */
+    REPORT_ON_CHANGE(CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "report.on.change"),
+
+    /** Absolute report deadband Property to be used in the configuration. */
+    REPORT_DEADBAND(CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "report.deadband"),
+
+    /** Percent report deadband Property to be used in the configuration. */
+    REPORT_DEADBAND_PERCENT(CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "report.deadband.percent"),
+
+    /** Report maximum silence Property to be used in the configuration. */
+    REPORT_MAX_SILENCE(CHANNEL_DEFAULT_PROPERTY_PREFIX.value() + "report.max.silence");
 
     /** The value. */
     private String value;
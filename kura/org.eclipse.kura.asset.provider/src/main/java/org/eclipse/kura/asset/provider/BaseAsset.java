@@ -613,22 +613,23 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
     @Override
     public void unregisterChannelListener(final ChannelListener channelListener) throws KuraException {
         requireNonNull(channelListener, message.listenerNonNull());
-        requireNonNull(this.driver, message.driverNonNull());
 
         logger.debug(message.unregisteringListener());
         this.monitor.lock();
         try {
-            if (this.channelListeners.contains(channelListener)) {
+            // without a driver, the listener has gone with the driver it was registered to
+            final Driver currentDriver = this.driver;
+            if (nonNull(currentDriver) && this.channelListeners.contains(channelListener)) {
                 try {
-                    this.driver.unregisterChannelListener(channelListener);
+                    currentDriver.unregisterChannelListener(channelListener);
                 } catch (final ConnectionException ce) {
                     throw new KuraException(KuraErrorCode.CONNECTION_FAILED, ce);
                 }
             }
         } finally {
+            this.channelListeners.remove(channelListener);
             this.monitor.unlock();
         }
-        this.channelListeners.remove(channelListener);
         logger.debug(message.unregisteringListenerDone());
     }
 
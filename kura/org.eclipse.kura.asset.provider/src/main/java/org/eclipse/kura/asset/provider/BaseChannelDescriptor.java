@@ -13,7 +13,12 @@
  *******************************************************************************/
 package org.eclipse.kura.asset.provider;
 
+import static org.eclipse.kura.asset.provider.AssetConstants.LISTEN;
 import static org.eclipse.kura.asset.provider.AssetConstants.NAME;
+import static org.eclipse.kura.asset.provider.AssetConstants.REPORT_DEADBAND;
+import static org.eclipse.kura.asset.provider.AssetConstants.REPORT_DEADBAND_PERCENT;
+import static org.eclipse.kura.asset.provider.AssetConstants.REPORT_MAX_SILENCE;
+import static org.eclipse.kura.asset.provider.AssetConstants.REPORT_ON_CHANGE;
 import static org.eclipse.kura.asset.provider.AssetConstants.TYPE;
 import static org.eclipse.kura.asset.provider.AssetConstants.VALUE_TYPE;
 
@@ -41,6 +46,16 @@ import org.eclipse.kura.util.collection.CollectionUtil;
  * <li>name</li> denotes the name of the channel
  * <li>type</li>
  * <li>value.type</li>
+ * <li>listen</li> denotes if the changes of the channel value should be notified
+ * to the channel listeners
+ * <li>report.on.change</li> denotes if the channel should be reported only
+ * when its value changes
+ * <li>report.deadband</li> denotes the minimum absolute change of a numeric
+ * value to be reported
+ * <li>report.deadband.percent</li> denotes the minimum change of a numeric
+ * value to be reported, in percent of the last reported value
+ * <li>report.max.silence</li> denotes the maximum time in milliseconds
+ * between two reports of an unchanged value
  * </ul>
  *
  * The <b><i>type</i></b> would be one of the following:
@@ -120,6 +135,59 @@ public final class BaseChannelDescriptor implements ChannelDescriptor {
         addOptions(valueType, DataType.values());
 
         this.defaultElements.add(valueType);
+
+        final Tad listen = new Tad();
+        listen.setName(LISTEN.value().substring(1));
+        listen.setId(LISTEN.value());
+        listen.setDescription(s_message.listenChannel());
+        listen.setType(Tscalar.BOOLEAN);
+        listen.setRequired(true);
+        listen.setDefault(Boolean.FALSE.toString());
+
+        this.defaultElements.add(listen);
+
+        final Tad reportOnChange = new Tad();
+        reportOnChange.setName(REPORT_ON_CHANGE.value().substring(1));
+        reportOnChange.setId(REPORT_ON_CHANGE.value());
+        reportOnChange.setDescription(s_message.reportOnChange());
+        reportOnChange.setType(Tscalar.BOOLEAN);
+        reportOnChange.setRequired(true);
+        reportOnChange.setDefault(Boolean.FALSE.toString());
+
+        this.defaultElements.add(reportOnChange);
+
+        final Tad reportDeadband = new Tad();
+        reportDeadband.setName(REPORT_DEADBAND.value().substring(1));
+        reportDeadband.setId(REPORT_DEADBAND.value());
+        reportDeadband.setDescription(s_message.reportDeadband());
+        reportDeadband.setType(Tscalar.DOUBLE);
+        reportDeadband.setRequired(true);
+        reportDeadband.setMin("0");
+        reportDeadband.setDefault("0.0");
+
+        this.defaultElements.add(reportDeadband);
+
+        final Tad reportDeadbandPercent = new Tad();
+        reportDeadbandPercent.setName(REPORT_DEADBAND_PERCENT.value().substring(1));
+        reportDeadbandPercent.setId(REPORT_DEADBAND_PERCENT.value());
+        reportDeadbandPercent.setDescription(s_message.reportDeadbandPercent());
+        reportDeadbandPercent.setType(Tscalar.DOUBLE);
+        reportDeadbandPercent.setRequired(true);
+        reportDeadbandPercent.setMin("0");
+        reportDeadbandPercent.setDefault("0.0");
+
+        this.defaultElements.add(reportDeadbandPercent);
+
+        final Tad reportMaxSilence = new Tad();
+        reportMaxSilence.setName(REPORT_MAX_SILENCE.value().substring(1));
+        reportMaxSilence.setId(REPORT_MAX_SILENCE.value());
+        reportMaxSilence.setDescription(s_message.reportMaxSilence());
+        reportMaxSilence.setType(Tscalar.LONG);
+        reportMaxSilence.setRequired(true);
+        reportMaxSilence.setMin("0");
+        reportMaxSilence.setDefault("0");
+
+        this.defaultElements.add(reportMaxSilence);
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.eclipse.kura.core.util.GZipUtil;
+
+/**
+ * Compresses the encoded payloads of a CloudService.
+ * <p>
+ * Payloads shorter than the configured threshold are returned as they are, without trying to compress them. The
+ * other payloads are deflated with a pooled {@link Deflater} straight into a buffer of the size of the payload, and
+ * the compression is given up as soon as the output would not be shorter than the payload.
+ * <p>
+ * Without a dictionary the payloads are compressed in the gzip format. With a dictionary they are compressed in the
+ * zlib format with the dictionary preset, which shrinks the small payloads that repeat the same metric names. Only a
+ * receiver configured with the same dictionary can decompress them.
+ */
+public class CloudPayloadCompressor {
+
+    private static final int POOL_SIZE = 4;
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] GZIP_HEADER = { (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    private static final int ZLIB_HEADER_LENGTH = 6;
+    private static final int ZLIB_FDICT = 0x20;
+
+    private final int threshold;
+    private final byte[] dictionary;
+    private final int dictionaryId;
+
+    private final BlockingQueue<PooledDeflater> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new compressor.
+     *
+     * @param threshold
+     *            the minimum length of the payloads to compress
+     * @param dictionary
+     *            the preset dictionary as a comma separated list of metric names, the most frequent last, or null
+     *            or empty to compress in the gzip format
+     */
+    public CloudPayloadCompressor(int threshold, String dictionary) {
+        this.threshold = threshold;
+        this.dictionary = buildDictionary(dictionary);
+
+        if (this.dictionary != null) {
+            Adler32 adler = new Adler32();
+            adler.update(this.dictionary);
+            this.dictionaryId = (int) adler.getValue();
+        } else {
+            this.dictionaryId = 0;
+        }
+    }
+
+    private static byte[] buildDictionary(String dictionary) {
+        if (dictionary == null || dictionary.trim().isEmpty()) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String name : dictionary.split(",")) {
+            sb.append(name.trim());
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compresses the provided payload.
+     *
+     * @param source
+     *            the payload
+     * @return the compressed payload if shorter than the provided one, the provided payload otherwise
+     */
+    public byte[] compress(byte[] source) {
+        if (source.length < this.threshold) {
+            return source;
+        }
+
+        PooledDeflater pooled = this.pool.poll();
+        if (pooled == null) {
+            pooled = new PooledDeflater(this.dictionary == null);
+        }
+
+        try {
+            return this.dictionary == null ? gzip(pooled, source) : deflateWithDictionary(pooled, source);
+        } finally {
+            pooled.deflater.reset();
+            if (this.closed || !this.pool.offer(pooled)) {
+                pooled.deflater.end();
+            }
+        }
+    }
+
+    private static byte[] gzip(PooledDeflater pooled, byte[] source) {
+        if (source.length <= GZIP_HEADER.length + GZIP_TRAILER_LENGTH) {
+            return source;
+        }
+        byte[] buffer = pooled.getBuffer(source.length);
+
+        System.arraycopy(GZIP_HEADER, 0, buffer, 0, GZIP_HEADER.length);
+        int length = deflate(pooled.deflater, source, buffer, GZIP_HEADER.length,
+                source.length - GZIP_TRAILER_LENGTH);
+        if (length < 0) {
+            return source;
+        }
+
+        pooled.crc.reset();
+        pooled.crc.update(source);
+        length = writeIntLE(buffer, length, (int) pooled.crc.getValue());
+        length = writeIntLE(buffer, length, source.length);
+
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private byte[] deflateWithDictionary(PooledDeflater pooled, byte[] source) {
+        byte[] buffer = pooled.getBuffer(source.length);
+
+        pooled.deflater.setDictionary(this.dictionary);
+        int length = deflate(pooled.deflater, source, buffer, 0, source.length);
+        if (length < 0) {
+            return source;
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Deflates the source into the buffer, starting at the provided offset.
+     *
+     * @return the offset following the deflated data, or -1 if the deflated data does not fit before the limit
+     */
+    private static int deflate(Deflater deflater, byte[] source, byte[] buffer, int offset, int limit) {
+        deflater.setInput(source);
+        deflater.finish();
+
+        int position = offset;
+        while (!deflater.finished()) {
+            if (position >= limit) {
+                return -1;
+            }
+            position += deflater.deflate(buffer, position, limit - position);
+        }
+        return position;
+    }
+
+    private static int writeIntLE(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+        return offset + 4;
+    }
+
+    /**
+     * Checks whether the provided payload was compressed in the gzip format, or with the dictionary of this
+     * compressor.
+     */
+    public boolean isCompressed(byte[] bytes) throws IOException {
+        return GZipUtil.isCompressed(bytes) || isCompressedWithDictionary(bytes);
+    }
+
+    private boolean isCompressedWithDictionary(byte[] bytes) {
+        if (this.dictionary == null || bytes == null || bytes.length < ZLIB_HEADER_LENGTH) {
+            return false;
+        }
+
+        int cmf = bytes[0] & 0xff;
+        int flg = bytes[1] & 0xff;
+        int dictionaryId = (bytes[2] & 0xff) << 24 | (bytes[3] & 0xff) << 16 | (bytes[4] & 0xff) << 8
+                | bytes[5] & 0xff;
+        return (cmf & 0x0f) == Deflater.DEFLATED && (cmf << 8 | flg) % 31 == 0 && (flg & ZLIB_FDICT) != 0
+                && dictionaryId == this.dictionaryId;
+    }
+
+    /**
+     * Decompresses a payload compressed in the gzip format or with the dictionary of this compressor.
+     *
+     * @param source
+     *            the compressed payload
+     * @return the decompressed payload
+     * @throws IOException
+     *             if the payload cannot be decompressed
+     */
+    public byte[] decompress(byte[] source) throws IOException {
+        if (!isCompressedWithDictionary(source)) {
+            return GZipUtil.decompress(source);
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(source);
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(source.length * 2);
+            byte[] buf = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(this.dictionary);
+                    } else if (inflater.needsInput()) {
+                        throw new IOException("Unexpected end of compressed payload");
+                    }
+                }
+                baos.write(buf, 0, n);
+            }
+            return baos.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Releases the pooled deflaters. The deflaters in use are released when the compression completes.
+     */
+    public void close() {
+        this.closed = true;
+
+        PooledDeflater pooled;
+        while ((pooled = this.pool.poll()) != null) {
+            pooled.deflater.end();
+        }
+    }
+
+    private static final class PooledDeflater {
+
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private byte[] buffer = new byte[0];
+
+        private PooledDeflater(boolean nowrap) {
+            this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+        }
+
+        private byte[] getBuffer(int size) {
+            if (size > MAX_POOLED_BUFFER_SIZE) {
+                // do not keep large buffers around
+                return new byte[size];
+            }
+            if (this.buffer.length < size) {
+                this.buffer = new byte[size];
+            }
+            return this.buffer;
+        }
+    }
+}
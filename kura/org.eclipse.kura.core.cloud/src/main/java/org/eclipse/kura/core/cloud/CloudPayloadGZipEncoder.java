@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2016 Eurotech and/or its affiliates
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -18,14 +18,28 @@ import org.eclipse.kura.core.util.GZipUtil;
 public class CloudPayloadGZipEncoder implements CloudPayloadEncoder {
 
     private final CloudPayloadEncoder m_decorated;
+    private final CloudPayloadCompressor m_compressor;
 
     public CloudPayloadGZipEncoder(CloudPayloadEncoder decorated) {
+        this(decorated, null);
+    }
+
+    /**
+     * @param compressor
+     *            the compressor to use, or null to compress with {@link GZipUtil}
+     */
+    public CloudPayloadGZipEncoder(CloudPayloadEncoder decorated, CloudPayloadCompressor compressor) {
         this.m_decorated = decorated;
+        this.m_compressor = compressor;
     }
 
     @Override
     public byte[] getBytes() throws IOException {
         byte[] source = this.m_decorated.getBytes();
+        if (this.m_compressor != null) {
+            return this.m_compressor.compress(source);
+        }
+
         byte[] compressed = GZipUtil.compress(source);
 
         // Return gzip compressed data only if shorter than uncompressed one
@@ -23,17 +23,36 @@ import org.eclipse.kura.message.KuraPosition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 
+/**
+ * Decodes a KuraPayload from the Google ProtoBuf binary format.
+ * <p>
+ * The fields are read with a {@link CodedInputStream} straight into the KuraPayload, without building the
+ * intermediate {@link KuraPayloadProto.KuraPayload} message. Unknown fields and extensions are skipped.
+ */
 public class CloudPayloadProtoBufDecoderImpl {
 
     private static final Logger s_logger = LoggerFactory.getLogger(CloudPayloadProtoBufDecoderImpl.class);
 
+    private static final int TAG_TYPE_BITS = 3;
+
     private byte[] m_bytes;
+    private final CloudPayloadCompressor m_compressor;
 
     public CloudPayloadProtoBufDecoderImpl(byte[] bytes) {
+        this(bytes, null);
+    }
+
+    /**
+     * @param compressor
+     *            the compressor of the payloads, or null if they can only be compressed in the gzip format
+     */
+    public CloudPayloadProtoBufDecoderImpl(byte[] bytes, CloudPayloadCompressor compressor) {
         this.m_bytes = bytes;
+        this.m_compressor = compressor;
     }
 
     /**
@@ -46,7 +65,14 @@ public class CloudPayloadProtoBufDecoderImpl {
      */
     public KuraPayload buildFromByteArray() throws KuraInvalidMessageException, IOException {
         // Check if a compressed payload and try to decompress it
-        if (GZipUtil.isCompressed(this.m_bytes)) {
+        if (this.m_compressor != null && this.m_compressor.isCompressed(this.m_bytes)) {
+            try {
+                this.m_bytes = this.m_compressor.decompress(this.m_bytes);
+            } catch (IOException e) {
+                s_logger.info("Decompression failed");
+                // do not rethrow the exception here as isCompressed may return some false positives
+            }
+        } else if (GZipUtil.isCompressed(this.m_bytes)) {
             try {
                 this.m_bytes = GZipUtil.decompress(this.m_bytes);
             } catch (IOException e) {
@@ -55,105 +81,173 @@ public class CloudPayloadProtoBufDecoderImpl {
             }
         }
 
-        // build the KuraPayloadProto.KuraPayload
-        KuraPayloadProto.KuraPayload protoMsg = null;
+        // build the KuraPayload
         try {
-            protoMsg = KuraPayloadProto.KuraPayload.parseFrom(this.m_bytes);
+            return readPayload(CodedInputStream.newInstance(this.m_bytes));
         } catch (InvalidProtocolBufferException ipbe) {
             throw new KuraInvalidMessageException(ipbe);
         }
+    }
 
-        // build the KuraPayload
+    private KuraPayload readPayload(CodedInputStream input) throws IOException {
         KuraPayload kuraMsg = new KuraPayload();
 
-        // set the timestamp
-        if (protoMsg.hasTimestamp()) {
-            kuraMsg.setTimestamp(new Date(protoMsg.getTimestamp()));
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag >>> TAG_TYPE_BITS) {
+            case KuraPayloadProto.KuraPayload.TIMESTAMP_FIELD_NUMBER:
+                kuraMsg.setTimestamp(new Date(input.readInt64()));
+                break;
+            case KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER:
+                int positionLimit = input.pushLimit(input.readRawVarint32());
+                kuraMsg.setPosition(readPosition(input));
+                input.popLimit(positionLimit);
+                break;
+            case KuraPayloadProto.KuraPayload.METRIC_FIELD_NUMBER:
+                int metricLimit = input.pushLimit(input.readRawVarint32());
+                readMetric(input, kuraMsg);
+                input.popLimit(metricLimit);
+                break;
+            case KuraPayloadProto.KuraPayload.BODY_FIELD_NUMBER:
+                kuraMsg.setBody(input.readByteArray());
+                break;
+            default:
+                skipField(input, tag);
+            }
         }
+        return kuraMsg;
+    }
 
-        // set the position
-        if (protoMsg.hasPosition()) {
-            kuraMsg.setPosition(buildFromProtoBuf(protoMsg.getPosition()));
-        }
+    private KuraPosition readPosition(CodedInputStream input) throws IOException {
+        KuraPosition position = new KuraPosition();
 
-        // set the metrics
-        for (int i = 0; i < protoMsg.getMetricCount(); i++) {
-            String name = protoMsg.getMetric(i).getName();
-            try {
-                Object value = getProtoKuraMetricValue(protoMsg.getMetric(i), protoMsg.getMetric(i).getType());
-                kuraMsg.addMetric(name, value);
-            } catch (KuraInvalidMetricTypeException ihte) {
-                s_logger.warn("During deserialization, ignoring metric named: {}. Unrecognized value type: {}", name,
-                        protoMsg.getMetric(i).getType(), ihte);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag >>> TAG_TYPE_BITS) {
+            case KuraPayloadProto.KuraPayload.KuraPosition.LATITUDE_FIELD_NUMBER:
+                position.setLatitude(input.readDouble());
+                break;
+            case KuraPayloadProto.KuraPayload.KuraPosition.LONGITUDE_FIELD_NUMBER:
+                position.setLongitude(input.readDouble());
+                break;
+            case KuraPayloadProto.KuraPayload.KuraPosition.ALTITUDE_FIELD_NUMBER:
+                position.setAltitude(input.readDouble());
+                break;
+            case KuraPayloadProto.KuraPayload.KuraPosition.PRECISION_FIELD_NUMBER:
+                position.setPrecision(input.readDouble());
+                break;
+            case KuraPayloadProto.KuraPayload.KuraPosition.HEADING_FIELD_NUMBER:
+                position.setHeading(input.readDouble());
+                break;
+            case KuraPayloadProto.KuraPayload.KuraPosition.SPEED_FIELD_NUMBER:
+                position.setSpeed(input.readDouble());
+                break;
+            case KuraPayloadProto.KuraPayload.KuraPosition.TIMESTAMP_FIELD_NUMBER:
+                position.setTimestamp(new Date(input.readInt64()));
+                break;
+            case KuraPayloadProto.KuraPayload.KuraPosition.SATELLITES_FIELD_NUMBER:
+                position.setSatellites(input.readInt32());
+                break;
+            case KuraPayloadProto.KuraPayload.KuraPosition.STATUS_FIELD_NUMBER:
+                position.setStatus(input.readInt32());
+                break;
+            default:
+                skipField(input, tag);
             }
         }
 
-        // set the body
-        if (protoMsg.hasBody()) {
-            kuraMsg.setBody(protoMsg.getBody().toByteArray());
+        if (position.getLatitude() == null || position.getLongitude() == null) {
+            throw new InvalidProtocolBufferException("Missing required position fields: latitude, longitude");
         }
-
-        return kuraMsg;
+        return position;
     }
 
-    private KuraPosition buildFromProtoBuf(KuraPayloadProto.KuraPayload.KuraPosition protoPosition) {
-        KuraPosition position = new KuraPosition();
+    private void readMetric(CodedInputStream input, KuraPayload kuraMsg) throws IOException {
+        String name = null;
+        int type = -1;
+        Object value = null;
 
-        if (protoPosition.hasLatitude()) {
-            position.setLatitude(protoPosition.getLatitude());
-        }
-        if (protoPosition.hasLongitude()) {
-            position.setLongitude(protoPosition.getLongitude());
-        }
-        if (protoPosition.hasAltitude()) {
-            position.setAltitude(protoPosition.getAltitude());
-        }
-        if (protoPosition.hasPrecision()) {
-            position.setPrecision(protoPosition.getPrecision());
-        }
-        if (protoPosition.hasHeading()) {
-            position.setHeading(protoPosition.getHeading());
-        }
-        if (protoPosition.hasSpeed()) {
-            position.setSpeed(protoPosition.getSpeed());
+        // the value is converted once the type is known, as the fields may come in any order
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (tag >>> TAG_TYPE_BITS) {
+            case KuraPayloadProto.KuraPayload.KuraMetric.NAME_FIELD_NUMBER:
+                name = input.readString();
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.TYPE_FIELD_NUMBER:
+                type = input.readEnum();
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.DOUBLE_VALUE_FIELD_NUMBER:
+                value = input.readDouble();
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.FLOAT_VALUE_FIELD_NUMBER:
+                value = input.readFloat();
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.LONG_VALUE_FIELD_NUMBER:
+                value = input.readInt64();
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.INT_VALUE_FIELD_NUMBER:
+                value = input.readInt32();
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.BOOL_VALUE_FIELD_NUMBER:
+                value = input.readBool();
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.STRING_VALUE_FIELD_NUMBER:
+                value = input.readString();
+                break;
+            case KuraPayloadProto.KuraPayload.KuraMetric.BYTES_VALUE_FIELD_NUMBER:
+                value = input.readByteArray();
+                break;
+            default:
+                skipField(input, tag);
+            }
         }
-        if (protoPosition.hasSatellites()) {
-            position.setSatellites(protoPosition.getSatellites());
+
+        if (name == null || type == -1) {
+            throw new InvalidProtocolBufferException("Missing required metric fields: name, type");
         }
-        if (protoPosition.hasStatus()) {
-            position.setStatus(protoPosition.getStatus());
+
+        try {
+            kuraMsg.addMetric(name, getProtoKuraMetricValue(type, value));
+        } catch (KuraInvalidMetricTypeException ihte) {
+            s_logger.warn("During deserialization, ignoring metric named: {}. Unrecognized value type: {}", name,
+                    type, ihte);
         }
-        if (protoPosition.hasTimestamp()) {
-            position.setTimestamp(new Date(protoPosition.getTimestamp()));
+    }
+
+    private static void skipField(CodedInputStream input, int tag) throws IOException {
+        if (!input.skipField(tag)) {
+            throw new InvalidProtocolBufferException("Unexpected end group tag");
         }
-        return position;
     }
 
-    private Object getProtoKuraMetricValue(KuraPayloadProto.KuraPayload.KuraMetric metric,
-            KuraPayloadProto.KuraPayload.KuraMetric.ValueType type) throws KuraInvalidMetricTypeException {
+    /**
+     * Returns the value of a metric of the provided type, or the default value of the type if the value is missing or
+     * was sent in the field of another type.
+     */
+    private Object getProtoKuraMetricValue(int type, Object value) throws KuraInvalidMetricTypeException {
         switch (type) {
 
-        case DOUBLE:
-            return metric.getDoubleValue();
+        case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.DOUBLE_VALUE:
+            return value instanceof Double ? value : Double.valueOf(0);
 
-        case FLOAT:
-            return metric.getFloatValue();
+        case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.FLOAT_VALUE:
+            return value instanceof Float ? value : Float.valueOf(0);
 
-        case INT64:
-            return metric.getLongValue();
+        case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT64_VALUE:
+            return value instanceof Long ? value : Long.valueOf(0);
 
-        case INT32:
-            return metric.getIntValue();
+        case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT32_VALUE:
+            return value instanceof Integer ? value : Integer.valueOf(0);
 
-        case BOOL:
-            return metric.getBoolValue();
+        case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BOOL_VALUE:
+            return value instanceof Boolean ? value : Boolean.FALSE;
 
-        case STRING:
-            return metric.getStringValue();
+        case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.STRING_VALUE:
+            return value instanceof String ? value : "";
 
-        case BYTES:
-            ByteString bs = metric.getBytesValue();
-            return bs.toByteArray();
+        case KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BYTES_VALUE:
+            return value instanceof byte[] ? value : new byte[0];
 
         default:
             throw new KuraInvalidMetricTypeException(type);
@@ -13,20 +13,26 @@
 package org.eclipse.kura.core.cloud;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.kura.KuraInvalidMetricTypeException;
 import org.eclipse.kura.core.message.protobuf.KuraPayloadProto;
-import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric;
 import org.eclipse.kura.message.KuraPayload;
 import org.eclipse.kura.message.KuraPosition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UninitializedMessageException;
+import com.google.protobuf.WireFormat;
 
 /**
  * Encodes an KuraPayload class using the Google ProtoBuf binary format.
+ * <p>
+ * The payload is written field by field with a {@link CodedOutputStream} into a buffer of the exact serialized size,
+ * without building the intermediate {@link KuraPayloadProto.KuraPayload} message.
  */
 public class CloudPayloadProtoBufEncoderImpl implements CloudPayloadEncoder {
 
@@ -45,17 +51,82 @@ public class CloudPayloadProtoBufEncoderImpl implements CloudPayloadEncoder {
      */
     @Override
     public byte[] getBytes() throws IOException {
-        // Build the message
-        KuraPayloadProto.KuraPayload.Builder protoMsg = KuraPayloadProto.KuraPayload.newBuilder();
+        final byte[] buffer = new byte[getSerializedSize()];
+        writeTo(buffer, 0);
+        return buffer;
+    }
+
+    /**
+     * Returns the number of bytes of the serialized payload.
+     *
+     * @return the serialized size
+     */
+    public int getSerializedSize() {
+        int size = 0;
+
+        if (this.kuraPayload.getTimestamp() != null) {
+            size += CodedOutputStream.computeInt64Size(KuraPayloadProto.KuraPayload.TIMESTAMP_FIELD_NUMBER,
+                    this.kuraPayload.getTimestamp().getTime());
+        }
+
+        if (this.kuraPayload.getPosition() != null) {
+            checkRequiredFields(this.kuraPayload.getPosition());
+            size += computeLengthDelimitedSize(KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER,
+                    computePositionSize(this.kuraPayload.getPosition()));
+        }
+
+        for (final Map.Entry<String, Object> entry : this.kuraPayload.metrics().entrySet()) {
+            final String name = entry.getKey();
+            final Object value = entry.getValue();
+
+            if (value == null) {
+                logger.warn("Received a metric with a null value!");
+                continue;
+            }
+            try {
+                size += computeLengthDelimitedSize(KuraPayloadProto.KuraPayload.METRIC_FIELD_NUMBER,
+                        computeMetricSize(name, value));
+            } catch (KuraInvalidMetricTypeException e) {
+                logger.error("During serialization, ignoring metric named: {}. Unrecognized value type: {}.", name,
+                        value.getClass().getName());
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (this.kuraPayload.getBody() != null) {
+            size += CodedOutputStream.computeByteArraySize(KuraPayloadProto.KuraPayload.BODY_FIELD_NUMBER,
+                    this.kuraPayload.getBody());
+        }
+        return size;
+    }
+
+    /**
+     * Serializes the payload into the provided buffer, which must have at least {@link #getSerializedSize()} bytes
+     * available from the offset.
+     *
+     * @param buffer
+     *            the destination buffer
+     * @param offset
+     *            the position of the first byte to write
+     * @throws IOException
+     *             if the buffer is too small
+     */
+    public void writeTo(byte[] buffer, int offset) throws IOException {
+        final CodedOutputStream output = CodedOutputStream.newInstance(buffer, offset, buffer.length - offset);
 
         // set the timestamp
         if (this.kuraPayload.getTimestamp() != null) {
-            protoMsg.setTimestamp(this.kuraPayload.getTimestamp().getTime());
+            output.writeInt64(KuraPayloadProto.KuraPayload.TIMESTAMP_FIELD_NUMBER,
+                    this.kuraPayload.getTimestamp().getTime());
         }
 
         // set the position
-        if (this.kuraPayload.getPosition() != null) {
-            protoMsg.setPosition(buildPositionProtoBuf());
+        final KuraPosition position = this.kuraPayload.getPosition();
+        if (position != null) {
+            checkRequiredFields(position);
+            output.writeTag(KuraPayloadProto.KuraPayload.POSITION_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeRawVarint32(computePositionSize(position));
+            writePosition(output, position);
         }
 
         // set the metrics
@@ -63,99 +134,267 @@ public class CloudPayloadProtoBufEncoderImpl implements CloudPayloadEncoder {
             final String name = entry.getKey();
             final Object value = entry.getValue();
 
-            // build a metric
+            if (value == null) {
+                continue;
+            }
             try {
-                KuraMetric.Builder metricB = KuraMetric.newBuilder();
-                metricB.setName(name);
-
-                boolean result = setProtoKuraMetricValue(metricB, value);
-                if (result) {
-                    // add it to the message
-                    protoMsg.addMetric(metricB);
-                }
+                output.writeTag(KuraPayloadProto.KuraPayload.METRIC_FIELD_NUMBER,
+                        WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeRawVarint32(computeMetricSize(name, value));
+                writeMetric(output, name, value);
             } catch (KuraInvalidMetricTypeException e) {
                 logger.error("During serialization, ignoring metric named: {}. Unrecognized value type: {}.", name,
-                        value != null ? value.getClass().getName() : "<null>");
+                        value.getClass().getName());
                 throw new RuntimeException(e);
             }
         }
 
         // set the body
         if (this.kuraPayload.getBody() != null) {
-            protoMsg.setBody(ByteString.copyFrom(this.kuraPayload.getBody()));
+            output.writeByteArray(KuraPayloadProto.KuraPayload.BODY_FIELD_NUMBER, this.kuraPayload.getBody());
         }
 
-        return protoMsg.build().toByteArray();
+        output.flush();
     }
 
     //
     // Helper methods to convert the KuraMetrics
     //
-    private KuraPayloadProto.KuraPayload.KuraPosition buildPositionProtoBuf() {
-        KuraPayloadProto.KuraPayload.KuraPosition.Builder protoPos = KuraPayloadProto.KuraPayload.KuraPosition
-                .newBuilder();
+    private static int computeLengthDelimitedSize(int fieldNumber, int size) {
+        return CodedOutputStream.computeTagSize(fieldNumber) + CodedOutputStream.computeRawVarint32Size(size) + size;
+    }
+
+    /**
+     * Rejects a position without latitude or longitude, as building the generated message would.
+     *
+     * @throws UninitializedMessageException
+     *             if a required field of the position is missing
+     */
+    private static void checkRequiredFields(KuraPosition position) {
+        List<String> missingFields = new ArrayList<>(2);
+        if (position.getLatitude() == null) {
+            missingFields.add("latitude");
+        }
+        if (position.getLongitude() == null) {
+            missingFields.add("longitude");
+        }
+        if (!missingFields.isEmpty()) {
+            throw new UninitializedMessageException(missingFields);
+        }
+    }
+
+    private static int computePositionSize(KuraPosition position) {
+        int size = 0;
+        if (position.getLatitude() != null) {
+            size += CodedOutputStream.computeDoubleSize(
+                    KuraPayloadProto.KuraPayload.KuraPosition.LATITUDE_FIELD_NUMBER, position.getLatitude());
+        }
+        if (position.getLongitude() != null) {
+            size += CodedOutputStream.computeDoubleSize(
+                    KuraPayloadProto.KuraPayload.KuraPosition.LONGITUDE_FIELD_NUMBER, position.getLongitude());
+        }
+        if (position.getAltitude() != null) {
+            size += CodedOutputStream.computeDoubleSize(
+                    KuraPayloadProto.KuraPayload.KuraPosition.ALTITUDE_FIELD_NUMBER, position.getAltitude());
+        }
+        if (position.getPrecision() != null) {
+            size += CodedOutputStream.computeDoubleSize(
+                    KuraPayloadProto.KuraPayload.KuraPosition.PRECISION_FIELD_NUMBER, position.getPrecision());
+        }
+        if (position.getHeading() != null) {
+            size += CodedOutputStream.computeDoubleSize(
+                    KuraPayloadProto.KuraPayload.KuraPosition.HEADING_FIELD_NUMBER, position.getHeading());
+        }
+        if (position.getSpeed() != null) {
+            size += CodedOutputStream.computeDoubleSize(KuraPayloadProto.KuraPayload.KuraPosition.SPEED_FIELD_NUMBER,
+                    position.getSpeed());
+        }
+        if (position.getTimestamp() != null) {
+            size += CodedOutputStream.computeInt64Size(
+                    KuraPayloadProto.KuraPayload.KuraPosition.TIMESTAMP_FIELD_NUMBER,
+                    position.getTimestamp().getTime());
+        }
+        if (position.getSatellites() != null) {
+            size += CodedOutputStream.computeInt32Size(
+                    KuraPayloadProto.KuraPayload.KuraPosition.SATELLITES_FIELD_NUMBER, position.getSatellites());
+        }
+        if (position.getStatus() != null) {
+            size += CodedOutputStream.computeInt32Size(KuraPayloadProto.KuraPayload.KuraPosition.STATUS_FIELD_NUMBER,
+                    position.getStatus());
+        }
+        return size;
+    }
 
-        KuraPosition position = this.kuraPayload.getPosition();
+    private static void writePosition(CodedOutputStream output, KuraPosition position) throws IOException {
         if (position.getLatitude() != null) {
-            protoPos.setLatitude(position.getLatitude());
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.LATITUDE_FIELD_NUMBER,
+                    position.getLatitude());
         }
         if (position.getLongitude() != null) {
-            protoPos.setLongitude(position.getLongitude());
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.LONGITUDE_FIELD_NUMBER,
+                    position.getLongitude());
         }
         if (position.getAltitude() != null) {
-            protoPos.setAltitude(position.getAltitude());
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.ALTITUDE_FIELD_NUMBER,
+                    position.getAltitude());
         }
         if (position.getPrecision() != null) {
-            protoPos.setPrecision(position.getPrecision());
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.PRECISION_FIELD_NUMBER,
+                    position.getPrecision());
         }
         if (position.getHeading() != null) {
-            protoPos.setHeading(position.getHeading());
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.HEADING_FIELD_NUMBER, position.getHeading());
         }
         if (position.getSpeed() != null) {
-            protoPos.setSpeed(position.getSpeed());
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraPosition.SPEED_FIELD_NUMBER, position.getSpeed());
         }
         if (position.getTimestamp() != null) {
-            protoPos.setTimestamp(position.getTimestamp().getTime());
+            output.writeInt64(KuraPayloadProto.KuraPayload.KuraPosition.TIMESTAMP_FIELD_NUMBER,
+                    position.getTimestamp().getTime());
         }
         if (position.getSatellites() != null) {
-            protoPos.setSatellites(position.getSatellites());
+            output.writeInt32(KuraPayloadProto.KuraPayload.KuraPosition.SATELLITES_FIELD_NUMBER,
+                    position.getSatellites());
         }
         if (position.getStatus() != null) {
-            protoPos.setStatus(position.getStatus());
+            output.writeInt32(KuraPayloadProto.KuraPayload.KuraPosition.STATUS_FIELD_NUMBER, position.getStatus());
         }
-        return protoPos.build();
     }
 
-    private static boolean setProtoKuraMetricValue(KuraPayloadProto.KuraPayload.KuraMetric.Builder metric, Object o)
-            throws KuraInvalidMetricTypeException {
+    private static int computeMetricSize(String name, Object o) throws KuraInvalidMetricTypeException {
+        int size = computeStringSize(KuraPayloadProto.KuraPayload.KuraMetric.NAME_FIELD_NUMBER, name);
 
         if (o instanceof String) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.STRING);
-            metric.setStringValue((String) o);
+            size += computeTypeSize(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.STRING_VALUE);
+            size += computeStringSize(KuraPayloadProto.KuraPayload.KuraMetric.STRING_VALUE_FIELD_NUMBER, (String) o);
         } else if (o instanceof Double) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.DOUBLE);
-            metric.setDoubleValue((Double) o);
+            size += computeTypeSize(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.DOUBLE_VALUE);
+            size += CodedOutputStream.computeDoubleSize(
+                    KuraPayloadProto.KuraPayload.KuraMetric.DOUBLE_VALUE_FIELD_NUMBER, (Double) o);
         } else if (o instanceof Integer) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT32);
-            metric.setIntValue((Integer) o);
+            size += computeTypeSize(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT32_VALUE);
+            size += CodedOutputStream.computeInt32Size(KuraPayloadProto.KuraPayload.KuraMetric.INT_VALUE_FIELD_NUMBER,
+                    (Integer) o);
         } else if (o instanceof Float) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.FLOAT);
-            metric.setFloatValue((Float) o);
+            size += computeTypeSize(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.FLOAT_VALUE);
+            size += CodedOutputStream.computeFloatSize(KuraPayloadProto.KuraPayload.KuraMetric.FLOAT_VALUE_FIELD_NUMBER,
+                    (Float) o);
         } else if (o instanceof Long) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT64);
-            metric.setLongValue((Long) o);
+            size += computeTypeSize(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT64_VALUE);
+            size += CodedOutputStream.computeInt64Size(KuraPayloadProto.KuraPayload.KuraMetric.LONG_VALUE_FIELD_NUMBER,
+                    (Long) o);
         } else if (o instanceof Boolean) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BOOL);
-            metric.setBoolValue((Boolean) o);
+            size += computeTypeSize(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BOOL_VALUE);
+            size += CodedOutputStream.computeBoolSize(KuraPayloadProto.KuraPayload.KuraMetric.BOOL_VALUE_FIELD_NUMBER,
+                    (Boolean) o);
         } else if (o instanceof byte[]) {
-            metric.setType(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BYTES);
-            metric.setBytesValue(ByteString.copyFrom((byte[]) o));
-        } else if (o == null) {
-            logger.warn("Received a metric with a null value!");
-            return false;
+            size += computeTypeSize(KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BYTES_VALUE);
+            size += CodedOutputStream.computeByteArraySize(
+                    KuraPayloadProto.KuraPayload.KuraMetric.BYTES_VALUE_FIELD_NUMBER, (byte[]) o);
         } else {
             throw new KuraInvalidMetricTypeException(o.getClass().getName());
         }
-        return true;
+        return size;
+    }
+
+    private static int computeTypeSize(int type) {
+        return CodedOutputStream.computeEnumSize(KuraPayloadProto.KuraPayload.KuraMetric.TYPE_FIELD_NUMBER, type);
+    }
+
+    private static void writeMetric(CodedOutputStream output, String name, Object o)
+            throws IOException, KuraInvalidMetricTypeException {
+        writeString(output, KuraPayloadProto.KuraPayload.KuraMetric.NAME_FIELD_NUMBER, name);
+
+        if (o instanceof String) {
+            writeType(output, KuraPayloadProto.KuraPayload.KuraMetric.ValueType.STRING_VALUE);
+            writeString(output, KuraPayloadProto.KuraPayload.KuraMetric.STRING_VALUE_FIELD_NUMBER, (String) o);
+        } else if (o instanceof Double) {
+            writeType(output, KuraPayloadProto.KuraPayload.KuraMetric.ValueType.DOUBLE_VALUE);
+            output.writeDouble(KuraPayloadProto.KuraPayload.KuraMetric.DOUBLE_VALUE_FIELD_NUMBER, (Double) o);
+        } else if (o instanceof Integer) {
+            writeType(output, KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT32_VALUE);
+            output.writeInt32(KuraPayloadProto.KuraPayload.KuraMetric.INT_VALUE_FIELD_NUMBER, (Integer) o);
+        } else if (o instanceof Float) {
+            writeType(output, KuraPayloadProto.KuraPayload.KuraMetric.ValueType.FLOAT_VALUE);
+            output.writeFloat(KuraPayloadProto.KuraPayload.KuraMetric.FLOAT_VALUE_FIELD_NUMBER, (Float) o);
+        } else if (o instanceof Long) {
+            writeType(output, KuraPayloadProto.KuraPayload.KuraMetric.ValueType.INT64_VALUE);
+            output.writeInt64(KuraPayloadProto.KuraPayload.KuraMetric.LONG_VALUE_FIELD_NUMBER, (Long) o);
+        } else if (o instanceof Boolean) {
+            writeType(output, KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BOOL_VALUE);
+            output.writeBool(KuraPayloadProto.KuraPayload.KuraMetric.BOOL_VALUE_FIELD_NUMBER, (Boolean) o);
+        } else if (o instanceof byte[]) {
+            writeType(output, KuraPayloadProto.KuraPayload.KuraMetric.ValueType.BYTES_VALUE);
+            output.writeByteArray(KuraPayloadProto.KuraPayload.KuraMetric.BYTES_VALUE_FIELD_NUMBER, (byte[]) o);
+        } else {
+            throw new KuraInvalidMetricTypeException(o.getClass().getName());
+        }
+    }
+
+    private static void writeType(CodedOutputStream output, int type) throws IOException {
+        output.writeEnum(KuraPayloadProto.KuraPayload.KuraMetric.TYPE_FIELD_NUMBER, type);
+    }
+
+    //
+    // Strings are encoded in UTF-8 straight into the output, unpaired surrogates are replaced with '?' as
+    // String.getBytes() does
+    //
+    private static int computeStringSize(int fieldNumber, String value) {
+        final int length = utf8Length(value);
+        return CodedOutputStream.computeTagSize(fieldNumber) + CodedOutputStream.computeRawVarint32Size(length)
+                + length;
+    }
+
+    private static void writeString(CodedOutputStream output, int fieldNumber, String value) throws IOException {
+        output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeRawVarint32(utf8Length(value));
+
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                output.writeRawByte(c);
+            } else if (c < 0x800) {
+                output.writeRawByte(0xC0 | c >>> 6);
+                output.writeRawByte(0x80 | c & 0x3F);
+            } else if (!Character.isSurrogate(c)) {
+                output.writeRawByte(0xE0 | c >>> 12);
+                output.writeRawByte(0x80 | c >>> 6 & 0x3F);
+                output.writeRawByte(0x80 | c & 0x3F);
+            } else if (isSurrogatePair(value, i)) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                output.writeRawByte(0xF0 | codePoint >>> 18);
+                output.writeRawByte(0x80 | codePoint >>> 12 & 0x3F);
+                output.writeRawByte(0x80 | codePoint >>> 6 & 0x3F);
+                output.writeRawByte(0x80 | codePoint & 0x3F);
+            } else {
+                output.writeRawByte('?');
+            }
+        }
+    }
+
+    private static int utf8Length(String value) {
+        final int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            } else if (c < 0x800) {
+                utf8Length += 1;
+            } else if (!Character.isSurrogate(c)) {
+                utf8Length += 2;
+            } else if (isSurrogatePair(value, i)) {
+                // four bytes for two chars
+                utf8Length += 2;
+                i++;
+            }
+        }
+        return utf8Length;
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1));
     }
 }
@@ -67,6 +67,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
     private ComponentContext ctx;
 
     private CloudServiceOptions options;
+    private volatile CloudPayloadCompressor compressor;
 
     private DataService dataService;
     private SystemService systemService;
@@ -182,6 +183,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         // save the bundle context and the properties
         this.ctx = componentContext;
         this.options = new CloudServiceOptions(properties, this.systemService);
+        this.compressor = createCompressor(this.options);
 
         //
         // install event listener for GPS locked event
@@ -214,6 +216,9 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
         // Update properties and re-publish Birth certificate
         this.options = new CloudServiceOptions(properties, this.systemService);
+        CloudPayloadCompressor oldCompressor = this.compressor;
+        this.compressor = createCompressor(this.options);
+        oldCompressor.close();
         if (isConnected()) {
             try {
                 setupCloudConnection(false);
@@ -241,6 +246,8 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         // we only need to empty our CloudClient list
         this.cloudClients.clear();
 
+        this.compressor.close();
+
         this.dataService = null;
         this.systemService = null;
         this.systemAdminService = null;
@@ -535,7 +542,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
     public byte[] getBytes(KuraPayload kuraPayload, boolean gzipped) throws KuraException {
         CloudPayloadEncoder encoder = new CloudPayloadProtoBufEncoderImpl(kuraPayload);
         if (gzipped) {
-            encoder = new CloudPayloadGZipEncoder(encoder);
+            encoder = new CloudPayloadGZipEncoder(encoder, this.compressor);
         }
 
         byte[] bytes;
@@ -555,7 +562,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
     @Override
     public KuraPayload buildFromByteArray(byte[] payload) throws KuraException {
-        CloudPayloadProtoBufDecoderImpl encoder = new CloudPayloadProtoBufDecoderImpl(payload);
+        CloudPayloadProtoBufDecoderImpl encoder = new CloudPayloadProtoBufDecoderImpl(payload, this.compressor);
         KuraPayload kuraPayload;
 
         try {
@@ -692,7 +699,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
         CloudPayloadEncoder encoder = new CloudPayloadProtoBufEncoderImpl(payload);
         if (this.options.getEncodeGzip()) {
-            encoder = new CloudPayloadGZipEncoder(encoder);
+            encoder = new CloudPayloadGZipEncoder(encoder, this.compressor);
         }
 
         try {
@@ -703,6 +710,10 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         return bytes;
     }
 
+    private static CloudPayloadCompressor createCompressor(CloudServiceOptions options) {
+        return new CloudPayloadCompressor(options.getEncodeCompressionThreshold(), options.getEncodeDictionary());
+    }
+
     private byte[] encodeJsonPayload(KuraPayload payload) {
         return CloudPayloadJsonEncoder.getBytes(payload);
     }
@@ -715,7 +726,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         KuraPayload kuraPayload;
         try {
             // try to decode the message into an KuraPayload
-            kuraPayload = new CloudPayloadProtoBufDecoderImpl(payload).buildFromByteArray();
+            kuraPayload = new CloudPayloadProtoBufDecoderImpl(payload, this.compressor).buildFromByteArray();
         } catch (Exception e) {
             // Wrap the received bytes payload into an KuraPayload
             logger.debug("Received message on topic {} that could not be decoded. Wrapping it into an KuraPayload.",
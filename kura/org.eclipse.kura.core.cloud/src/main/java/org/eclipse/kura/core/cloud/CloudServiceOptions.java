@@ -43,6 +43,9 @@ public class CloudServiceOptions {
     private static final String DEVICE_DISPLAY_NAME = "device.display-name";
     private static final String DEVICE_CUSTOM_NAME = "device.custom-name";
     private static final String ENCODE_GZIP = "encode.gzip";
+    private static final String ENCODE_COMPRESSION_THRESHOLD = "encode.compression.threshold";
+    private static final int ENCODE_COMPRESSION_THRESHOLD_DEFAULT = 64;
+    private static final String ENCODE_DICTIONARY = "encode.dictionary";
     private static final String REPUB_BIRTH_ON_GPS_LOCK = "republish.mqtt.birth.cert.on.gps.lock";
     private static final String REPUB_BIRTH_ON_MODEM_DETECT = "republish.mqtt.birth.cert.on.modem.detect";
     private static final String ENABLE_DFLT_SUBSCRIPTIONS = "enable.default.subscriptions";
@@ -127,6 +130,35 @@ public class CloudServiceOptions {
         return encodeGzip;
     }
 
+    /**
+     * Returns the minimum length in bytes of the payloads to compress.
+     *
+     * @return an int value.
+     */
+    public int getEncodeCompressionThreshold() {
+        int threshold = ENCODE_COMPRESSION_THRESHOLD_DEFAULT;
+        if (this.properties != null && this.properties.get(ENCODE_COMPRESSION_THRESHOLD) != null
+                && this.properties.get(ENCODE_COMPRESSION_THRESHOLD) instanceof Integer) {
+            threshold = (Integer) this.properties.get(ENCODE_COMPRESSION_THRESHOLD);
+        }
+        return threshold;
+    }
+
+    /**
+     * Returns the comma separated list of metric names used as preset dictionary to compress the payloads.
+     * An empty string means that the payloads are compressed in the gzip format.
+     *
+     * @return a String value.
+     */
+    public String getEncodeDictionary() {
+        String dictionary = "";
+        if (this.properties != null && this.properties.get(ENCODE_DICTIONARY) != null
+                && this.properties.get(ENCODE_DICTIONARY) instanceof String) {
+            dictionary = (String) this.properties.get(ENCODE_DICTIONARY);
+        }
+        return dictionary;
+    }
+
     /**
      * Returns true if the current CloudService configuration
      * specifies the cloud client should republish the MQTT birth
@@ -11,11 +11,16 @@
  *******************************************************************************/
 package org.eclipse.kura.core.data;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -23,9 +28,6 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import org.eclipse.kura.KuraConnectException;
@@ -37,6 +39,8 @@ import org.eclipse.kura.KuraTooManyInflightMessagesException;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.configuration.ConfigurationService;
 import org.eclipse.kura.core.data.store.DbDataStore;
+import org.eclipse.kura.core.data.store.FileDataStore;
+import org.eclipse.kura.core.data.store.WriteBehindDataStore;
 import org.eclipse.kura.core.internal.data.TokenBucket;
 import org.eclipse.kura.data.DataService;
 import org.eclipse.kura.data.DataTransportService;
@@ -47,9 +51,11 @@ import org.eclipse.kura.db.H2DbService;
 import org.eclipse.kura.status.CloudConnectionStatusComponent;
 import org.eclipse.kura.status.CloudConnectionStatusEnum;
 import org.eclipse.kura.status.CloudConnectionStatusService;
+import org.eclipse.kura.system.SystemService;
 import org.eclipse.kura.watchdog.CriticalComponent;
 import org.eclipse.kura.watchdog.WatchdogService;
 import org.eclipse.paho.client.mqttv3.MqttException;
+import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
@@ -77,24 +83,36 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     protected ScheduledExecutorService connectionMonitorExecutor;
     private ScheduledFuture<?> connectionMonitorFuture;
 
-    // A dedicated executor for the publishing task
+    // A dedicated executor for the publishing tasks, one for each publishing lane
     private ExecutorService publisherExecutor;
 
-    private DataStore store;
+    // Replaced on reconfiguration and read by the publisher threads without holding the monitor
+    private volatile DataStore store;
 
     private Map<DataTransportToken, Integer> inFlightMsgIds;
 
+    // Confirmations received before the publisher started tracking the token, with the time they were received,
+    // see onMessageConfirmed
+    private final Map<DataTransportToken, Long> earlyConfirmedTokens = new ConcurrentHashMap<>();
+
+    // The time the last token was requested from the transport and whether it is not tracked yet
+    private volatile long tokenIssuedNanos;
+    private volatile boolean tokenPending;
+
+    // Confirmed message IDs not yet applied to the store
+    private final Queue<Integer> confirmedMsgIds = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean confirmationPending = new AtomicBoolean();
+
+    // A dedicated executor applying confirmations to the store, off the transport callback thread
+    private ExecutorService confirmationExecutor;
+
     private ScheduledExecutorService congestionExecutor;
     private ScheduledFuture<?> congestionFuture;
 
     private CloudConnectionStatusService cloudConnectionStatusService;
     private CloudConnectionStatusEnum notificationStatus = CloudConnectionStatusEnum.OFF;
 
-    private TokenBucket throttle;
-
-    private final Lock lock = new ReentrantLock();
-    private boolean notifyPending;
-    private final Condition lockCondition = this.lock.newCondition();
+    private volatile List<PublishLane> publishLanes = Collections.emptyList();
 
     private volatile AtomicBoolean publisherEnabled = new AtomicBoolean();
 
@@ -120,18 +138,13 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.dataServiceOptions = new DataServiceOptions(properties);
 
         this.connectionMonitorExecutor = Executors.newSingleThreadScheduledExecutor();
-        this.publisherExecutor = Executors.newSingleThreadExecutor();
+        this.publisherExecutor = Executors.newCachedThreadPool();
+        this.confirmationExecutor = Executors.newSingleThreadExecutor();
         this.congestionExecutor = Executors.newSingleThreadScheduledExecutor();
 
-        createThrottle();
         submitPublishingWork();
 
-        String[] parts = pid.split("-");
-        String table = "ds_messages";
-        if (parts.length > 1) {
-            table += "_" + parts[1];
-        }
-        this.store = new DbDataStore(table);
+        this.store = createStore(pid);
 
         restartDbServiceTracker(this.dataServiceOptions.getDbServiceInstancePid());
 
@@ -145,6 +158,65 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         startConnectionMonitorTask();
     }
 
+    private DataStore createStore(String pid) {
+        String[] parts = pid.split("-");
+        String table = "ds_messages";
+        if (parts.length > 1) {
+            table += "_" + parts[1];
+        }
+
+        if (this.dataServiceOptions.isFileStoreEnabled()) {
+            File directory = new File(getFileStoreDirectory(), table);
+            logger.info("Using file store in {}", directory);
+            return new FileDataStore(directory, this.dataServiceOptions.getStoreFileSegmentSize());
+        }
+
+        DbDataStore dbDataStore = new DbDataStore(table);
+
+        if (this.dataServiceOptions.isStoreWriteBehindEnabled()) {
+            logger.info("Using write-behind store with buffer size {} and durability interval {} ms",
+                    this.dataServiceOptions.getStoreWriteBehindBufferSize(),
+                    this.dataServiceOptions.getStoreWriteBehindDurabilityInterval());
+            return new WriteBehindDataStore(dbDataStore, this.dataServiceOptions.getStoreWriteBehindBufferSize(),
+                    this.dataServiceOptions.getStoreWriteBehindDurabilityInterval());
+        }
+        return dbDataStore;
+    }
+
+    private String getFileStoreDirectory() {
+        String directory = this.dataServiceOptions.getStoreFileDirectory();
+        if (directory != null && !directory.trim().isEmpty()) {
+            return directory.trim();
+        }
+
+        final BundleContext context = this.componentContext.getBundleContext();
+        ServiceReference<SystemService> reference = context.getServiceReference(SystemService.class);
+        SystemService systemService = reference == null ? null : context.getService(reference);
+        if (systemService == null) {
+            throw new ComponentException("Cannot determine the Kura data directory");
+        }
+        try {
+            return systemService.getKuraDataDirectory() + File.separator + "store";
+        } finally {
+            context.ungetService(reference);
+        }
+    }
+
+    private static boolean isStoreChanged(DataServiceOptions oldOptions, DataServiceOptions newOptions) {
+        if (oldOptions.isFileStoreEnabled() != newOptions.isFileStoreEnabled()) {
+            return true;
+        }
+        if (newOptions.isFileStoreEnabled()) {
+            return !oldOptions.getStoreFileDirectory().equals(newOptions.getStoreFileDirectory())
+                    || oldOptions.getStoreFileSegmentSize() != newOptions.getStoreFileSegmentSize();
+        }
+        return oldOptions.isStoreWriteBehindEnabled() != newOptions.isStoreWriteBehindEnabled()
+                || newOptions.isStoreWriteBehindEnabled() && (oldOptions
+                        .getStoreWriteBehindBufferSize() != newOptions.getStoreWriteBehindBufferSize()
+                        || oldOptions.getStoreWriteBehindDurabilityInterval() != newOptions
+                                .getStoreWriteBehindDurabilityInterval());
+    }
+
     private void restartDbServiceTracker(String kuraServicePid) {
         stopDbServiceTracker();
         try {
@@ -203,6 +275,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
             // The map associating a DataTransportToken with a message ID
             this.inFlightMsgIds = new ConcurrentHashMap<>();
+            clearInFlightMessages();
 
             if (inFlightMsgs != null) {
                 for (DataMessage message : inFlightMsgs) {
@@ -210,6 +283,10 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                     DataTransportToken token = new DataTransportToken(message.getPublishedMessageId(),
                             message.getSessionId());
                     this.inFlightMsgIds.put(token, message.getId());
+                    PublishLane lane = getPublishLane(message.getPriority());
+                    if (lane != null) {
+                        lane.addInFlightMessage(message.getId());
+                    }
 
                     logger.debug("Restored in-fligh messages from store. Topic: {}, ID: {}, MQTT message ID: {}",
                             new Object[] { message.getTopic(), message.getId(), message.getPublishedMessageId() });
@@ -225,14 +302,26 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
         stopConnectionMonitorTask();
 
-        final String oldDbServicePid = this.dataServiceOptions.getDbServiceInstancePid();
+        final DataServiceOptions oldDataServiceOptions = this.dataServiceOptions;
+        final String oldDbServicePid = oldDataServiceOptions.getDbServiceInstancePid();
 
         this.dataServiceOptions = new DataServiceOptions(properties);
 
-        createThrottle();
+        createPublishLanes();
 
         final String currentDbServicePid = this.dataServiceOptions.getDbServiceInstancePid();
 
+        if (isStoreChanged(oldDataServiceOptions, this.dataServiceOptions)) {
+            logger.info("Store configuration changed, recreating the store...");
+            if (this.dbService != null) {
+                this.store.stop();
+            }
+            this.store = createStore(this.dataServiceOptions.getKuraServicePid());
+            if (this.dbService != null) {
+                startDbStore();
+            }
+        }
+
         if (oldDbServicePid.equals(currentDbServicePid)) {
             if (this.dbService != null) {
                 this.store.update(this.dataServiceOptions.getStoreHousekeeperInterval(),
@@ -272,6 +361,14 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
         this.dataTransportService.removeDataTransportListener(this);
 
+        // Apply the pending confirmations before stopping the store
+        this.confirmationExecutor.shutdown();
+        try {
+            this.confirmationExecutor.awaitTermination(TRANSPORT_TASK_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            logger.info("Interrupted", e);
+        }
+
         this.store.stop();
 
         stopDbServiceTracker();
@@ -363,7 +460,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                         "New session established. Unpublishing all in-flight messages. Disregarding the QoS level, this may cause duplicate messages.");
                 try {
                     this.store.unpublishAllInFlighMessages();
-                    this.inFlightMsgIds.clear();
+                    clearInFlightMessages();
                 } catch (KuraStoreException e) {
                     logger.error("Failed to unpublish in-flight messages", e);
                 }
@@ -371,7 +468,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                 logger.info("New session established. Dropping all in-flight messages.");
                 try {
                     this.store.dropAllInFlightMessages();
-                    this.inFlightMsgIds.clear();
+                    clearInFlightMessages();
                 } catch (KuraStoreException e) {
                     logger.error("Failed to drop in-flight messages", e);
                 }
@@ -444,37 +541,34 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     }
 
     @Override
-    // It's very important that the publishInternal and messageConfirmed methods are synchronized
-    public synchronized void onMessageConfirmed(DataTransportToken token) {
+    public void onMessageConfirmed(DataTransportToken token) {
 
         logger.debug("Confirmed message with MQTT message ID: {} on session ID: {}", token.getMessageId(),
                 token.getSessionId());
 
         Integer messageId = this.inFlightMsgIds.remove(token);
-        if (messageId == null) {
-            logger.info(
-                    "Confirmed message published with MQTT message ID: {} not tracked in the map of in-flight messages",
-                    token.getMessageId());
-        } else {
-
-            DataMessage confirmedMessage = null;
-            try {
-                logger.info("Confirmed message ID: {} to store", messageId);
-                this.store.confirmed(messageId);
-                confirmedMessage = this.store.get(messageId);
-            } catch (KuraStoreException e) {
-                logger.error("Cannot confirm message to store", e);
-            }
-
-            // Notify the listeners
-            if (confirmedMessage != null) {
-                String topic = confirmedMessage.getTopic();
-                this.dataServiceListeners.onMessageConfirmed(messageId, topic);
+        boolean deferred = false;
+        if (messageId == null && this.tokenPending) {
+            // The confirmation may arrive before the publisher tracked the token: record it and check again,
+            // whichever of the two threads removes the token from the map confirms the message
+            this.earlyConfirmedTokens.put(token, System.nanoTime());
+            messageId = this.inFlightMsgIds.remove(token);
+            if (messageId != null) {
+                this.earlyConfirmedTokens.remove(token);
             } else {
-                logger.error("Confirmed Message with ID {} could not be loaded from the DataStore.", messageId);
+                // the publisher confirms the message when it tracks the token
+                deferred = true;
             }
         }
 
+        if (messageId != null) {
+            confirmMessage(messageId);
+        } else if (!deferred) {
+            logger.debug(
+                    "Confirmed message published with MQTT message ID: {} not tracked in the map of in-flight messages",
+                    token.getMessageId());
+        }
+
         if (this.inFlightMsgIds.size() < this.dataServiceOptions.getMaxInFlightMessages()) {
             handleInFlightDecongestion();
         }
@@ -556,11 +650,133 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         return buildMessageIds(messages, topicRegex);
     }
 
+    private void confirmMessage(int messageId) {
+        for (PublishLane lane : this.publishLanes) {
+            lane.removeInFlightMessage(messageId);
+        }
+
+        this.confirmedMsgIds.add(messageId);
+        if (this.confirmationPending.compareAndSet(false, true)) {
+            this.confirmationExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    Thread.currentThread().setName("DataServiceImpl:Confirm");
+                    applyConfirmations();
+                }
+            });
+        }
+    }
+
+    private void applyConfirmations() {
+        // Cleared before draining, so that a confirmation queued from now on schedules a new run
+        this.confirmationPending.set(false);
+
+        List<Integer> messageIds = new ArrayList<>();
+        Integer messageId;
+        while ((messageId = this.confirmedMsgIds.poll()) != null) {
+            messageIds.add(messageId);
+        }
+        if (messageIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            logger.info("Confirmed message IDs: {} to store", messageIds);
+            if (messageIds.size() == 1) {
+                this.store.confirmed(messageIds.get(0));
+            } else {
+                this.store.confirmed(messageIds);
+            }
+        } catch (KuraStoreException e) {
+            logger.error("Cannot confirm messages to store", e);
+            return;
+        }
+
+        for (Integer confirmedMessageId : messageIds) {
+            DataMessage confirmedMessage = null;
+            try {
+                confirmedMessage = this.store.get(confirmedMessageId);
+            } catch (KuraStoreException e) {
+                logger.error("Cannot load confirmed message from store", e);
+            }
+
+            // Notify the listeners
+            if (confirmedMessage != null) {
+                String topic = confirmedMessage.getTopic();
+                this.dataServiceListeners.onMessageConfirmed(confirmedMessageId, topic);
+            } else {
+                logger.error("Confirmed Message with ID {} could not be loaded from the DataStore.",
+                        confirmedMessageId);
+            }
+        }
+    }
+
+    private void trackInFlightMessage(DataTransportToken token, int msgId, PublishLane lane) {
+        lane.addInFlightMessage(msgId);
+
+        // Check if the token is already tracked in the map (in which case we are in trouble)
+        Integer trackedMsgId = this.inFlightMsgIds.put(token, msgId);
+        if (trackedMsgId != null) {
+            logger.error("Token already tracked: {} - {}", token.getSessionId(), token.getMessageId());
+        }
+
+        // The confirmation arrived before the token was tracked, see onMessageConfirmed. Only a confirmation received
+        // after the token was issued is for this message, an older one is a stale or duplicate confirmation of a
+        // previous message with the same MQTT message ID.
+        long issuedNanos = this.tokenIssuedNanos;
+        Long confirmedNanos = this.earlyConfirmedTokens.remove(token);
+        if (confirmedNanos != null && confirmedNanos - issuedNanos >= 0) {
+            Integer confirmedMsgId = this.inFlightMsgIds.remove(token);
+            if (confirmedMsgId != null) {
+                confirmMessage(confirmedMsgId);
+            }
+        } else if (confirmedNanos != null) {
+            logger.info("Ignoring stale confirmation of MQTT message ID: {}", token.getMessageId());
+        }
+
+        // The tokens are issued one at a time, the confirmations received before this one cannot match a later token
+        this.earlyConfirmedTokens.values().removeIf(nanos -> nanos - issuedNanos < 0);
+    }
+
+    // Publishes the message and tracks its token, the publishing paths hold the monitor so that one token is issued
+    // at a time
+    private DataTransportToken publishAndTrack(DataMessage message, PublishLane lane) throws KuraException {
+        this.tokenIssuedNanos = System.nanoTime();
+        this.tokenPending = true;
+        try {
+            DataTransportToken token = this.dataTransportService.publish(message.getTopic(), message.getPayload(),
+                    message.getQos(), message.isRetain());
+            if (token != null) {
+                trackInFlightMessage(token, message.getId(), lane);
+            }
+            return token;
+        } finally {
+            this.tokenPending = false;
+        }
+    }
+
+    private void clearInFlightMessages() {
+        this.inFlightMsgIds.clear();
+        this.earlyConfirmedTokens.clear();
+        for (PublishLane lane : this.publishLanes) {
+            lane.clearInFlightMessages();
+        }
+    }
+
+    private PublishLane getPublishLane(int priority) {
+        for (PublishLane lane : this.publishLanes) {
+            if (lane.accepts(priority)) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
     private void signalPublisher() {
-        this.lock.lock();
-        this.notifyPending = true;
-        this.lockCondition.signal();
-        this.lock.unlock();
+        for (PublishLane lane : this.publishLanes) {
+            lane.signal();
+        }
     }
 
     private boolean startConnectionMonitorTask() {
@@ -659,16 +875,27 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         return autoConnect;
     }
 
-    private void createThrottle() {
-        if (this.dataServiceOptions.isRateLimitEnabled()) {
-            int publishRate = this.dataServiceOptions.getRateLimitAverageRate();
-            int burstLength = this.dataServiceOptions.getRateLimitBurstSize();
+    private void createPublishLanes() {
+        List<PublishLane> oldLanes = this.publishLanes;
 
-            long publishPeriod = this.dataServiceOptions.getRateLimitTimeUnit() / publishRate;
+        List<PublishLane> lanes;
+        try {
+            lanes = PublishLane.createLanes(this.dataServiceOptions);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid publishing lanes, using a single lane", e);
+            lanes = PublishLane.createLanes(new DataServiceOptions(Collections.emptyMap()));
+        }
+
+        // New lanes start with an empty in-flight budget, the DataService limit still applies
+        for (PublishLane oldLane : oldLanes) {
+            oldLane.disable();
+        }
+        this.publishLanes = lanes;
 
-            logger.info("Get Throttle with burst length {} and send a message every {} millis", burstLength,
-                    publishPeriod);
-            this.throttle = new TokenBucket(burstLength, publishPeriod);
+        if (this.publisherEnabled.get()) {
+            for (PublishLane lane : lanes) {
+                this.publisherExecutor.execute(new PublishManager(lane));
+            }
         }
     }
 
@@ -694,38 +921,77 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     private void submitPublishingWork() {
         this.publisherEnabled.set(true);
 
-        this.publisherExecutor.execute(new PublishManager());
+        createPublishLanes();
     }
 
-    // It's very important that the publishInternal and messageConfirmed methods are synchronized
-    private synchronized void publishInternal(DataMessage message) throws KuraException {
+    // Synchronized with the store and lanes life-cycle, confirmations are handled without holding the monitor
+    private synchronized boolean publishInternal(DataMessage message, PublishLane lane) throws KuraException {
+
+        // The lane has been replaced by a configuration update, its messages are published by the new lane
+        if (!lane.isEnabled()) {
+            return false;
+        }
 
-        String topic = message.getTopic();
-        byte[] payload = message.getPayload();
-        int qos = message.getQos();
-        boolean retain = message.isRetain();
         int msgId = message.getId();
 
         logger.debug("Publishing message with ID: {} on topic: {}, priority: {}",
-                new Object[] { msgId, topic, message.getPriority() });
+                new Object[] { msgId, message.getTopic(), message.getPriority() });
 
-        DataTransportToken token = this.dataTransportService.publish(topic, payload, qos, retain);
+        DataTransportToken token = publishAndTrack(message, lane);
 
         if (token == null) {
             this.store.published(msgId);
             logger.debug("Published message with ID: {}", msgId);
         } else {
-
-            // Check if the token is already tracked in the map (in which case we are in trouble)
-            Integer trackedMsgId = this.inFlightMsgIds.get(token);
-            if (trackedMsgId != null) {
-                logger.error("Token already tracked: {} -", token.getSessionId(), token.getMessageId());
-            }
-
-            this.inFlightMsgIds.put(token, msgId);
             this.store.published(msgId, token.getMessageId(), token.getSessionId());
             logger.debug("Published message with ID: {} and MQTT message ID: {}", msgId, token.getMessageId());
         }
+        return true;
+    }
+
+    // Synchronized with the store and lanes life-cycle, confirmations are handled without holding the monitor
+    private synchronized List<DataMessage> publishBatchInternal(List<DataMessage> messages, PublishLane lane)
+            throws KuraException {
+
+        List<DataMessage> publishedMessages = new ArrayList<>();
+        if (!lane.isEnabled()) {
+            return publishedMessages;
+        }
+        Map<Integer, DataTransportToken> publishedTokens = new LinkedHashMap<>();
+
+        try {
+            for (DataMessage message : messages) {
+                if (message.getQos() > 0
+                        && (this.inFlightMsgIds.size() >= this.dataServiceOptions.getMaxInFlightMessages()
+                                || !lane.isInFlightBudgetAvailable())) {
+                    logger.debug("In-flight window full, ending batch after {} messages", publishedMessages.size());
+                    break;
+                }
+
+                if (lane.isThrottled(message.getPriority()) && !lane.getThrottle().getToken()) {
+                    logger.debug("No token available, ending batch after {} messages", publishedMessages.size());
+                    break;
+                }
+
+                int msgId = message.getId();
+
+                logger.debug("Publishing message with ID: {} on topic: {}, priority: {}",
+                        new Object[] { msgId, message.getTopic(), message.getPriority() });
+
+                DataTransportToken token = publishAndTrack(message, lane);
+
+                publishedTokens.put(msgId, token);
+                publishedMessages.add(message);
+            }
+        } finally {
+            // Messages already handed to the transport must be marked as published even if the batch is interrupted
+            if (!publishedTokens.isEmpty()) {
+                this.store.published(publishedTokens);
+                logger.debug("Published batch of {} messages", publishedTokens.size());
+            }
+        }
+
+        return publishedMessages;
     }
 
     private List<Integer> buildMessageIds(List<DataMessage> messages, String topicRegex) {
@@ -786,27 +1052,45 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
     private final class PublishManager implements Runnable {
 
+        private final PublishLane lane;
+
+        private PublishManager(PublishLane lane) {
+            this.lane = lane;
+        }
+
         @Override
         public void run() {
-            Thread.currentThread().setName("DataServiceImpl:Submit");
-            while (DataServiceImpl.this.publisherEnabled.get()) {
+            Thread.currentThread().setName(
+                    this.lane.isDefault() ? "DataServiceImpl:Submit" : "DataServiceImpl:Submit:" + this.lane.getName());
+            while (DataServiceImpl.this.publisherEnabled.get() && this.lane.isEnabled()) {
                 long sleepingTime = -1;
                 boolean messagePublished = false;
 
                 if (DataServiceImpl.this.dataTransportService.isConnected()) {
                     try {
-                        DataMessage message = DataServiceImpl.this.store.getNextMessage();
+                        int batchSize = DataServiceImpl.this.dataServiceOptions.getPublishBatchSize();
+                        TokenBucket throttle = this.lane.getThrottle();
 
-                        if (message != null) {
-                            checkInFlightMessages(message);
+                        if (batchSize > 1) {
+                            List<DataMessage> messages = getNextMessages(batchSize);
 
-                            if (DataServiceImpl.this.dataServiceOptions.isRateLimitEnabled()
-                                    && message.getPriority() >= 5) {
-                                messagePublished = publishMessageTokenBucket(message);
-                                sleepingTime = DataServiceImpl.this.throttle.getTokenWaitTime();
-                            } else {
-                                publishMessageUnbound(message);
-                                messagePublished = true;
+                            if (!messages.isEmpty() && checkInFlightMessages(messages.get(0))) {
+                                messagePublished = publishMessageBatch(messages);
+                                if (!messagePublished && throttle != null) {
+                                    sleepingTime = throttle.getTokenWaitTime();
+                                }
+                            }
+                        } else {
+                            List<DataMessage> messages = getNextMessages(1);
+                            DataMessage message = messages.isEmpty() ? null : messages.get(0);
+
+                            if (message != null && checkInFlightMessages(message)) {
+                                if (this.lane.isThrottled(message.getPriority())) {
+                                    messagePublished = publishMessageTokenBucket(message, throttle);
+                                    sleepingTime = throttle.getTokenWaitTime();
+                                } else {
+                                    messagePublished = publishMessageUnbound(message);
+                                }
                             }
                         }
                     } catch (KuraNotConnectedException e) {
@@ -828,49 +1112,66 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             logger.debug("Exited publisher loop.");
         }
 
-        private void checkInFlightMessages(DataMessage message) throws KuraTooManyInflightMessagesException {
+        private List<DataMessage> getNextMessages(int maxMessages) throws KuraStoreException {
+            DataStore store = DataServiceImpl.this.store;
+            if (!this.lane.isDefault()) {
+                return store.getNextMessages(this.lane.getMinPriority(), this.lane.getMaxPriority(), maxMessages);
+            }
+            if (maxMessages > 1) {
+                return store.getNextMessages(maxMessages);
+            }
+            DataMessage message = store.getNextMessage();
+            return message == null ? Collections.<DataMessage> emptyList() : Collections.singletonList(message);
+        }
+
+        /**
+         * @return false if the in-flight budget of the lane is exhausted
+         */
+        private boolean checkInFlightMessages(DataMessage message) throws KuraTooManyInflightMessagesException {
             if (message.getQos() > 0 && DataServiceImpl.this.inFlightMsgIds
                     .size() >= DataServiceImpl.this.dataServiceOptions.getMaxInFlightMessages()) {
                 logger.warn("The configured maximum number of in-flight messages has been reached");
                 throw new KuraTooManyInflightMessagesException("Too many in-flight messages");
             }
+            if (message.getQos() > 0 && !this.lane.isInFlightBudgetAvailable()) {
+                logger.debug("The maximum number of in-flight messages of lane {} has been reached",
+                        this.lane.getName());
+                return false;
+            }
+            return true;
         }
 
         private void suspendPublisher(long timeout, TimeUnit timeUnit) {
             if (!DataServiceImpl.this.publisherEnabled.get()) {
                 return;
             }
-            try {
-                DataServiceImpl.this.lock.lock();
-                if (!DataServiceImpl.this.notifyPending) {
-                    if (timeout == -1) {
-                        logger.debug("Suspending publishing thread indefinitely");
-                        DataServiceImpl.this.lockCondition.await();
-                    } else {
-                        logger.debug("Suspending publishing thread for {} milliseconds", timeout);
-                        DataServiceImpl.this.lockCondition.await(timeout, timeUnit);
-                    }
-                }
-                DataServiceImpl.this.notifyPending = false;
-            } catch (InterruptedException e) {
+            this.lane.suspend(timeout, timeUnit);
+        }
 
-            } finally {
-                DataServiceImpl.this.lock.unlock();
+        private boolean publishMessageUnbound(DataMessage message) throws KuraException {
+            if (!publishInternal(message, this.lane)) {
+                return false;
             }
+            // Notify the listeners
+            DataServiceImpl.this.dataServiceListeners.onMessagePublished(message.getId(), message.getTopic());
+            return true;
         }
 
-        private void publishMessageUnbound(DataMessage message) throws KuraException {
-            publishInternal(message);
+        private boolean publishMessageBatch(List<DataMessage> messages) throws KuraException {
+            List<DataMessage> publishedMessages = publishBatchInternal(messages, this.lane);
+
             // Notify the listeners
-            DataServiceImpl.this.dataServiceListeners.onMessagePublished(message.getId(), message.getTopic());
+            for (DataMessage message : publishedMessages) {
+                DataServiceImpl.this.dataServiceListeners.onMessagePublished(message.getId(), message.getTopic());
+            }
+            return !publishedMessages.isEmpty();
         }
 
-        private boolean publishMessageTokenBucket(DataMessage message) throws KuraException, InterruptedException {
-            boolean tokenAvailable = DataServiceImpl.this.throttle.getToken();
+        private boolean publishMessageTokenBucket(DataMessage message, TokenBucket throttle) throws KuraException {
+            boolean tokenAvailable = throttle.getToken();
 
             if (tokenAvailable) {
-                publishMessageUnbound(message);
-                return true;
+                return publishMessageUnbound(message);
             }
             return false;
         }
@@ -29,6 +29,12 @@ public class DataServiceOptions {
     private static final String STORE_HOUSEKEEPER_INTERVAL_PROP_NAME = "store.housekeeper-interval";
     private static final String STORE_PURGE_AGE_PROP_NAME = "store.purge-age";
     private static final String STORE_CAPACITY_PROP_NAME = "store.capacity";
+    private static final String STORE_TYPE_PROP_NAME = "store.type";
+    private static final String STORE_FILE_DIRECTORY_PROP_NAME = "store.file.directory";
+    private static final String STORE_FILE_SEGMENT_SIZE_PROP_NAME = "store.file.segment-size";
+    private static final String STORE_WRITE_BEHIND_ENABLE_PROP_NAME = "store.write-behind.enabled";
+    private static final String STORE_WRITE_BEHIND_BUFFER_SIZE_PROP_NAME = "store.write-behind.buffer-size";
+    private static final String STORE_WRITE_BEHIND_DURABILITY_INTERVAL_PROP_NAME = "store.write-behind.durability-interval";
     private static final String REPUBLISH_IN_FLIGHT_MSGS_PROP_NAME = "in-flight-messages.republish-on-new-session";
     private static final String MAX_IN_FLIGHT_MSGS_PROP_NAME = "in-flight-messages.max-number";
     private static final String IN_FLIGHT_MSGS_CONGESTION_TIMEOUT_PROP_NAME = "in-flight-messages.congestion-timeout";
@@ -38,6 +44,8 @@ public class DataServiceOptions {
     private static final String RATE_LIMIT_BURST_SIZE_PROP_NAME = "rate.limit.burst.size";
     private static final String RECOVERY_ENABLE_PROP_NAME = "enable.recovery.on.connection.failure";
     private static final String RECOVERY_MAX_FAILURES_PROP_NAME = "connection.recovery.max.failures";
+    private static final String PUBLISH_BATCH_SIZE_PROP_NAME = "publish.batch.size";
+    private static final String PUBLISH_LANES_PROP_NAME = "publish.lanes";
 
     private static final boolean AUTOCONNECT_PROP_DEFAULT = false;
     private static final int CONNECT_DELAY_DEFAULT = 60;
@@ -46,6 +54,12 @@ public class DataServiceOptions {
     private static final int STORE_HOUSEKEEPER_INTERVAL_DEFAULT = 900;
     private static final int STORE_PURGE_AGE_DEFAULT = 60;
     private static final int STORE_CAPACITY_DEFAULT = 10000;
+    private static final String STORE_TYPE_DEFAULT = "H2";
+    private static final String STORE_FILE_DIRECTORY_DEFAULT = "";
+    private static final int STORE_FILE_SEGMENT_SIZE_DEFAULT = 1048576;
+    private static final boolean STORE_WRITE_BEHIND_ENABLE_DEFAULT = false;
+    private static final int STORE_WRITE_BEHIND_BUFFER_SIZE_DEFAULT = 1000;
+    private static final int STORE_WRITE_BEHIND_DURABILITY_INTERVAL_DEFAULT = 1000;
     private static final boolean REPUBLISH_IN_FLIGHT_MSGS_DEFAULT = true;
     private static final int MAX_IN_FLIGHT_MSGS_DEFAULT = 9;
     private static final int IN_FLIGHT_MSGS_CONGESTION_TIMEOUT_DEFAULT = 0;
@@ -55,6 +69,8 @@ public class DataServiceOptions {
     private static final int RATE_LIMIT_BURST_SIZE_DEFAULT = 1;
     private static final boolean RECOVERY_ENABLE_DEFAULT = true;
     private static final int RECOVERY_MAX_FAILURES_DEFAULT = 10;
+    private static final int PUBLISH_BATCH_SIZE_DEFAULT = 1;
+    private static final String PUBLISH_LANES_DEFAULT = "";
 
     private static final int CONNECT_CRITICAL_COMPONENT_TIMEOUT_MULTIPLIER = 5000;
 
@@ -78,6 +94,33 @@ public class DataServiceOptions {
         return (int) this.properties.getOrDefault(STORE_CAPACITY_PROP_NAME, STORE_CAPACITY_DEFAULT);
     }
 
+    boolean isFileStoreEnabled() {
+        return "FILE".equals(this.properties.getOrDefault(STORE_TYPE_PROP_NAME, STORE_TYPE_DEFAULT));
+    }
+
+    String getStoreFileDirectory() {
+        return (String) this.properties.getOrDefault(STORE_FILE_DIRECTORY_PROP_NAME, STORE_FILE_DIRECTORY_DEFAULT);
+    }
+
+    int getStoreFileSegmentSize() {
+        return (int) this.properties.getOrDefault(STORE_FILE_SEGMENT_SIZE_PROP_NAME, STORE_FILE_SEGMENT_SIZE_DEFAULT);
+    }
+
+    boolean isStoreWriteBehindEnabled() {
+        return (boolean) this.properties.getOrDefault(STORE_WRITE_BEHIND_ENABLE_PROP_NAME,
+                STORE_WRITE_BEHIND_ENABLE_DEFAULT);
+    }
+
+    int getStoreWriteBehindBufferSize() {
+        return (int) this.properties.getOrDefault(STORE_WRITE_BEHIND_BUFFER_SIZE_PROP_NAME,
+                STORE_WRITE_BEHIND_BUFFER_SIZE_DEFAULT);
+    }
+
+    int getStoreWriteBehindDurabilityInterval() {
+        return (int) this.properties.getOrDefault(STORE_WRITE_BEHIND_DURABILITY_INTERVAL_PROP_NAME,
+                STORE_WRITE_BEHIND_DURABILITY_INTERVAL_DEFAULT);
+    }
+
     boolean isPublishInFlightMessages() {
         return (boolean) this.properties.getOrDefault(REPUBLISH_IN_FLIGHT_MSGS_PROP_NAME,
                 REPUBLISH_IN_FLIGHT_MSGS_DEFAULT);
@@ -154,6 +197,14 @@ public class DataServiceOptions {
         return (int) this.properties.getOrDefault(RECOVERY_MAX_FAILURES_PROP_NAME, RECOVERY_MAX_FAILURES_DEFAULT);
     }
 
+    int getPublishBatchSize() {
+        return (int) this.properties.getOrDefault(PUBLISH_BATCH_SIZE_PROP_NAME, PUBLISH_BATCH_SIZE_DEFAULT);
+    }
+
+    String getPublishLanes() {
+        return (String) this.properties.getOrDefault(PUBLISH_LANES_PROP_NAME, PUBLISH_LANES_DEFAULT);
+    }
+
     int getCriticalComponentTimeout() {
         return getConnectDelay() * CONNECT_CRITICAL_COMPONENT_TIMEOUT_MULTIPLIER;
     }
@@ -12,8 +12,10 @@
 package org.eclipse.kura.core.data;
 
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.data.DataTransportToken;
 import org.eclipse.kura.db.H2DbService;
 
 /**
@@ -71,6 +73,16 @@ public interface DataStore {
      */
     public void published(int msgId) throws KuraStoreException;
 
+    /**
+     * Acknowledges the publication of a batch of DataMessages in a single transaction.
+     * The map associates the ID of each DataMessage to the protocol token returned by the transport (QoS > 0)
+     * or to null for messages published with QoS = 0.
+     * 
+     * @param publishedMessages
+     * @throws KuraStoreException
+     */
+    public void published(Map<Integer, DataTransportToken> publishedMessages) throws KuraStoreException;
+
     /**
      * Acknowledges the delivery of the DataMessage published with the given
      * protocol (e.g. MQTT) message ID. This method is only called for messages
@@ -81,6 +93,14 @@ public interface DataStore {
      */
     public void confirmed(int msgId) throws KuraStoreException;
 
+    /**
+     * Acknowledges the delivery of a batch of DataMessages in a single transaction.
+     * 
+     * @param msgIds
+     * @throws KuraStoreException
+     */
+    public void confirmed(List<Integer> msgIds) throws KuraStoreException;
+
     /**
      * Gets the next unpublished message. Messages with higher
      * priority (0 is the highest priority) are returned first. Within each
@@ -91,6 +111,33 @@ public interface DataStore {
      */
     public DataMessage getNextMessage() throws KuraStoreException;
 
+    /**
+     * Gets up to the given number of unpublished messages, in the same order
+     * used by {@link #getNextMessage()}.
+     * 
+     * @param maxMessages
+     *            the maximum number of messages to be returned
+     * @return the list of unpublished messages, empty if there are none
+     * @throws KuraStoreException
+     */
+    public List<DataMessage> getNextMessages(int maxMessages) throws KuraStoreException;
+
+    /**
+     * Gets up to the given number of unpublished messages with a priority in the given range, in the same order
+     * used by {@link #getNextMessage()}.
+     * 
+     * @param minPriority
+     *            the lowest priority value, inclusive
+     * @param maxPriority
+     *            the highest priority value, inclusive
+     * @param maxMessages
+     *            the maximum number of messages to be returned
+     * @return the list of unpublished messages, empty if there are none
+     * @throws KuraStoreException
+     */
+    public List<DataMessage> getNextMessages(int minPriority, int maxPriority, int maxMessages)
+            throws KuraStoreException;
+
     /**
      * Returns a message from the DataStore by its message id.
      * 
@@ -152,6 +199,21 @@ public interface DataStore {
      */
     public void deleteStaleMessages(int purgeAge) throws KuraStoreException;
 
+    /**
+     * Returns the number of messages currently held by the store, in any state.
+     * The value is tracked by the store and does not require a query.
+     * 
+     * @return the number of messages in the store
+     */
+    public int getMessageCount();
+
+    /**
+     * Returns the highest number of messages held by the store since it was started.
+     * 
+     * @return the high-water mark of the message count
+     */
+    public int getMessageCountHighWaterMark();
+
     /**
      * Checks and attempts to repair the store.
      * 
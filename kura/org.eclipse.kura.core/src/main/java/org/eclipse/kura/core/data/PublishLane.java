@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.kura.core.internal.data.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A publishing lane drains the stored messages within a range of priorities, with its own publisher thread,
+ * rate limit and in-flight budget.
+ * <p>
+ * Lanes are configured as a list separated by semicolons, each lane in the form
+ * {@code name:minPriority[:rate[:burst[:maxInFlight]]]}. A lane covers the priorities from its minimum priority up
+ * to the minimum priority of the next lane, the first lane covers all the lower priorities and the last lane all the
+ * higher ones. The rate is expressed in messages per rate.limit.time.unit, 0 means no rate limit; if omitted the
+ * rate.limit options apply. A maximum of 0 in-flight messages, the default, means that only the DataService limit
+ * applies.
+ * <p>
+ * The rate of a lane limits all the messages of the lane. When the rate limit comes from the rate.limit options it
+ * keeps their meaning and only limits the messages with priority 5 or higher, the lower priorities being reserved to
+ * the framework life-cycle and control messages.
+ */
+class PublishLane {
+
+    private static final Logger logger = LoggerFactory.getLogger(PublishLane.class);
+
+    private static final String DEFAULT_LANE_NAME = "default";
+
+    // The lowest priority limited by the rate.limit options
+    private static final int RATE_LIMITED_MIN_PRIORITY = 5;
+
+    private final String name;
+    private final int minPriority;
+    private final int maxPriority;
+    private final TokenBucket throttle;
+    private final int throttleMinPriority;
+    private final int maxInFlightMessages;
+
+    private final Set<Integer> inFlightMsgIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean enabled = new AtomicBoolean(true);
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition lockCondition = this.lock.newCondition();
+    private boolean notifyPending;
+
+    PublishLane(String name, int minPriority, int maxPriority, TokenBucket throttle, int maxInFlightMessages) {
+        this(name, minPriority, maxPriority, throttle, Integer.MIN_VALUE, maxInFlightMessages);
+    }
+
+    PublishLane(String name, int minPriority, int maxPriority, TokenBucket throttle, int throttleMinPriority,
+            int maxInFlightMessages) {
+        this.name = name;
+        this.minPriority = minPriority;
+        this.maxPriority = maxPriority;
+        this.throttle = throttle;
+        this.throttleMinPriority = throttleMinPriority;
+        this.maxInFlightMessages = maxInFlightMessages;
+    }
+
+    /**
+     * Creates the lanes configured in the given options, or a single lane covering all the priorities if none is
+     * configured.
+     */
+    static List<PublishLane> createLanes(DataServiceOptions options) {
+        String lanesSpec = options.getPublishLanes();
+        TokenBucket defaultThrottle = options.isRateLimitEnabled()
+                ? createThrottle(options.getRateLimitAverageRate(), options.getRateLimitBurstSize(),
+                        options.getRateLimitTimeUnit())
+                : null;
+
+        if (lanesSpec == null || lanesSpec.trim().isEmpty()) {
+            return Collections.singletonList(new PublishLane(DEFAULT_LANE_NAME, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    defaultThrottle, RATE_LIMITED_MIN_PRIORITY, 0));
+        }
+
+        // Each spec is validated before sorting the lanes by their priority
+        List<String[]> specs = new ArrayList<>();
+        for (String laneSpec : lanesSpec.split(";")) {
+            if (laneSpec.trim().isEmpty()) {
+                continue;
+            }
+            String[] spec = laneSpec.trim().split(":");
+            if (spec.length < 2 || spec.length > 5 || spec[0].trim().isEmpty()) {
+                throw new IllegalArgumentException("Illegal publish lane " + laneSpec.trim());
+            }
+            for (int i = 1; i < spec.length; i++) {
+                parseInt(spec, i);
+            }
+            specs.add(spec);
+        }
+        specs.sort(Comparator.comparingInt(spec -> parseInt(spec, 1)));
+        for (int i = 1; i < specs.size(); i++) {
+            // a lane sharing its minimum priority with the next one would have an empty priority range
+            if (parseInt(specs.get(i), 1) == parseInt(specs.get(i - 1), 1)) {
+                throw new IllegalArgumentException(
+                        "Duplicate minimum priority of publish lane " + String.join(":", specs.get(i)));
+            }
+        }
+
+        List<PublishLane> lanes = new ArrayList<>(specs.size());
+        for (int i = 0; i < specs.size(); i++) {
+            String[] spec = specs.get(i);
+
+            int minPriority = i == 0 ? Integer.MIN_VALUE : parseInt(spec, 1);
+            int maxPriority = i == specs.size() - 1 ? Integer.MAX_VALUE : parseInt(specs.get(i + 1), 1) - 1;
+
+            TokenBucket throttle = null;
+            int throttleMinPriority = Integer.MIN_VALUE;
+            if (spec.length > 2) {
+                int rate = parseInt(spec, 2);
+                int burst = spec.length > 3 ? parseInt(spec, 3) : options.getRateLimitBurstSize();
+                if (rate < 0 || burst < 1) {
+                    throw new IllegalArgumentException("Illegal rate limit of publish lane " + String.join(":", spec));
+                }
+                throttle = rate == 0 ? null : createThrottle(rate, burst, options.getRateLimitTimeUnit());
+            } else if (defaultThrottle != null) {
+                // each lane has its own bucket
+                throttle = createThrottle(options.getRateLimitAverageRate(), options.getRateLimitBurstSize(),
+                        options.getRateLimitTimeUnit());
+                throttleMinPriority = RATE_LIMITED_MIN_PRIORITY;
+            }
+            int maxInFlightMessages = spec.length > 4 ? parseInt(spec, 4) : 0;
+
+            lanes.add(new PublishLane(spec[0].trim(), minPriority, maxPriority, throttle, throttleMinPriority,
+                    maxInFlightMessages));
+        }
+        return lanes;
+    }
+
+    private static int parseInt(String[] spec, int index) {
+        try {
+            return Integer.parseInt(spec[index].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Illegal publish lane " + String.join(":", spec), e);
+        }
+    }
+
+    private static TokenBucket createThrottle(int publishRate, int burstLength, long timeUnit) {
+        long publishPeriod = timeUnit / publishRate;
+
+        logger.info("Get Throttle with burst length {} and send a message every {} millis", burstLength,
+                publishPeriod);
+        return new TokenBucket(burstLength, publishPeriod);
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    int getMinPriority() {
+        return this.minPriority;
+    }
+
+    int getMaxPriority() {
+        return this.maxPriority;
+    }
+
+    boolean isDefault() {
+        return this.minPriority == Integer.MIN_VALUE && this.maxPriority == Integer.MAX_VALUE;
+    }
+
+    boolean accepts(int priority) {
+        return priority >= this.minPriority && priority <= this.maxPriority;
+    }
+
+    /**
+     * @return the rate limiter of this lane, null if the lane is not rate limited
+     */
+    TokenBucket getThrottle() {
+        return this.throttle;
+    }
+
+    /**
+     * Tells if the messages with the given priority are limited by the rate limiter of this lane.
+     */
+    boolean isThrottled(int priority) {
+        return this.throttle != null && priority >= this.throttleMinPriority;
+    }
+
+    boolean isInFlightBudgetAvailable() {
+        return this.maxInFlightMessages == 0 || this.inFlightMsgIds.size() < this.maxInFlightMessages;
+    }
+
+    void addInFlightMessage(int msgId) {
+        this.inFlightMsgIds.add(msgId);
+    }
+
+    void removeInFlightMessage(int msgId) {
+        this.inFlightMsgIds.remove(msgId);
+    }
+
+    void clearInFlightMessages() {
+        this.inFlightMsgIds.clear();
+    }
+
+    boolean isEnabled() {
+        return this.enabled.get();
+    }
+
+    /**
+     * Stops the publisher of this lane at the end of its current iteration.
+     */
+    void disable() {
+        this.enabled.set(false);
+        signal();
+    }
+
+    void signal() {
+        this.lock.lock();
+        try {
+            this.notifyPending = true;
+            this.lockCondition.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the lane is signaled or the timeout elapses.
+     *
+     * @param timeout
+     *            the maximum time to wait, -1 to wait until signaled
+     */
+    void suspend(long timeout, TimeUnit timeUnit) {
+        this.lock.lock();
+        try {
+            if (!this.notifyPending) {
+                if (timeout == -1) {
+                    logger.debug("Suspending publishing thread of lane {} indefinitely", this.name);
+                    this.lockCondition.await();
+                } else {
+                    logger.debug("Suspending publishing thread of lane {} for {} milliseconds", this.name, timeout);
+                    this.lockCondition.await(timeout, timeUnit);
+                }
+            }
+            this.notifyPending = false;
+        } catch (InterruptedException e) {
+
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -32,6 +33,7 @@ import org.eclipse.kura.KuraStoreCapacityReachedException;
 import org.eclipse.kura.KuraStoreException;
 import org.eclipse.kura.core.data.DataMessage;
 import org.eclipse.kura.core.data.DataStore;
+import org.eclipse.kura.data.DataTransportToken;
 import org.eclipse.kura.db.H2DbService;
 import org.eclipse.kura.system.SystemService;
 import org.osgi.framework.BundleContext;
@@ -54,16 +56,22 @@ public class DbDataStore implements DataStore {
     private ScheduledExecutorService houseKeeperExecutor;
     private ScheduledFuture<?> houseKeeperTask;
     private int capacity;
+    private int messageCount;
+    private int messageCountHighWaterMark;
 
     private final String table;
 
     private final String sqlCreateTable;
     private final String sqlCreateIndex;
     private final String sqlMessageCount;
+    private final String sqlMaxMessageId;
     private final String sqlResetId;
     private final String sqlStore;
+    private final String sqlStoreWithId;
     private final String sqlGetMessage;
     private final String sqlGetNextMessage;
+    private final String sqlGetNextMessages;
+    private final String sqlGetNextMessagesInRange;
     private final String sqlSetPublished;
     private final String sqlSetPublished2;
     private final String sqlSetConfirmed;
@@ -92,14 +100,23 @@ public class DbDataStore implements DataStore {
         this.sqlCreateIndex = "CREATE INDEX IF NOT EXISTS " + this.table + "_nextMsg ON " + this.table
                 + " (publishedOn ASC NULLS FIRST, priority ASC, createdOn ASC, qos);";
         this.sqlMessageCount = "SELECT COUNT(*) FROM " + this.table + ";";
+        this.sqlMaxMessageId = "SELECT MAX(id) FROM " + this.table + ";";
         this.sqlResetId = "ALTER TABLE " + this.table + " ALTER COLUMN id RESTART WITH 1;";
         this.sqlStore = "INSERT INTO " + this.table
                 + " (topic, qos, retain, createdOn, publishedOn, publishedMessageId, confirmedOn, payload, priority, sessionId, droppedOn) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+        this.sqlStoreWithId = "INSERT INTO " + this.table
+                + " (id, topic, qos, retain, createdOn, publishedOn, publishedMessageId, confirmedOn, payload, priority, sessionId, droppedOn) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
         this.sqlGetMessage = "SELECT id, topic, qos, retain, createdOn, publishedOn, publishedMessageId, confirmedOn, payload, priority, sessionId, droppedOn FROM "
                 + this.table + " WHERE id = ?";
         this.sqlGetNextMessage = "SELECT a.id, a.topic, a.qos, a.retain, a.createdOn, a.publishedOn, a.publishedMessageId, a.confirmedOn, a.payload, a.priority, a.sessionId, a.droppedOn FROM "
                 + this.table + " AS a JOIN (SELECT id, publishedOn FROM " + this.table
                 + " ORDER BY publishedOn ASC NULLS FIRST, priority ASC, createdOn ASC LIMIT 1) AS b WHERE a.id = b.id AND b.publishedOn IS NULL;";
+        this.sqlGetNextMessages = "SELECT a.id, a.topic, a.qos, a.retain, a.createdOn, a.publishedOn, a.publishedMessageId, a.confirmedOn, a.payload, a.priority, a.sessionId, a.droppedOn FROM "
+                + this.table + " AS a JOIN (SELECT id, publishedOn FROM " + this.table
+                + " ORDER BY publishedOn ASC NULLS FIRST, priority ASC, createdOn ASC LIMIT ?) AS b WHERE a.id = b.id AND b.publishedOn IS NULL ORDER BY a.priority ASC, a.createdOn ASC, a.id ASC;";
+        this.sqlGetNextMessagesInRange = "SELECT a.id, a.topic, a.qos, a.retain, a.createdOn, a.publishedOn, a.publishedMessageId, a.confirmedOn, a.payload, a.priority, a.sessionId, a.droppedOn FROM "
+                + this.table + " AS a JOIN (SELECT id FROM " + this.table
+                + " WHERE publishedOn IS NULL AND priority >= ? AND priority <= ? ORDER BY publishedOn ASC NULLS FIRST, priority ASC, createdOn ASC LIMIT ?) AS b WHERE a.id = b.id ORDER BY a.priority ASC, a.createdOn ASC, a.id ASC;";
         this.sqlSetPublished = "UPDATE " + this.table
                 + " SET publishedOn = ?, publishedMessageId = ?, sessionId = ? WHERE id = ?;";
         this.sqlSetPublished2 = "UPDATE " + this.table + " SET publishedOn = ? WHERE id = ?;";
@@ -190,6 +207,11 @@ public class DbDataStore implements DataStore {
             createIndex(this.table + "_CONFIRMEDON", this.table, "(CONFIRMEDON DESC)");
             createIndex(this.table + "_DROPPEDON", this.table, "(DROPPEDON DESC)");
 
+            // Seed the message counter, it is then kept up to date without querying the table
+            this.messageCount = countMessages();
+            this.messageCountHighWaterMark = Math.max(this.messageCountHighWaterMark, this.messageCount);
+            logger.info("Store contains {} messages, capacity is {}", this.messageCount, capacity);
+
             // Start the Housekeeper task
             this.houseKeeperTask = this.houseKeeperExecutor.scheduleWithFixedDelay(
                     new HouseKeeperTask(this, purgeAge, isRepairEnabled()), 1,    // start in one second
@@ -207,7 +229,7 @@ public class DbDataStore implements DataStore {
     //
     // ----------------------------------------------------------
 
-    private synchronized int getMessageCount() throws KuraStoreException {
+    private synchronized int countMessages() throws KuraStoreException {
         ResultSet rs = null;
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -231,6 +253,30 @@ public class DbDataStore implements DataStore {
         return count;
     }
 
+    synchronized int getMaxMessageId() throws KuraStoreException {
+        ResultSet rs = null;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        int maxId = 0;
+        try {
+
+            conn = getConnection();
+            stmt = conn.prepareStatement(this.sqlMaxMessageId);
+            rs = stmt.executeQuery();
+            if (rs.next()) {
+                maxId = rs.getInt(1);
+            }
+        } catch (Exception e) {
+            throw new KuraStoreException(e, "Cannot get maximum message ID");
+        } finally {
+            close(rs);
+            close(stmt);
+            close(conn);
+        }
+
+        return maxId;
+    }
+
     private synchronized void resetIdentityGenerator() throws KuraStoreException {
         execute(this.sqlResetId);
     }
@@ -250,9 +296,8 @@ public class DbDataStore implements DataStore {
         // For those messages, bypass the max message count check of the DB cache;
         // we want to publish those message even if the db is full, so allow their storage.
         if (priority != 0 && priority != 1) {
-            int count = getMessageCount();
-            logger.debug("Store message count: {}", count);
-            if (count >= this.capacity) {
+            logger.debug("Store message count: {}", this.messageCount);
+            if (this.messageCount >= this.capacity) {
                 logger.error("Store capacity exceeded");
                 throw new KuraStoreCapacityReachedException("Store capacity exceeded");
             }
@@ -323,6 +368,7 @@ public class DbDataStore implements DataStore {
             }
 
             conn.commit();
+            messageStored(1);
         } catch (SQLException e) {
             rollback(conn);
             logger.error("SQL error code: {}", e.getErrorCode());
@@ -336,6 +382,56 @@ public class DbDataStore implements DataStore {
         return get(messageId);
     }
 
+    /**
+     * Stores a batch of messages in a single transaction. The IDs and creation timestamps of the messages
+     * have already been assigned by the caller and are persisted as they are, together with their
+     * publication and confirmation state.
+     * The store capacity is not checked.
+     * 
+     * @param messages
+     * @throws KuraStoreException
+     */
+    synchronized void storeAll(List<DataMessage> messages) throws KuraStoreException {
+        if (dbService == null) {
+            throw new KuraStoreException("DbService instance not attached");
+        }
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+
+            conn = getConnection();
+
+            pstmt = conn.prepareStatement(this.sqlStoreWithId);
+            for (DataMessage message : messages) {
+                pstmt.setInt(1, message.getId());                 // id
+                pstmt.setString(2, message.getTopic());             // topic
+                pstmt.setInt(3, message.getQos());                  // qos
+                pstmt.setBoolean(4, message.isRetain());            // retain
+                pstmt.setTimestamp(5, new Timestamp(message.getCreatedOn().getTime()), this.utcCalendar); // createdOn
+                pstmt.setTimestamp(6, toTimestamp(message.getPublishedOn()), this.utcCalendar); // publishedOn
+                pstmt.setInt(7, message.getPublishedMessageId());   // publishedMessageId
+                pstmt.setTimestamp(8, toTimestamp(message.getConfirmedOn()), this.utcCalendar); // confirmedOn
+                pstmt.setBytes(9, message.getPayload());            // payload
+                pstmt.setInt(10, message.getPriority());            // priority
+                pstmt.setString(11, message.getSessionId());        // sessionId
+                pstmt.setTimestamp(12, null);                       // droppedOn
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+
+            conn.commit();
+            messageStored(messages.size());
+        } catch (SQLException e) {
+            rollback(conn);
+            logger.error("SQL error code: {}", e.getErrorCode());
+            throw new KuraStoreException(e, "Cannot store messages");
+        } finally {
+            close(pstmt);
+            close(conn);
+        }
+    }
+
     @Override
     public synchronized DataMessage get(int msgId) throws KuraStoreException {
         DataMessage msg = null;
@@ -385,6 +481,59 @@ public class DbDataStore implements DataStore {
         return msg;
     }
 
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int maxMessages) throws KuraStoreException {
+        List<DataMessage> msgs = new ArrayList<>();
+        ResultSet rs = null;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+
+            conn = getConnection();
+            stmt = conn.prepareStatement(this.sqlGetNextMessages);
+            stmt.setInt(1, maxMessages);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                msgs.add(buildDataMessage(rs));
+            }
+        } catch (Exception e) {
+            throw new KuraStoreException(e, "Cannot get next messages");
+        } finally {
+            close(rs);
+            close(stmt);
+            close(conn);
+        }
+        return msgs;
+    }
+
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int minPriority, int maxPriority, int maxMessages)
+            throws KuraStoreException {
+        List<DataMessage> msgs = new ArrayList<>();
+        ResultSet rs = null;
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+
+            conn = getConnection();
+            stmt = conn.prepareStatement(this.sqlGetNextMessagesInRange);
+            stmt.setInt(1, minPriority);
+            stmt.setInt(2, maxPriority);
+            stmt.setInt(3, maxMessages);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                msgs.add(buildDataMessage(rs));
+            }
+        } catch (Exception e) {
+            throw new KuraStoreException(e, "Cannot get next messages");
+        } finally {
+            close(rs);
+            close(stmt);
+            close(conn);
+        }
+        return msgs;
+    }
+
     @Override
     public synchronized void published(int msgId, int publishedMsgId, String sessionId) throws KuraStoreException {
         Timestamp now = new Timestamp(new Date().getTime());
@@ -416,11 +565,79 @@ public class DbDataStore implements DataStore {
         updateTimestamp(this.sqlSetPublished2, msgId);
     }
 
+    @Override
+    public synchronized void published(Map<Integer, DataTransportToken> publishedMessages) throws KuraStoreException {
+        Timestamp now = new Timestamp(new Date().getTime());
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        PreparedStatement stmt2 = null;
+        try {
+
+            conn = getConnection();
+            stmt = conn.prepareStatement(this.sqlSetPublished);
+            stmt2 = conn.prepareStatement(this.sqlSetPublished2);
+
+            for (Map.Entry<Integer, DataTransportToken> entry : publishedMessages.entrySet()) {
+                DataTransportToken token = entry.getValue();
+                if (token == null) {
+                    stmt2.setTimestamp(1, now, this.utcCalendar); // timestamp
+                    stmt2.setInt(2, entry.getKey());
+                    stmt2.addBatch();
+                } else {
+                    stmt.setTimestamp(1, now, this.utcCalendar); // timestamp
+                    stmt.setInt(2, token.getMessageId());
+                    stmt.setString(3, token.getSessionId());
+                    stmt.setInt(4, entry.getKey());
+                    stmt.addBatch();
+                }
+            }
+
+            stmt.executeBatch();
+            stmt2.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            rollback(conn);
+            throw new KuraStoreException(e, "Cannot update timestamps");
+        } finally {
+            close(stmt, stmt2);
+            close(conn);
+        }
+    }
+
     @Override
     public synchronized void confirmed(int msgId) throws KuraStoreException {
         updateTimestamp(this.sqlSetConfirmed, msgId);
     }
 
+    @Override
+    public synchronized void confirmed(List<Integer> msgIds) throws KuraStoreException {
+        Timestamp now = new Timestamp(new Date().getTime());
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+
+            conn = getConnection();
+            stmt = conn.prepareStatement(this.sqlSetConfirmed);
+
+            for (Integer msgId : msgIds) {
+                stmt.setTimestamp(1, now, this.utcCalendar); // timestamp
+                stmt.setInt(2, msgId);
+                stmt.addBatch();
+            }
+
+            stmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            rollback(conn);
+            throw new KuraStoreException(e, "Cannot update timestamps");
+        } finally {
+            close(stmt);
+            close(conn);
+        }
+    }
+
     @Override
     public synchronized List<DataMessage> allUnpublishedMessagesNoPayload() throws KuraStoreException {
         // Order by priority, createdOn
@@ -452,13 +669,23 @@ public class DbDataStore implements DataStore {
     @Override
     public synchronized void deleteStaleMessages(int purgeAge) throws KuraStoreException {
         // Delete dropped messages (published with QoS > 0)
-        execute(this.sqlDeleteDroppedMessages, purgeAge);
+        messagesDeleted(executeUpdate(this.sqlDeleteDroppedMessages, purgeAge));
 
         // Delete stale confirmed messages (published with QoS > 0)
-        execute(this.sqlDeleteConfirmedMessages, purgeAge);
+        messagesDeleted(executeUpdate(this.sqlDeleteConfirmedMessages, purgeAge));
 
         // Delete stale published messages with QoS == 0
-        execute(this.sqlDeletePublishedMessages, purgeAge);
+        messagesDeleted(executeUpdate(this.sqlDeletePublishedMessages, purgeAge));
+    }
+
+    @Override
+    public synchronized int getMessageCount() {
+        return this.messageCount;
+    }
+
+    @Override
+    public synchronized int getMessageCountHighWaterMark() {
+        return this.messageCountHighWaterMark;
     }
 
     @Override
@@ -493,13 +720,14 @@ public class DbDataStore implements DataStore {
             stmt.execute(this.sqlDropPrimaryKey);
             logger.info("Primary key dropped");
 
-            stmt.execute(this.sqlDeleteDuplicates);
-            logger.info("Duplicate messages deleted");
+            int deleted = stmt.executeUpdate(this.sqlDeleteDuplicates);
+            logger.info("{} duplicate messages deleted", deleted);
 
             stmt.execute(this.sqlCreatePrimaryKey);
             logger.info("Primary key created");
 
             conn.commit();
+            messagesDeleted(deleted);
 
             execute("CHECKPOINT");
             logger.info("Checkpoint");
@@ -521,6 +749,21 @@ public class DbDataStore implements DataStore {
     //
     // ------------------------------------------------------------------
 
+    private void messageStored(int count) {
+        this.messageCount += count;
+        if (this.messageCount > this.messageCountHighWaterMark) {
+            this.messageCountHighWaterMark = this.messageCount;
+        }
+    }
+
+    private void messagesDeleted(int count) {
+        this.messageCount = Math.max(0, this.messageCount - count);
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+
     private synchronized void updateTimestamp(String sql, Integer... msgIds) throws KuraStoreException {
         Timestamp now = new Timestamp(new Date().getTime());
 
@@ -599,6 +842,31 @@ public class DbDataStore implements DataStore {
         }
     }
 
+    private synchronized int executeUpdate(String sql, Integer... params) throws KuraStoreException {
+        if (dbService == null) {
+            throw new KuraStoreException("DbService instance not attached");
+        }
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+
+            conn = getConnection();
+            stmt = conn.prepareStatement(sql);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setInt(1 + i, params[i]);
+            }
+            int count = stmt.executeUpdate();
+            conn.commit();
+            return count;
+        } catch (SQLException e) {
+            rollback(conn);
+            throw new KuraStoreException(e, "Cannot execute query");
+        } finally {
+            close(stmt);
+            close(conn);
+        }
+    }
+
     private void createIndex(String indexname, String table, String order) throws KuraStoreException {
         execute("CREATE INDEX IF NOT EXISTS " + indexname + " ON " + table + " " + order + ";");
         logger.debug("Index {} created, order is {}", indexname, order);
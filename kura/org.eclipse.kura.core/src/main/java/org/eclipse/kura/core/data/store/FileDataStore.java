@@ -0,0 +1,898 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.core.data.DataStore;
+import org.eclipse.kura.data.DataTransportToken;
+import org.eclipse.kura.db.H2DbService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of the DataStore which stores messages into memory-mapped, append-only segment files.
+ * <p>
+ * Messages are appended to the current segment and never rewritten. State transitions (published, confirmed,
+ * dropped) are appended to a small state journal, which is compacted when it grows. The metadata of the stored
+ * messages is kept in memory, payloads are read back from the segments only when a message is loaded.
+ * <p>
+ * Stale messages are marked as deleted in the in-memory index and in the journal by the housekeeper, and a
+ * segment file is deleted once all of its messages have been removed.
+ * <p>
+ * Segments and journal are written through the operating system page cache and are not synced on every
+ * operation.
+ */
+public class FileDataStore implements DataStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileDataStore.class);
+
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+    private static final String JOURNAL_FILE_NAME = "state.journal";
+    private static final String JOURNAL_TMP_FILE_NAME = "state.journal.tmp";
+
+    private static final long JOURNAL_COMPACTION_THRESHOLD = 1024L * 1024L;
+
+    // record header: body length and CRC32 of the body
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte JOURNAL_PUBLISHED = 1;
+    private static final byte JOURNAL_CONFIRMED = 2;
+    private static final byte JOURNAL_DROPPED = 3;
+    private static final byte JOURNAL_UNPUBLISH_ALL_IN_FLIGHT = 4;
+    private static final byte JOURNAL_DROP_ALL_IN_FLIGHT = 5;
+    private static final byte JOURNAL_DELETED = 6;
+
+    private static final Comparator<Entry> PUBLISHING_ORDER = Comparator.comparingInt((Entry e) -> e.priority)
+            .thenComparingLong(e -> e.createdOn).thenComparingInt(e -> e.id);
+
+    private final File directory;
+    private final int segmentSize;
+
+    private final Map<Integer, Entry> index = new HashMap<>();
+    private final TreeSet<Entry> unpublished = new TreeSet<>(PUBLISHING_ORDER);
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+    private FileChannel journal;
+    private ScheduledExecutorService houseKeeperExecutor;
+    private ScheduledFuture<?> houseKeeperTask;
+
+    private int capacity;
+    private int nextId;
+    private int messageCount;
+    private int messageCountHighWaterMark;
+    private boolean started;
+
+    /**
+     * @param directory
+     *            the directory holding the segments and the journal of this store
+     * @param segmentSize
+     *            the size in bytes of each segment file
+     */
+    public FileDataStore(File directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    // ----------------------------------------------------------
+    //
+    // Start/Stop
+    //
+    // ----------------------------------------------------------
+
+    @Override
+    public synchronized void start(H2DbService dbService, int houseKeeperInterval, int purgeAge, int capacity)
+            throws KuraStoreException {
+        // the database service is not used by this store
+
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new KuraStoreException("Cannot create store directory " + this.directory);
+        }
+
+        try {
+            loadSegments();
+            replayJournal();
+            this.journal = FileChannel.open(new File(this.directory, JOURNAL_FILE_NAME).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            closeAll();
+            throw new KuraStoreException(e, "Cannot open store in " + this.directory);
+        }
+
+        this.messageCountHighWaterMark = Math.max(this.messageCountHighWaterMark, this.messageCount);
+        this.started = true;
+        logger.info("Store in {} contains {} messages in {} segments", this.directory, this.messageCount,
+                this.segments.size());
+
+        this.houseKeeperExecutor = Executors.newSingleThreadScheduledExecutor();
+
+        update(houseKeeperInterval, purgeAge, capacity);
+    }
+
+    @Override
+    public synchronized void update(int houseKeeperInterval, int purgeAge, int capacity) {
+        this.capacity = capacity;
+
+        if (this.houseKeeperTask != null) {
+            this.houseKeeperTask.cancel(true);
+        }
+
+        // Start the Housekeeper task
+        this.houseKeeperTask = this.houseKeeperExecutor.scheduleWithFixedDelay(
+                new HouseKeeperTask(this, purgeAge, false), 1,    // start in one second
+                houseKeeperInterval,   // repeat every retryInterval until we stopped.
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        logger.info("Canceling the Housekeeper Task...");
+        if (this.houseKeeperTask != null) {
+            this.houseKeeperTask.cancel(true);
+        }
+        if (this.houseKeeperExecutor != null) {
+            this.houseKeeperExecutor.shutdownNow();
+        }
+
+        closeAll();
+        this.started = false;
+    }
+
+    // ----------------------------------------------------------
+    //
+    // Message APIs
+    //
+    // ----------------------------------------------------------
+
+    @Override
+    public synchronized DataMessage store(String topic, byte[] payload, int qos, boolean retain, int priority)
+            throws KuraStoreException {
+        if (!this.started) {
+            throw new KuraStoreException("Store not started");
+        }
+        if (topic == null || topic.trim().length() == 0) {
+            throw new IllegalArgumentException("topic");
+        }
+
+        // Priority 0 and 1 messages bypass the capacity check, see DbDataStore
+        if (priority != 0 && priority != 1 && this.messageCount >= this.capacity) {
+            logger.error("Store capacity exceeded");
+            throw new KuraStoreCapacityReachedException("Store capacity exceeded");
+        }
+
+        Entry entry = new Entry();
+        entry.id = this.nextId;
+        entry.topic = topic;
+        entry.qos = qos;
+        entry.retain = retain;
+        entry.createdOn = System.currentTimeMillis();
+        entry.priority = priority;
+
+        byte[] record = encodeRecord(entry, payload);
+        try {
+            Segment segment = this.segments.isEmpty() ? null : this.segments.lastEntry().getValue();
+            if (segment == null || !segment.fits(record.length)) {
+                segment = rollSegment(entry.id, record.length);
+            }
+            entry.segment = segment;
+            entry.offset = segment.append(record);
+        } catch (IOException e) {
+            throw new KuraStoreException(e, "Cannot store message");
+        }
+
+        this.nextId++;
+        addEntry(entry);
+        this.messageCountHighWaterMark = Math.max(this.messageCountHighWaterMark, this.messageCount);
+
+        return entry.toDataMessage(payload);
+    }
+
+    @Override
+    public synchronized void published(int msgId, int publishedMsgId, String sessionId) throws KuraStoreException {
+        ByteBuffer record = setPublished(msgId, new Date(), publishedMsgId, sessionId);
+        if (record != null) {
+            writeJournal(record);
+        }
+    }
+
+    @Override
+    public synchronized void published(int msgId) throws KuraStoreException {
+        ByteBuffer record = setPublished(msgId, new Date(), -1, null);
+        if (record != null) {
+            writeJournal(record);
+        }
+    }
+
+    @Override
+    public synchronized void published(Map<Integer, DataTransportToken> publishedMessages) throws KuraStoreException {
+        Date now = new Date();
+        List<ByteBuffer> records = new ArrayList<>(publishedMessages.size());
+        for (Map.Entry<Integer, DataTransportToken> published : publishedMessages.entrySet()) {
+            DataTransportToken token = published.getValue();
+            ByteBuffer record = token == null ? setPublished(published.getKey(), now, -1, null)
+                    : setPublished(published.getKey(), now, token.getMessageId(), token.getSessionId());
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        writeJournal(records.toArray(new ByteBuffer[records.size()]));
+    }
+
+    @Override
+    public synchronized void confirmed(int msgId) throws KuraStoreException {
+        ByteBuffer record = setConfirmed(msgId, new Date());
+        if (record != null) {
+            writeJournal(record);
+        }
+    }
+
+    @Override
+    public synchronized void confirmed(List<Integer> msgIds) throws KuraStoreException {
+        Date now = new Date();
+        List<ByteBuffer> records = new ArrayList<>(msgIds.size());
+        for (Integer msgId : msgIds) {
+            ByteBuffer record = setConfirmed(msgId, now);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        writeJournal(records.toArray(new ByteBuffer[records.size()]));
+    }
+
+    @Override
+    public synchronized DataMessage getNextMessage() throws KuraStoreException {
+        if (this.unpublished.isEmpty()) {
+            return null;
+        }
+        return load(this.unpublished.first());
+    }
+
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int maxMessages) throws KuraStoreException {
+        List<DataMessage> msgs = new ArrayList<>();
+        Iterator<Entry> iterator = this.unpublished.iterator();
+        while (iterator.hasNext() && msgs.size() < maxMessages) {
+            msgs.add(load(iterator.next()));
+        }
+        return msgs;
+    }
+
+    @Override
+    public synchronized List<DataMessage> getNextMessages(int minPriority, int maxPriority, int maxMessages)
+            throws KuraStoreException {
+        Entry from = new Entry();
+        from.priority = minPriority;
+        from.createdOn = Long.MIN_VALUE;
+        from.id = Integer.MIN_VALUE;
+
+        List<DataMessage> msgs = new ArrayList<>();
+        Iterator<Entry> iterator = this.unpublished.tailSet(from).iterator();
+        while (iterator.hasNext() && msgs.size() < maxMessages) {
+            Entry entry = iterator.next();
+            if (entry.priority > maxPriority) {
+                break;
+            }
+            msgs.add(load(entry));
+        }
+        return msgs;
+    }
+
+    @Override
+    public synchronized DataMessage get(int msgId) throws KuraStoreException {
+        Entry entry = this.index.get(msgId);
+        if (entry == null || entry.deleted) {
+            return null;
+        }
+        return load(entry);
+    }
+
+    @Override
+    public synchronized List<DataMessage> allUnpublishedMessagesNoPayload() throws KuraStoreException {
+        List<DataMessage> msgs = new ArrayList<>(this.unpublished.size());
+        for (Entry entry : this.unpublished) {
+            msgs.add(entry.toDataMessage(null));
+        }
+        return msgs;
+    }
+
+    @Override
+    public synchronized List<DataMessage> allInFlightMessagesNoPayload() throws KuraStoreException {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : this.index.values()) {
+            if (!entry.deleted && entry.isInFlight() && entry.droppedOn == null) {
+                entries.add(entry);
+            }
+        }
+        return toDataMessagesNoPayload(entries);
+    }
+
+    @Override
+    public synchronized List<DataMessage> allDroppedInFlightMessagesNoPayload() throws KuraStoreException {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : this.index.values()) {
+            if (!entry.deleted && entry.droppedOn != null) {
+                entries.add(entry);
+            }
+        }
+        return toDataMessagesNoPayload(entries);
+    }
+
+    @Override
+    public synchronized void unpublishAllInFlighMessages() throws KuraStoreException {
+        applyUnpublishAllInFlight();
+        writeJournal(encodeJournalRecord(JOURNAL_UNPUBLISH_ALL_IN_FLIGHT, 0, null, -1, null));
+    }
+
+    @Override
+    public synchronized void dropAllInFlightMessages() throws KuraStoreException {
+        Date now = new Date();
+        applyDropAllInFlight(now);
+        writeJournal(encodeJournalRecord(JOURNAL_DROP_ALL_IN_FLIGHT, 0, now, -1, null));
+    }
+
+    @Override
+    public synchronized void deleteStaleMessages(int purgeAge) throws KuraStoreException {
+        long purgeTime = System.currentTimeMillis() - purgeAge * 1000L;
+
+        List<ByteBuffer> records = new ArrayList<>();
+        for (Entry entry : this.index.values()) {
+            if (!entry.deleted && entry.isStale(purgeTime)) {
+                setDeleted(entry);
+                records.add(encodeJournalRecord(JOURNAL_DELETED, entry.id, null, -1, null));
+            }
+        }
+        // the deletions are journaled before the segments go, so that a restart cannot bring the messages back
+        writeJournal(records.toArray(new ByteBuffer[records.size()]));
+
+        // Delete the segments whose messages have all been removed, except the one being appended to
+        List<Segment> emptySegments = new ArrayList<>();
+        for (Segment segment : this.segments.values()) {
+            if (segment.liveEntries == 0 && segment != this.segments.lastEntry().getValue()) {
+                emptySegments.add(segment);
+            }
+        }
+        if (!emptySegments.isEmpty()) {
+            this.index.values().removeIf(entry -> emptySegments.contains(entry.segment));
+            for (Segment segment : emptySegments) {
+                this.segments.remove(segment.firstId);
+                segment.close();
+                if (!segment.file.delete()) {
+                    logger.warn("Cannot delete segment {}", segment.file);
+                }
+            }
+        }
+        logger.info("Deleted {} stale messages and {} segments", records.size(), emptySegments.size());
+
+        try {
+            if (this.journal.size() > JOURNAL_COMPACTION_THRESHOLD) {
+                compactJournal();
+            }
+        } catch (IOException e) {
+            throw new KuraStoreException(e, "Cannot compact state journal");
+        }
+    }
+
+    @Override
+    public synchronized int getMessageCount() {
+        return this.messageCount;
+    }
+
+    @Override
+    public synchronized int getMessageCountHighWaterMark() {
+        return this.messageCountHighWaterMark;
+    }
+
+    @Override
+    public synchronized void repair() throws KuraStoreException {
+        // Torn records are discarded when the store is started; rewriting the journal bounds its replay time
+        try {
+            compactJournal();
+        } catch (IOException e) {
+            throw new KuraStoreException(e, "Cannot compact state journal");
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods: Index
+    //
+    // ------------------------------------------------------------------
+
+    private void addEntry(Entry entry) {
+        this.index.put(entry.id, entry);
+        this.unpublished.add(entry);
+        entry.segment.liveEntries++;
+        this.messageCount++;
+    }
+
+    private ByteBuffer setPublished(int msgId, Date publishedOn, int publishedMsgId, String sessionId) {
+        Entry entry = this.index.get(msgId);
+        if (entry == null) {
+            return null;
+        }
+        this.unpublished.remove(entry);
+        entry.publishedOn = publishedOn;
+        entry.publishedMessageId = publishedMsgId;
+        entry.sessionId = sessionId;
+        return encodeJournalRecord(JOURNAL_PUBLISHED, msgId, publishedOn, publishedMsgId, sessionId);
+    }
+
+    private ByteBuffer setConfirmed(int msgId, Date confirmedOn) {
+        Entry entry = this.index.get(msgId);
+        if (entry == null) {
+            return null;
+        }
+        entry.confirmedOn = confirmedOn;
+        return encodeJournalRecord(JOURNAL_CONFIRMED, msgId, confirmedOn, -1, null);
+    }
+
+    private void setDeleted(Entry entry) {
+        entry.deleted = true;
+        this.unpublished.remove(entry);
+        entry.segment.liveEntries--;
+        this.messageCount--;
+    }
+
+    private void applyUnpublishAllInFlight() {
+        for (Entry entry : this.index.values()) {
+            if (!entry.deleted && entry.isInFlight()) {
+                entry.publishedOn = null;
+                this.unpublished.add(entry);
+            }
+        }
+    }
+
+    private void applyDropAllInFlight(Date droppedOn) {
+        for (Entry entry : this.index.values()) {
+            if (!entry.deleted && entry.isInFlight()) {
+                entry.droppedOn = droppedOn;
+            }
+        }
+    }
+
+    private DataMessage load(Entry entry) throws KuraStoreException {
+        return entry.toDataMessage(entry.segment.readPayload(entry.offset));
+    }
+
+    private static List<DataMessage> toDataMessagesNoPayload(List<Entry> entries) {
+        entries.sort(PUBLISHING_ORDER);
+        List<DataMessage> msgs = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            msgs.add(entry.toDataMessage(null));
+        }
+        return msgs;
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods: Segments
+    //
+    // ------------------------------------------------------------------
+
+    private void loadSegments() throws IOException {
+        File[] files = this.directory.listFiles((dir, name) -> name.endsWith(SEGMENT_FILE_SUFFIX));
+        if (files == null) {
+            throw new IOException("Cannot list " + this.directory);
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                int firstId = Integer.parseInt(name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length()));
+                this.segments.put(firstId, Segment.open(file, firstId));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring unexpected file {}", file);
+            }
+        }
+
+        this.nextId = 1;
+        for (Segment segment : this.segments.values()) {
+            boolean last = segment == this.segments.lastEntry().getValue();
+            for (Entry entry : segment.recover(last)) {
+                addEntry(entry);
+                this.nextId = Math.max(this.nextId, entry.id + 1);
+            }
+        }
+    }
+
+    private Segment rollSegment(int firstId, int recordLength) throws IOException {
+        if (!this.segments.isEmpty()) {
+            this.segments.lastEntry().getValue().force();
+        }
+
+        File file = new File(this.directory, String.format("%010d%s", firstId, SEGMENT_FILE_SUFFIX));
+        Segment segment = Segment.create(file, firstId, Math.max(this.segmentSize, recordLength));
+        this.segments.put(firstId, segment);
+        logger.debug("Created segment {}", file);
+        return segment;
+    }
+
+    private static byte[] encodeRecord(Entry entry, byte[] payload) {
+        byte[] topic = entry.topic.getBytes(StandardCharsets.UTF_8);
+        int payloadLength = payload == null ? -1 : payload.length;
+        int bodyLength = 4 + 4 + 1 + 8 + 4 + 4 + topic.length + 4 + Math.max(0, payloadLength);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodyLength);
+        buffer.putInt(bodyLength);
+        buffer.putInt(0); // CRC placeholder
+        buffer.putInt(entry.id);
+        buffer.putInt(entry.qos);
+        buffer.put((byte) (entry.retain ? 1 : 0));
+        buffer.putLong(entry.createdOn);
+        buffer.putInt(entry.priority);
+        buffer.putInt(topic.length);
+        buffer.put(topic);
+        buffer.putInt(payloadLength);
+        if (payload != null) {
+            buffer.put(payload);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), RECORD_HEADER_SIZE, bodyLength);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    private void closeAll() {
+        for (Segment segment : this.segments.values()) {
+            segment.force();
+            segment.close();
+        }
+        this.segments.clear();
+        this.index.clear();
+        this.unpublished.clear();
+        this.messageCount = 0;
+
+        if (this.journal != null) {
+            try {
+                this.journal.force(false);
+                this.journal.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close state journal", e);
+            }
+            this.journal = null;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods: State Journal
+    //
+    // ------------------------------------------------------------------
+
+    private static ByteBuffer encodeJournalRecord(byte type, int msgId, Date timestamp, int publishedMsgId,
+            String sessionId) {
+        byte[] session = sessionId == null ? new byte[0] : sessionId.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 8 + 4 + 2 + session.length);
+        buffer.put(type);
+        buffer.putInt(msgId);
+        buffer.putLong(timestamp == null ? 0 : timestamp.getTime());
+        buffer.putInt(publishedMsgId);
+        buffer.putShort(sessionId == null ? -1 : (short) session.length);
+        buffer.put(session);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void writeJournal(ByteBuffer... records) throws KuraStoreException {
+        if (!this.started) {
+            throw new KuraStoreException("Store not started");
+        }
+        try {
+            this.journal.write(records);
+        } catch (IOException e) {
+            throw new KuraStoreException(e, "Cannot update state journal");
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        File file = new File(this.directory, JOURNAL_FILE_NAME);
+        if (!file.exists()) {
+            return;
+        }
+
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte type = in.readByte();
+                int msgId = in.readInt();
+                long timestamp = in.readLong();
+                int publishedMsgId = in.readInt();
+                short sessionLength = in.readShort();
+                String sessionId = null;
+                if (sessionLength >= 0) {
+                    byte[] session = new byte[sessionLength];
+                    in.readFully(session);
+                    sessionId = new String(session, StandardCharsets.UTF_8);
+                }
+
+                applyJournalRecord(type, msgId, new Date(timestamp), publishedMsgId, sessionId);
+                validLength += 1 + 4 + 8 + 4 + 2 + Math.max(0, sessionLength);
+            }
+        } catch (EOFException e) {
+            // end of journal, possibly a torn record
+        }
+
+        if (validLength < file.length()) {
+            logger.warn("Discarding torn record at the end of the state journal");
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+
+    private void applyJournalRecord(byte type, int msgId, Date timestamp, int publishedMsgId, String sessionId) {
+        switch (type) {
+        case JOURNAL_PUBLISHED:
+            setPublished(msgId, timestamp, publishedMsgId, sessionId);
+            break;
+        case JOURNAL_CONFIRMED:
+            setConfirmed(msgId, timestamp);
+            break;
+        case JOURNAL_DROPPED:
+            Entry dropped = this.index.get(msgId);
+            if (dropped != null) {
+                dropped.droppedOn = timestamp;
+            }
+            break;
+        case JOURNAL_UNPUBLISH_ALL_IN_FLIGHT:
+            applyUnpublishAllInFlight();
+            break;
+        case JOURNAL_DROP_ALL_IN_FLIGHT:
+            applyDropAllInFlight(timestamp);
+            break;
+        case JOURNAL_DELETED:
+            Entry deleted = this.index.get(msgId);
+            if (deleted != null && !deleted.deleted) {
+                setDeleted(deleted);
+            }
+            break;
+        default:
+            logger.warn("Unknown state journal record type {}", type);
+        }
+    }
+
+    private void compactJournal() throws IOException {
+        File tmpFile = new File(this.directory, JOURNAL_TMP_FILE_NAME);
+        try (FileChannel out = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Entry entry : this.index.values()) {
+                if (entry.deleted) {
+                    out.write(encodeJournalRecord(JOURNAL_DELETED, entry.id, null, -1, null));
+                    continue;
+                }
+                if (entry.publishedOn != null) {
+                    out.write(encodeJournalRecord(JOURNAL_PUBLISHED, entry.id, entry.publishedOn,
+                            entry.publishedMessageId, entry.sessionId));
+                }
+                if (entry.confirmedOn != null) {
+                    out.write(encodeJournalRecord(JOURNAL_CONFIRMED, entry.id, entry.confirmedOn, -1, null));
+                }
+                if (entry.droppedOn != null) {
+                    out.write(encodeJournalRecord(JOURNAL_DROPPED, entry.id, entry.droppedOn, -1, null));
+                }
+            }
+            out.force(false);
+        }
+
+        this.journal.close();
+        File file = new File(this.directory, JOURNAL_FILE_NAME);
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        this.journal = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        logger.info("State journal compacted to {} bytes", this.journal.size());
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Index entry and segment
+    //
+    // ------------------------------------------------------------------
+
+    private static final class Entry {
+
+        private int id;
+        private String topic;
+        private int qos;
+        private boolean retain;
+        private long createdOn;
+        private int priority;
+        private Date publishedOn;
+        private int publishedMessageId = -1;
+        private String sessionId;
+        private Date confirmedOn;
+        private Date droppedOn;
+        private boolean deleted;
+
+        private Segment segment;
+        private int offset;
+
+        private boolean isInFlight() {
+            return this.publishedOn != null && this.qos > 0 && this.confirmedOn == null;
+        }
+
+        private boolean isStale(long purgeTime) {
+            return this.droppedOn != null && this.droppedOn.getTime() <= purgeTime
+                    || this.confirmedOn != null && this.confirmedOn.getTime() <= purgeTime
+                    || this.qos == 0 && this.publishedOn != null && this.publishedOn.getTime() <= purgeTime;
+        }
+
+        private DataMessage toDataMessage(byte[] payload) {
+            return new DataMessage.Builder(this.id).withTopic(this.topic).withQos(this.qos).withRetain(this.retain)
+                    .withCreatedOn(new Date(this.createdOn)).withPublishedOn(this.publishedOn)
+                    .withPublishedMessageId(this.publishedMessageId).withConfirmedOn(this.confirmedOn)
+                    .withPayload(payload).withPriority(this.priority).withSessionId(this.sessionId)
+                    .withDroppedOn(this.droppedOn).build();
+        }
+    }
+
+    private static final class Segment {
+
+        private final File file;
+        private final int firstId;
+        private final RandomAccessFile raf;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private int liveEntries;
+
+        private Segment(File file, int firstId, RandomAccessFile raf, MappedByteBuffer buffer) {
+            this.file = file;
+            this.firstId = firstId;
+            this.raf = raf;
+            this.buffer = buffer;
+        }
+
+        private static Segment create(File file, int firstId, int size) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(size);
+                MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                return new Segment(file, firstId, raf, buffer);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        private static Segment open(File file, int firstId) throws IOException {
+            return create(file, firstId, (int) file.length());
+        }
+
+        private boolean fits(int recordLength) {
+            return this.buffer.capacity() - this.position >= recordLength;
+        }
+
+        private int append(byte[] record) {
+            int offset = this.position;
+            ByteBuffer view = this.buffer.duplicate();
+            view.position(offset);
+            view.put(record);
+            this.position += record.length;
+            return offset;
+        }
+
+        /**
+         * Reads back all the valid records of the segment. Reading stops at the first empty or corrupted record;
+         * in the last segment the rest of the file is cleared so that new records can be appended there.
+         */
+        private List<Entry> recover(boolean last) {
+            List<Entry> entries = new ArrayList<>();
+            ByteBuffer view = this.buffer.duplicate();
+            CRC32 crc = new CRC32();
+
+            int offset = 0;
+            while (offset + RECORD_HEADER_SIZE <= view.capacity()) {
+                int bodyLength = view.getInt(offset);
+                if (bodyLength <= 0 || offset + RECORD_HEADER_SIZE + bodyLength > view.capacity()) {
+                    break;
+                }
+
+                byte[] body = new byte[bodyLength];
+                view.position(offset + RECORD_HEADER_SIZE);
+                view.get(body);
+                crc.reset();
+                crc.update(body, 0, bodyLength);
+                if ((int) crc.getValue() != view.getInt(offset + 4)) {
+                    logger.warn("Discarding corrupted record in segment {} at offset {}", this.file, offset);
+                    break;
+                }
+
+                ByteBuffer in = ByteBuffer.wrap(body);
+                Entry entry = new Entry();
+                entry.id = in.getInt();
+                entry.qos = in.getInt();
+                entry.retain = in.get() != 0;
+                entry.createdOn = in.getLong();
+                entry.priority = in.getInt();
+                byte[] topic = new byte[in.getInt()];
+                in.get(topic);
+                entry.topic = new String(topic, StandardCharsets.UTF_8);
+                entry.segment = this;
+                entry.offset = offset;
+                entries.add(entry);
+
+                offset += RECORD_HEADER_SIZE + bodyLength;
+            }
+
+            this.position = offset;
+            if (last) {
+                view.position(offset);
+                while (view.hasRemaining()) {
+                    view.put((byte) 0);
+                }
+            } else {
+                // not appended to anymore
+                this.position = view.capacity();
+            }
+            return entries;
+        }
+
+        private byte[] readPayload(int offset) {
+            ByteBuffer view = this.buffer.duplicate();
+            // skip header, id, qos, retain, createdOn and priority
+            view.position(offset + RECORD_HEADER_SIZE + 4 + 4 + 1 + 8 + 4);
+            int topicLength = view.getInt();
+            view.position(view.position() + topicLength);
+            int payloadLength = view.getInt();
+            if (payloadLength < 0) {
+                return null;
+            }
+            byte[] payload = new byte[payloadLength];
+            view.get(payload);
+            return payload;
+        }
+
+        private void force() {
+            this.buffer.force();
+        }
+
+        private void close() {
+            try {
+                this.raf.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close segment {}", this.file, e);
+            }
+        }
+    }
+}
@@ -52,6 +52,9 @@ public class HouseKeeperTask implements Runnable {
             s_logger.info("HouseKeeperTask: Delete confirmed messages...");
             this.m_store.deleteStaleMessages(this.m_purgeAge);
 
+            s_logger.info("HouseKeeperTask: Store contains {} messages, high-water mark is {}",
+                    this.m_store.getMessageCount(), this.m_store.getMessageCountHighWaterMark());
+
             // delete overflowing messages
             // s_logger.info("HouseKeeperTask: Delete overflow messages...");
             // String maxNumMsgsStr = m_config.getProperty("data.service.store.max_number_of_messages");
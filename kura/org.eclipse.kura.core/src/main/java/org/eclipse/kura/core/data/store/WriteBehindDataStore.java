@@ -0,0 +1,514 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.core.data.DataStore;
+import org.eclipse.kura.data.DataTransportToken;
+import org.eclipse.kura.db.H2DbService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A DataStore that keeps newly stored messages in a bounded in-memory buffer and writes them to an underlying
+ * {@link DbDataStore} in group commits.
+ * <p>
+ * Messages are assigned their ID when they are stored, so that {@link #store(String, byte[], int, boolean, int)}
+ * never waits for the database. The next messages to publish are taken from both the database and the buffer, and
+ * the publication and confirmation of a buffered message only update its buffered copy, so that publishing does not
+ * force a write either. The buffer is written to the database, with the state of its messages, when it is full,
+ * before the queries which need the whole store, when stopped and periodically every durability interval if it
+ * contains messages with QoS > 0. Messages with QoS = 0 only stay in memory until one of the other conditions occurs.
+ * <p>
+ * The buffer is drained in priority order, so that higher priority messages are persisted first. Like the identity
+ * column of the underlying store, the generated IDs restart from 1 after reaching {@link Integer#MAX_VALUE}.
+ */
+public class WriteBehindDataStore implements DataStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindDataStore.class);
+
+    private static final Comparator<DataMessage> PRIORITY_COMPARATOR = Comparator
+            .comparingInt(DataMessage::getPriority).thenComparingInt(DataMessage::getId);
+
+    private final DbDataStore store;
+    private final int bufferSize;
+    private final long durabilityInterval;
+
+    // Guards the buffer, the ID generator and the persisted message count
+    private final Object bufferLock = new Object();
+    // Serializes flushes, the updates of the buffered messages and the queries which must observe both
+    private final Object flushLock = new Object();
+
+    // The buffered messages by ID, with their latest state
+    private final Map<Integer, DataMessage> buffer;
+    // The buffered messages not published yet, in publishing order
+    private final NavigableSet<DataMessage> unpublished;
+    private boolean started;
+    private int nextId;
+    private int persistedCount;
+    private int messageCountHighWaterMark;
+    private int capacity;
+
+    private ScheduledExecutorService flushExecutor;
+
+    /**
+     * @param store
+     *            the underlying store
+     * @param bufferSize
+     *            the maximum number of messages kept in memory
+     * @param durabilityInterval
+     *            the maximum time in milliseconds a message with QoS > 0 is kept in memory
+     */
+    public WriteBehindDataStore(DbDataStore store, int bufferSize, long durabilityInterval) {
+        this.store = store;
+        this.bufferSize = bufferSize;
+        this.durabilityInterval = durabilityInterval;
+        this.buffer = new HashMap<>(bufferSize * 2);
+        this.unpublished = new TreeSet<>(PRIORITY_COMPARATOR);
+    }
+
+    // ----------------------------------------------------------
+    //
+    // Start/Stop
+    //
+    // ----------------------------------------------------------
+
+    @Override
+    public void start(H2DbService dbService, int houseKeeperInterval, int purgeAge, int capacity)
+            throws KuraStoreException {
+        this.store.start(dbService, houseKeeperInterval, purgeAge, capacity);
+
+        synchronized (this.bufferLock) {
+            this.capacity = capacity;
+            this.nextId = nextId(this.store.getMaxMessageId());
+            this.persistedCount = this.store.getMessageCount();
+            this.started = true;
+        }
+
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.flushExecutor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                Thread.currentThread().setName("WriteBehindDataStore:Flush");
+                try {
+                    flushDurable();
+                } catch (KuraStoreException e) {
+                    logger.warn("Failed to flush buffered messages", e);
+                }
+            }
+        }, this.durabilityInterval, this.durabilityInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void update(int houseKeeperInterval, int purgeAge, int capacity) {
+        synchronized (this.bufferLock) {
+            this.capacity = capacity;
+        }
+        this.store.update(houseKeeperInterval, purgeAge, capacity);
+    }
+
+    @Override
+    public void stop() {
+        if (this.flushExecutor != null) {
+            this.flushExecutor.shutdownNow();
+            this.flushExecutor = null;
+        }
+
+        try {
+            flush();
+        } catch (KuraStoreException e) {
+            logger.error("Failed to flush buffered messages, buffered messages lost", e);
+        }
+
+        synchronized (this.bufferLock) {
+            this.buffer.clear();
+            this.unpublished.clear();
+            this.started = false;
+        }
+
+        this.store.stop();
+    }
+
+    // ----------------------------------------------------------
+    //
+    // Message APIs
+    //
+    // ----------------------------------------------------------
+
+    @Override
+    public DataMessage store(String topic, byte[] payload, int qos, boolean retain, int priority)
+            throws KuraStoreException {
+        if (topic == null || topic.trim().length() == 0) {
+            throw new IllegalArgumentException("topic");
+        }
+
+        boolean bufferFull;
+        synchronized (this.bufferLock) {
+            bufferFull = this.buffer.size() >= this.bufferSize;
+        }
+
+        // Spill the buffer before accepting the new message, so that a failure leaves the message not stored
+        if (bufferFull) {
+            flush();
+        }
+
+        DataMessage message;
+        synchronized (this.bufferLock) {
+            if (!this.started) {
+                throw new KuraStoreException("DbService instance not attached");
+            }
+
+            // Priority 0 and 1 messages bypass the capacity check, see DbDataStore
+            if (priority != 0 && priority != 1 && this.persistedCount + this.buffer.size() >= this.capacity) {
+                logger.error("Store capacity exceeded");
+                throw new KuraStoreCapacityReachedException("Store capacity exceeded");
+            }
+
+            int id = this.nextId;
+            this.nextId = nextId(id);
+            message = new DataMessage.Builder(id).withTopic(topic).withQos(qos).withRetain(retain)
+                    .withCreatedOn(new Date()).withPublishedMessageId(-1).withPayload(payload)
+                    .withPriority(priority).build();
+            this.buffer.put(id, message);
+            this.unpublished.add(message);
+            this.messageCountHighWaterMark = Math.max(this.messageCountHighWaterMark,
+                    this.persistedCount + this.buffer.size());
+        }
+
+        return message;
+    }
+
+    @Override
+    public void published(int msgId, int publishedMsgId, String sessionId) throws KuraStoreException {
+        synchronized (this.flushLock) {
+            if (!updateBuffered(msgId, new Date(), publishedMsgId, sessionId, null)) {
+                this.store.published(msgId, publishedMsgId, sessionId);
+            }
+        }
+    }
+
+    @Override
+    public void published(int msgId) throws KuraStoreException {
+        synchronized (this.flushLock) {
+            if (!updateBuffered(msgId, new Date(), -1, null, null)) {
+                this.store.published(msgId);
+            }
+        }
+    }
+
+    @Override
+    public void published(Map<Integer, DataTransportToken> publishedMessages) throws KuraStoreException {
+        synchronized (this.flushLock) {
+            Date now = new Date();
+            Map<Integer, DataTransportToken> persistedMessages = new HashMap<>();
+            for (Map.Entry<Integer, DataTransportToken> entry : publishedMessages.entrySet()) {
+                DataTransportToken token = entry.getValue();
+                boolean buffered = token == null ? updateBuffered(entry.getKey(), now, -1, null, null)
+                        : updateBuffered(entry.getKey(), now, token.getMessageId(), token.getSessionId(), null);
+                if (!buffered) {
+                    persistedMessages.put(entry.getKey(), token);
+                }
+            }
+            if (!persistedMessages.isEmpty()) {
+                this.store.published(persistedMessages);
+            }
+        }
+    }
+
+    @Override
+    public void confirmed(int msgId) throws KuraStoreException {
+        synchronized (this.flushLock) {
+            if (!updateBuffered(msgId, null, 0, null, new Date())) {
+                this.store.confirmed(msgId);
+            }
+        }
+    }
+
+    @Override
+    public void confirmed(List<Integer> msgIds) throws KuraStoreException {
+        synchronized (this.flushLock) {
+            Date now = new Date();
+            List<Integer> persistedIds = new ArrayList<>();
+            for (Integer msgId : msgIds) {
+                if (!updateBuffered(msgId, null, 0, null, now)) {
+                    persistedIds.add(msgId);
+                }
+            }
+            if (!persistedIds.isEmpty()) {
+                this.store.confirmed(persistedIds);
+            }
+        }
+    }
+
+    @Override
+    public DataMessage getNextMessage() throws KuraStoreException {
+        synchronized (this.flushLock) {
+            DataMessage persisted = this.store.getNextMessage();
+            synchronized (this.bufferLock) {
+                if (!this.unpublished.isEmpty()) {
+                    DataMessage buffered = this.unpublished.first();
+                    // On equal priority the persisted message is the older one
+                    if (persisted == null || buffered.getPriority() < persisted.getPriority()) {
+                        return buffered;
+                    }
+                }
+            }
+            return persisted;
+        }
+    }
+
+    @Override
+    public List<DataMessage> getNextMessages(int maxMessages) throws KuraStoreException {
+        synchronized (this.flushLock) {
+            return merge(this.store.getNextMessages(maxMessages), Integer.MIN_VALUE, Integer.MAX_VALUE, maxMessages);
+        }
+    }
+
+    @Override
+    public List<DataMessage> getNextMessages(int minPriority, int maxPriority, int maxMessages)
+            throws KuraStoreException {
+        synchronized (this.flushLock) {
+            return merge(this.store.getNextMessages(minPriority, maxPriority, maxMessages), minPriority, maxPriority,
+                    maxMessages);
+        }
+    }
+
+    @Override
+    public DataMessage get(int msgId) throws KuraStoreException {
+        synchronized (this.flushLock) {
+            synchronized (this.bufferLock) {
+                DataMessage buffered = this.buffer.get(msgId);
+                if (buffered != null) {
+                    return buffered;
+                }
+            }
+            return this.store.get(msgId);
+        }
+    }
+
+    @Override
+    public List<DataMessage> allUnpublishedMessagesNoPayload() throws KuraStoreException {
+        synchronized (this.flushLock) {
+            flush();
+            return this.store.allUnpublishedMessagesNoPayload();
+        }
+    }
+
+    @Override
+    public List<DataMessage> allInFlightMessagesNoPayload() throws KuraStoreException {
+        synchronized (this.flushLock) {
+            flush();
+            return this.store.allInFlightMessagesNoPayload();
+        }
+    }
+
+    @Override
+    public List<DataMessage> allDroppedInFlightMessagesNoPayload() throws KuraStoreException {
+        synchronized (this.flushLock) {
+            flush();
+            return this.store.allDroppedInFlightMessagesNoPayload();
+        }
+    }
+
+    @Override
+    public void unpublishAllInFlighMessages() throws KuraStoreException {
+        synchronized (this.flushLock) {
+            flush();
+            this.store.unpublishAllInFlighMessages();
+        }
+    }
+
+    @Override
+    public void dropAllInFlightMessages() throws KuraStoreException {
+        synchronized (this.flushLock) {
+            flush();
+            this.store.dropAllInFlightMessages();
+        }
+    }
+
+    @Override
+    public void deleteStaleMessages(int purgeAge) throws KuraStoreException {
+        synchronized (this.flushLock) {
+            flush();
+            this.store.deleteStaleMessages(purgeAge);
+        }
+    }
+
+    @Override
+    public int getMessageCount() {
+        synchronized (this.bufferLock) {
+            return this.persistedCount + this.buffer.size();
+        }
+    }
+
+    @Override
+    public int getMessageCountHighWaterMark() {
+        int storeHighWaterMark = this.store.getMessageCountHighWaterMark();
+        synchronized (this.bufferLock) {
+            return Math.max(this.messageCountHighWaterMark, storeHighWaterMark);
+        }
+    }
+
+    @Override
+    public void repair() throws KuraStoreException {
+        synchronized (this.flushLock) {
+            flush();
+            this.store.repair();
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //
+    // Private Methods
+    //
+    // ------------------------------------------------------------------
+
+    private static int nextId(int id) {
+        if (id == Integer.MAX_VALUE) {
+            logger.warn("Identity generator limit exceeded. Resetting it...");
+            return 1;
+        }
+        return id + 1;
+    }
+
+    /**
+     * Updates the state of a buffered message, the null dates are left unchanged.
+     *
+     * @return false if the message is not buffered
+     */
+    private boolean updateBuffered(int msgId, Date publishedOn, int publishedMsgId, String sessionId,
+            Date confirmedOn) {
+        synchronized (this.bufferLock) {
+            DataMessage message = this.buffer.get(msgId);
+            if (message == null) {
+                return false;
+            }
+            DataMessage.Builder builder = new DataMessage.Builder(message.getId()).withTopic(message.getTopic())
+                    .withQos(message.getQos()).withRetain(message.isRetain()).withCreatedOn(message.getCreatedOn())
+                    .withPayload(message.getPayload()).withPriority(message.getPriority());
+            if (publishedOn != null) {
+                builder.withPublishedOn(publishedOn).withPublishedMessageId(publishedMsgId).withSessionId(sessionId);
+            } else {
+                builder.withPublishedOn(message.getPublishedOn())
+                        .withPublishedMessageId(message.getPublishedMessageId())
+                        .withSessionId(message.getSessionId());
+            }
+            builder.withConfirmedOn(confirmedOn != null ? confirmedOn : message.getConfirmedOn());
+
+            this.unpublished.remove(message);
+            this.buffer.put(msgId, builder.build());
+            return true;
+        }
+    }
+
+    /**
+     * Merges the next persisted messages with the next buffered ones in the priority range, persisted messages
+     * first on equal priority.
+     */
+    private List<DataMessage> merge(List<DataMessage> persisted, int minPriority, int maxPriority,
+            int maxMessages) {
+        List<DataMessage> result = new ArrayList<>(persisted);
+        synchronized (this.bufferLock) {
+            int count = 0;
+            for (DataMessage message : this.unpublished) {
+                if (count >= maxMessages) {
+                    break;
+                }
+                if (message.getPriority() >= minPriority && message.getPriority() <= maxPriority) {
+                    result.add(message);
+                    count++;
+                }
+            }
+        }
+        if (result.size() == persisted.size()) {
+            return persisted;
+        }
+        // The sort is stable, so persisted messages stay before the buffered ones with the same priority
+        result.sort(Comparator.comparingInt(DataMessage::getPriority));
+        return result.size() > maxMessages ? new ArrayList<>(result.subList(0, maxMessages)) : result;
+    }
+
+    private void flushDurable() throws KuraStoreException {
+        synchronized (this.flushLock) {
+            boolean durableMessages = false;
+            synchronized (this.bufferLock) {
+                for (DataMessage message : this.buffer.values()) {
+                    if (message.getQos() > 0) {
+                        durableMessages = true;
+                        break;
+                    }
+                }
+            }
+
+            if (durableMessages) {
+                flush();
+            } else {
+                // Nothing to write, refresh the count to account for the messages deleted by the housekeeper
+                int count = this.store.getMessageCount();
+                synchronized (this.bufferLock) {
+                    this.persistedCount = count;
+                }
+            }
+        }
+    }
+
+    private void flush() throws KuraStoreException {
+        synchronized (this.flushLock) {
+            List<DataMessage> messages;
+            synchronized (this.bufferLock) {
+                if (this.buffer.isEmpty()) {
+                    return;
+                }
+                messages = new ArrayList<>(this.buffer.values());
+                messages.sort(PRIORITY_COMPARATOR);
+                this.buffer.clear();
+                this.unpublished.clear();
+            }
+
+            try {
+                this.store.storeAll(messages);
+                logger.debug("Flushed {} buffered messages", messages.size());
+            } catch (KuraStoreException e) {
+                // Put the messages back so that the next flush retries them
+                synchronized (this.bufferLock) {
+                    for (DataMessage message : messages) {
+                        this.buffer.put(message.getId(), message);
+                        if (message.getPublishedOn() == null) {
+                            this.unpublished.add(message);
+                        }
+                    }
+                }
+                throw e;
+            }
+
+            int count = this.store.getMessageCount();
+            synchronized (this.bufferLock) {
+                this.persistedCount = count;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.driver.modbus.localization;
+
+import com.github.rodionmoiseev.c10n.annotations.En;
+
+/**
+ * ModbusMessages is considered to be a localization resource for
+ * {@code Modbus Driver} bundle. It contains all the necessary translations for
+ * every string literals mentioned in {@code Modbus Driver} bundle.
+ */
+public interface ModbusMessages {
+
+    @En("Activating Modbus Driver.....")
+    public String activating();
+
+    @En("Activating Modbus Driver.....Done")
+    public String activatingDone();
+
+    @En("Unit identifier of the addressed slave")
+    public String unitIdDesc();
+
+    @En("Memory area of the slave")
+    public String memoryAreaDesc();
+
+    @En("Zero based address of the first coil or register of the channel")
+    public String memoryAddressDesc();
+
+    @En("Data type of the registers, ignored for coils and discrete inputs")
+    public String dataTypeDesc();
+
+    @En("Bit index in the register, from 0 (least significant) to 15 (required for BIT data type)")
+    public String bitIndexDesc();
+
+    @En("Number of registers (required for CHAR data type and BYTE_ARRAY value type)")
+    public String registerCountDesc();
+
+    @En("Connecting to Modbus slave...")
+    public String connecting();
+
+    @En("Connecting to Modbus slave...Done")
+    public String connectingDone();
+
+    @En("Connection problems detected, disconnecting, will attemp to reconnect at next read/write")
+    public String connectionProblemsDetected();
+
+    @En("Reconnecting after configuration update...")
+    public String reconnectingAfterConfigurationUpdate();
+
+    @En("Failed to reset connection after update")
+    public String errorReconnectFailed();
+
+    @En("Deactivating Modbus Driver.....")
+    public String deactivating();
+
+    @En("Deactivating Modbus Driver.....Done")
+    public String deactivatingDone();
+
+    @En("Disconnecting from Modbus slave...")
+    public String disconnecting();
+
+    @En("Disconnecting from Modbus slave...Done")
+    public String disconnectingDone();
+
+    @En("Unable to Disconnect...")
+    public String disconnectionProblem();
+
+    @En("Error while disconnecting....")
+    public String errorDisconnecting();
+
+    @En("Connection failed, unexpected exception")
+    public String errorUnexpectedConnectionException();
+
+    @En("Unexpected exception")
+    public String errorUnexpectedException();
+
+    @En("Operation failed due to IO error")
+    public String errorIOFailed();
+
+    @En("Modbus request failed")
+    public String errorRequestFailed();
+
+    @En("Not connected to the Modbus slave")
+    public String errorNotConnected();
+
+    @En("Error while retrieving Unit Identifier")
+    public String errorRetrievingUnitId();
+
+    @En("Error while retrieving Memory Area")
+    public String errorRetrievingMemoryArea();
+
+    @En("Error while retrieving Memory Address")
+    public String errorRetrievingMemoryAddress();
+
+    @En("Error while retrieving Data Type")
+    public String errorRetrievingDataType();
+
+    @En("Error while retreiving bit index")
+    public String errorRetrievingBitIndex();
+
+    @En("Error while retrieving Register Count")
+    public String errorRetrievingRegisterCount();
+
+    @En("Channel Value Type must be ")
+    public String errorConvertingType();
+
+    @En("The memory area is read only: ")
+    public String errorReadOnlyArea();
+
+    @En("Properties cannot be null")
+    public String propertiesNonNull();
+
+    @En("Updating Modbus Driver.....")
+    public String updating();
+
+    @En("Updating Modbus Driver.....Done")
+    public String updatingDone();
+
+}
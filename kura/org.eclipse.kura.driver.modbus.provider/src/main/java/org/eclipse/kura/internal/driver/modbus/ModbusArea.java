@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus;
+
+/**
+ * The memory areas of a Modbus slave, along with the function codes used to access them and the maximum number of
+ * coils or registers that can be transferred with a single request.
+ */
+public enum ModbusArea {
+
+    COILS(0x01, 0x05, 0x0F, 2000, 1968),
+    DISCRETE_INPUTS(0x02, 0, 0, 2000, 0),
+    INPUT_REGISTERS(0x04, 0, 0, 125, 0),
+    HOLDING_REGISTERS(0x03, 0x06, 0x10, 125, 123);
+
+    private final int readFunctionCode;
+    private final int writeSingleFunctionCode;
+    private final int writeMultipleFunctionCode;
+    private final int maxReadQuantity;
+    private final int maxWriteQuantity;
+
+    private ModbusArea(int readFunctionCode, int writeSingleFunctionCode, int writeMultipleFunctionCode,
+            int maxReadQuantity, int maxWriteQuantity) {
+        this.readFunctionCode = readFunctionCode;
+        this.writeSingleFunctionCode = writeSingleFunctionCode;
+        this.writeMultipleFunctionCode = writeMultipleFunctionCode;
+        this.maxReadQuantity = maxReadQuantity;
+        this.maxWriteQuantity = maxWriteQuantity;
+    }
+
+    public int getReadFunctionCode() {
+        return this.readFunctionCode;
+    }
+
+    public int getWriteSingleFunctionCode() {
+        return this.writeSingleFunctionCode;
+    }
+
+    public int getWriteMultipleFunctionCode() {
+        return this.writeMultipleFunctionCode;
+    }
+
+    public int getMaxReadQuantity() {
+        return this.maxReadQuantity;
+    }
+
+    public int getMaxWriteQuantity() {
+        return this.maxWriteQuantity;
+    }
+
+    /**
+     * Tells whether the area holds single bits (coils and discrete inputs) rather than 16 bit registers.
+     *
+     * @return true for the bit areas
+     */
+    public boolean isBitArea() {
+        return this == COILS || this == DISCRETE_INPUTS;
+    }
+
+    public boolean isWritable() {
+        return this.maxWriteQuantity > 0;
+    }
+}
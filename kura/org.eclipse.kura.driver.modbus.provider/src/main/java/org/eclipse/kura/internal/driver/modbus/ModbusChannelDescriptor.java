@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.internal.driver.modbus;
+
+import java.util.List;
+
+import org.eclipse.kura.core.configuration.metatype.Tad;
+import org.eclipse.kura.core.configuration.metatype.Toption;
+import org.eclipse.kura.core.configuration.metatype.Tscalar;
+import org.eclipse.kura.driver.ChannelDescriptor;
+import org.eclipse.kura.driver.modbus.localization.ModbusMessages;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.util.collection.CollectionUtil;
+
+/**
+ * Modbus specific channel descriptor. The descriptor contains the following
+ * attribute definition identifiers.
+ *
+ * <ul>
+ * <li>unit.id</li> denotes the Unit Identifier of the slave
+ * <li>memory.area</li> the memory area
+ * <li>memory.address</li> the zero based address of the first coil or register
+ * <li>modbus.data.type</li> the data type of the registers
+ * <li>bit.index</li> the index of the bit in the register
+ * <li>register.count</li> the number of registers of string and byte array channels
+ * </ul>
+ */
+public final class ModbusChannelDescriptor implements ChannelDescriptor {
+
+    public static final String UNIT_ID_ID = "unit.id";
+    public static final String MEMORY_AREA_ID = "memory.area";
+    public static final String MEMORY_ADDRESS_ID = "memory.address";
+    public static final String MODBUS_DATA_TYPE_ID = "modbus.data.type";
+    public static final String BIT_INDEX_ID = "bit.index";
+    public static final String REGISTER_COUNT_ID = "register.count";
+
+    /** Localization Resource. */
+    private static final ModbusMessages s_message = LocalizationAdapter.adapt(ModbusMessages.class);
+
+    private static Toption generateOption(Enum<?> value) {
+        Toption option = new Toption();
+        option.setLabel(value.name());
+        option.setValue(value.name());
+        return option;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object getDescriptor() {
+        final List<Tad> elements = CollectionUtil.newArrayList();
+
+        final Tad unitId = new Tad();
+        unitId.setName(UNIT_ID_ID);
+        unitId.setId(UNIT_ID_ID);
+        unitId.setDescription(s_message.unitIdDesc());
+        unitId.setType(Tscalar.INTEGER);
+        unitId.setRequired(true);
+        unitId.setMin("0");
+        unitId.setMax("255");
+        unitId.setDefault("1");
+
+        elements.add(unitId);
+
+        final Tad memoryArea = new Tad();
+        memoryArea.setName(MEMORY_AREA_ID);
+        memoryArea.setId(MEMORY_AREA_ID);
+        memoryArea.setDescription(s_message.memoryAreaDesc());
+        memoryArea.setType(Tscalar.STRING);
+        memoryArea.setRequired(true);
+        memoryArea.setDefault(ModbusArea.HOLDING_REGISTERS.name());
+
+        for (ModbusArea area : ModbusArea.values()) {
+            memoryArea.setOption(generateOption(area));
+        }
+
+        elements.add(memoryArea);
+
+        final Tad memoryAddress = new Tad();
+        memoryAddress.setName(MEMORY_ADDRESS_ID);
+        memoryAddress.setId(MEMORY_ADDRESS_ID);
+        memoryAddress.setDescription(s_message.memoryAddressDesc());
+        memoryAddress.setType(Tscalar.INTEGER);
+        memoryAddress.setRequired(true);
+        memoryAddress.setMin("0");
+        memoryAddress.setMax("65535");
+        memoryAddress.setDefault("0");
+
+        elements.add(memoryAddress);
+
+        final Tad dataType = new Tad();
+        dataType.setName(MODBUS_DATA_TYPE_ID);
+        dataType.setId(MODBUS_DATA_TYPE_ID);
+        dataType.setDescription(s_message.dataTypeDesc());
+        dataType.setType(Tscalar.STRING);
+        dataType.setRequired(true);
+        dataType.setDefault(ModbusDataType.INT16.name());
+
+        for (ModbusDataType t : ModbusDataType.values()) {
+            dataType.setOption(generateOption(t));
+        }
+
+        elements.add(dataType);
+
+        final Tad bitIndex = new Tad();
+        bitIndex.setName(BIT_INDEX_ID);
+        bitIndex.setId(BIT_INDEX_ID);
+        bitIndex.setDescription(s_message.bitIndexDesc());
+        bitIndex.setType(Tscalar.INTEGER);
+        bitIndex.setRequired(true);
+        bitIndex.setMin("0");
+        bitIndex.setMax("15");
+        bitIndex.setDefault("0");
+
+        elements.add(bitIndex);
+
+        final Tad registerCount = new Tad();
+        registerCount.setName(REGISTER_COUNT_ID);
+        registerCount.setId(REGISTER_COUNT_ID);
+        registerCount.setDescription(s_message.registerCountDesc());
+        registerCount.setType(Tscalar.INTEGER);
+        registerCount.setRequired(true);
+        registerCount.setMin("1");
+        registerCount.setDefault("1");
+
+        elements.add(registerCount);
+
+        return elements;
+    }
+
+}
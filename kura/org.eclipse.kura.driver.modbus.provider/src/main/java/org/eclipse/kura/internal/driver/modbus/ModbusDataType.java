@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus;
+
+import org.eclipse.kura.driver.binary.BinaryData;
+import org.eclipse.kura.driver.binary.BinaryDataTypes;
+
+/**
+ * The data types that can be mapped on the registers of a slave. The values are big endian, as mandated by the Modbus
+ * specification, the {@code _LE} variants are provided for the devices that store multi register values in reverse
+ * byte order.
+ */
+public enum ModbusDataType {
+
+    BIT(null),
+    INT16(BinaryDataTypes.INT16_BE),
+    UINT16(BinaryDataTypes.UINT16_BE),
+    INT32(BinaryDataTypes.INT32_BE),
+    UINT32(BinaryDataTypes.UINT32_BE),
+    INT64(BinaryDataTypes.INT64_BE),
+    FLOAT(BinaryDataTypes.FLOAT_BE),
+    DOUBLE(BinaryDataTypes.DOUBLE_BE),
+    INT32_LE(BinaryDataTypes.INT32_LE),
+    UINT32_LE(BinaryDataTypes.UINT32_LE),
+    INT64_LE(BinaryDataTypes.INT64_LE),
+    FLOAT_LE(BinaryDataTypes.FLOAT_LE),
+    DOUBLE_LE(BinaryDataTypes.DOUBLE_LE),
+    CHAR(null);
+
+    private final BinaryData<?> binaryDataType;
+
+    private ModbusDataType(BinaryData<?> binaryDataType) {
+        this.binaryDataType = binaryDataType;
+    }
+
+    /**
+     * Returns the binary representation of the type, or null for {@link #BIT} and {@link #CHAR} which do not have a
+     * fixed size representation.
+     *
+     * @return the binary representation
+     */
+    public BinaryData<?> getBinaryDataType() {
+        return binaryDataType;
+    }
+}
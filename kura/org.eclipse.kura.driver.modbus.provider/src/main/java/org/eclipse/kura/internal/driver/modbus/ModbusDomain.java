@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus;
+
+/**
+ * Identifies the address space of a channel: the memory area of a given slave. The requests for the channels of the
+ * same domain can be aggregated.
+ */
+public class ModbusDomain {
+
+    private final int unitId;
+    private final ModbusArea area;
+
+    public ModbusDomain(int unitId, ModbusArea area) {
+        this.unitId = unitId;
+        this.area = area;
+    }
+
+    public int getUnitId() {
+        return unitId;
+    }
+
+    public ModbusArea getArea() {
+        return area;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * unitId + area.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        ModbusDomain other = (ModbusDomain) obj;
+        if (unitId != other.unitId)
+            return false;
+        if (area != other.area)
+            return false;
+        return true;
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.comm.CommConnection;
+import org.eclipse.kura.comm.CommURI;
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.driver.ChannelDescriptor;
+import org.eclipse.kura.driver.PreparedRead;
+import org.eclipse.kura.driver.block.BlockFactory;
+import org.eclipse.kura.driver.block.task.AbstractBlockDriver;
+import org.eclipse.kura.driver.block.task.BlockTask;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.block.task.ToplevelBlockTask;
+import org.eclipse.kura.driver.modbus.localization.ModbusMessages;
+import org.eclipse.kura.internal.driver.modbus.ModbusOptions.TransportType;
+import org.eclipse.kura.internal.driver.modbus.task.ModbusTaskBuilder;
+import org.eclipse.kura.internal.driver.modbus.task.ModbusToplevelBlockTask;
+import org.eclipse.kura.internal.driver.modbus.transport.ModbusException;
+import org.eclipse.kura.internal.driver.modbus.transport.ModbusRtuTransport;
+import org.eclipse.kura.internal.driver.modbus.transport.ModbusTcpTransport;
+import org.eclipse.kura.internal.driver.modbus.transport.ModbusTransport;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.io.ConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Kura ModbusDriver is a Modbus TCP and RTU Driver implementation for Kura Asset-Driver
+ * Topology.<br/>
+ * <br/>
+ *
+ * The channels of the same slave and memory area are aggregated into multi coil and multi register requests. On a
+ * read, the requests of all the blocks are sent before the first response is awaited: with Modbus TCP up to
+ * {@code max.outstanding.requests} transactions are in flight on the connection and matched by transaction
+ * identifier, which hides the round trip time when polling many slaves through a gateway. With Modbus RTU the
+ * responses are received by a thread blocked on the serial port instead of polling it.<br/>
+ * <br/>
+ *
+ * The required properties are enlisted in {@link ModbusChannelDescriptor} and
+ * the driver connection specific properties are enlisted in
+ * {@link ModbusOptions}
+ *
+ * @see ModbusChannelDescriptor
+ * @see ModbusOptions
+ */
+public final class ModbusDriver extends AbstractBlockDriver<ModbusDomain> implements ConfigurableComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusDriver.class);
+
+    private static final ModbusMessages messages = LocalizationAdapter.adapt(ModbusMessages.class);
+
+    private static final int SERIAL_RECEIVE_TIMEOUT = 100;
+
+    private volatile ModbusTransport transport;
+
+    private ModbusOptions options;
+
+    private ConnectionFactory connectionFactory;
+
+    public void setConnectionFactory(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    public void unsetConnectionFactory(ConnectionFactory connectionFactory) {
+        this.connectionFactory = null;
+    }
+
+    protected synchronized void activate(final ComponentContext componentContext,
+            final Map<String, Object> properties) {
+        logger.debug(messages.activating());
+        requireNonNull(properties, messages.propertiesNonNull());
+        this.options = new ModbusOptions(properties);
+        logger.debug(messages.activatingDone());
+    }
+
+    protected synchronized void deactivate(final ComponentContext componentContext) {
+        logger.debug(messages.deactivating());
+        try {
+            this.disconnect();
+        } catch (final ConnectionException e) {
+            logger.error(messages.errorDisconnecting(), e);
+        }
+        logger.debug(messages.deactivatingDone());
+    }
+
+    public synchronized void updated(final Map<String, Object> properties) {
+        logger.debug(messages.updating());
+        requireNonNull(properties, messages.propertiesNonNull());
+        this.options = new ModbusOptions(properties);
+        if (this.transport != null) {
+            try {
+                logger.info(messages.reconnectingAfterConfigurationUpdate());
+                disconnect();
+                connect();
+            } catch (ConnectionException e) {
+                logger.warn(messages.errorReconnectFailed(), e);
+            }
+        }
+        logger.debug(messages.updatingDone());
+    }
+
+    @Override
+    public synchronized void connect() throws ConnectionException {
+        if (this.transport != null && this.transport.isOpen()) {
+            return;
+        }
+        disconnect();
+        try {
+            logger.debug(messages.connecting());
+            if (this.options.getTransportType() == TransportType.TCP) {
+                this.transport = new ModbusTcpTransport(this.options.getIp(), this.options.getPort(),
+                        this.options.getResponseTimeout(), this.options.getMaxOutstandingRequests());
+            } else {
+                this.transport = openSerialTransport();
+            }
+            logger.debug(messages.connectingDone());
+        } catch (Exception e) {
+            throw new ConnectionException(messages.errorUnexpectedConnectionException(), e);
+        }
+    }
+
+    private ModbusTransport openSerialTransport() throws IOException {
+        final String uri = new CommURI.Builder(this.options.getSerialPort()).withBaudRate(this.options.getBaudRate())
+                .withDataBits(this.options.getDataBits()).withStopBits(this.options.getStopBits())
+                .withParity(this.options.getParity()).withOpenTimeout(this.options.getResponseTimeout())
+                .withReceiveTimeout(SERIAL_RECEIVE_TIMEOUT).build().toString();
+        final CommConnection connection = (CommConnection) this.connectionFactory.createConnection(uri, 1, false);
+        try {
+            return new ModbusRtuTransport(connection.openInputStream(), connection.openOutputStream(),
+                    connection::close, this.options.getResponseTimeout(), this.options.getSerialPort());
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void disconnect() throws ConnectionException {
+        if (this.transport != null) {
+            logger.debug(messages.disconnecting());
+            try {
+                this.transport.close();
+            } catch (IOException e) {
+                throw new ConnectionException(messages.disconnectionProblem(), e);
+            } finally {
+                this.transport = null;
+            }
+            logger.debug(messages.disconnectingDone());
+        }
+    }
+
+    /**
+     * Returns the transport of the current connection.
+     *
+     * @return the transport
+     * @throws IOException
+     *             if the driver is not connected
+     */
+    public ModbusTransport getTransport() throws IOException {
+        final ModbusTransport currentTransport = this.transport;
+        if (currentTransport == null) {
+            throw new IOException(messages.errorNotConnected());
+        }
+        return currentTransport;
+    }
+
+    @Override
+    protected int getReadMinimumGapSizeForDomain(ModbusDomain domain) {
+        final int minimumGapSize = this.options.getMinimumGapSize();
+        return domain.getArea().isBitArea() ? minimumGapSize : minimumGapSize * 2;
+    }
+
+    @Override
+    protected BlockFactory<ToplevelBlockTask> getTaskFactoryForDomain(final ModbusDomain domain, final Mode mode) {
+        return (start, end) -> new ModbusToplevelBlockTask(ModbusDriver.this, mode, domain, start, end);
+    }
+
+    @Override
+    protected Stream<Pair<ModbusDomain, BlockTask>> toTasks(List<ChannelRecord> records, Mode mode) {
+        return ModbusTaskBuilder.build(records, mode);
+    }
+
+    @Override
+    public ChannelDescriptor getChannelDescriptor() {
+        return new ModbusChannelDescriptor();
+    }
+
+    @Override
+    public synchronized void read(final List<ChannelRecord> records) throws ConnectionException {
+        connect();
+        try {
+            runTasks(optimize(records, Mode.READ));
+        } catch (Exception e) {
+            logger.warn(messages.errorUnexpectedException(), e);
+            for (ChannelRecord record : records) {
+                record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
+                record.setTimestamp(System.currentTimeMillis());
+            }
+        }
+    }
+
+    @Override
+    protected PreparedRead createPreparedRead(List<ChannelRecord> records, List<BlockTask> tasks) {
+        return new ModbusPreparedRead(records, tasks);
+    }
+
+    /**
+     * Runs the read tasks, sending the requests of all of them before awaiting the first response. The transport
+     * expires the requests of the slaves that do not answer in time, so they do not block the following ones.
+     */
+    private void runTasks(List<BlockTask> tasks) {
+        for (BlockTask task : tasks) {
+            if (task instanceof ModbusToplevelBlockTask) {
+                ((ModbusToplevelBlockTask) task).submit();
+            }
+        }
+        tasks.forEach(this::runTask);
+    }
+
+    @Override
+    protected void runTask(BlockTask task) {
+        try {
+            task.run();
+        } catch (ModbusException e) {
+            logger.warn(messages.errorRequestFailed(), e);
+        } catch (IOException e) {
+            handleIOException(e);
+        } catch (Exception e) {
+            logger.warn(messages.errorUnexpectedException(), e);
+        }
+    }
+
+    private void handleIOException(IOException e) {
+        logger.warn(messages.errorIOFailed(), e);
+        logger.warn(messages.connectionProblemsDetected());
+        try {
+            disconnect();
+        } catch (ConnectionException e1) {
+            logger.warn(messages.disconnectionProblem(), e1);
+        }
+    }
+
+    private class ModbusPreparedRead extends BlockPreparedRead {
+
+        private final List<ChannelRecord> records;
+        private final List<BlockTask> tasks;
+
+        public ModbusPreparedRead(List<ChannelRecord> records, List<BlockTask> tasks) {
+            super(records, tasks);
+            this.records = records;
+            this.tasks = tasks;
+        }
+
+        @Override
+        public List<ChannelRecord> execute() throws ConnectionException, KuraException {
+            synchronized (ModbusDriver.this) {
+                connect();
+                runTasks(this.tasks);
+                return this.records;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus;
+
+import java.util.Map;
+
+final class ModbusOptions {
+
+    enum TransportType {
+        TCP,
+        RTU
+    }
+
+    private static final String TRANSPORT_PROP_NAME = "transport";
+    private static final String IP_PROP_NAME = "host.ip";
+    private static final String PORT_PROP_NAME = "port";
+    private static final String SERIAL_PORT_PROP_NAME = "serial.port";
+    private static final String BAUD_RATE_PROP_NAME = "baud.rate";
+    private static final String DATA_BITS_PROP_NAME = "data.bits";
+    private static final String STOP_BITS_PROP_NAME = "stop.bits";
+    private static final String PARITY_PROP_NAME = "parity";
+    private static final String RESPONSE_TIMEOUT_PROP_NAME = "response.timeout";
+    private static final String MAX_OUTSTANDING_REQUESTS_PROP_NAME = "max.outstanding.requests";
+    private static final String MINIMUM_GAP_SIZE_PROP_NAME = "read.minimum.gap.size";
+
+    private static final String TRANSPORT_DEFAULT = TransportType.TCP.name();
+    private static final String IP_DEFAULT = "";
+    private static final int PORT_DEFAULT = 502;
+    private static final String SERIAL_PORT_DEFAULT = "";
+    private static final int BAUD_RATE_DEFAULT = 9600;
+    private static final int DATA_BITS_DEFAULT = 8;
+    private static final int STOP_BITS_DEFAULT = 1;
+    private static final int PARITY_DEFAULT = 0;
+    private static final int RESPONSE_TIMEOUT_DEFAULT = 1000;
+    private static final int MAX_OUTSTANDING_REQUESTS_DEFAULT = 8;
+    private static final int MINIMUM_GAP_SIZE_DEFAULT = 0;
+
+    private final Map<String, Object> properties;
+
+    ModbusOptions(final Map<String, Object> properties) {
+        this.properties = properties;
+    }
+
+    TransportType getTransportType() {
+        return TransportType.valueOf((String) properties.getOrDefault(TRANSPORT_PROP_NAME, TRANSPORT_DEFAULT));
+    }
+
+    String getIp() {
+        return (String) properties.getOrDefault(IP_PROP_NAME, IP_DEFAULT);
+    }
+
+    int getPort() {
+        return (Integer) properties.getOrDefault(PORT_PROP_NAME, PORT_DEFAULT);
+    }
+
+    String getSerialPort() {
+        return (String) properties.getOrDefault(SERIAL_PORT_PROP_NAME, SERIAL_PORT_DEFAULT);
+    }
+
+    int getBaudRate() {
+        return (Integer) properties.getOrDefault(BAUD_RATE_PROP_NAME, BAUD_RATE_DEFAULT);
+    }
+
+    int getDataBits() {
+        return (Integer) properties.getOrDefault(DATA_BITS_PROP_NAME, DATA_BITS_DEFAULT);
+    }
+
+    int getStopBits() {
+        return (Integer) properties.getOrDefault(STOP_BITS_PROP_NAME, STOP_BITS_DEFAULT);
+    }
+
+    int getParity() {
+        return (Integer) properties.getOrDefault(PARITY_PROP_NAME, PARITY_DEFAULT);
+    }
+
+    int getResponseTimeout() {
+        return (Integer) properties.getOrDefault(RESPONSE_TIMEOUT_PROP_NAME, RESPONSE_TIMEOUT_DEFAULT);
+    }
+
+    int getMaxOutstandingRequests() {
+        return Math.max(1, (Integer) properties.getOrDefault(MAX_OUTSTANDING_REQUESTS_PROP_NAME,
+                MAX_OUTSTANDING_REQUESTS_DEFAULT));
+    }
+
+    int getMinimumGapSize() {
+        return (Integer) properties.getOrDefault(MINIMUM_GAP_SIZE_PROP_NAME, MINIMUM_GAP_SIZE_DEFAULT);
+    }
+
+}
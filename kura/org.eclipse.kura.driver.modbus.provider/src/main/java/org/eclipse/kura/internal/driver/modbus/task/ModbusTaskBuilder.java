@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus.task;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.driver.binary.BinaryData;
+import org.eclipse.kura.driver.block.task.AbstractBlockDriver.Pair;
+import org.eclipse.kura.driver.block.task.BinaryDataTask;
+import org.eclipse.kura.driver.block.task.BlockTask;
+import org.eclipse.kura.driver.block.task.ByteArrayTask;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.block.task.StringTask;
+import org.eclipse.kura.driver.modbus.localization.ModbusMessages;
+import org.eclipse.kura.internal.driver.modbus.ModbusArea;
+import org.eclipse.kura.internal.driver.modbus.ModbusChannelDescriptor;
+import org.eclipse.kura.internal.driver.modbus.ModbusDataType;
+import org.eclipse.kura.internal.driver.modbus.ModbusDomain;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.type.DataType;
+
+public final class ModbusTaskBuilder {
+
+    private static final ModbusMessages messages = LocalizationAdapter.adapt(ModbusMessages.class);
+
+    private ModbusTaskBuilder() {
+    }
+
+    private static int getIntProperty(ChannelRecord record, String propertyName, String failureMessage)
+            throws KuraException {
+        try {
+            return Integer.parseInt(record.getChannelConfig().get(propertyName).toString());
+        } catch (Exception e) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, failureMessage);
+        }
+    }
+
+    private static <T extends Enum<T>> T getEnumProperty(ChannelRecord record, String propertyName, Class<T> type,
+            String failureMessage) throws KuraException {
+        try {
+            return Enum.valueOf(type, record.getChannelConfig().get(propertyName).toString());
+        } catch (Exception e) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, failureMessage);
+        }
+    }
+
+    private static void assertChannelType(ChannelRecord record, DataType channelType) throws KuraException {
+        if (channelType != record.getValueType()) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, messages.errorConvertingType() + channelType);
+        }
+    }
+
+    private static ModbusDomain getDomain(ChannelRecord record) throws KuraException {
+        final int unitId = getIntProperty(record, ModbusChannelDescriptor.UNIT_ID_ID, messages.errorRetrievingUnitId());
+        final ModbusArea area = getEnumProperty(record, ModbusChannelDescriptor.MEMORY_AREA_ID, ModbusArea.class,
+                messages.errorRetrievingMemoryArea());
+        return new ModbusDomain(unitId, area);
+    }
+
+    private static <T> BlockTask newBinaryDataTask(ChannelRecord record, int offset, BinaryData<T> binaryDataType,
+            DataType type, Mode mode) {
+        return new BinaryDataTask<>(record, offset, binaryDataType, type, mode);
+    }
+
+    private static BlockTask build(ChannelRecord record, ModbusArea area, Mode mode) throws KuraException {
+
+        final Map<String, Object> channelConfig = record.getChannelConfig();
+
+        DataType type = record.getValueType();
+
+        int address = getIntProperty(record, ModbusChannelDescriptor.MEMORY_ADDRESS_ID,
+                messages.errorRetrievingMemoryAddress());
+
+        if (mode != Mode.READ && !area.isWritable()) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, messages.errorReadOnlyArea() + area);
+        }
+
+        if (area.isBitArea()) {
+
+            assertChannelType(record, DataType.BOOLEAN);
+            return new CoilTask(record, address, mode);
+
+        }
+
+        final int offset = address * 2;
+
+        if (type == DataType.BYTE_ARRAY) {
+
+            int registerCount = getIntProperty(record, ModbusChannelDescriptor.REGISTER_COUNT_ID,
+                    messages.errorRetrievingRegisterCount());
+            return new ByteArrayTask(record, offset, offset + registerCount * 2, mode);
+
+        }
+
+        final ModbusDataType modbusDataType;
+        try {
+            modbusDataType = ModbusDataType
+                    .valueOf(channelConfig.get(ModbusChannelDescriptor.MODBUS_DATA_TYPE_ID).toString());
+        } catch (Exception e) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, messages.errorRetrievingDataType());
+        }
+
+        if (modbusDataType == ModbusDataType.BIT) {
+
+            assertChannelType(record, DataType.BOOLEAN);
+            int bitIndex = getIntProperty(record, ModbusChannelDescriptor.BIT_INDEX_ID,
+                    messages.errorRetrievingBitIndex());
+            return new RegisterBitTask(record, offset, bitIndex, mode == Mode.WRITE ? Mode.UPDATE : Mode.READ);
+
+        } else if (modbusDataType == ModbusDataType.CHAR) {
+
+            assertChannelType(record, DataType.STRING);
+            int registerCount = getIntProperty(record, ModbusChannelDescriptor.REGISTER_COUNT_ID,
+                    messages.errorRetrievingRegisterCount());
+            return new StringTask(record, offset, offset + registerCount * 2, mode);
+
+        }
+
+        return newBinaryDataTask(record, offset, modbusDataType.getBinaryDataType(), type, mode);
+    }
+
+    public static Stream<Pair<ModbusDomain, BlockTask>> build(List<ChannelRecord> records, Mode mode) {
+        return records.stream().map((record) -> {
+            try {
+                final ModbusDomain domain = getDomain(record);
+                return new Pair<>(domain, build(record, domain.getArea(), mode));
+            } catch (Exception e) {
+                record.setTimestamp(System.currentTimeMillis());
+                record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
+                return null;
+            }
+        }).filter(Objects::nonNull);
+    }
+
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus.task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kura.driver.binary.Buffer;
+import org.eclipse.kura.driver.binary.ByteArrayBuffer;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.block.task.ToplevelBlockTask;
+import org.eclipse.kura.internal.driver.modbus.ModbusArea;
+import org.eclipse.kura.internal.driver.modbus.ModbusDomain;
+import org.eclipse.kura.internal.driver.modbus.ModbusDriver;
+import org.eclipse.kura.internal.driver.modbus.transport.ModbusException;
+import org.eclipse.kura.internal.driver.modbus.transport.ModbusTransaction;
+import org.eclipse.kura.internal.driver.modbus.transport.ModbusTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transfers a block of coils or registers of a slave. The addresses of the bit areas are coil addresses and their
+ * buffer holds one byte per coil, the addresses of the register areas are byte offsets (twice the register address).
+ * <br/>
+ * <br/>
+ *
+ * A block larger than the maximum quantity allowed by the protocol is transferred with several requests. The read
+ * requests can be sent in advance with {@link #submit()}, so that the requests of several blocks are outstanding at
+ * the same time and {@link #processBuffer()} only collects the responses.
+ */
+public class ModbusToplevelBlockTask extends ToplevelBlockTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusToplevelBlockTask.class);
+
+    private final ModbusDriver driver;
+    private final int unitId;
+    private final ModbusArea area;
+    private ByteArrayBuffer data;
+
+    private List<ModbusTransaction> transactions;
+    private IOException submitFailure;
+
+    public ModbusToplevelBlockTask(ModbusDriver driver, Mode mode, ModbusDomain domain, int start, int end) {
+        super(start, end, mode);
+        this.driver = driver;
+        this.unitId = domain.getUnitId();
+        this.area = domain.getArea();
+    }
+
+    private int getAddress() {
+        return this.area.isBitArea() ? getStart() : getStart() / 2;
+    }
+
+    private int getQuantity() {
+        return this.area.isBitArea() ? getEnd() - getStart() : (getEnd() - getStart() + 1) / 2;
+    }
+
+    /**
+     * Sends the read requests of this block without waiting for the responses. Has no effect on write blocks or if
+     * the requests have already been sent.
+     */
+    public void submit() {
+        if (getMode() != Mode.READ || this.transactions != null || this.submitFailure != null) {
+            return;
+        }
+
+        final int address = getAddress();
+        final int quantity = getQuantity();
+        final int maxQuantity = this.area.getMaxReadQuantity();
+        logger.debug("Reading from unit {}, {} address: {} quantity: {}", this.unitId, this.area, address, quantity);
+
+        final List<ModbusTransaction> result = new ArrayList<>();
+        try {
+            final ModbusTransport transport = this.driver.getTransport();
+            for (int offset = 0; offset < quantity; offset += maxQuantity) {
+                final int requestQuantity = Math.min(maxQuantity, quantity - offset);
+                final byte[] request = createRequest(this.area.getReadFunctionCode(), address + offset,
+                        requestQuantity, 0);
+                result.add(transport.submit(this.unitId, request));
+            }
+            this.transactions = result;
+        } catch (IOException e) {
+            result.forEach(ModbusTransaction::cancel);
+            this.submitFailure = e;
+        }
+    }
+
+    @Override
+    public void processBuffer() throws IOException {
+        if (getMode() == Mode.READ) {
+            submit();
+            final List<ModbusTransaction> pending = this.transactions;
+            final IOException failure = this.submitFailure;
+            this.transactions = null;
+            this.submitFailure = null;
+            if (failure != null) {
+                throw failure;
+            }
+            receive(pending);
+        } else {
+            logger.debug("Writing to unit {}, {} address: {} quantity: {}", this.unitId, this.area, getAddress(),
+                    getQuantity());
+            await(submitWrite());
+        }
+    }
+
+    private void receive(List<ModbusTransaction> pending) throws IOException {
+        final byte[] buffer = ((ByteArrayBuffer) getBuffer()).getBackingArray();
+        int offset = 0;
+        try {
+            for (final ModbusTransaction transaction : pending) {
+                final byte[] request = transaction.getRequest();
+                final int quantity = (request[3] & 0xff) << 8 | request[4] & 0xff;
+                final int byteCount = this.area.isBitArea() ? (quantity + 7) / 8 : quantity * 2;
+
+                final byte[] response = transaction.getResponse();
+                if (response.length < byteCount + 2 || (response[1] & 0xff) != byteCount) {
+                    throw new ModbusException("Unexpected response length, unit " + this.unitId);
+                }
+
+                if (this.area.isBitArea()) {
+                    for (int i = 0; i < quantity; i++) {
+                        buffer[offset + i] = (byte) (response[2 + i / 8] >> i % 8 & 0x01);
+                    }
+                } else {
+                    System.arraycopy(response, 2, buffer, offset * 2, byteCount);
+                }
+                offset += quantity;
+            }
+        } catch (IOException e) {
+            pending.forEach(ModbusTransaction::cancel);
+            throw e;
+        }
+    }
+
+    private List<ModbusTransaction> submitWrite() throws IOException {
+        final byte[] buffer = ((ByteArrayBuffer) getBuffer()).getBackingArray();
+        final int address = getAddress();
+        final int quantity = getQuantity();
+        final int maxQuantity = this.area.getMaxWriteQuantity();
+
+        final List<ModbusTransaction> result = new ArrayList<>();
+        try {
+            final ModbusTransport transport = this.driver.getTransport();
+            for (int offset = 0; offset < quantity; offset += maxQuantity) {
+                final int requestQuantity = Math.min(maxQuantity, quantity - offset);
+                result.add(transport.submit(this.unitId,
+                        createWriteRequest(buffer, address + offset, offset, requestQuantity)));
+            }
+        } catch (IOException e) {
+            result.forEach(ModbusTransaction::cancel);
+            throw e;
+        }
+        return result;
+    }
+
+    private static void await(List<ModbusTransaction> pending) throws IOException {
+        try {
+            for (final ModbusTransaction transaction : pending) {
+                transaction.getResponse();
+            }
+        } catch (IOException e) {
+            pending.forEach(ModbusTransaction::cancel);
+            throw e;
+        }
+    }
+
+    private byte[] createWriteRequest(byte[] buffer, int address, int offset, int quantity) {
+        if (this.area.isBitArea()) {
+            if (quantity == 1) {
+                final byte[] request = createRequest(this.area.getWriteSingleFunctionCode(), address, 0, 0);
+                request[3] = buffer[offset] != 0 ? (byte) 0xFF : 0;
+                return request;
+            }
+            final int byteCount = (quantity + 7) / 8;
+            final byte[] request = createRequest(this.area.getWriteMultipleFunctionCode(), address, quantity,
+                    byteCount);
+            for (int i = 0; i < quantity; i++) {
+                if (buffer[offset + i] != 0) {
+                    request[6 + i / 8] |= 1 << i % 8;
+                }
+            }
+            return request;
+        }
+
+        if (quantity == 1) {
+            final byte[] request = createRequest(this.area.getWriteSingleFunctionCode(), address, 0, 0);
+            request[3] = buffer[offset * 2];
+            request[4] = buffer[offset * 2 + 1];
+            return request;
+        }
+        final byte[] request = createRequest(this.area.getWriteMultipleFunctionCode(), address, quantity,
+                quantity * 2);
+        System.arraycopy(buffer, offset * 2, request, 6, quantity * 2);
+        return request;
+    }
+
+    /**
+     * Creates a request PDU made of the function code, the address and the quantity, followed by the byte count and
+     * the data if the byte count is not 0.
+     */
+    private static byte[] createRequest(int functionCode, int address, int quantity, int byteCount) {
+        final byte[] request = new byte[byteCount > 0 ? 6 + byteCount : 5];
+        request[0] = (byte) functionCode;
+        request[1] = (byte) (address >> 8);
+        request[2] = (byte) address;
+        request[3] = (byte) (quantity >> 8);
+        request[4] = (byte) quantity;
+        if (byteCount > 0) {
+            request[5] = (byte) byteCount;
+        }
+        return request;
+    }
+
+    @Override
+    public Buffer getBuffer() {
+        if (this.data == null) {
+            this.data = new ByteArrayBuffer(new byte[this.area.isBitArea() ? getQuantity() : getQuantity() * 2]);
+        }
+        return this.data;
+    }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus.transport;
+
+import java.io.IOException;
+
+/**
+ * Reports a request that failed without compromising the connection: the slave answered with an exception response,
+ * or did not answer in time.
+ */
+@SuppressWarnings("serial")
+public class ModbusException extends IOException {
+
+    private final int exceptionCode;
+
+    public ModbusException(String message) {
+        this(message, 0);
+    }
+
+    public ModbusException(String message, int exceptionCode) {
+        super(message);
+        this.exceptionCode = exceptionCode;
+    }
+
+    /**
+     * Returns the exception code sent by the slave.
+     *
+     * @return the exception code, or 0 if the slave did not answer
+     */
+    public int getExceptionCode() {
+        return exceptionCode;
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus.transport;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Modbus RTU transport. A serial line carries a single transaction at a time, so at most one request is outstanding.
+ * <br/>
+ * <br/>
+ *
+ * The frames are received by a dedicated thread blocked on the input stream: the response is delivered as soon as the
+ * number of bytes implied by its function code has been received, without polling the stream. The input stream must
+ * have a receive timeout, so that the thread can notice that the transport has been closed; the connection is
+ * closed only after the thread has stopped reading.<br/>
+ * <br/>
+ *
+ * The bytes waiting in the input stream when a request is sent, such as the late response to a request that timed
+ * out, are dropped. A response must start with the address of the slave and with the function code of the request,
+ * or its exception code: the bytes before such a start are dropped as well.
+ */
+public final class ModbusRtuTransport extends ModbusTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusRtuTransport.class);
+
+    private static final int MAX_FRAME_LENGTH = 260;
+
+    private static final long RECEIVER_STOP_TIMEOUT_MILLIS = 5000;
+
+    private final InputStream in;
+
+    private final OutputStream out;
+
+    private final Closeable connection;
+
+    private final AtomicReference<ModbusTransaction> currentTransaction = new AtomicReference<>();
+
+    private final Thread receiver;
+
+    /**
+     * Instantiates a new transport on an open serial connection.
+     *
+     * @param in
+     *            the input stream of the connection, with a receive timeout
+     * @param out
+     *            the output stream of the connection
+     * @param connection
+     *            the connection, closed by {@link #close()}
+     * @param timeoutMillis
+     *            the response timeout
+     * @param name
+     *            the name of the serial port
+     */
+    public ModbusRtuTransport(InputStream in, OutputStream out, Closeable connection, int timeoutMillis,
+            String name) {
+        super(1, timeoutMillis);
+        this.in = in;
+        this.out = out;
+        this.connection = connection;
+
+        this.receiver = new Thread(this::receive, "ModbusRtuReceiver-" + name);
+        this.receiver.setDaemon(true);
+        this.receiver.start();
+    }
+
+    @Override
+    protected void send(ModbusTransaction transaction) throws IOException {
+        final byte[] pdu = transaction.getRequest();
+        final byte[] frame = new byte[pdu.length + 3];
+        frame[0] = (byte) transaction.getUnitId();
+        System.arraycopy(pdu, 0, frame, 1, pdu.length);
+        final int crc = crc16(frame, frame.length - 2);
+        frame[frame.length - 2] = (byte) crc;
+        frame[frame.length - 1] = (byte) (crc >> 8);
+
+        try {
+            drainInput();
+            this.currentTransaction.set(transaction);
+            this.out.write(frame);
+            this.out.flush();
+        } catch (IOException e) {
+            this.currentTransaction.compareAndSet(transaction, null);
+            shutdown(e);
+            throw e;
+        }
+    }
+
+    private void drainInput() throws IOException {
+        int available;
+        while ((available = this.in.available()) > 0) {
+            final long skipped = this.in.skip(available);
+            if (skipped <= 0) {
+                break;
+            }
+            logger.debug("Dropping {} stale bytes", skipped);
+        }
+    }
+
+    @Override
+    protected void discard(ModbusTransaction transaction) {
+        this.currentTransaction.compareAndSet(transaction, null);
+    }
+
+    private void receive() {
+        final byte[] frame = new byte[MAX_FRAME_LENGTH];
+        int length = 0;
+        ModbusTransaction owner = null;
+        try {
+            while (isOpen()) {
+                final int count = this.in.read(frame, length, frame.length - length);
+                if (count < 0) {
+                    throw new EOFException("End of stream");
+                }
+                if (count == 0) {
+                    // receive timeout
+                    continue;
+                }
+
+                final ModbusTransaction transaction = this.currentTransaction.get();
+                if (transaction != owner) {
+                    // the bytes received before belong to a request that timed out
+                    System.arraycopy(frame, length, frame, 0, count);
+                    length = 0;
+                    owner = transaction;
+                }
+                length += count;
+                if (transaction == null) {
+                    logger.debug("Dropping {} unexpected bytes", length);
+                    length = 0;
+                    continue;
+                }
+
+                length = dropUnexpectedBytes(frame, length, transaction);
+                final int expectedLength = getExpectedLength(frame, length);
+                if (expectedLength == 0 || length < expectedLength) {
+                    continue;
+                }
+
+                length = 0;
+                this.currentTransaction.compareAndSet(transaction, null);
+                if (expectedLength < 0) {
+                    fail(transaction, new ModbusException("Invalid response frame, unit " + transaction.getUnitId()));
+                } else if (crc16(frame, expectedLength) != 0) {
+                    fail(transaction, new ModbusException("CRC error in response, unit " + transaction.getUnitId()));
+                } else {
+                    complete(transaction, Arrays.copyOfRange(frame, 1, expectedLength - 2));
+                }
+            }
+        } catch (IOException e) {
+            shutdown(e);
+        }
+
+        final ModbusTransaction transaction = this.currentTransaction.getAndSet(null);
+        if (transaction != null) {
+            fail(transaction, new IOException("Connection closed"));
+        }
+    }
+
+    /**
+     * Drops the received bytes preceding the start of the response of a transaction, that is the address of its slave
+     * followed by its function code or exception code.
+     *
+     * @return the number of bytes left in the frame
+     */
+    static int dropUnexpectedBytes(byte[] frame, int length, ModbusTransaction transaction) {
+        final int unitId = transaction.getUnitId();
+        final int functionCode = transaction.getRequest()[0] & 0xff;
+        int start = 0;
+        while (start < length) {
+            if ((frame[start] & 0xff) == unitId) {
+                if (start + 1 == length) {
+                    break;
+                }
+                final int responseFunctionCode = frame[start + 1] & 0xff;
+                if (responseFunctionCode == functionCode || responseFunctionCode == (functionCode | 0x80)) {
+                    break;
+                }
+            }
+            start++;
+        }
+        if (start == 0) {
+            return length;
+        }
+        logger.debug("Dropping {} unexpected bytes before the response of unit {}", start, unitId);
+        System.arraycopy(frame, start, frame, 0, length - start);
+        return length - start;
+    }
+
+    /**
+     * Computes the length of the response frame from its first bytes.
+     *
+     * @return the length of the frame, 0 if more bytes are needed to compute it, -1 if the function is unknown
+     */
+    static int getExpectedLength(byte[] frame, int length) {
+        if (length < 2) {
+            return 0;
+        }
+        final int functionCode = frame[1] & 0xff;
+        if ((functionCode & 0x80) != 0) {
+            return 5;
+        }
+        switch (functionCode) {
+        case 0x01:
+        case 0x02:
+        case 0x03:
+        case 0x04:
+            return length < 3 ? 0 : 5 + (frame[2] & 0xff);
+        case 0x05:
+        case 0x06:
+        case 0x0F:
+        case 0x10:
+            return 8;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * Computes the Modbus CRC of a frame. The CRC of a frame including its own CRC is 0.
+     */
+    static int crc16(byte[] data, int length) {
+        int crc = 0xffff;
+        for (int i = 0; i < length; i++) {
+            crc ^= data[i] & 0xff;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? crc >>> 1 ^ 0xa001 : crc >>> 1;
+            }
+        }
+        return crc;
+    }
+
+    @Override
+    public void close() throws IOException {
+        shutdown(new IOException("Connection closed"));
+        try {
+            // closing the connection while the receiver is blocked reading could block it forever
+            this.receiver.join(RECEIVER_STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.connection.close();
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus.transport;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Modbus TCP transport. The requests are tagged with the transaction identifier of the MBAP header, so several of
+ * them can be outstanding on the same connection and the responses, which the slave or the gateway may send in any
+ * order, are matched to their transactions by identifier.<br/>
+ * <br/>
+ *
+ * The frames whose protocol identifier is not the Modbus one are dropped, the responses whose unit identifier is not
+ * the one of the request fail their transaction.
+ */
+public final class ModbusTcpTransport extends ModbusTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModbusTcpTransport.class);
+
+    private static final int MBAP_HEADER_LENGTH = 7;
+
+    private static final int MAX_PDU_LENGTH = 253;
+
+    private static final int MODBUS_PROTOCOL_ID = 0;
+
+    private final Socket socket;
+
+    private final DataInputStream in;
+
+    private final OutputStream out;
+
+    private final ConcurrentMap<Integer, ModbusTransaction> pendingTransactions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextTransactionId = new AtomicInteger();
+
+    /**
+     * Connects to a slave or gateway.
+     *
+     * @param host
+     *            the host name or address
+     * @param port
+     *            the TCP port
+     * @param timeoutMillis
+     *            the connection and response timeout
+     * @param maxOutstandingRequests
+     *            the maximum number of requests that can be outstanding at the same time
+     * @throws IOException
+     *             if the connection fails
+     */
+    public ModbusTcpTransport(String host, int port, int timeoutMillis, int maxOutstandingRequests)
+            throws IOException {
+        super(maxOutstandingRequests, timeoutMillis);
+        this.socket = new Socket();
+        try {
+            this.socket.setTcpNoDelay(true);
+            this.socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            this.in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+            this.out = this.socket.getOutputStream();
+        } catch (IOException e) {
+            this.socket.close();
+            throw e;
+        }
+
+        final Thread receiver = new Thread(this::receive, "ModbusTcpReceiver-" + host + ":" + port);
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @Override
+    protected void prepare(ModbusTransaction transaction) {
+        // the identifier is assigned before the transaction can expire, so that its expiry discards the right entry
+        transaction.setTransactionId(this.nextTransactionId.getAndIncrement() & 0xffff);
+    }
+
+    @Override
+    protected void send(ModbusTransaction transaction) throws IOException {
+        final int transactionId = transaction.getTransactionId();
+
+        final byte[] pdu = transaction.getRequest();
+        final byte[] frame = new byte[MBAP_HEADER_LENGTH + pdu.length];
+        frame[0] = (byte) (transactionId >> 8);
+        frame[1] = (byte) transactionId;
+        frame[4] = (byte) (pdu.length + 1 >> 8);
+        frame[5] = (byte) (pdu.length + 1);
+        frame[6] = (byte) transaction.getUnitId();
+        System.arraycopy(pdu, 0, frame, MBAP_HEADER_LENGTH, pdu.length);
+
+        this.pendingTransactions.put(transactionId, transaction);
+        try {
+            // the receiver fails the pending transactions when the connection breaks, check again after registering
+            checkOpen();
+            synchronized (this.out) {
+                this.out.write(frame);
+                this.out.flush();
+            }
+        } catch (IOException e) {
+            this.pendingTransactions.remove(transactionId, transaction);
+            abort(e);
+            throw e;
+        }
+    }
+
+    @Override
+    protected void discard(ModbusTransaction transaction) {
+        this.pendingTransactions.remove(transaction.getTransactionId(), transaction);
+    }
+
+    private void receive() {
+        final byte[] header = new byte[MBAP_HEADER_LENGTH];
+        try {
+            while (isOpen()) {
+                this.in.readFully(header);
+                final int transactionId = (header[0] & 0xff) << 8 | header[1] & 0xff;
+                final int protocolId = (header[2] & 0xff) << 8 | header[3] & 0xff;
+                final int length = (header[4] & 0xff) << 8 | header[5] & 0xff;
+                final int unitId = header[6] & 0xff;
+                if (length < 2 || length > MAX_PDU_LENGTH + 1) {
+                    throw new IOException("Invalid MBAP header, length " + length);
+                }
+                final byte[] pdu = new byte[length - 1];
+                this.in.readFully(pdu);
+
+                if (protocolId != MODBUS_PROTOCOL_ID) {
+                    logger.debug("Dropping frame with protocol identifier {}", protocolId);
+                    continue;
+                }
+                final ModbusTransaction transaction = this.pendingTransactions.remove(transactionId);
+                if (transaction == null) {
+                    logger.debug("Dropping response for unknown transaction {}", transactionId);
+                    continue;
+                }
+                if (unitId != transaction.getUnitId()) {
+                    fail(transaction, new ModbusException("Unexpected unit in response, expected "
+                            + transaction.getUnitId() + " received " + unitId));
+                    continue;
+                }
+                complete(transaction, pdu);
+            }
+        } catch (IOException e) {
+            abort(e);
+        }
+    }
+
+    private void abort(IOException reason) {
+        if (shutdown(reason)) {
+            logger.debug("Modbus TCP connection closed", reason);
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close socket", e);
+            }
+        }
+        for (final Integer transactionId : this.pendingTransactions.keySet()) {
+            final ModbusTransaction transaction = this.pendingTransactions.remove(transactionId);
+            if (transaction != null) {
+                fail(transaction, reason);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        abort(new IOException("Connection closed"));
+    }
+}
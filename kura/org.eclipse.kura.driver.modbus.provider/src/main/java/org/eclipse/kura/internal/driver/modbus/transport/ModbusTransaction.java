@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus.transport;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A request sent through a {@link ModbusTransport}, whose response can be retrieved later with
+ * {@link #getResponse()}.
+ */
+public final class ModbusTransaction {
+
+    private final ModbusTransport transport;
+    private final int unitId;
+    private final byte[] request;
+    private final long deadline;
+    private final CompletableFuture<byte[]> response = new CompletableFuture<>();
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private int transactionId;
+
+    ModbusTransaction(ModbusTransport transport, int unitId, byte[] request, long deadline) {
+        this.transport = transport;
+        this.unitId = unitId;
+        this.request = request;
+        this.deadline = deadline;
+    }
+
+    public int getUnitId() {
+        return unitId;
+    }
+
+    /**
+     * Returns the request PDU: the function code followed by the request data.
+     *
+     * @return the request PDU
+     */
+    public byte[] getRequest() {
+        return request;
+    }
+
+    int getTransactionId() {
+        return transactionId;
+    }
+
+    void setTransactionId(int transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    CompletableFuture<byte[]> getResponseFuture() {
+        return response;
+    }
+
+    /**
+     * Marks the transaction as done.
+     *
+     * @return true if the transaction was not already done
+     */
+    boolean finish() {
+        return done.compareAndSet(false, true);
+    }
+
+    /**
+     * Waits for the response of the slave.
+     *
+     * @return the response PDU: the function code followed by the response data
+     * @throws ModbusException
+     *             if the slave answers with an exception or does not answer in time
+     * @throws IOException
+     *             if the connection fails
+     */
+    public byte[] getResponse() throws IOException {
+        return transport.await(this);
+    }
+
+    /**
+     * Abandons the transaction, its response will be dropped. Has no effect if the transaction is done.
+     */
+    public void cancel() {
+        transport.cancel(this);
+    }
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.modbus.transport;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Base class for the transports carrying Modbus requests to the slaves.<br/>
+ * <br/>
+ *
+ * Sending a request and receiving its response are decoupled: {@link #submit(int, byte[])} sends a request and
+ * returns immediately, while the responses are received by a thread of the transport and matched to their
+ * transactions. This allows a caller to have up to {@code maxOutstandingRequests} requests in flight at the same
+ * time, {@link #submit(int, byte[])} blocks when this limit is reached until a response arrives.<br/>
+ * <br/>
+ *
+ * A transaction whose slave does not answer in time is expired by the transport itself, without waiting for its
+ * caller to ask for the response: while waiting for a free slot, {@link #submit(int, byte[])} fails the overdue
+ * transactions and reuses their slots, so that a slave that never answers cannot stall the requests sent after its
+ * own.<br/>
+ * <br/>
+ *
+ * Once the connection fails or is closed the transport cannot be used anymore and all the outstanding transactions
+ * fail, a new transport must be created.
+ */
+public abstract class ModbusTransport implements Closeable {
+
+    private final Semaphore outstandingRequests;
+
+    private final long timeoutNanos;
+
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    private final Set<ModbusTransaction> outstandingTransactions = ConcurrentHashMap.newKeySet();
+
+    protected ModbusTransport(int maxOutstandingRequests, long timeoutMillis) {
+        this.outstandingRequests = new Semaphore(Math.max(1, maxOutstandingRequests));
+        this.timeoutNanos = MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Sends a request to a slave without waiting for the response.
+     *
+     * @param unitId
+     *            the unit identifier of the slave
+     * @param request
+     *            the request PDU: the function code followed by the request data
+     * @return the transaction, to retrieve the response with {@link ModbusTransaction#getResponse()}
+     * @throws ModbusException
+     *             if the request cannot be sent in time because too many requests are outstanding
+     * @throws IOException
+     *             if the connection fails
+     */
+    public ModbusTransaction submit(int unitId, byte[] request) throws IOException {
+        checkOpen();
+        try {
+            acquire(unitId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        final ModbusTransaction transaction = new ModbusTransaction(this, unitId, request,
+                System.nanoTime() + this.timeoutNanos);
+        prepare(transaction);
+        this.outstandingTransactions.add(transaction);
+        try {
+            checkOpen();
+            send(transaction);
+        } catch (IOException e) {
+            fail(transaction, e);
+            throw e;
+        }
+        return transaction;
+    }
+
+    /**
+     * Waits for a free slot, expiring the overdue transactions meanwhile.
+     */
+    private void acquire(int unitId) throws InterruptedException, ModbusException {
+        final long deadline = System.nanoTime() + this.timeoutNanos;
+        while (!this.outstandingRequests.tryAcquire()) {
+            final long now = System.nanoTime();
+            final long nextExpiry = expireOverdueTransactions(now);
+            if (this.outstandingRequests.tryAcquire()) {
+                return;
+            }
+            final long remaining = deadline - now;
+            if (remaining <= 0) {
+                throw new ModbusException("Timeout waiting for outstanding requests, unit " + unitId);
+            }
+            final long wait = nextExpiry - now > 0 ? Math.min(remaining, nextExpiry - now) : remaining;
+            if (this.outstandingRequests.tryAcquire(wait, NANOSECONDS)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fails the transactions whose deadline has passed, releasing their slots.
+     *
+     * @return the earliest deadline of the transactions still outstanding, {@code now} if there is none
+     */
+    private long expireOverdueTransactions(long now) {
+        long nextExpiry = now;
+        for (final ModbusTransaction transaction : this.outstandingTransactions) {
+            final long deadline = transaction.getDeadline();
+            if (deadline - now > 0) {
+                if (nextExpiry == now || deadline - nextExpiry < 0) {
+                    nextExpiry = deadline;
+                }
+            } else if (finish(transaction)) {
+                discard(transaction);
+                transaction.getResponseFuture().completeExceptionally(
+                        new ModbusException("Response timeout, unit " + transaction.getUnitId()));
+            }
+        }
+        return nextExpiry;
+    }
+
+    /**
+     * Marks a transaction as done and releases its slot.
+     *
+     * @return true if the transaction was not already done
+     */
+    private boolean finish(ModbusTransaction transaction) {
+        if (!transaction.finish()) {
+            return false;
+        }
+        this.outstandingTransactions.remove(transaction);
+        this.outstandingRequests.release();
+        return true;
+    }
+
+    byte[] await(ModbusTransaction transaction) throws IOException {
+        final Future<byte[]> response = transaction.getResponseFuture();
+        try {
+            try {
+                return response.get(Math.max(0, transaction.getDeadline() - System.nanoTime()), NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (finish(transaction)) {
+                    discard(transaction);
+                    throw new ModbusException("Response timeout, unit " + transaction.getUnitId());
+                }
+                // the response is being delivered, or the transaction has been expired
+                return response.get();
+            }
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    void cancel(ModbusTransaction transaction) {
+        if (finish(transaction)) {
+            discard(transaction);
+            transaction.getResponseFuture().cancel(false);
+        }
+    }
+
+    /**
+     * Tells whether the transport can still be used.
+     *
+     * @return false if the connection failed or has been closed
+     */
+    public boolean isOpen() {
+        return this.failure.get() == null;
+    }
+
+    protected void checkOpen() throws IOException {
+        final IOException reason = this.failure.get();
+        if (reason != null) {
+            throw new IOException(reason.getMessage(), reason);
+        }
+    }
+
+    /**
+     * Marks the transport as unusable.
+     *
+     * @param reason
+     *            the reason reported to the callers
+     * @return true if the transport was open
+     */
+    protected boolean shutdown(IOException reason) {
+        return this.failure.compareAndSet(null, reason);
+    }
+
+    /**
+     * Delivers the response of a transaction. Exception responses complete the transaction with a
+     * {@link ModbusException}.
+     *
+     * @param transaction
+     *            the transaction
+     * @param response
+     *            the response PDU
+     */
+    protected void complete(ModbusTransaction transaction, byte[] response) {
+        if (!finish(transaction)) {
+            return;
+        }
+
+        final int functionCode = response.length > 0 ? response[0] & 0xff : 0;
+        final int requestFunctionCode = transaction.getRequest()[0] & 0xff;
+        if (functionCode == (requestFunctionCode | 0x80)) {
+            final int exceptionCode = response.length > 1 ? response[1] & 0xff : 0;
+            transaction.getResponseFuture().completeExceptionally(new ModbusException("Exception response, unit "
+                    + transaction.getUnitId() + " function " + requestFunctionCode + " code " + exceptionCode,
+                    exceptionCode));
+        } else if (functionCode != requestFunctionCode) {
+            transaction.getResponseFuture().completeExceptionally(
+                    new ModbusException("Unexpected function code in response, unit " + transaction.getUnitId()
+                            + " expected " + requestFunctionCode + " received " + functionCode));
+        } else {
+            transaction.getResponseFuture().complete(response);
+        }
+    }
+
+    /**
+     * Fails a transaction.
+     *
+     * @param transaction
+     *            the transaction
+     * @param exception
+     *            the reason reported to the caller
+     */
+    protected void fail(ModbusTransaction transaction, IOException exception) {
+        if (finish(transaction)) {
+            transaction.getResponseFuture().completeExceptionally(exception);
+        }
+    }
+
+    /**
+     * Prepares a transaction before it is registered as outstanding, from then on it can be expired at any time.
+     * Does nothing by default.
+     *
+     * @param transaction
+     *            the transaction
+     */
+    protected void prepare(ModbusTransaction transaction) {
+        // nothing to prepare
+    }
+
+    /**
+     * Sends the frame of a transaction.
+     *
+     * @param transaction
+     *            the transaction
+     * @throws IOException
+     *             if the frame cannot be sent
+     */
+    protected abstract void send(ModbusTransaction transaction) throws IOException;
+
+    /**
+     * Forgets a transaction that timed out, a late response must be dropped.
+     *
+     * @param transaction
+     *            the transaction
+     */
+    protected abstract void discard(ModbusTransaction transaction);
+}
@@ -108,4 +108,25 @@ public interface OpcUaMessages {
     @En("Operation Result Variant cannot be null")
     public String errorNullVariant();
 
+    @En("Channel Listener cannot be null")
+    public String listenerNonNull();
+
+    @En("Error while retrieving channel name")
+    public String errorRetrievingChannelName();
+
+    @En("Error while retrieving channel listener parameters")
+    public String errorRetrievingListenerParameters();
+
+    @En("Unable to create the monitored item of the channel listener")
+    public String errorCreatingMonitoredItem();
+
+    @En("Unable to delete the monitored item of the channel listener")
+    public String errorDeletingMonitoredItem();
+
+    @En("Unable to restore the monitored items of the channel listeners")
+    public String errorRestoringMonitoredItems();
+
+    @En("Channel listener failed while processing an event")
+    public String errorNotifyingListener();
+
 }
\ No newline at end of file
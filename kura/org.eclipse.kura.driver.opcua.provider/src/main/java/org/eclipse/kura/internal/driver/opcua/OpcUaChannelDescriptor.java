@@ -22,6 +22,7 @@ import org.eclipse.kura.core.configuration.metatype.Tad;
 import org.eclipse.kura.core.configuration.metatype.Toption;
 import org.eclipse.kura.core.configuration.metatype.Tscalar;
 import org.eclipse.kura.driver.ChannelDescriptor;
+import org.eclipse.kura.type.DataType;
 import org.eclipse.kura.util.collection.CollectionUtil;
 import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
@@ -34,6 +35,12 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
  * <li>node.id</li> denotes the OPC-UA Variable Node.
  * <li>node.namespace.index</li> denotes the OPC-UA Variable Node Namespace
  * index.
+ * <li>listen.sampling.interval</li> denotes the sampling interval (in milliseconds)
+ * of the monitored item created for a channel listener.
+ * <li>listen.queue.size</li> denotes the queue size of the monitored item created
+ * for a channel listener.
+ * <li>listen.deadband</li> denotes the absolute deadband of the monitored item
+ * created for a channel listener, 0 to be notified of every change.
  * </ul>
  */
 public final class OpcUaChannelDescriptor implements ChannelDescriptor {
@@ -42,6 +49,17 @@ public final class OpcUaChannelDescriptor implements ChannelDescriptor {
     private static final String NODE_NAMESPACE_INDEX = "node.namespace.index";
     private static final String OPCUA_TYPE = "opcua.type";
     private static final String NODE_ID_TYPE = "node.id.type";
+    private static final String LISTEN_SAMPLING_INTERVAL = "listen.sampling.interval";
+    private static final String LISTEN_QUEUE_SIZE = "listen.queue.size";
+    private static final String LISTEN_DEADBAND = "listen.deadband";
+
+    /** Channel name and value type, added to the channel configuration by the asset */
+    private static final String CHANNEL_NAME = "+name";
+    private static final String CHANNEL_VALUE_TYPE = "+value.type";
+
+    private static final double DEFAULT_SAMPLING_INTERVAL = 1000.0;
+    private static final int DEFAULT_QUEUE_SIZE = 10;
+    private static final double DEFAULT_DEADBAND = 0.0;
 
     private static void addOptions(Tad target, Enum<?>[] values) {
         final List<Option> options = target.getOption();
@@ -100,6 +118,36 @@ public final class OpcUaChannelDescriptor implements ChannelDescriptor {
         addOptions(nodeIdType, NodeIdType.values());
 
         elements.add(nodeIdType);
+
+        final Tad samplingInterval = new Tad();
+        samplingInterval.setName(LISTEN_SAMPLING_INTERVAL);
+        samplingInterval.setId(LISTEN_SAMPLING_INTERVAL);
+        samplingInterval.setDescription(LISTEN_SAMPLING_INTERVAL);
+        samplingInterval.setType(Tscalar.DOUBLE);
+        samplingInterval.setRequired(true);
+        samplingInterval.setDefault(Double.toString(DEFAULT_SAMPLING_INTERVAL));
+
+        elements.add(samplingInterval);
+
+        final Tad queueSize = new Tad();
+        queueSize.setName(LISTEN_QUEUE_SIZE);
+        queueSize.setId(LISTEN_QUEUE_SIZE);
+        queueSize.setDescription(LISTEN_QUEUE_SIZE);
+        queueSize.setType(Tscalar.INTEGER);
+        queueSize.setRequired(true);
+        queueSize.setDefault(Integer.toString(DEFAULT_QUEUE_SIZE));
+
+        elements.add(queueSize);
+
+        final Tad deadband = new Tad();
+        deadband.setName(LISTEN_DEADBAND);
+        deadband.setId(LISTEN_DEADBAND);
+        deadband.setDescription(LISTEN_DEADBAND);
+        deadband.setType(Tscalar.DOUBLE);
+        deadband.setRequired(true);
+        deadband.setDefault(Double.toString(DEFAULT_DEADBAND));
+
+        elements.add(deadband);
         return elements;
     }
 
@@ -117,6 +165,29 @@ public final class OpcUaChannelDescriptor implements ChannelDescriptor {
         return VariableType.valueOf(variableType);
     }
 
+    static double getSamplingInterval(Map<String, Object> properties) {
+        final Object samplingInterval = properties.get(LISTEN_SAMPLING_INTERVAL);
+        return samplingInterval == null ? DEFAULT_SAMPLING_INTERVAL : Double.parseDouble(samplingInterval.toString());
+    }
+
+    static int getQueueSize(Map<String, Object> properties) {
+        final Object queueSize = properties.get(LISTEN_QUEUE_SIZE);
+        return queueSize == null ? DEFAULT_QUEUE_SIZE : Integer.parseInt(queueSize.toString());
+    }
+
+    static double getDeadband(Map<String, Object> properties) {
+        final Object deadband = properties.get(LISTEN_DEADBAND);
+        return deadband == null ? DEFAULT_DEADBAND : Double.parseDouble(deadband.toString());
+    }
+
+    static String getChannelName(Map<String, Object> properties) {
+        return (String) properties.get(CHANNEL_NAME);
+    }
+
+    static DataType getValueType(Map<String, Object> properties) {
+        return DataType.getDataType((String) properties.get(CHANNEL_VALUE_TYPE));
+    }
+
     static NodeId getNodeId(Map<String, Object> properties, int nodeNamespaceIndex, NodeIdType nodeIdType) {
         String nodeIdString = (String) properties.get(NODE_ID);
         switch (nodeIdType) {
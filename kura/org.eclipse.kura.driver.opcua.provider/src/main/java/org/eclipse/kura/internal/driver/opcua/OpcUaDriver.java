@@ -15,7 +15,6 @@ package org.eclipse.kura.internal.driver.opcua;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
-import static org.eclipse.kura.KuraErrorCode.OPERATION_NOT_SUPPORTED;
 import static org.eclipse.kura.channel.ChannelFlag.FAILURE;
 import static org.eclipse.kura.channel.ChannelFlag.SUCCESS;
 
@@ -26,16 +25,19 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.eclipse.kura.KuraRuntimeException;
 import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.channel.listener.ChannelEvent;
 import org.eclipse.kura.channel.listener.ChannelListener;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.crypto.CryptoService;
@@ -46,30 +48,59 @@ import org.eclipse.kura.driver.opcua.localization.OpcUaMessages;
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.type.DataType;
 import org.eclipse.kura.type.TypedValue;
-import org.eclipse.kura.type.TypedValues;
 import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
 import org.eclipse.milo.opcua.sdk.client.api.config.OpcUaClientConfig;
 import org.eclipse.milo.opcua.sdk.client.api.config.OpcUaClientConfigBuilder;
-import org.eclipse.milo.opcua.sdk.client.api.nodes.VariableNode;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
 import org.eclipse.milo.opcua.stack.client.UaTcpStackClient;
-import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
-import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DataChangeTrigger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DeadbandType;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.DataChangeFilter;
 import org.eclipse.milo.opcua.stack.core.types.structured.EndpointDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadResponse;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteResponse;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 import io.netty.util.internal.StringUtil;
 
 /**
  * The Class {@link OpcUaDriver} is an OPC-UA Driver implementation for Kura Asset-Driver
- * Topology. Currently it only supports reading and writing from/to a specific
- * node. As of now, it doesn't support method execution or history read.
+ * Topology. Currently it supports reading and writing from/to a specific
+ * node and monitoring its value. As of now, it doesn't support method execution
+ * or history read.
+ * <br/>
+ * <br/>
+ * The channels read or written together are grouped in a single OPC-UA Read or
+ * Write service call, split in several calls if the server limits the number
+ * of nodes per operation. The calls are all issued before waiting for their
+ * responses, so that a request takes about one round trip regardless of the
+ * number of channels.
+ * <br/>
+ * <br/>
+ * A channel listener is notified through a monitored item, created for the
+ * node of its channel in a subscription shared by all the listeners. The
+ * monitored items are created again when the driver reconnects.
  * <br/>
  * <br/>
  * This OPC-UA Driver can be used in cooperation with Kura Asset Model and in
@@ -105,6 +136,20 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
 
     private final AtomicBoolean isBusy = new AtomicBoolean();
 
+    /** Maximum number of nodes in a Read service call, as advertised by the server */
+    private volatile int maxNodesPerRead = Integer.MAX_VALUE;
+
+    /** Maximum number of nodes in a Write service call, as advertised by the server */
+    private volatile int maxNodesPerWrite = Integer.MAX_VALUE;
+
+    /** The registered channel listeners, with the monitored items that notify them */
+    private final Map<ChannelListener, OpcUaListenerRegistration> listenerRegistrations = new ConcurrentHashMap<>();
+
+    /** The subscription of the monitored items, created with the first of them */
+    private volatile UaSubscription subscription;
+
+    private final AtomicInteger clientHandles = new AtomicInteger();
+
     private <U> U runSafe(final Future<U> future) throws ExecutionException, InterruptedException, TimeoutException {
         try {
             return future.get(this.options.getRequestTimeout(), TimeUnit.MILLISECONDS);
@@ -152,7 +197,7 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
 
     /** {@inheritDoc} */
     @Override
-    public void connect() throws ConnectionException {
+    public synchronized void connect() throws ConnectionException {
         if (!this.isBusy.compareAndSet(false, true)) {
             throw new ConnectionException(message.errorDriverBusy());
         }
@@ -199,6 +244,8 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
             logger.debug("Connecting...");
             newClient = new OpcUaClient(clientConfigBuilder.build());
             this.client = (OpcUaClient) runSafe(newClient.connect());
+            fetchOperationLimits();
+            restoreMonitoredItems();
 
             logger.info(message.connectingDone());
         } catch (final Exception e) {
@@ -211,6 +258,32 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         }
     }
 
+    private void fetchOperationLimits() {
+        this.maxNodesPerRead = Integer.MAX_VALUE;
+        this.maxNodesPerWrite = Integer.MAX_VALUE;
+        try {
+            final List<DataValue> limits = runSafe(this.client.readValues(0.0, TimestampsToReturn.Neither,
+                    Arrays.asList(Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerRead,
+                            Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerWrite)));
+            this.maxNodesPerRead = toOperationLimit(limits.get(0));
+            this.maxNodesPerWrite = toOperationLimit(limits.get(1));
+            logger.debug("Server operation limits: max nodes per read: {} max nodes per write: {}",
+                    this.maxNodesPerRead, this.maxNodesPerWrite);
+        } catch (final Exception e) {
+            logger.debug("Unable to fetch the server operation limits, requests will not be split", e);
+        }
+    }
+
+    private static int toOperationLimit(final DataValue value) {
+        final Variant variant = value.getValue();
+        final Object limit = nonNull(variant) ? variant.getValue() : null;
+        if (value.getStatusCode().isGood() && limit instanceof Number && ((Number) limit).longValue() > 0) {
+            return (int) Math.min(Integer.MAX_VALUE, ((Number) limit).longValue());
+        }
+        // zero or missing means no limit
+        return Integer.MAX_VALUE;
+    }
+
     /**
      * OSGi service component callback while deactivation.
      *
@@ -228,7 +301,7 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
 
     /** {@inheritDoc} */
     @Override
-    public void disconnect() throws ConnectionException {
+    public synchronized void disconnect() throws ConnectionException {
         if (!this.isBusy.compareAndSet(false, true)) {
             throw new ConnectionException(message.errorDriverBusy());
         }
@@ -236,6 +309,11 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
             logger.info(message.disconnecting());
             shutdownClient(this.client);
             this.client = null;
+            // the subscription is closed with the session
+            this.subscription = null;
+            for (final OpcUaListenerRegistration registration : this.listenerRegistrations.values()) {
+                registration.monitoredItem = null;
+            }
             logger.info(message.disconnectingDone());
         } finally {
             this.isBusy.set(false);
@@ -272,54 +350,6 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         return new OpcUaChannelDescriptor();
     }
 
-    private Optional<byte[]> toByteArray(Object containedValue) {
-        if (containedValue instanceof byte[]) {
-            return Optional.of((byte[]) containedValue);
-        } else if (containedValue instanceof ByteString) {
-            return Optional.of(((ByteString) containedValue).bytesOrEmpty());
-        } else if (containedValue instanceof Byte[]) {
-            final Byte[] value = (Byte[]) containedValue;
-            final byte[] result = new byte[value.length];
-            for (int i = 0; i < value.length; i++) {
-                result[i] = value[i];
-            }
-            return Optional.of(result);
-        } else if (containedValue instanceof UByte[]) {
-            final UByte[] value = (UByte[]) containedValue;
-            final byte[] result = new byte[value.length];
-            for (int i = 0; i < value.length; i++) {
-                result[i] = (byte) (value[i].intValue() & 0xff);
-            }
-            return Optional.of(result);
-        }
-        return Optional.empty();
-    }
-
-    private Optional<TypedValue<?>> getTypedValue(final DataType expectedValueType, final Object containedValue) {
-        try {
-            switch (expectedValueType) {
-            case LONG:
-                return Optional.of(TypedValues.newLongValue(Long.parseLong(containedValue.toString())));
-            case FLOAT:
-                return Optional.of(TypedValues.newFloatValue(Float.parseFloat(containedValue.toString())));
-            case DOUBLE:
-                return Optional.of(TypedValues.newDoubleValue(Double.parseDouble(containedValue.toString())));
-            case INTEGER:
-                return Optional.of(TypedValues.newIntegerValue(Integer.parseInt(containedValue.toString())));
-            case BOOLEAN:
-                return Optional.of(TypedValues.newBooleanValue(Boolean.parseBoolean(containedValue.toString())));
-            case STRING:
-                return Optional.of(TypedValues.newStringValue(containedValue.toString()));
-            case BYTE_ARRAY:
-                return toByteArray(containedValue).map(TypedValues::newByteArrayValue);
-            default:
-                return Optional.empty();
-            }
-        } catch (final Exception ex) {
-            return Optional.empty();
-        }
-    }
-
     private Object extractValue(final DataValue value) {
         final Variant variant = value.getValue();
         requireNonNull(variant, message.errorNullVariant());
@@ -336,23 +366,94 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         }
     }
 
-    private void runReadRequest(OpcUaRequestInfo requestInfo) {
-        ChannelRecord record = requestInfo.channelRecord;
-        final VariableNode node = this.client.getAddressSpace().createVariableNode(requestInfo.nodeId);
-        Object readResult = null;
+    private static <T> T getResult(final CompletableFuture<T> future)
+            throws InterruptedException, ExecutionException {
+        // responses still pending at this point have timed out
+        future.cancel(true);
+        return future.get();
+    }
+
+    private void awaitAll(final List<? extends CompletableFuture<?>> futures) {
+        try {
+            runSafe(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException | TimeoutException e) {
+            // the failed service calls are reported on the records of their channels
+        }
+    }
+
+    private void runReadRequests(final List<OpcUaRequestInfo> requestInfos, final List<ReadValueId> readValueIds) {
+        if (requestInfos.isEmpty()) {
+            return;
+        }
+        final int maxNodes = this.maxNodesPerRead;
+        final List<List<OpcUaRequestInfo>> chunks = Lists.partition(requestInfos, maxNodes);
+        final List<CompletableFuture<ReadResponse>> responses = new ArrayList<>(chunks.size());
+
+        logger.debug("reading {} nodes in {} requests", requestInfos.size(), chunks.size());
+        for (final List<ReadValueId> chunk : Lists.partition(readValueIds, maxNodes)) {
+            responses.add(this.client.read(0.0, TimestampsToReturn.Neither, chunk));
+        }
+        awaitAll(responses);
+
+        for (int i = 0; i < chunks.size(); i++) {
+            final List<OpcUaRequestInfo> chunk = chunks.get(i);
+            final DataValue[] results;
+            try {
+                results = getResult(responses.get(i)).getResults();
+                if (isNull(results) || results.length != chunk.size()) {
+                    throw new IOException(message.readFailed());
+                }
+            } catch (final Exception e) {
+                logger.warn(message.readFailed(), e);
+                for (final OpcUaRequestInfo requestInfo : chunk) {
+                    failRead(requestInfo.channelRecord, e);
+                }
+                continue;
+            }
+            for (int j = 0; j < results.length; j++) {
+                processReadResult(chunk.get(j), chunk.get(j).channelRecord, results[j]);
+            }
+        }
+    }
+
+    private static long getSampleTime(final DataValue value) {
+        // prefer the time the value was sampled at the source, the server time is only a fallback
+        final DateTime sourceTime = value.getSourceTime();
+        if (nonNull(sourceTime) && !sourceTime.isNull()) {
+            return sourceTime.getJavaTime();
+        }
+        final DateTime serverTime = value.getServerTime();
+        if (nonNull(serverTime) && !serverTime.isNull()) {
+            return serverTime.getJavaTime();
+        }
+        return System.currentTimeMillis();
+    }
+
+    private static void failRead(final ChannelRecord record, final Exception e) {
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, message.readFailed(), e));
+        record.setTimestamp(System.currentTimeMillis());
+    }
+
+    private void processReadResult(final OpcUaRequestInfo requestInfo, final ChannelRecord record,
+            final DataValue dataValue) {
+        final Object readResult;
         try {
-            logger.debug("reading:  namespace index: {} node id: {}", requestInfo.nodeNamespaceIndex,
-                    requestInfo.nodeId);
-            readResult = extractValue(runSafe(node.readValue()));
-            logger.debug("Read Successful");
+            requireNonNull(dataValue, message.errorNullResult());
+            final StatusCode status = dataValue.getStatusCode();
+            if (nonNull(status) && status.isBad()) {
+                throw new IOException(message.errorBadResultStatus(status.getValue()));
+            }
+            readResult = extractValue(dataValue);
         } catch (final Exception e) {
-            record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, message.readFailed(), e));
-            record.setTimestamp(System.currentTimeMillis());
-            logger.warn(message.readFailed(), e);
+            logger.debug("read failed: namespace index: {} node id: {}", requestInfo.nodeNamespaceIndex,
+                    requestInfo.nodeId, e);
+            failRead(record, e);
             return;
         }
 
-        final Optional<TypedValue<?>> typedValue = this.getTypedValue(requestInfo.dataType, readResult);
+        final Optional<TypedValue<?>> typedValue = requestInfo.valueConverter.convert(readResult);
         if (!typedValue.isPresent()) {
             record.setChannelStatus(new ChannelStatus(FAILURE, message.errorValueTypeConversion(), null));
             record.setTimestamp(System.currentTimeMillis());
@@ -372,22 +473,124 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         if (isNull(this.client)) {
             this.connect();
         }
+        final List<OpcUaRequestInfo> requestInfos = new ArrayList<>(records.size());
         for (final ChannelRecord record : records) {
-            OpcUaRequestInfo.extract(record).ifPresent(this::runReadRequest);
+            OpcUaRequestInfo.extract(record).ifPresent(requestInfos::add);
         }
+        runReadRequests(requestInfos, OpcUaRequestInfo.toReadValueIds(requestInfos));
     }
 
     /** {@inheritDoc} */
     @Override
-    public void registerChannelListener(final Map<String, Object> channelConfig, final ChannelListener listener)
-            throws ConnectionException {
-        throw new KuraRuntimeException(OPERATION_NOT_SUPPORTED);
+    public synchronized void registerChannelListener(final Map<String, Object> channelConfig,
+            final ChannelListener listener) throws ConnectionException {
+        requireNonNull(channelConfig, message.propertiesNonNull());
+        requireNonNull(listener, message.listenerNonNull());
+
+        final OpcUaListenerRegistration registration = new OpcUaListenerRegistration(channelConfig, listener);
+        if (this.listenerRegistrations.containsKey(listener)) {
+            unregisterChannelListener(listener);
+        }
+        if (this.isBusy.get()) {
+            throw new ConnectionException(message.errorDriverBusy());
+        }
+        if (isNull(this.client)) {
+            this.connect();
+        }
+
+        UaMonitoredItem monitoredItem = null;
+        try {
+            monitoredItem = createMonitoredItems(Collections.singletonList(registration)).get(0);
+            checkStatus(monitoredItem.getStatusCode());
+        } catch (final Exception e) {
+            discardFailedMonitoredItem(monitoredItem);
+            throw new ConnectionException(message.errorCreatingMonitoredItem(), e);
+        }
+        registration.monitoredItem = monitoredItem;
+        this.listenerRegistrations.put(listener, registration);
     }
 
     /** {@inheritDoc} */
     @Override
-    public void unregisterChannelListener(final ChannelListener listener) throws ConnectionException {
-        throw new KuraRuntimeException(OPERATION_NOT_SUPPORTED);
+    public synchronized void unregisterChannelListener(final ChannelListener listener) throws ConnectionException {
+        requireNonNull(listener, message.listenerNonNull());
+
+        final OpcUaListenerRegistration registration = this.listenerRegistrations.remove(listener);
+        final UaSubscription currentSubscription = this.subscription;
+        if (isNull(registration) || isNull(currentSubscription) || isNull(this.client)) {
+            return;
+        }
+        try {
+            if (this.listenerRegistrations.isEmpty()) {
+                this.subscription = null;
+                runSafe(this.client.getSubscriptionManager()
+                        .deleteSubscription(currentSubscription.getSubscriptionId()));
+            } else if (nonNull(registration.monitoredItem)) {
+                runSafe(currentSubscription
+                        .deleteMonitoredItems(Collections.singletonList(registration.monitoredItem)));
+            }
+        } catch (final Exception e) {
+            throw new ConnectionException(message.errorDeletingMonitoredItem(), e);
+        }
+    }
+
+    /**
+     * Deletes a monitored item that could not be registered, and the subscription if no other item is left in it.
+     * The failures are only logged, the caller reports the original one.
+     */
+    private void discardFailedMonitoredItem(final UaMonitoredItem monitoredItem) {
+        final UaSubscription currentSubscription = this.subscription;
+        if (isNull(currentSubscription) || isNull(this.client)) {
+            return;
+        }
+        try {
+            if (this.listenerRegistrations.isEmpty()) {
+                this.subscription = null;
+                runSafe(this.client.getSubscriptionManager()
+                        .deleteSubscription(currentSubscription.getSubscriptionId()));
+            } else if (nonNull(monitoredItem)) {
+                runSafe(currentSubscription.deleteMonitoredItems(Collections.singletonList(monitoredItem)));
+            }
+        } catch (final Exception e) {
+            logger.warn(message.errorDeletingMonitoredItem(), e);
+        }
+    }
+
+    private List<UaMonitoredItem> createMonitoredItems(final List<OpcUaListenerRegistration> registrations)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        if (isNull(this.subscription)) {
+            this.subscription = runSafe(this.client.getSubscriptionManager()
+                    .createSubscription(this.options.getSubscriptionPublishInterval()));
+        }
+
+        final List<MonitoredItemCreateRequest> requests = new ArrayList<>(registrations.size());
+        for (final OpcUaListenerRegistration registration : registrations) {
+            requests.add(registration.toMonitoredItemCreateRequest());
+        }
+        // the value consumers must be set as soon as the items are created to receive the initial values
+        return runSafe(this.subscription.createMonitoredItems(TimestampsToReturn.Both, requests,
+                (item, i) -> item.setValueConsumer(registrations.get(i)::onValueChanged)));
+    }
+
+    private void restoreMonitoredItems() {
+        final List<OpcUaListenerRegistration> registrations = new ArrayList<>(this.listenerRegistrations.values());
+        if (registrations.isEmpty()) {
+            return;
+        }
+        try {
+            final List<UaMonitoredItem> monitoredItems = createMonitoredItems(registrations);
+            for (int i = 0; i < monitoredItems.size(); i++) {
+                final UaMonitoredItem monitoredItem = monitoredItems.get(i);
+                if (monitoredItem.getStatusCode().isGood()) {
+                    registrations.get(i).monitoredItem = monitoredItem;
+                } else {
+                    logger.warn(message.errorCreatingMonitoredItem() + ": "
+                            + message.errorBadResultStatus(monitoredItem.getStatusCode().getValue()));
+                }
+            }
+        } catch (final Exception e) {
+            logger.warn(message.errorRestoringMonitoredItems(), e);
+        }
     }
 
     /**
@@ -406,28 +609,82 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
             }
         }
         this.extractProperties(properties);
+        if (!this.listenerRegistrations.isEmpty()) {
+            // nothing else would reconnect if the driver is only used by listeners
+            try {
+                connect();
+            } catch (final ConnectionException e) {
+                logger.warn(message.connectionProblem(), e);
+            }
+        }
         logger.debug("Updating OPC-UA Driver... Done");
     }
 
-    private void runWriteRequest(OpcUaRequestInfo requestInfo) {
-        ChannelRecord record = requestInfo.channelRecord;
-        try {
-            final TypedValue<?> value = record.getValue();
-            final VariableNode node = this.client.getAddressSpace().createVariableNode(requestInfo.nodeId);
-            final DataValue newValue = new DataValue(DataTypeMapper.map(value.getValue(), requestInfo.opcuaType),
-                    StatusCode.GOOD, null);
-            logger.debug("writing: {} namespace index: {} node id: {}..", newValue, requestInfo.nodeNamespaceIndex,
-                    requestInfo.nodeId);
-            checkStatus(runSafe(node.writeValue(newValue)));
-            record.setChannelStatus(new ChannelStatus(SUCCESS));
-            logger.debug("Write Successful");
-        } catch (final Exception e) {
-            record.setChannelStatus(new ChannelStatus(FAILURE, message.writeFailed(), e));
-            logger.warn(message.writeFailed(), e);
-        }
+    private static void failWrite(final ChannelRecord record, final Exception e) {
+        record.setChannelStatus(new ChannelStatus(FAILURE, message.writeFailed(), e));
         record.setTimestamp(System.currentTimeMillis());
     }
 
+    private void runWriteRequests(final List<OpcUaRequestInfo> requestInfos) {
+        final List<OpcUaRequestInfo> validRequestInfos = new ArrayList<>(requestInfos.size());
+        final List<WriteValue> writeValues = new ArrayList<>(requestInfos.size());
+        for (final OpcUaRequestInfo requestInfo : requestInfos) {
+            try {
+                final TypedValue<?> value = requestInfo.channelRecord.getValue();
+                final DataValue newValue = new DataValue(DataTypeMapper.map(value.getValue(), requestInfo.opcuaType),
+                        StatusCode.GOOD, null);
+                logger.debug("writing: {} namespace index: {} node id: {}..", newValue,
+                        requestInfo.nodeNamespaceIndex, requestInfo.nodeId);
+                writeValues.add(new WriteValue(requestInfo.nodeId, AttributeId.Value.uid(), null, newValue));
+                validRequestInfos.add(requestInfo);
+            } catch (final Exception e) {
+                logger.warn(message.writeFailed(), e);
+                failWrite(requestInfo.channelRecord, e);
+            }
+        }
+        if (validRequestInfos.isEmpty()) {
+            return;
+        }
+
+        final int maxNodes = this.maxNodesPerWrite;
+        final List<List<OpcUaRequestInfo>> chunks = Lists.partition(validRequestInfos, maxNodes);
+        final List<CompletableFuture<WriteResponse>> responses = new ArrayList<>(chunks.size());
+
+        logger.debug("writing {} nodes in {} requests", validRequestInfos.size(), chunks.size());
+        for (final List<WriteValue> chunk : Lists.partition(writeValues, maxNodes)) {
+            responses.add(this.client.write(chunk));
+        }
+        awaitAll(responses);
+
+        for (int i = 0; i < chunks.size(); i++) {
+            final List<OpcUaRequestInfo> chunk = chunks.get(i);
+            final StatusCode[] results;
+            try {
+                results = getResult(responses.get(i)).getResults();
+                if (isNull(results) || results.length != chunk.size()) {
+                    throw new IOException(message.writeFailed());
+                }
+            } catch (final Exception e) {
+                logger.warn(message.writeFailed(), e);
+                for (final OpcUaRequestInfo requestInfo : chunk) {
+                    failWrite(requestInfo.channelRecord, e);
+                }
+                continue;
+            }
+            for (int j = 0; j < results.length; j++) {
+                final ChannelRecord record = chunk.get(j).channelRecord;
+                try {
+                    checkStatus(results[j]);
+                    record.setChannelStatus(new ChannelStatus(SUCCESS));
+                    record.setTimestamp(System.currentTimeMillis());
+                } catch (final IOException e) {
+                    logger.warn(message.writeFailed(), e);
+                    failWrite(record, e);
+                }
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void write(final List<ChannelRecord> records) throws ConnectionException {
@@ -437,9 +694,11 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         if (this.client == null) {
             this.connect();
         }
+        final List<OpcUaRequestInfo> requestInfos = new ArrayList<>(records.size());
         for (final ChannelRecord record : records) {
-            OpcUaRequestInfo.extract(record).ifPresent(this::runWriteRequest);
+            OpcUaRequestInfo.extract(record).ifPresent(requestInfos::add);
         }
+        runWriteRequests(requestInfos);
     }
 
     private static class OpcUaRequestInfo {
@@ -449,6 +708,7 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         private final NodeId nodeId;
         private final ChannelRecord channelRecord;
         private final VariableType opcuaType;
+        private final ValueConverter valueConverter;
 
         public OpcUaRequestInfo(final ChannelRecord channelRecord, final DataType dataType,
                 final VariableType variableType, final int nodeNamespaceIndex, final NodeId nodeId) {
@@ -457,6 +717,19 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
             this.nodeId = nodeId;
             this.channelRecord = channelRecord;
             this.opcuaType = variableType;
+            this.valueConverter = ValueConverters.forTypes(variableType, dataType);
+        }
+
+        private ReadValueId toReadValueId() {
+            return new ReadValueId(this.nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE);
+        }
+
+        private static List<ReadValueId> toReadValueIds(final List<OpcUaRequestInfo> requestInfos) {
+            final List<ReadValueId> readValueIds = new ArrayList<>(requestInfos.size());
+            for (final OpcUaRequestInfo requestInfo : requestInfos) {
+                readValueIds.add(requestInfo.toReadValueId());
+            }
+            return readValueIds;
         }
 
         private static void fail(final ChannelRecord record, final String message) {
@@ -510,6 +783,78 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         }
     }
 
+    private class OpcUaListenerRegistration {
+
+        private final ChannelListener listener;
+        private final Map<String, Object> channelConfig;
+        private final OpcUaRequestInfo requestInfo;
+        private final double samplingInterval;
+        private final int queueSize;
+        private final double deadband;
+        private volatile UaMonitoredItem monitoredItem;
+
+        OpcUaListenerRegistration(final Map<String, Object> channelConfig, final ChannelListener listener) {
+            this.listener = listener;
+            this.channelConfig = channelConfig;
+
+            final String channelName = OpcUaChannelDescriptor.getChannelName(channelConfig);
+            if (isNull(channelName)) {
+                throw new IllegalArgumentException(message.errorRetrievingChannelName());
+            }
+            final DataType valueType;
+            try {
+                valueType = OpcUaChannelDescriptor.getValueType(channelConfig);
+            } catch (final Exception e) {
+                throw new IllegalArgumentException(message.errorRetrievingValueType(), e);
+            }
+
+            final ChannelRecord record = createRecord(channelName, valueType);
+            this.requestInfo = OpcUaRequestInfo.extract(record).orElseThrow(
+                    () -> new IllegalArgumentException(record.getChannelStatus().getExceptionMessage()));
+
+            try {
+                this.samplingInterval = OpcUaChannelDescriptor.getSamplingInterval(channelConfig);
+                this.queueSize = OpcUaChannelDescriptor.getQueueSize(channelConfig);
+                this.deadband = OpcUaChannelDescriptor.getDeadband(channelConfig);
+            } catch (final Exception e) {
+                throw new IllegalArgumentException(message.errorRetrievingListenerParameters(), e);
+            }
+        }
+
+        private ChannelRecord createRecord(final String channelName, final DataType valueType) {
+            final ChannelRecord record = ChannelRecord.createReadRecord(channelName, valueType);
+            record.setChannelConfig(this.channelConfig);
+            return record;
+        }
+
+        MonitoredItemCreateRequest toMonitoredItemCreateRequest() {
+            ExtensionObject filter = null;
+            if (this.deadband > 0) {
+                filter = ExtensionObject.encode(new DataChangeFilter(DataChangeTrigger.StatusValue,
+                        UInteger.valueOf(DeadbandType.Absolute.getValue()), this.deadband));
+            }
+            final MonitoringParameters parameters = new MonitoringParameters(
+                    UInteger.valueOf(OpcUaDriver.this.clientHandles.incrementAndGet()), this.samplingInterval, filter,
+                    UInteger.valueOf(this.queueSize), true);
+            return new MonitoredItemCreateRequest(this.requestInfo.toReadValueId(), MonitoringMode.Reporting,
+                    parameters);
+        }
+
+        void onValueChanged(final DataValue value) {
+            final ChannelRecord record = createRecord(this.requestInfo.channelRecord.getChannelName(),
+                    this.requestInfo.dataType);
+            processReadResult(this.requestInfo, record, value);
+            if (record.getChannelStatus().getChannelFlag() == SUCCESS) {
+                record.setTimestamp(getSampleTime(value));
+            }
+            try {
+                this.listener.onChannelEvent(new ChannelEvent(record));
+            } catch (final Exception e) {
+                logger.warn(message.errorNotifyingListener(), e);
+            }
+        }
+    }
+
     @Override
     public PreparedRead prepareRead(List<ChannelRecord> channelRecords) {
         requireNonNull(channelRecords, message.recordListNonNull());
@@ -520,12 +865,14 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
         for (ChannelRecord record : channelRecords) {
             OpcUaRequestInfo.extract(record).ifPresent(preparedRead.requestInfos::add);
         }
+        preparedRead.readValueIds = OpcUaRequestInfo.toReadValueIds(preparedRead.requestInfos);
         return preparedRead;
     }
 
     private class OpcUaPreparedRead implements PreparedRead {
 
         private List<OpcUaRequestInfo> requestInfos = new ArrayList<>();
+        private List<ReadValueId> readValueIds;
         private volatile List<ChannelRecord> channelRecords;
 
         @Override
@@ -537,9 +884,7 @@ public final class OpcUaDriver implements Driver, ConfigurableComponent {
                 OpcUaDriver.this.connect();
             }
 
-            for (OpcUaRequestInfo requestInfo : requestInfos) {
-                OpcUaDriver.this.runReadRequest(requestInfo);
-            }
+            OpcUaDriver.this.runReadRequests(requestInfos, readValueIds);
 
             return Collections.unmodifiableList(channelRecords);
         }
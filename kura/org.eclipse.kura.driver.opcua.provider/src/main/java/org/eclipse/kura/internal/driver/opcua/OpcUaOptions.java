@@ -57,6 +57,7 @@ import org.slf4j.LoggerFactory;
  * <li>password</li>
  * <li>request.timeout</li>
  * <li>session.timeout</li>
+ * <li>subscription.publish.interval</li>
  * </ul>
  */
 final class OpcUaOptions {
@@ -131,6 +132,11 @@ final class OpcUaOptions {
      */
     private static final String SESSION_TIMEOUT = "session.timeout";
 
+    /**
+     * Configurable property specifying the publishing interval of the subscription used by the channel listeners
+     */
+    private static final String SUBSCRIPTION_PUBLISH_INTERVAL = "subscription.publish.interval";
+
     /**
      * Configurable Property to set OPC-UA server username
      */
@@ -392,6 +398,20 @@ final class OpcUaOptions {
         return sessionTimeout * 1000;
     }
 
+    /**
+     * Returns the publishing interval of the subscription (in milliseconds)
+     *
+     * @return the publishing interval of the subscription (in milliseconds)
+     */
+    int getSubscriptionPublishInterval() {
+        int publishInterval = 1000;
+        final Object interval = this.properties.get(SUBSCRIPTION_PUBLISH_INTERVAL);
+        if (nonNull(interval) && (interval instanceof Integer)) {
+            publishInterval = (Integer) interval;
+        }
+        return publishInterval;
+    }
+
     /**
      * Returns the OPC-UA Username
      *
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.internal.driver.opcua;
+
+import java.util.Optional;
+
+import org.eclipse.kura.type.TypedValue;
+
+/**
+ * Converts the values read from the nodes of a channel to the value type of the channel.
+ *
+ * @see ValueConverters
+ */
+@FunctionalInterface
+interface ValueConverter {
+
+    /**
+     * Converts a value read from a node.
+     *
+     * @param value
+     *            the value contained in the variant of the read result, not null
+     * @return the converted value, or an empty {@link Optional} if the value cannot be converted
+     */
+    Optional<TypedValue<?>> convert(Object value);
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.internal.driver.opcua;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.ULong;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+
+/**
+ * Creates the {@link ValueConverter}s of the channels. The converter of a channel is selected once, from the OPC-UA
+ * type of its node and its value type, and converts the numeric values directly instead of parsing their string
+ * representation.
+ * <br/>
+ * <br/>
+ * The conversions give the same results as parsing the string representation of the values: a value that does not
+ * fit the value type of the channel, or a floating point value read by an integer channel, cannot be converted.
+ * Values of other Java types, such as strings, are still parsed.
+ */
+final class ValueConverters {
+
+    private ValueConverters() {
+    }
+
+    /**
+     * Returns the converter for the values of a node.
+     *
+     * @param opcuaType
+     *            the OPC-UA type of the node, {@link VariableType#DEFINED_BY_JAVA_TYPE} if unknown
+     * @param valueType
+     *            the value type of the channel
+     * @return the converter
+     */
+    static ValueConverter forTypes(final VariableType opcuaType, final DataType valueType) {
+        final ValueConverter converter = forValueType(valueType);
+        final Class<?> nodeClass = getJavaClass(opcuaType);
+        if (nodeClass == null) {
+            return converter;
+        }
+        final ValueConverter directConverter = forNodeClass(nodeClass, valueType);
+        if (directConverter == null) {
+            return converter;
+        }
+        // the node might hold a value of another type than the configured one
+        return value -> value.getClass() == nodeClass ? directConverter.convert(value) : converter.convert(value);
+    }
+
+    private static Class<?> getJavaClass(final VariableType opcuaType) {
+        switch (opcuaType) {
+        case BOOLEAN:
+            return Boolean.class;
+        case SBYTE:
+            return Byte.class;
+        case INT16:
+            return Short.class;
+        case INT32:
+            return Integer.class;
+        case INT64:
+            return Long.class;
+        case BYTE:
+            return UByte.class;
+        case UINT16:
+            return UShort.class;
+        case UINT32:
+            return UInteger.class;
+        case FLOAT:
+            return Float.class;
+        case DOUBLE:
+            return Double.class;
+        case STRING:
+            return String.class;
+        default:
+            return null;
+        }
+    }
+
+    private static ValueConverter forNodeClass(final Class<?> nodeClass, final DataType valueType) {
+        switch (valueType) {
+        case LONG:
+            if (isIntegral(nodeClass)) {
+                return value -> Optional.of(TypedValues.newLongValue(((Number) value).longValue()));
+            }
+            break;
+        case INTEGER:
+            if (isIntegral(nodeClass) && nodeClass != Long.class && nodeClass != UInteger.class) {
+                return value -> Optional.of(TypedValues.newIntegerValue(((Number) value).intValue()));
+            }
+            break;
+        case FLOAT:
+            if (isIntegral(nodeClass) || isFloatingPoint(nodeClass)) {
+                return value -> Optional.of(TypedValues.newFloatValue(((Number) value).floatValue()));
+            }
+            break;
+        case DOUBLE:
+            if (isIntegral(nodeClass) || nodeClass == Double.class) {
+                return value -> Optional.of(TypedValues.newDoubleValue(((Number) value).doubleValue()));
+            }
+            break;
+        case BOOLEAN:
+            if (nodeClass == Boolean.class) {
+                return value -> Optional.of(TypedValues.newBooleanValue((Boolean) value));
+            }
+            break;
+        case STRING:
+            if (nodeClass == String.class) {
+                return value -> Optional.of(TypedValues.newStringValue((String) value));
+            }
+            break;
+        default:
+            break;
+        }
+        return null;
+    }
+
+    private static ValueConverter forValueType(final DataType valueType) {
+        switch (valueType) {
+        case LONG:
+            return ValueConverters::toLong;
+        case INTEGER:
+            return ValueConverters::toInteger;
+        case FLOAT:
+            return ValueConverters::toFloat;
+        case DOUBLE:
+            return ValueConverters::toDouble;
+        case BOOLEAN:
+            return ValueConverters::toBoolean;
+        case STRING:
+            return value -> Optional.of(TypedValues.newStringValue(value.toString()));
+        case BYTE_ARRAY:
+            return value -> toByteArray(value).map(TypedValues::newByteArrayValue);
+        default:
+            return value -> Optional.empty();
+        }
+    }
+
+    /**
+     * Tells if the values of a class are integers that fit in a long.
+     */
+    private static boolean isIntegral(final Class<?> type) {
+        return type == Integer.class || type == Long.class || type == Short.class || type == Byte.class
+                || type == UInteger.class || type == UShort.class || type == UByte.class;
+    }
+
+    private static boolean isFloatingPoint(final Class<?> type) {
+        return type == Double.class || type == Float.class;
+    }
+
+    private static boolean fitsInLong(final Object value) {
+        return isIntegral(value.getClass()) || value instanceof ULong && ((ULong) value).longValue() >= 0;
+    }
+
+    private static Optional<TypedValue<?>> toLong(final Object value) {
+        if (fitsInLong(value)) {
+            return Optional.of(TypedValues.newLongValue(((Number) value).longValue()));
+        } else if (isFloatingPoint(value.getClass())) {
+            return Optional.empty();
+        }
+        return parse(value, string -> TypedValues.newLongValue(Long.parseLong(string)));
+    }
+
+    private static Optional<TypedValue<?>> toInteger(final Object value) {
+        if (fitsInLong(value)) {
+            final long longValue = ((Number) value).longValue();
+            if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
+                return Optional.empty();
+            }
+            return Optional.of(TypedValues.newIntegerValue((int) longValue));
+        } else if (isFloatingPoint(value.getClass())) {
+            return Optional.empty();
+        }
+        return parse(value, string -> TypedValues.newIntegerValue(Integer.parseInt(string)));
+    }
+
+    private static Optional<TypedValue<?>> toFloat(final Object value) {
+        if (fitsInLong(value) || isFloatingPoint(value.getClass())) {
+            return Optional.of(TypedValues.newFloatValue(((Number) value).floatValue()));
+        }
+        return parse(value, string -> TypedValues.newFloatValue(Float.parseFloat(string)));
+    }
+
+    private static Optional<TypedValue<?>> toDouble(final Object value) {
+        // floats are converted through their decimal representation, so that 0.1f is read as 0.1
+        if (fitsInLong(value) || value instanceof Double) {
+            return Optional.of(TypedValues.newDoubleValue(((Number) value).doubleValue()));
+        }
+        return parse(value, string -> TypedValues.newDoubleValue(Double.parseDouble(string)));
+    }
+
+    private static Optional<TypedValue<?>> toBoolean(final Object value) {
+        if (value instanceof Boolean) {
+            return Optional.of(TypedValues.newBooleanValue((Boolean) value));
+        }
+        return parse(value, string -> TypedValues.newBooleanValue(Boolean.parseBoolean(string)));
+    }
+
+    private static Optional<TypedValue<?>> parse(final Object value, final Function<String, TypedValue<?>> parser) {
+        try {
+            return Optional.of(parser.apply(value.toString()));
+        } catch (final Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<byte[]> toByteArray(final Object containedValue) {
+        if (containedValue instanceof byte[]) {
+            return Optional.of((byte[]) containedValue);
+        } else if (containedValue instanceof ByteString) {
+            return Optional.of(((ByteString) containedValue).bytesOrEmpty());
+        } else if (containedValue instanceof Byte[]) {
+            final Byte[] value = (Byte[]) containedValue;
+            final byte[] result = new byte[value.length];
+            for (int i = 0; i < value.length; i++) {
+                result[i] = value[i];
+            }
+            return Optional.of(result);
+        } else if (containedValue instanceof UByte[]) {
+            final UByte[] value = (UByte[]) containedValue;
+            final byte[] result = new byte[value.length];
+            for (int i = 0; i < value.length; i++) {
+                result[i] = (byte) (value[i].intValue() & 0xff);
+            }
+            return Optional.of(result);
+        }
+        return Optional.empty();
+    }
+}
@@ -242,6 +242,21 @@ public interface AssetMessages {
     @En("Value type of the channel")
     public String typeChannel();
 
+    @En("Specifies if the value changes of the channel should be notified as soon as they are detected by the driver")
+    public String listenChannel();
+
+    @En("Specifies if the channel should be reported only when its value changes beyond the report deadbands")
+    public String reportOnChange();
+
+    @En("Minimum absolute change of a numeric value to be reported, 0 to report any change")
+    public String reportDeadband();
+
+    @En("Minimum change of a numeric value to be reported, in percent of the last reported value")
+    public String reportDeadbandPercent();
+
+    @En("Maximum time in milliseconds between two reports of an unchanged value, 0 to disable")
+    public String reportMaxSilence();
+
     @En("Unregistering Asset Listener...")
     public String unregisteringListener();
 
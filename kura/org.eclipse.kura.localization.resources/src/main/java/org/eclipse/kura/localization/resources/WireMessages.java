@@ -52,6 +52,12 @@ public interface WireMessages {
     @En("Activating Regex Filter...Done")
     public String activatingRegexFilterDone();
 
+    @En("Activating Expression Filter...")
+    public String activatingExpressionFilter();
+
+    @En("Activating Expression Filter...Done")
+    public String activatingExpressionFilterDone();
+
     @En("Activating DB Wire Record Store...")
     public String activatingStore();
 
@@ -232,6 +238,12 @@ public interface WireMessages {
     @En("Dectivating Fifo...Done")
     public String deactivatingFifoDone();
 
+    @En("Deactivating Expression Filter...")
+    public String deactivatingExpressionFilter();
+
+    @En("Deactivating Expression Filter...Done")
+    public String deactivatingExpressionFilterDone();
+
     @En("Dectivating Timer...")
     public String deactivatingTimer();
 
@@ -304,12 +316,30 @@ public interface WireMessages {
     @En("Error while filtering using provided Regular Expression...")
     public String errorFilteringRegex();
 
+    @En("Error while compiling the expressions of the Expression Filter...")
+    public String errorCompilingExpression();
+
+    @En("Error while evaluating the expressions of the Expression Filter...")
+    public String errorEvaluatingExpression();
+
     @En("Error while performing read from the Wire Asset...")
     public String errorPerformingRead();
 
     @En("Error while performing write from the Wire Asset...")
     public String errorPerformingWrite();
 
+    @En("Unable to register the listener of the channel ")
+    public String errorRegisteringChannelListener();
+
+    @En("Unable to unregister a channel listener of the Wire Asset")
+    public String errorUnregisteringChannelListener();
+
+    @En("Channel Event cannot be null")
+    public String channelEventNonNull();
+
+    @En("Invalid report parameters, all the values are reported for the channel ")
+    public String errorRetrievingReportParameters();
+
     @En("Failed to persist wires...")
     public String errorPersistingWires();
 
@@ -343,6 +373,9 @@ public interface WireMessages {
     @En("Executing SQL query...Done")
     public String execSqlDone();
 
+    @En("Executor cannot be null")
+    public String executorNonNull();
+
     @En("Extracting Propertiess...")
     public String exectractingProp();
 
@@ -406,6 +439,9 @@ public interface WireMessages {
     @En("No new instance")
     public String noNewInstance();
 
+    @En("Options cannot be null")
+    public String optionsNonNull();
+
     @En("outgoing_wires")
     public String outgoingWires();
 
@@ -607,6 +643,12 @@ public interface WireMessages {
     @En("Updating Regex Filter...Done")
     public String updatingRegexFilterDone();
 
+    @En("Updating Expression Filter...")
+    public String updatingExpressionFilter();
+
+    @En("Updating Expression Filter...Done")
+    public String updatingExpressionFilterDone();
+
     @En("Updating DB Wire Record Store...")
     public String updatingStore();
 
@@ -699,4 +741,10 @@ public interface WireMessages {
 
     @En("Unexpected exception while dispatching envelope")
     public String fifoUnexpectedExceptionWhileDispatching();
+
+    @En("Interrupted while adding new envelope to the queue of a wire")
+    public String wireSupportInterruptedWhileSubmitting();
+
+    @En("Unexpected exception while delivering envelope on a wire")
+    public String wireSupportUnexpectedExceptionWhileDispatching();
 }
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.util.collection;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class WriteBehindQueue decouples the producers of elements from a slow writer, such as a database.<br/>
+ * <br/>
+ *
+ * The elements are added to a bounded queue and handed to the writer in groups by a dedicated thread, so that the
+ * writer can persist each group in a single transaction. When the queue is full, the producers either block until
+ * room is available or the element is discarded, depending on the configured policy.<br/>
+ * <br/>
+ *
+ * The queue keeps track of its depth, of the discarded elements and of the time taken by the writer, which are
+ * logged at debug level after each group.
+ *
+ * @param <E>
+ *            the type of the elements
+ */
+public final class WriteBehindQueue<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private final String name;
+
+    private final BlockingQueue<E> queue;
+
+    private final int maxGroupSize;
+
+    private final boolean discardWhenFull;
+
+    private final Consumer<List<E>> writer;
+
+    private final ExecutorService executor;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    private volatile boolean closed;
+
+    private volatile long writtenCount;
+
+    private volatile long lastWriteLatency;
+
+    private volatile long maxWriteLatency;
+
+    /**
+     * Instantiates a new write-behind queue.
+     *
+     * @param name
+     *            the name of the queue, used for its thread and its log messages
+     * @param capacity
+     *            the maximum number of elements waiting to be written
+     * @param maxGroupSize
+     *            the maximum number of elements handed to the writer at once
+     * @param discardWhenFull
+     *            true to discard the elements added while the queue is full, false to block the producer
+     * @param writer
+     *            the writer of the groups of elements
+     * @throws NullPointerException
+     *             if any of the name or the writer is null
+     * @throws IllegalArgumentException
+     *             if any of the capacity or the group size is not positive
+     */
+    public WriteBehindQueue(final String name, final int capacity, final int maxGroupSize,
+            final boolean discardWhenFull, final Consumer<List<E>> writer) {
+        requireNonNull(name, "Name cannot be null");
+        requireNonNull(writer, "Writer cannot be null");
+        if (maxGroupSize <= 0) {
+            throw new IllegalArgumentException("Group size must be positive");
+        }
+
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxGroupSize = maxGroupSize;
+        this.discardWhenFull = discardWhenFull;
+        this.writer = writer;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "WriteBehindQueue:" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds an element to the queue, blocking while the queue is full unless the queue discards the elements.
+     *
+     * @param element
+     *            the element to be written
+     * @return true if the element was queued, false if it was discarded
+     * @throws NullPointerException
+     *             if the element is null
+     */
+    public boolean add(final E element) {
+        requireNonNull(element, "Element cannot be null");
+        if (this.closed) {
+            return false;
+        }
+
+        if (this.discardWhenFull) {
+            if (!this.queue.offer(element)) {
+                final long discarded = this.discardedCount.incrementAndGet();
+                logger.debug("{}: queue full, element discarded, {} discarded so far", this.name, discarded);
+                return false;
+            }
+        } else {
+            try {
+                this.queue.put(element);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.discardedCount.incrementAndGet();
+                logger.warn("{}: interrupted while waiting for room in the queue, element discarded", this.name);
+                return false;
+            }
+        }
+        schedule();
+        return true;
+    }
+
+    private void schedule() {
+        if (this.scheduled.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this::drain);
+            } catch (final RejectedExecutionException e) {
+                // the queue was closed after the element was added; holding the scheduled flag, this thread is the
+                // only one draining the queue, so it writes the remaining elements itself
+                logger.debug("{}: queue closed, writing the remaining elements on the producer thread", this.name);
+                drain();
+            }
+        }
+    }
+
+    private void drain() {
+        do {
+            final List<E> group = new ArrayList<>(Math.min(this.maxGroupSize, this.queue.size()));
+            while (this.queue.drainTo(group, this.maxGroupSize) > 0) {
+                write(group);
+                group.clear();
+            }
+            this.scheduled.set(false);
+            // an element may have been added after the last drain, without scheduling a new task
+        } while (!this.queue.isEmpty() && this.scheduled.compareAndSet(false, true));
+    }
+
+    private void write(final List<E> group) {
+        final long start = System.nanoTime();
+        try {
+            this.writer.accept(group);
+        } catch (final Exception e) {
+            logger.warn("{}: unexpected exception while writing, {} elements lost", this.name, group.size(), e);
+        }
+        final long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        this.writtenCount += group.size();
+        this.lastWriteLatency = latency;
+        this.maxWriteLatency = Math.max(this.maxWriteLatency, latency);
+        logger.debug("{}: wrote {} elements in {} ms, {} queued", this.name, group.size(), latency, this.queue.size());
+    }
+
+    /**
+     * Returns the number of elements waiting to be written.
+     *
+     * @return the depth of the queue
+     */
+    public int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * Returns the number of elements discarded because the queue was full.
+     *
+     * @return the number of discarded elements
+     */
+    public long getDiscardedCount() {
+        return this.discardedCount.get();
+    }
+
+    /**
+     * Returns the number of elements handed to the writer.
+     *
+     * @return the number of written elements
+     */
+    public long getWrittenCount() {
+        return this.writtenCount;
+    }
+
+    /**
+     * Returns the time taken by the writer to write the last group of elements.
+     *
+     * @return the latency in milliseconds
+     */
+    public long getLastWriteLatency() {
+        return this.lastWriteLatency;
+    }
+
+    /**
+     * Returns the longest time taken by the writer to write a group of elements.
+     *
+     * @return the latency in milliseconds
+     */
+    public long getMaxWriteLatency() {
+        return this.maxWriteLatency;
+    }
+
+    /**
+     * Stops accepting new elements. The elements already in the queue are still written, on the producer thread for
+     * an element added while the queue was being closed.
+     */
+    public void close() {
+        this.closed = true;
+        this.executor.shutdown();
+    }
+
+    /**
+     * Waits for the elements in the queue to be written, after the queue is closed.
+     *
+     * @param timeout
+     *            the maximum time to wait
+     * @param unit
+     *            the unit of the timeout
+     * @return true if all the elements were written, false if the timeout elapsed
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+}
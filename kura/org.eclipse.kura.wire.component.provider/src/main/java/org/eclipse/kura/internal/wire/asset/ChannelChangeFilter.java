@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.asset;
+
+import static java.util.Objects.isNull;
+import static org.eclipse.kura.asset.provider.AssetConstants.REPORT_DEADBAND;
+import static org.eclipse.kura.asset.provider.AssetConstants.REPORT_DEADBAND_PERCENT;
+import static org.eclipse.kura.asset.provider.AssetConstants.REPORT_MAX_SILENCE;
+import static org.eclipse.kura.asset.provider.AssetConstants.REPORT_ON_CHANGE;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.asset.AssetConfiguration;
+import org.eclipse.kura.channel.Channel;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.type.TypedValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selects the channel records to be emitted by a {@link WireAsset} for the channels configured with the
+ * {@code report.on.change} property. The record of such a channel is emitted only if its value is different from the
+ * last emitted one, or if no value of the channel has been emitted for longer than its {@code report.max.silence}.
+ * <br/>
+ * <br/>
+ * A numeric value is different from the last emitted one if the absolute difference is greater than both the
+ * {@code report.deadband} of the channel and its {@code report.deadband.percent} of the last emitted value. The
+ * records of the other channels and the failed records are always selected.
+ */
+final class ChannelChangeFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChannelChangeFilter.class);
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private final AssetConfiguration assetConfiguration;
+
+    private final Map<String, ChangePolicy> policies = new HashMap<>();
+
+    /** The prepared reads of the asset reuse their records, so the last reports are kept apart. */
+    private final Map<String, LastReport> lastReports = new HashMap<>();
+
+    /**
+     * Instantiates a new filter for the channels of an asset configuration.
+     *
+     * @param assetConfiguration
+     *            the asset configuration
+     */
+    ChannelChangeFilter(final AssetConfiguration assetConfiguration) {
+        this.assetConfiguration = assetConfiguration;
+        for (final Channel channel : assetConfiguration.getAssetChannels().values()) {
+            final Map<String, Object> channelConfig = channel.getConfiguration();
+            if (!parseBoolean(channelConfig.get(REPORT_ON_CHANGE.value()))) {
+                continue;
+            }
+            try {
+                this.policies.put(channel.getName(), new ChangePolicy(channelConfig));
+            } catch (final RuntimeException e) {
+                logger.warn(message.errorRetrievingReportParameters() + channel.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Tells if this filter has been created for an asset configuration.
+     *
+     * @param assetConfiguration
+     *            the asset configuration
+     * @return true if the filter is for the given configuration
+     */
+    boolean isFor(final AssetConfiguration assetConfiguration) {
+        return this.assetConfiguration == assetConfiguration;
+    }
+
+    /**
+     * Selects the records to be emitted and keeps the selected ones as the last emitted records of their channels.
+     * The selection is returned as a mask over the given list, so that the records read from all the channels keep
+     * the same layout whatever the selected subset.
+     *
+     * @param channelRecords
+     *            the records read from the channels
+     * @return for each record of the list, true if it is to be emitted
+     */
+    synchronized boolean[] select(final List<ChannelRecord> channelRecords) {
+        final boolean[] selected = new boolean[channelRecords.size()];
+        for (int i = 0; i < selected.length; i++) {
+            final ChannelRecord channelRecord = channelRecords.get(i);
+            final String channelName = channelRecord.getChannelName();
+            final ChangePolicy policy = this.policies.get(channelName);
+            if (isNull(policy) || channelRecord.getChannelStatus().getChannelFlag() == ChannelFlag.FAILURE
+                    || isNull(channelRecord.getValue())) {
+                selected[i] = true;
+                continue;
+            }
+            final LastReport lastReport = this.lastReports.get(channelName);
+            if (isNull(lastReport) || policy.isReportDue(lastReport, channelRecord)) {
+                this.lastReports.put(channelName,
+                        new LastReport(channelRecord.getValue(), channelRecord.getTimestamp()));
+                selected[i] = true;
+            }
+        }
+        return selected;
+    }
+
+    private static boolean parseBoolean(final Object value) {
+        return value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(String.valueOf(value));
+    }
+
+    private static double parseDouble(final Object value) {
+        return isNull(value) ? 0 : Double.parseDouble(value.toString());
+    }
+
+    private static long parseLong(final Object value) {
+        return isNull(value) ? 0 : Long.parseLong(value.toString());
+    }
+
+    /**
+     * The report parameters of a channel.
+     */
+    private static final class ChangePolicy {
+
+        private final double deadband;
+
+        private final double deadbandPercent;
+
+        private final long maxSilence;
+
+        private ChangePolicy(final Map<String, Object> channelConfig) {
+            this.deadband = parseDouble(channelConfig.get(REPORT_DEADBAND.value()));
+            this.deadbandPercent = parseDouble(channelConfig.get(REPORT_DEADBAND_PERCENT.value()));
+            this.maxSilence = parseLong(channelConfig.get(REPORT_MAX_SILENCE.value()));
+        }
+
+        private boolean isReportDue(final LastReport lastReport, final ChannelRecord channelRecord) {
+            if (this.maxSilence > 0 && channelRecord.getTimestamp() - lastReport.timestamp >= this.maxSilence) {
+                return true;
+            }
+            return isChanged(lastReport.value, channelRecord.getValue());
+        }
+
+        private boolean isChanged(final TypedValue<?> lastValue, final TypedValue<?> value) {
+            final Object last = lastValue.getValue();
+            final Object current = value.getValue();
+            if (lastValue.getType() != value.getType() || !(current instanceof Number)
+                    || this.deadband <= 0 && this.deadbandPercent <= 0) {
+                return !lastValue.equals(value);
+            }
+            final double lastNumber = ((Number) last).doubleValue();
+            final double difference = Math.abs(((Number) current).doubleValue() - lastNumber);
+            if (Double.isNaN(difference)) {
+                return !lastValue.equals(value);
+            }
+            return difference > this.deadband && difference > Math.abs(lastNumber) * this.deadbandPercent / 100;
+        }
+    }
+
+    /**
+     * The value and the timestamp of the last emitted record of a channel.
+     */
+    private static final class LastReport {
+
+        private final TypedValue<?> value;
+
+        private final long timestamp;
+
+        private LastReport(final TypedValue<?> value, final long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -16,11 +16,13 @@ package org.eclipse.kura.internal.wire.asset;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
+import static org.eclipse.kura.asset.provider.AssetConstants.LISTEN;
 import static org.eclipse.kura.channel.ChannelType.READ_WRITE;
 import static org.eclipse.kura.channel.ChannelType.WRITE;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -34,16 +36,19 @@ import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.channel.ChannelStatus;
 import org.eclipse.kura.channel.ChannelType;
+import org.eclipse.kura.channel.listener.ChannelEvent;
+import org.eclipse.kura.channel.listener.ChannelListener;
+import org.eclipse.kura.driver.Driver;
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.localization.resources.WireMessages;
 import org.eclipse.kura.type.TypedValue;
-import org.eclipse.kura.type.TypedValues;
 import org.eclipse.kura.util.collection.CollectionUtil;
 import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireHelperService;
 import org.eclipse.kura.wire.WireReceiver;
 import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireRecordSchema;
 import org.eclipse.kura.wire.WireSupport;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.wireadmin.Wire;
@@ -86,6 +91,21 @@ import org.slf4j.LoggerFactory;
  * contains the typed value of this channel in the received {@link WireRecord} will be
  * considered as a WRITE Value in that specific channel in B and this value will
  * be written to {@code B}'s channel
+ * <br/>
+ * <br/>
+ * The channels configured with the {@code listen} property are also monitored
+ * through a channel listener, if the driver supports it: every change of their
+ * value is emitted as soon as the driver detects it, in a {@link WireRecord}
+ * containing only that channel. A wire asset whose channels are all monitored
+ * in this way does not need a timer to emit its values.
+ * <br/>
+ * <br/>
+ * The channels configured with the {@code report.on.change} property are
+ * reported by exception: after reading all the channels, the record of such a
+ * channel is emitted only if its value changed beyond the report deadbands of
+ * the channel, or if the {@code report.max.silence} of the channel elapsed
+ * since its last emitted value. No {@link WireRecord} is emitted if no channel
+ * has to be reported.
  *
  * @see Channel
  * @see ChannelRecord
@@ -113,6 +133,13 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
 
     private WireSupport wireSupport;
 
+    private ChannelRecordLayout channelRecordLayout;
+
+    private volatile ChannelChangeFilter channelChangeFilter;
+
+    /** The listeners registered for the channels configured with the listen property. */
+    private final List<ChannelEventListener> channelEventListeners = new ArrayList<>();
+
     /**
      * Binds the Wire Helper Service.
      *
@@ -175,10 +202,61 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
     @Override
     protected void deactivate(final ComponentContext context) {
         logger.debug(message.deactivatingWireAsset());
+        synchronized (this) {
+            unregisterChannelEventListeners();
+        }
         super.deactivate(context);
         logger.debug(message.deactivatingWireAssetDone());
     }
 
+    /**
+     * Sets the driver of this asset, moving the listeners of the monitored channels from the previous driver to the
+     * new one.
+     *
+     * @param driver
+     *            the new driver, or null if the driver is no longer available
+     */
+    @Override
+    public synchronized void setDriver(final Driver driver) {
+        unregisterChannelEventListeners();
+        super.setDriver(driver);
+        if (nonNull(driver)) {
+            registerChannelEventListeners();
+        }
+    }
+
+    private void registerChannelEventListeners() {
+        final AssetConfiguration assetConfiguration = getAssetConfiguration();
+        if (isNull(assetConfiguration)) {
+            return;
+        }
+        for (final Channel channel : assetConfiguration.getAssetChannels().values()) {
+            final ChannelType channelType = channel.getType();
+            final Object listen = channel.getConfiguration().get(LISTEN.value());
+            if (channelType == WRITE || isNull(listen) || !Boolean.parseBoolean(listen.toString())) {
+                continue;
+            }
+            final ChannelEventListener listener = new ChannelEventListener();
+            try {
+                registerChannelListener(channel.getName(), listener);
+                this.channelEventListeners.add(listener);
+            } catch (final Exception e) {
+                logger.warn(message.errorRegisteringChannelListener() + channel.getName(), e);
+            }
+        }
+    }
+
+    private void unregisterChannelEventListeners() {
+        for (final ChannelEventListener listener : this.channelEventListeners) {
+            try {
+                unregisterChannelListener(listener);
+            } catch (final Exception e) {
+                logger.warn(message.errorUnregisteringChannelListener(), e);
+            }
+        }
+        this.channelEventListeners.clear();
+    }
+
     /** {@inheritDoc} */
     @Override
     public void consumersConnected(final Wire[] wires) {
@@ -217,7 +295,11 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
 
         if (hasReadChannels()) {
             try {
-                emitChannelRecords(readAllChannels());
+                final List<ChannelRecord> channelRecords = readAllChannels();
+                final boolean[] selected = getChannelChangeFilter().select(channelRecords);
+                if (isAnySelected(selected)) {
+                    emitChannelRecords(channelRecords, selected);
+                }
             } catch (final KuraException e) {
                 logger.error(message.errorPerformingRead(), e);
             }
@@ -230,6 +312,30 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
         }
     }
 
+    /**
+     * Returns the filter of the channels reported by exception, created again when the asset configuration changes.
+     *
+     * @return the filter for the current asset configuration
+     */
+    private ChannelChangeFilter getChannelChangeFilter() {
+        final AssetConfiguration assetConfiguration = getAssetConfiguration();
+        ChannelChangeFilter filter = this.channelChangeFilter;
+        if (isNull(filter) || !filter.isFor(assetConfiguration)) {
+            filter = new ChannelChangeFilter(assetConfiguration);
+            this.channelChangeFilter = filter;
+        }
+        return filter;
+    }
+
+    private static boolean isAnySelected(final boolean[] selected) {
+        for (final boolean isSelected : selected) {
+            if (isSelected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Determine the channels to write
      *
@@ -272,43 +378,59 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
      * @param channelRecords
      *            the list of channel records conforming to the aforementioned
      *            specification
+     * @param selected
+     *            for each channel record, true if it is to be emitted; the layout covers all the records, so that it
+     *            does not change with the selected subset
      * @throws NullPointerException
      *             if provided records list is null
      * @throws IllegalArgumentException
      *             if provided records list is empty
      */
-    private void emitChannelRecords(final List<ChannelRecord> channelRecords) {
+    private void emitChannelRecords(final List<ChannelRecord> channelRecords, final boolean[] selected) {
         requireNonNull(channelRecords, message.channelRecordsNonNull());
         if (channelRecords.isEmpty()) {
             throw new IllegalArgumentException(message.channelRecordsNonEmpty());
         }
 
-        final Map<String, TypedValue<?>> wireRecordProperties = new HashMap<>();
+        ChannelRecordLayout layout = this.channelRecordLayout;
+        if (isNull(layout) || !layout.matches(channelRecords)) {
+            layout = new ChannelRecordLayout(channelRecords);
+            this.channelRecordLayout = layout;
+        }
+        emitChannelRecords(channelRecords, selected, layout);
+    }
+
+    private void emitChannelRecords(final List<ChannelRecord> channelRecords, final boolean[] selected,
+            final ChannelRecordLayout layout) {
+        final WireRecordSchema.Builder builder = layout.schema.newRecordBuilder();
         try {
-            wireRecordProperties.put(ASSET_NAME, TypedValues.newStringValue(getKuraServicePid()));
+            builder.setString(ChannelRecordLayout.ASSET_NAME_INDEX, getKuraServicePid());
         } catch (KuraException e) {
             logger.error(message.configurationNonNull(), e);
         }
 
-        for (final ChannelRecord channelRecord : channelRecords) {
+        for (int i = 0; i < channelRecords.size(); i++) {
+            if (nonNull(selected) && !selected[i]) {
+                continue;
+            }
+            final ChannelRecord channelRecord = channelRecords.get(i);
             final ChannelStatus channelStatus = channelRecord.getChannelStatus();
             final ChannelFlag channelFlag = channelStatus.getChannelFlag();
-            final String channelName = channelRecord.getChannelName();
 
-            final TypedValue<?> typedValue;
             if (channelFlag == ChannelFlag.FAILURE) {
                 logErrorMessage(channelStatus);
                 continue;
-            } else {
-                typedValue = channelRecord.getValue();
             }
 
-            wireRecordProperties.put(channelName, typedValue);
-
-            wireRecordProperties.put(channelName + PROPERTY_SEPARATOR + TIMESTAMP,
-                    TypedValues.newLongValue(channelRecord.getTimestamp()));
+            // the value read by the driver is already a TypedValue, it is stored as it is instead of being unboxed
+            // into a primitive that would be wrapped again by each reader; only the timestamp is kept primitive
+            final TypedValue<?> typedValue = channelRecord.getValue();
+            if (nonNull(typedValue)) {
+                builder.setValue(layout.valueIndexes[i], typedValue);
+            }
+            builder.setLong(layout.timestampIndexes[i], channelRecord.getTimestamp());
         }
-        final WireRecord wireRecord = new WireRecord(wireRecordProperties);
+        final WireRecord wireRecord = builder.build();
         this.wireSupport.emit(Arrays.asList(wireRecord));
     }
 
@@ -364,4 +486,82 @@ public final class WireAsset extends BaseAsset implements WireEmitter, WireRecei
     public void updated(final Wire wire, final Object value) {
         this.wireSupport.updated(wire, value);
     }
+
+    /**
+     * Emits the records of the events of a monitored channel. The listener keeps the layout of its channel, so that
+     * the events do not replace the layout of the records read from all the channels.
+     */
+    private final class ChannelEventListener implements ChannelListener {
+
+        private volatile ChannelRecordLayout layout;
+
+        @Override
+        public void onChannelEvent(final ChannelEvent event) {
+            requireNonNull(event, message.channelEventNonNull());
+            final List<ChannelRecord> channelRecords = Collections.singletonList(event.getChannelRecord());
+
+            ChannelRecordLayout currentLayout = this.layout;
+            if (isNull(currentLayout) || !currentLayout.matches(channelRecords)) {
+                currentLayout = new ChannelRecordLayout(channelRecords);
+                this.layout = currentLayout;
+            }
+            emitChannelRecords(channelRecords, null, currentLayout);
+        }
+    }
+
+    /**
+     * The keys of the records emitted for a list of channels, which stay the same from a read to the next as long
+     * as the channel configuration does not change.
+     */
+    private static final class ChannelRecordLayout {
+
+        private static final int ASSET_NAME_INDEX = 0;
+
+        private final String[] channelNames;
+
+        private final int[] valueIndexes;
+
+        private final int[] timestampIndexes;
+
+        private final WireRecordSchema schema;
+
+        private ChannelRecordLayout(final List<ChannelRecord> channelRecords) {
+            final int size = channelRecords.size();
+            this.channelNames = new String[size];
+            this.valueIndexes = new int[size];
+            this.timestampIndexes = new int[size];
+
+            // a key repeated by different channels is shared, the last channel wins as it would in a map
+            final Map<String, Integer> indexes = CollectionUtil.newLinkedHashMap();
+            indexes.put(ASSET_NAME, ASSET_NAME_INDEX);
+            for (int i = 0; i < size; i++) {
+                final String channelName = channelRecords.get(i).getChannelName();
+                this.channelNames[i] = channelName;
+                this.valueIndexes[i] = getIndex(indexes, channelName);
+                this.timestampIndexes[i] = getIndex(indexes, channelName + PROPERTY_SEPARATOR + TIMESTAMP);
+            }
+            this.schema = new WireRecordSchema(new ArrayList<>(indexes.keySet()));
+        }
+
+        private static int getIndex(final Map<String, Integer> indexes, final String key) {
+            Integer index = indexes.get(key);
+            if (isNull(index)) {
+                index = indexes.size();
+                indexes.put(key, index);
+            }
+            return index;
+        }
+
+        private boolean matches(final List<ChannelRecord> channelRecords) {
+            if (channelRecords.size() != this.channelNames.length) {
+                return false;
+            }
+            for (int i = 0; i < this.channelNames.length; i++) {
+                if (!this.channelNames[i].equals(channelRecords.get(i).getChannelName())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
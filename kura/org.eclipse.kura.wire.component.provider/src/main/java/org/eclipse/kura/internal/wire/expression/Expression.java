@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+
+/**
+ * A compiled expression of the {@link ExpressionFilter}, evaluated against the properties of a single record.<br/>
+ * <br/>
+ *
+ * The values are the plain Java values wrapped by the {@link TypedValue}s: {@link Boolean}, {@link Integer},
+ * {@link Long}, {@link Float}, {@link Double}, {@link String} and byte arrays. A missing property evaluates to
+ * {@code null}. The compiled expressions hold no state and can be evaluated by many threads at the same time.
+ */
+@FunctionalInterface
+interface Expression {
+
+    /**
+     * Evaluates this expression.
+     *
+     * @param properties
+     *            the properties of the record
+     * @return the value, or null if it is undefined
+     * @throws IllegalArgumentException
+     *             if an operator is applied to values of the wrong type
+     */
+    Object evaluate(Map<String, TypedValue<?>> properties);
+}
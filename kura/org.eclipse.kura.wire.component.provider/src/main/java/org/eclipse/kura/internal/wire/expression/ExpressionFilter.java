@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+import static org.eclipse.kura.util.collection.CollectionUtil.newArrayListWithCapacity;
+import static org.eclipse.kura.util.collection.CollectionUtil.newHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEmitter;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireRecordSchema;
+import org.eclipse.kura.wire.WireSupport;
+import org.osgi.service.wireadmin.Wire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class {@link ExpressionFilter} represents a {@link WireComponent} which selects and transforms the records of
+ * the incoming {@link WireEnvelope}s using the expressions compiled by {@link ExpressionParser}.<br/>
+ * <br/>
+ *
+ * The filter expression is evaluated against the properties of each record and the records for which it is not true
+ * are dropped. The projection then computes the properties of the emitted records. The expressions are compiled once
+ * per configuration and hold no state, so the envelopes are not serialized through the component and no wrapper
+ * objects are created per record. An envelope with no remaining records is not emitted.
+ */
+public final class ExpressionFilter implements WireEmitter, WireReceiver, ConfigurableComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpressionFilter.class);
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private volatile WireHelperService wireHelperService;
+
+    private WireSupport wireSupport;
+
+    private volatile Program program;
+
+    /**
+     * Binds the Wire Helper Service.
+     *
+     * @param wireHelperService
+     *            the new Wire Helper Service
+     */
+    public void bindWireHelperService(final WireHelperService wireHelperService) {
+        if (isNull(this.wireHelperService)) {
+            this.wireHelperService = wireHelperService;
+        }
+    }
+
+    /**
+     * Unbinds the Wire Helper Service.
+     *
+     * @param wireHelperService
+     *            the new Wire Helper Service
+     */
+    public void unbindWireHelperService(final WireHelperService wireHelperService) {
+        if (this.wireHelperService == wireHelperService) {
+            this.wireHelperService = null;
+        }
+    }
+
+    /**
+     * OSGi Service Component callback for activation.
+     *
+     * @param properties
+     *            the service properties
+     */
+    protected void activate(final Map<String, Object> properties) {
+        logger.debug(message.activatingExpressionFilter());
+        this.wireSupport = this.wireHelperService.newWireSupport(this);
+        updated(properties);
+        logger.debug(message.activatingExpressionFilterDone());
+    }
+
+    /**
+     * OSGi Service Component callback for updating.
+     *
+     * @param properties
+     *            the updated service component properties
+     */
+    protected void updated(final Map<String, Object> properties) {
+        logger.debug(message.updatingExpressionFilter());
+        final ExpressionFilterOptions options = new ExpressionFilterOptions(properties);
+        try {
+            this.program = new Program(options);
+        } catch (final IllegalArgumentException e) {
+            logger.warn(message.errorCompilingExpression(), e);
+            this.program = null;
+        }
+        logger.debug(message.updatingExpressionFilterDone());
+    }
+
+    /**
+     * OSGi Service Component callback for deactivation.
+     */
+    protected void deactivate() {
+        logger.debug(message.deactivatingExpressionFilter());
+        this.program = null;
+        logger.debug(message.deactivatingExpressionFilterDone());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onWireReceive(final WireEnvelope wireEnvelope) {
+        requireNonNull(wireEnvelope, message.wireEnvelopeNonNull());
+        final Program currentProgram = this.program;
+        if (isNull(currentProgram)) {
+            logger.warn(message.errorCompilingExpression());
+            return;
+        }
+
+        final List<WireRecord> result;
+        try {
+            result = currentProgram.apply(wireEnvelope.getRecords());
+        } catch (final Exception e) {
+            logger.warn(message.errorEvaluatingExpression(), e);
+            return;
+        }
+        if (!result.isEmpty()) {
+            this.wireSupport.emit(result);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object polled(final Wire wire) {
+        return this.wireSupport.polled(wire);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void consumersConnected(final Wire[] wires) {
+        this.wireSupport.consumersConnected(wires);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void updated(final Wire wire, final Object value) {
+        this.wireSupport.updated(wire, value);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void producersConnected(final Wire[] wires) {
+        this.wireSupport.producersConnected(wires);
+    }
+
+    /**
+     * The expressions compiled from a configuration.
+     */
+    private static final class Program {
+
+        private final Expression predicate;
+
+        private final Expression[] projection;
+
+        private final WireRecordSchema schema;
+
+        private final boolean retain;
+
+        private Program(final ExpressionFilterOptions options) {
+            final String filterExpression = options.getFilterExpression();
+            this.predicate = filterExpression.isEmpty() ? null : ExpressionParser.parseExpression(filterExpression);
+
+            final String projectionSource = options.getProjection();
+            if (projectionSource.isEmpty()) {
+                this.projection = null;
+                this.schema = null;
+            } else {
+                final Map<String, Expression> expressions = ExpressionParser.parseProjection(projectionSource);
+                this.projection = expressions.values().toArray(new Expression[expressions.size()]);
+                this.schema = new WireRecordSchema(new ArrayList<>(expressions.keySet()));
+            }
+            this.retain = options.isProjectionRetain();
+        }
+
+        private List<WireRecord> apply(final List<WireRecord> wireRecords) {
+            final List<WireRecord> result = newArrayListWithCapacity(wireRecords.size());
+            for (final WireRecord wireRecord : wireRecords) {
+                final Map<String, TypedValue<?>> properties = wireRecord.getProperties();
+                if (this.predicate != null && !Operators.isTrue(this.predicate.evaluate(properties))) {
+                    continue;
+                }
+                if (this.projection == null) {
+                    result.add(wireRecord);
+                } else if (this.retain) {
+                    result.add(projectRetaining(properties));
+                } else {
+                    result.add(project(properties));
+                }
+            }
+            return result;
+        }
+
+        private WireRecord project(final Map<String, TypedValue<?>> properties) {
+            final WireRecordSchema.Builder builder = this.schema.newRecordBuilder();
+            for (int i = 0; i < this.projection.length; i++) {
+                final Object value = this.projection[i].evaluate(properties);
+                if (value instanceof Boolean) {
+                    builder.setBoolean(i, (Boolean) value);
+                } else if (value instanceof Integer) {
+                    builder.setInteger(i, (Integer) value);
+                } else if (value instanceof Long) {
+                    builder.setLong(i, (Long) value);
+                } else if (value instanceof Float) {
+                    builder.setFloat(i, (Float) value);
+                } else if (value instanceof Double) {
+                    builder.setDouble(i, (Double) value);
+                } else if (value instanceof String) {
+                    builder.setString(i, (String) value);
+                } else if (value instanceof byte[]) {
+                    builder.setByteArray(i, (byte[]) value);
+                }
+            }
+            return builder.build();
+        }
+
+        private WireRecord projectRetaining(final Map<String, TypedValue<?>> properties) {
+            final Map<String, TypedValue<?>> projected = newHashMap(properties);
+            for (int i = 0; i < this.projection.length; i++) {
+                final Object value = this.projection[i].evaluate(properties);
+                if (value == null) {
+                    projected.remove(this.schema.getKey(i));
+                } else {
+                    projected.put(this.schema.getKey(i), TypedValues.newTypedValue(value));
+                }
+            }
+            return new WireRecord(projected);
+        }
+    }
+}
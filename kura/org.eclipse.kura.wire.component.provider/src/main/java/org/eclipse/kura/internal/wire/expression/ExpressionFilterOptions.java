@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+
+/**
+ * The Class ExpressionFilterOptions is responsible to contain all the Expression Filter related options
+ */
+final class ExpressionFilterOptions {
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private static final String CONF_FILTER_EXPRESSION = "filter.expression";
+
+    private static final String CONF_PROJECTION = "projection";
+
+    private static final String CONF_PROJECTION_RETAIN = "projection.retain";
+
+    private final Map<String, Object> properties;
+
+    /**
+     * Instantiates a new Expression Filter options.
+     *
+     * @param properties
+     *            the provided properties
+     */
+    ExpressionFilterOptions(final Map<String, Object> properties) {
+        requireNonNull(properties, message.propertiesNonNull());
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the expression selecting the records to emit.
+     *
+     * @return the configured filter expression, empty to emit all the records
+     */
+    String getFilterExpression() {
+        final Object expression = this.properties.get(CONF_FILTER_EXPRESSION);
+        return expression instanceof String ? ((String) expression).trim() : "";
+    }
+
+    /**
+     * Returns the assignments computing the properties of the emitted records.
+     *
+     * @return the configured projection, empty to emit the records unchanged
+     */
+    String getProjection() {
+        final Object projection = this.properties.get(CONF_PROJECTION);
+        return projection instanceof String ? ((String) projection).trim() : "";
+    }
+
+    /**
+     * Tells whether the properties of the received records are kept along with the projected ones.
+     *
+     * @return true if the received properties are kept
+     */
+    boolean isProjectionRetain() {
+        final Object retain = this.properties.get(CONF_PROJECTION_RETAIN);
+        return retain instanceof Boolean && (Boolean) retain;
+    }
+}
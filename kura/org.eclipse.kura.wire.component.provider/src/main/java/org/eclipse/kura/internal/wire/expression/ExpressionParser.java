@@ -0,0 +1,452 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import static java.util.Objects.requireNonNull;
+import static org.eclipse.kura.util.collection.CollectionUtil.newLinkedHashMap;
+
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.kura.type.TypedValue;
+
+/**
+ * The Class ExpressionParser compiles the source of an expression into a tree of {@link Expression} closures.<br/>
+ * <br/>
+ *
+ * The grammar, from the lowest to the highest precedence, is:
+ *
+ * <pre>
+ * projection     := key '=' expression ( ';' key '=' expression )* [ ';' ]
+ * expression     := or [ '?' expression ':' expression ]
+ * or             := and ( '||' and )*
+ * and            := equality ( '&amp;&amp;' equality )*
+ * equality       := relational ( ( '==' | '!=' ) relational )*
+ * relational     := additive ( ( '&lt;' | '&lt;=' | '&gt;' | '&gt;=' ) additive )*
+ * additive       := multiplicative ( ( '+' | '-' ) multiplicative )*
+ * multiplicative := unary ( ( '*' | '/' | '%' ) unary )*
+ * unary          := ( '!' | '-' ) unary | primary
+ * primary        := literal | key | function '(' expression ( ',' expression )* ')' | '(' expression ')'
+ * key            := identifier | '`' any character but '`' '`'
+ * </pre>
+ *
+ * The literals are {@code true}, {@code false}, {@code null}, the numbers, optionally followed by a {@code L},
+ * {@code F} or {@code D} type suffix, and the strings between single or double quotes. The functions are
+ * {@code abs}, {@code round}, {@code min} and {@code max}. The sub-expressions made of literals only are evaluated
+ * once, while compiling.
+ */
+final class ExpressionParser {
+
+    private static final String EXPECTED_MESSAGE = "Expected %s at position %d of \"%s\"";
+
+    private final String source;
+
+    private int position;
+
+    private ExpressionParser(final String source) {
+        this.source = requireNonNull(source, "Expression source cannot be null");
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param source
+     *            the source of the expression
+     * @return the compiled expression
+     * @throws NullPointerException
+     *             if the source is null
+     * @throws IllegalArgumentException
+     *             if the source is not a valid expression
+     */
+    static Expression parseExpression(final String source) {
+        final ExpressionParser parser = new ExpressionParser(source);
+        final Expression expression = parser.parseConditional();
+        parser.expectEnd();
+        return expression;
+    }
+
+    /**
+     * Compiles a projection, which is a list of assignments of expressions to keys.
+     *
+     * @param source
+     *            the source of the projection
+     * @return the compiled expressions by key, in order
+     * @throws NullPointerException
+     *             if the source is null
+     * @throws IllegalArgumentException
+     *             if the source is not a valid projection
+     */
+    static Map<String, Expression> parseProjection(final String source) {
+        final ExpressionParser parser = new ExpressionParser(source);
+        final Map<String, Expression> projection = newLinkedHashMap();
+        do {
+            if (parser.atEnd()) {
+                break;
+            }
+            final String key = parser.parseKey();
+            parser.expect("=");
+            if (projection.put(key, parser.parseConditional()) != null) {
+                throw new IllegalArgumentException("Duplicate key " + key + " in \"" + source + "\"");
+            }
+        } while (parser.accept(";"));
+        parser.expectEnd();
+        return projection;
+    }
+
+    private Expression parseConditional() {
+        final Expression condition = parseOr();
+        if (!accept("?")) {
+            return condition;
+        }
+        final Expression whenTrue = parseConditional();
+        expect(":");
+        final Expression whenFalse = parseConditional();
+        if (condition instanceof Constant) {
+            return Operators.isTrue(((Constant) condition).value) ? whenTrue : whenFalse;
+        }
+        return properties -> Operators.isTrue(condition.evaluate(properties)) ? whenTrue.evaluate(properties)
+                : whenFalse.evaluate(properties);
+    }
+
+    private Expression parseOr() {
+        Expression result = parseAnd();
+        while (accept("||")) {
+            final Expression left = result;
+            final Expression right = parseAnd();
+            result = fold(properties -> Operators.isTrue(left.evaluate(properties))
+                    || Operators.isTrue(right.evaluate(properties)), left, right);
+        }
+        return result;
+    }
+
+    private Expression parseAnd() {
+        Expression result = parseEquality();
+        while (accept("&&")) {
+            final Expression left = result;
+            final Expression right = parseEquality();
+            result = fold(properties -> Operators.isTrue(left.evaluate(properties))
+                    && Operators.isTrue(right.evaluate(properties)), left, right);
+        }
+        return result;
+    }
+
+    private Expression parseEquality() {
+        Expression result = parseRelational();
+        for (;;) {
+            if (accept("==")) {
+                result = binary(result, parseRelational(), Operators::equal);
+            } else if (accept("!=")) {
+                result = binary(result, parseRelational(), (l, r) -> !Operators.equal(l, r));
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Expression parseRelational() {
+        Expression result = parseAdditive();
+        for (;;) {
+            // the two character operators are tried first
+            if (accept("<=")) {
+                result = binary(result, parseAdditive(), (l, r) -> {
+                    final Integer c = Operators.compare(l, r, "<=");
+                    return c != null && c <= 0;
+                });
+            } else if (accept(">=")) {
+                result = binary(result, parseAdditive(), (l, r) -> {
+                    final Integer c = Operators.compare(l, r, ">=");
+                    return c != null && c >= 0;
+                });
+            } else if (accept("<")) {
+                result = binary(result, parseAdditive(), (l, r) -> {
+                    final Integer c = Operators.compare(l, r, "<");
+                    return c != null && c < 0;
+                });
+            } else if (accept(">")) {
+                result = binary(result, parseAdditive(), (l, r) -> {
+                    final Integer c = Operators.compare(l, r, ">");
+                    return c != null && c > 0;
+                });
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Expression parseAdditive() {
+        Expression result = parseMultiplicative();
+        for (;;) {
+            if (accept("+")) {
+                result = binary(result, parseMultiplicative(), Operators::add);
+            } else if (accept("-")) {
+                result = binary(result, parseMultiplicative(), Operators::subtract);
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Expression parseMultiplicative() {
+        Expression result = parseUnary();
+        for (;;) {
+            if (accept("*")) {
+                result = binary(result, parseUnary(), Operators::multiply);
+            } else if (accept("/")) {
+                result = binary(result, parseUnary(), Operators::divide);
+            } else if (accept("%")) {
+                result = binary(result, parseUnary(), Operators::remainder);
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Expression parseUnary() {
+        if (accept("!")) {
+            return unary(parseUnary(), Operators::not);
+        } else if (accept("-")) {
+            return unary(parseUnary(), Operators::negate);
+        }
+        return parsePrimary();
+    }
+
+    private Expression parsePrimary() {
+        skipWhitespace();
+        if (accept("(")) {
+            final Expression expression = parseConditional();
+            expect(")");
+            return expression;
+        }
+        if (atEnd()) {
+            throw expected("an operand");
+        }
+
+        final char c = this.source.charAt(this.position);
+        if (c == '\'' || c == '"') {
+            return new Constant(parseString(c));
+        } else if (Character.isDigit(c) || c == '.') {
+            return new Constant(parseNumber());
+        } else if (c == '`') {
+            return property(parseKey());
+        } else if (Character.isJavaIdentifierStart(c)) {
+            final String identifier = parseIdentifier();
+            switch (identifier) {
+            case "true":
+                return new Constant(Boolean.TRUE);
+            case "false":
+                return new Constant(Boolean.FALSE);
+            case "null":
+                return new Constant(null);
+            default:
+                return accept("(") ? parseFunction(identifier) : property(identifier);
+            }
+        }
+        throw expected("an operand");
+    }
+
+    private Expression parseFunction(final String name) {
+        final Expression first = parseConditional();
+        switch (name) {
+        case "abs":
+            expect(")");
+            return unary(first, Operators::abs);
+        case "round":
+            expect(")");
+            return unary(first, Operators::round);
+        case "min":
+            expect(",");
+            final Expression minSecond = parseConditional();
+            expect(")");
+            return binary(first, minSecond, Operators::min);
+        case "max":
+            expect(",");
+            final Expression maxSecond = parseConditional();
+            expect(")");
+            return binary(first, maxSecond, Operators::max);
+        default:
+            throw new IllegalArgumentException("Unknown function " + name + " in \"" + this.source + "\"");
+        }
+    }
+
+    private static Expression property(final String key) {
+        return properties -> {
+            final TypedValue<?> value = properties.get(key);
+            return value == null ? null : value.getValue();
+        };
+    }
+
+    private static Expression unary(final Expression operand, final UnaryOperator<Object> operator) {
+        if (operand instanceof Constant) {
+            return new Constant(operator.apply(((Constant) operand).value));
+        }
+        return properties -> operator.apply(operand.evaluate(properties));
+    }
+
+    private static Expression binary(final Expression left, final Expression right,
+            final BinaryOperator<Object> operator) {
+        return fold(properties -> operator.apply(left.evaluate(properties), right.evaluate(properties)), left, right);
+    }
+
+    private static Expression fold(final Expression expression, final Expression left, final Expression right) {
+        if (left instanceof Constant && right instanceof Constant) {
+            return new Constant(expression.evaluate(null));
+        }
+        return expression;
+    }
+
+    private String parseKey() {
+        skipWhitespace();
+        if (!accept("`")) {
+            if (atEnd() || !Character.isJavaIdentifierStart(this.source.charAt(this.position))) {
+                throw expected("a key");
+            }
+            return parseIdentifier();
+        }
+        final int end = this.source.indexOf('`', this.position);
+        if (end < 0) {
+            throw expected("a closing `");
+        }
+        final String key = this.source.substring(this.position, end);
+        this.position = end + 1;
+        return key;
+    }
+
+    private String parseIdentifier() {
+        final int start = this.position;
+        while (hasMore() && (Character.isJavaIdentifierPart(this.source.charAt(this.position))
+                || this.source.charAt(this.position) == '.')) {
+            this.position++;
+        }
+        return this.source.substring(start, this.position);
+    }
+
+    private String parseString(final char quote) {
+        final StringBuilder builder = new StringBuilder();
+        this.position++;
+        for (;;) {
+            if (!hasMore()) {
+                throw expected("a closing " + quote);
+            }
+            char c = this.source.charAt(this.position++);
+            if (c == quote) {
+                return builder.toString();
+            }
+            if (c == '\\' && hasMore()) {
+                c = this.source.charAt(this.position++);
+            }
+            builder.append(c);
+        }
+    }
+
+    private Number parseNumber() {
+        final int start = this.position;
+        boolean decimal = false;
+        while (hasMore()) {
+            final char c = this.source.charAt(this.position);
+            if (c == '.' || c == 'e' || c == 'E') {
+                decimal = true;
+            } else if ((c == '+' || c == '-') && isExponent(this.source.charAt(this.position - 1))) {
+                // sign of the exponent
+            } else if (!Character.isDigit(c)) {
+                break;
+            }
+            this.position++;
+        }
+        final String number = this.source.substring(start, this.position);
+        final char suffix = hasMore() ? Character.toUpperCase(this.source.charAt(this.position)) : ' ';
+        if (suffix == 'L' || suffix == 'F' || suffix == 'D') {
+            this.position++;
+        }
+        try {
+            if (suffix == 'L') {
+                return Long.parseLong(number);
+            } else if (suffix == 'F') {
+                return Float.parseFloat(number);
+            } else if (suffix == 'D' || decimal) {
+                return Double.parseDouble(number);
+            }
+            final long value = Long.parseLong(number);
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+            return value;
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Invalid number " + number + " at position " + start + " of \"" + this.source + "\"", e);
+        }
+    }
+
+    private static boolean isExponent(final char c) {
+        return c == 'e' || c == 'E';
+    }
+
+    private void skipWhitespace() {
+        while (hasMore() && Character.isWhitespace(this.source.charAt(this.position))) {
+            this.position++;
+        }
+    }
+
+    private boolean hasMore() {
+        return this.position < this.source.length();
+    }
+
+    private boolean atEnd() {
+        skipWhitespace();
+        return !hasMore();
+    }
+
+    private boolean peek(final String token) {
+        skipWhitespace();
+        return this.source.startsWith(token, this.position);
+    }
+
+    private boolean accept(final String token) {
+        if (!peek(token)) {
+            return false;
+        }
+        // '=' and '!' are not taken from the start of '==' and '!='
+        if (("=".equals(token) || "!".equals(token)) && this.source.startsWith("=", this.position + 1)) {
+            return false;
+        }
+        this.position += token.length();
+        return true;
+    }
+
+    private void expect(final String token) {
+        if (!accept(token)) {
+            throw expected("'" + token + "'");
+        }
+    }
+
+    private void expectEnd() {
+        if (!atEnd()) {
+            throw expected("the end of the expression");
+        }
+    }
+
+    private IllegalArgumentException expected(final String what) {
+        return new IllegalArgumentException(String.format(EXPECTED_MESSAGE, what, this.position, this.source));
+    }
+
+    private static final class Constant implements Expression {
+
+        private final Object value;
+
+        private Constant(final Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(final Map<String, TypedValue<?>> properties) {
+            return this.value;
+        }
+    }
+}
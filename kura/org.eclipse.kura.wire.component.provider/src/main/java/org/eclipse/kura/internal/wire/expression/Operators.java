@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import java.util.Arrays;
+
+/**
+ * The Class Operators implements the operators and functions of the expressions.<br/>
+ * <br/>
+ *
+ * The numeric operands are promoted to the widest of their types, in the order integer, long, float and double, as
+ * in Java. An operation with a {@code null} operand results in {@code null}, and so does an integer division by zero.
+ */
+final class Operators {
+
+    private static final int INTEGER = 0;
+    private static final int LONG = 1;
+    private static final int FLOAT = 2;
+    private static final int DOUBLE = 3;
+
+    private Operators() {
+        // Static Factory Methods container. No need to instantiate.
+    }
+
+    private static int rank(final Object value) {
+        if (value instanceof Integer) {
+            return INTEGER;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof Float) {
+            return FLOAT;
+        } else if (value instanceof Double) {
+            return DOUBLE;
+        }
+        return -1;
+    }
+
+    private static int rank(final Object left, final Object right, final String operator) {
+        final int leftRank = rank(left);
+        final int rightRank = rank(right);
+        if (leftRank < 0 || rightRank < 0) {
+            throw new IllegalArgumentException("Operator " + operator + " cannot be applied to " + typeName(left)
+                    + " and " + typeName(right));
+        }
+        return Math.max(leftRank, rightRank);
+    }
+
+    private static String typeName(final Object value) {
+        if (value instanceof byte[]) {
+            return "byte array";
+        }
+        return value.getClass().getSimpleName().toLowerCase();
+    }
+
+    private static String toString(final Object value) {
+        if (value instanceof byte[]) {
+            return Arrays.toString((byte[]) value);
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Returns the truth of a value used as a condition.
+     *
+     * @param value
+     *            the value
+     * @return the boolean value, false if the value is null
+     * @throws IllegalArgumentException
+     *             if the value is not a boolean
+     */
+    static boolean isTrue(final Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value == null) {
+            return false;
+        }
+        throw new IllegalArgumentException("Expected a boolean but found " + typeName(value));
+    }
+
+    static Object add(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (left instanceof String || right instanceof String) {
+            return toString(left) + toString(right);
+        }
+        final int rank = rank(left, right, "+");
+        final Number l = (Number) left;
+        final Number r = (Number) right;
+        switch (rank) {
+        case INTEGER:
+            return l.intValue() + r.intValue();
+        case LONG:
+            return l.longValue() + r.longValue();
+        case FLOAT:
+            return l.floatValue() + r.floatValue();
+        default:
+            return l.doubleValue() + r.doubleValue();
+        }
+    }
+
+    static Object subtract(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        final int rank = rank(left, right, "-");
+        final Number l = (Number) left;
+        final Number r = (Number) right;
+        switch (rank) {
+        case INTEGER:
+            return l.intValue() - r.intValue();
+        case LONG:
+            return l.longValue() - r.longValue();
+        case FLOAT:
+            return l.floatValue() - r.floatValue();
+        default:
+            return l.doubleValue() - r.doubleValue();
+        }
+    }
+
+    static Object multiply(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        final int rank = rank(left, right, "*");
+        final Number l = (Number) left;
+        final Number r = (Number) right;
+        switch (rank) {
+        case INTEGER:
+            return l.intValue() * r.intValue();
+        case LONG:
+            return l.longValue() * r.longValue();
+        case FLOAT:
+            return l.floatValue() * r.floatValue();
+        default:
+            return l.doubleValue() * r.doubleValue();
+        }
+    }
+
+    static Object divide(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        final int rank = rank(left, right, "/");
+        final Number l = (Number) left;
+        final Number r = (Number) right;
+        switch (rank) {
+        case INTEGER:
+            return r.intValue() == 0 ? null : l.intValue() / r.intValue();
+        case LONG:
+            return r.longValue() == 0 ? null : l.longValue() / r.longValue();
+        case FLOAT:
+            return l.floatValue() / r.floatValue();
+        default:
+            return l.doubleValue() / r.doubleValue();
+        }
+    }
+
+    static Object remainder(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        final int rank = rank(left, right, "%");
+        final Number l = (Number) left;
+        final Number r = (Number) right;
+        switch (rank) {
+        case INTEGER:
+            return r.intValue() == 0 ? null : l.intValue() % r.intValue();
+        case LONG:
+            return r.longValue() == 0 ? null : l.longValue() % r.longValue();
+        case FLOAT:
+            return l.floatValue() % r.floatValue();
+        default:
+            return l.doubleValue() % r.doubleValue();
+        }
+    }
+
+    static Object negate(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (rank(value, value, "-")) {
+        case INTEGER:
+            return -(Integer) value;
+        case LONG:
+            return -(Long) value;
+        case FLOAT:
+            return -(Float) value;
+        default:
+            return -(Double) value;
+        }
+    }
+
+    static Object not(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        return !isTrue(value);
+    }
+
+    /**
+     * Compares two numbers or two strings.
+     *
+     * @param left
+     *            the left operand
+     * @param right
+     *            the right operand
+     * @param operator
+     *            the operator, for the error message
+     * @return a negative, zero or positive comparison result, or null if any of the operands is null
+     * @throws IllegalArgumentException
+     *             if the values cannot be compared
+     */
+    static Integer compare(final Object left, final Object right, final String operator) {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (left instanceof String && right instanceof String) {
+            return ((String) left).compareTo((String) right);
+        }
+        final int rank = rank(left, right, operator);
+        final Number l = (Number) left;
+        final Number r = (Number) right;
+        switch (rank) {
+        case INTEGER:
+            return Integer.compare(l.intValue(), r.intValue());
+        case LONG:
+            return Long.compare(l.longValue(), r.longValue());
+        case FLOAT:
+            return Float.compare(l.floatValue(), r.floatValue());
+        default:
+            return Double.compare(l.doubleValue(), r.doubleValue());
+        }
+    }
+
+    static boolean equal(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return left == right;
+        }
+        if (rank(left) >= 0 && rank(right) >= 0) {
+            return compare(left, right, "==") == 0;
+        }
+        if (left instanceof byte[] && right instanceof byte[]) {
+            return Arrays.equals((byte[]) left, (byte[]) right);
+        }
+        return left.equals(right);
+    }
+
+    static Object abs(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (rank(value, value, "abs")) {
+        case INTEGER:
+            return Math.abs((Integer) value);
+        case LONG:
+            return Math.abs((Long) value);
+        case FLOAT:
+            return Math.abs((Float) value);
+        default:
+            return Math.abs((Double) value);
+        }
+    }
+
+    static Object round(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (rank(value, value, "round")) {
+        case INTEGER:
+        case LONG:
+            return value;
+        case FLOAT:
+            return (long) Math.round((Float) value);
+        default:
+            return Math.round((Double) value);
+        }
+    }
+
+    static Object min(final Object left, final Object right) {
+        final Integer comparison = compare(left, right, "min");
+        if (comparison == null) {
+            return null;
+        }
+        return promote(comparison <= 0 ? left : right, left, right);
+    }
+
+    static Object max(final Object left, final Object right) {
+        final Integer comparison = compare(left, right, "max");
+        if (comparison == null) {
+            return null;
+        }
+        return promote(comparison >= 0 ? left : right, left, right);
+    }
+
+    private static Object promote(final Object value, final Object left, final Object right) {
+        if (value instanceof String) {
+            return value;
+        }
+        final Number number = (Number) value;
+        switch (Math.max(rank(left), rank(right))) {
+        case INTEGER:
+            return number.intValue();
+        case LONG:
+            return number.longValue();
+        case FLOAT:
+            return number.floatValue();
+        default:
+            return number.doubleValue();
+        }
+    }
+}
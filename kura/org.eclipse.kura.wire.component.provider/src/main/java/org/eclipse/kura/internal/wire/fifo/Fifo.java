@@ -16,10 +16,13 @@ import static java.util.Objects.isNull;
 import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 import org.eclipse.kura.configuration.ConfigurableComponent;
@@ -30,15 +33,29 @@ import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireHelperService;
 import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireRecord;
 import org.eclipse.kura.wire.WireSupport;
 import org.osgi.service.wireadmin.Wire;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * The Class Fifo represents a Wire Component which queues the received envelopes and emits them on a thread of its
+ * own.<br/>
+ * <br/>
+ *
+ * The statistics of the queue, that is its depth, the number of discarded envelopes and the time spent by the
+ * emitters waiting for room in the queue, are reported in the log each time the emitter thread is stopped, on a
+ * configuration update or on deactivation. The package-private getters of these statistics are meant for the tests
+ * of this package only, they are not part of any API.
+ */
 public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
 
     private static final String DISCARD_ENVELOPES_PROP_NAME = "discard.envelopes";
     private static final String QUEUE_CAPACITY_PROP_NAME = "queue.capacity";
+    private static final String BATCH_DRAIN_PROP_NAME = "batch.drain";
+
+    private static final long PRODUCER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
 
     private static final Logger logger = LoggerFactory.getLogger(Fifo.class);
     private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
@@ -46,7 +63,7 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
     private volatile WireHelperService wireHelperService;
     private WireSupport wireSupport;
 
-    private FifoEmitterThread emitterThread;
+    private volatile FifoEmitterThread emitterThread;
 
     public void bindWireHelperService(final WireHelperService wireHelperService) {
         if (isNull(this.wireHelperService)) {
@@ -80,8 +97,9 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
                 + "-EmitterThread";
         int queueCapacity = (Integer) properties.getOrDefault(QUEUE_CAPACITY_PROP_NAME, 50);
         boolean discardEnvelopes = (Boolean) properties.getOrDefault(DISCARD_ENVELOPES_PROP_NAME, false);
+        boolean batchDrain = (Boolean) properties.getOrDefault(BATCH_DRAIN_PROP_NAME, false);
 
-        restartEmitterThread(threadName, queueCapacity, discardEnvelopes);
+        restartEmitterThread(threadName, queueCapacity, discardEnvelopes, batchDrain);
 
         logger.info(message.updatingFifoDone());
     }
@@ -93,23 +111,57 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
         }
     }
 
-    private synchronized void restartEmitterThread(String threadName, int queueCapacity, boolean discardEnvelopes) {
+    private synchronized void restartEmitterThread(String threadName, int queueCapacity, boolean discardEnvelopes,
+            boolean batchDrain) {
         stopEmitterThread();
 
-        logger.debug("Creating new emitter thread: {}, queue capacity: {}, discard envelopes: {}", threadName,
-                queueCapacity, discardEnvelopes);
-        emitterThread = new FifoEmitterThread(threadName, queueCapacity, discardEnvelopes);
+        logger.debug("Creating new emitter thread: {}, queue capacity: {}, discard envelopes: {}, batch drain: {}",
+                threadName, queueCapacity, discardEnvelopes, batchDrain);
+        emitterThread = new FifoEmitterThread(threadName, queueCapacity, discardEnvelopes, batchDrain);
         emitterThread.start();
     }
 
     @Override
     public void onWireReceive(WireEnvelope wireEnvelope) {
         requireNonNull(wireEnvelope, message.wireEnvelopeNonNull());
-        if (emitterThread != null) {
-            emitterThread.submit(wireEnvelope);
+        final FifoEmitterThread thread = emitterThread;
+        if (thread != null) {
+            thread.submit(wireEnvelope);
         }
     }
 
+    /**
+     * Returns the number of envelopes waiting in the queue. For tests only, see the class description.
+     *
+     * @return the queue depth, 0 if the component is not active
+     */
+    int getQueueDepth() {
+        final FifoEmitterThread thread = emitterThread;
+        return thread != null ? thread.getQueueDepth() : 0;
+    }
+
+    /**
+     * Returns the number of envelopes discarded because the queue was full, since the last configuration update.
+     * For tests only, see the class description.
+     *
+     * @return the number of discarded envelopes
+     */
+    long getDiscardedEnvelopes() {
+        final FifoEmitterThread thread = emitterThread;
+        return thread != null ? thread.getDiscardedEnvelopes() : 0;
+    }
+
+    /**
+     * Returns the total time spent by the emitters waiting for room in the queue, since the last configuration
+     * update. For tests only, see the class description.
+     *
+     * @return the wait time in milliseconds
+     */
+    long getProducerWaitMillis() {
+        final FifoEmitterThread thread = emitterThread;
+        return thread != null ? thread.getProducerWaitMillis() : 0;
+    }
+
     @Override
     public Object polled(Wire wire) {
         return this.wireSupport.polled(wire);
@@ -132,20 +184,22 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
 
     private class FifoEmitterThread extends Thread {
 
-        private Lock lock = new ReentrantLock();
+        private final FifoRingBuffer<WireEnvelope> queue;
+        private final boolean batchDrain;
+
+        private final Queue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
 
-        private Condition producer = lock.newCondition();
-        private Condition consumer = lock.newCondition();
+        private volatile boolean run = true;
+        private volatile boolean consumerWaiting;
 
-        private boolean run = true;
-        private ArrayList<WireEnvelope> queue;
-        private int queueCapacity;
+        private final AtomicLong discardedEnvelopes = new AtomicLong();
+        private final AtomicLong producerWaitNanos = new AtomicLong();
 
         private Consumer<WireEnvelope> submitter;
 
-        public FifoEmitterThread(String threadName, int queueCapacity, boolean discardEnvelopes) {
-            this.queue = new ArrayList<WireEnvelope>();
-            this.queueCapacity = queueCapacity;
+        public FifoEmitterThread(String threadName, int queueCapacity, boolean discardEnvelopes, boolean batchDrain) {
+            this.queue = new FifoRingBuffer<>(queueCapacity);
+            this.batchDrain = batchDrain;
             setName(threadName);
             if (discardEnvelopes) {
                 submitter = getEnvelopeDiscardingSubmitter();
@@ -156,77 +210,131 @@ public class Fifo implements WireEmitter, WireReceiver, ConfigurableComponent {
 
         private Consumer<WireEnvelope> getEnvelopeDiscardingSubmitter() {
             return (envelope) -> {
-                try {
-                    lock.lock();
-                    if (!run || queue.size() >= queueCapacity) {
-                        logger.debug("envelope discarded");
-                        return;
-                    } else {
-                        queue.add(envelope);
-                        producer.signal();
-                        logger.debug("envelope submitted");
-                    }
-                } finally {
-                    lock.unlock();
+                if (!run || !queue.offer(envelope)) {
+                    discardedEnvelopes.incrementAndGet();
+                    logger.debug("envelope discarded");
+                    return;
                 }
+                wakeConsumer();
+                logger.debug("envelope submitted");
             };
         }
 
         private Consumer<WireEnvelope> getEmitterBlockingSubmitter() {
             return (envelope) -> {
-                try {
-                    lock.lock();
-                    while (run && queue.size() >= queueCapacity) {
-                        consumer.await();
-                    }
-                    if (!run) {
-                        return;
-                    }
-                    queue.add(envelope);
-                    producer.signal();
-                    logger.debug("envelope submitted");
-                } catch (InterruptedException e) {
-                    logger.warn(message.fifoInterruptedWhileSubmitting(), e);
-                } finally {
-                    lock.unlock();
+                if (!run) {
+                    return;
+                }
+                if (!queue.offer(envelope) && !awaitOffer(envelope)) {
+                    return;
                 }
+                wakeConsumer();
+                logger.debug("envelope submitted");
             };
         }
 
-        public void shutdown() {
+        private boolean awaitOffer(WireEnvelope envelope) {
+            final Thread current = Thread.currentThread();
+            final long start = System.nanoTime();
+            waitingProducers.add(current);
             try {
-                lock.lock();
-                run = false;
-                producer.signalAll();
-                consumer.signalAll();
+                // the consumer unparks the first waiting producer after taking an envelope, the registration
+                // happens before the next attempt so that the wake up cannot be lost
+                while (!queue.offer(envelope)) {
+                    if (!run) {
+                        return false;
+                    }
+                    if (current.isInterrupted()) {
+                        logger.warn(message.fifoInterruptedWhileSubmitting());
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+                }
+                return true;
             } finally {
-                lock.unlock();
+                waitingProducers.remove(current);
+                producerWaitNanos.addAndGet(System.nanoTime() - start);
             }
         }
 
+        private void wakeConsumer() {
+            // the flag is read after the envelope is published, the consumer sets it before checking the queue
+            // for the last time, so at least one of the two sides sees the other
+            if (consumerWaiting) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        private void wakeProducer() {
+            final Thread producer = waitingProducers.peek();
+            if (producer != null) {
+                LockSupport.unpark(producer);
+            }
+        }
+
+        private WireEnvelope take() {
+            while (run) {
+                WireEnvelope next = queue.poll();
+                if (next == null) {
+                    consumerWaiting = true;
+                    next = queue.poll();
+                    if (next == null && run) {
+                        LockSupport.park(this);
+                    }
+                    consumerWaiting = false;
+                }
+                if (next != null) {
+                    wakeProducer();
+                    return next;
+                }
+            }
+            return null;
+        }
+
+        public void shutdown() {
+            run = false;
+            LockSupport.unpark(this);
+            for (Thread producer : waitingProducers) {
+                LockSupport.unpark(producer);
+            }
+            logger.info("{}: queue depth {}, discarded envelopes {}, producer wait time {} ms", getName(),
+                    getQueueDepth(), getDiscardedEnvelopes(), getProducerWaitMillis());
+        }
+
         public void submit(WireEnvelope envelope) {
             submitter.accept(envelope);
         }
 
+        public int getQueueDepth() {
+            return queue.size();
+        }
+
+        public long getDiscardedEnvelopes() {
+            return discardedEnvelopes.get();
+        }
+
+        public long getProducerWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(producerWaitNanos.get());
+        }
+
         @Override
         public void run() {
             while (run) {
                 try {
-                    WireEnvelope next = null;
-                    try {
-                        lock.lock();
-                        while (run && queue.isEmpty()) {
-                            producer.await();
-                        }
-                        if (!run) {
-                            break;
+                    WireEnvelope next = take();
+                    if (next == null) {
+                        break;
+                    }
+                    if (batchDrain) {
+                        List<WireRecord> records = new ArrayList<>(next.getRecords());
+                        while ((next = queue.poll()) != null) {
+                            wakeProducer();
+                            records.addAll(next.getRecords());
                         }
-                        next = queue.remove(0);
-                        consumer.signal();
-                    } finally {
-                        lock.unlock();
+                        wireSupport.emit(records);
+                    } else {
+                        wireSupport.emit(next.getRecords());
                     }
-                    wireSupport.emit(next.getRecords());
                 } catch (Exception e) {
                     logger.warn(message.fifoUnexpectedExceptionWhileDispatching(), e);
                 }
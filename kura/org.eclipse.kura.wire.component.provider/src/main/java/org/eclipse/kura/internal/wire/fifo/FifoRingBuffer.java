@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.fifo;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The Class FifoRingBuffer is a bounded lock-free queue, for many producers and a single consumer.<br/>
+ * <br/>
+ *
+ * Each slot of the buffer has a sequence number telling whether it is free for the producer of a given position or
+ * filled for the consumer of that position. The producers claim a position with a compare and set on the tail, and
+ * the consumer, being the only one, advances the head without any atomic operation.
+ *
+ * @param <E>
+ *            the type of the elements
+ */
+final class FifoRingBuffer<E> {
+
+    private final int capacity;
+
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private volatile long head;
+
+    /**
+     * Instantiates a new ring buffer.
+     *
+     * @param capacity
+     *            the maximum number of elements
+     * @throws IllegalArgumentException
+     *             if the capacity is not positive
+     */
+    FifoRingBuffer(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element at the tail of the buffer, if there is room for it. May be called by any thread.
+     *
+     * @param element
+     *            the element
+     * @return true if the element was added, false if the buffer is full
+     */
+    boolean offer(final E element) {
+        long position = this.tail.get();
+        int index;
+        for (;;) {
+            index = (int) (position % this.capacity);
+            final long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                // the slot still holds the element of the previous round
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+        this.elements.set(index, element);
+        this.sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Removes the element at the head of the buffer. Must be called by the consumer thread only.
+     *
+     * @return the element, or null if the buffer is empty
+     */
+    E poll() {
+        final long position = this.head;
+        final int index = (int) (position % this.capacity);
+        if (this.sequences.get(index) != position + 1) {
+            return null;
+        }
+        final E element = this.elements.get(index);
+        this.elements.set(index, null);
+        this.sequences.set(index, position + this.capacity);
+        this.head = position + 1;
+        return element;
+    }
+
+    /**
+     * Returns the approximate number of elements in the buffer.
+     *
+     * @return the number of elements
+     */
+    int size() {
+        final long size = this.tail.get() - this.head;
+        return (int) Math.max(0, Math.min(size, this.capacity));
+    }
+
+    /**
+     * Returns the maximum number of elements.
+     *
+     * @return the capacity
+     */
+    int capacity() {
+        return this.capacity;
+    }
+}
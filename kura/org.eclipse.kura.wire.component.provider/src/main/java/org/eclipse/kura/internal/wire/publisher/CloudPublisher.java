@@ -21,6 +21,9 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -57,7 +60,12 @@ import org.slf4j.LoggerFactory;
  * <br/>
  *
  * For every {@link WireRecord} as found in {@link WireEnvelope} will be wrapped inside a Kura
- * Payload and will be sent to the Cloud Platform.
+ * Payload and will be sent to the Cloud Platform.<br/>
+ * <br/>
+ *
+ * If a batch size greater than one is configured, the {@link WireRecord}s are aggregated per publishing topic by a
+ * {@link WireRecordAggregator} and published as a single message when the batch is complete or when the batch
+ * interval elapses.
  */
 public final class CloudPublisher implements WireReceiver, CloudClientListener, ConfigurableComponent {
 
@@ -105,6 +113,8 @@ public final class CloudPublisher implements WireReceiver, CloudClientListener,
     private static final String TOPIC_PATTERN_STRING = "\\$([^\\s/]+)";
     private static final Pattern TOPIC_PATTERN = Pattern.compile(TOPIC_PATTERN_STRING);
 
+    private static final long BATCH_TERMINATION_TIMEOUT_SECONDS = 10;
+
     private BundleContext bundleContext;
 
     private ServiceTrackerCustomizer<CloudService, CloudService> cloudServiceTrackerCustomizer;
@@ -113,7 +123,7 @@ public final class CloudPublisher implements WireReceiver, CloudClientListener,
 
     private volatile CloudService cloudService;
 
-    private CloudClient cloudClient;
+    private volatile CloudClient cloudClient;
 
     private CloudPublisherOptions cloudPublisherOptions;
 
@@ -121,6 +131,14 @@ public final class CloudPublisher implements WireReceiver, CloudClientListener,
 
     private WireSupport wireSupport;
 
+    private volatile WireRecordAggregator aggregator;
+
+    private ScheduledExecutorService batchExecutor;
+
+    // Guards the aggregator life-cycle, so that no record is added to an aggregator which has already been drained.
+    // The records are published without taking it while batching is disabled.
+    private final Object batchLock = new Object();
+
     // ----------------------------------------------------------------
     //
     // Dependencies
@@ -172,6 +190,7 @@ public final class CloudPublisher implements WireReceiver, CloudClientListener,
 
         // Update properties
         this.cloudPublisherOptions = new CloudPublisherOptions(properties);
+        startBatching();
 
         this.cloudServiceTrackerCustomizer = new CloudPublisherServiceTrackerCustomizer();
         initCloudServiceTracking();
@@ -187,8 +206,15 @@ public final class CloudPublisher implements WireReceiver, CloudClientListener,
      */
     public void updated(final Map<String, Object> properties) {
         logger.debug(message.updatingCloudPublisher());
-        // Update properties
-        this.cloudPublisherOptions = new CloudPublisherOptions(properties);
+        // the records received meanwhile wait for the new batch, rather than being published one by one
+        synchronized (this.batchLock) {
+            // Publish the pending records with the previous configuration
+            stopBatching();
+
+            // Update properties
+            this.cloudPublisherOptions = new CloudPublisherOptions(properties);
+            startBatching();
+        }
 
         if (nonNull(this.cloudServiceTracker)) {
             this.cloudServiceTracker.close();
@@ -206,6 +232,11 @@ public final class CloudPublisher implements WireReceiver, CloudClientListener,
      */
     protected void deactivate(final ComponentContext componentContext) {
         logger.debug(message.deactivatingCloudPublisher());
+        synchronized (this.batchLock) {
+            stopBatching();
+            this.aggregator = null;
+        }
+
         // close the client
         closeCloudClient();
 
@@ -344,29 +375,133 @@ public final class CloudPublisher implements WireReceiver, CloudClientListener,
         requireNonNull(this.cloudClient, message.cloudClientNonNull());
         requireNonNull(wireRecords, message.wireRecordsNonNull());
 
+        if (isNull(this.aggregator)) {
+            publish(wireRecords, null);
+            return;
+        }
+        synchronized (this.batchLock) {
+            // the configuration might have changed while waiting for the lock
+            publish(wireRecords, this.aggregator);
+        }
+    }
+
+    /**
+     * Publishes the list of provided {@link WireRecord}s, adding them to the aggregator if there is one.
+     *
+     * @param wireRecords
+     *            the provided list of {@link WireRecord}s
+     * @param recordAggregator
+     *            the aggregator, null if batching is disabled
+     */
+    private void publish(final List<WireRecord> wireRecords, final WireRecordAggregator recordAggregator) {
         try {
             for (final WireRecord dataRecord : wireRecords) {
                 // prepare the topic
                 final String appTopic = buildPublishAppTopic(dataRecord);
 
-                final KuraPayload kuraPayload = buildKuraPayload(dataRecord);
-                if (this.cloudPublisherOptions.isControlMessage()) {
-                    this.cloudClient.controlPublish(appTopic, kuraPayload,
-                            this.cloudPublisherOptions.getPublishingQos(),
-                            this.cloudPublisherOptions.getPublishingRetain(),
-                            this.cloudPublisherOptions.getPublishingPriority());
+                if (nonNull(recordAggregator)) {
+                    final KuraPayload kuraPayload = recordAggregator.add(appTopic, dataRecord,
+                            System.currentTimeMillis());
+                    if (nonNull(kuraPayload)) {
+                        publish(appTopic, kuraPayload);
+                    }
                 } else {
-                    this.cloudClient.publish(appTopic, kuraPayload, this.cloudPublisherOptions.getPublishingQos(),
-                            this.cloudPublisherOptions.getPublishingRetain(),
-                            this.cloudPublisherOptions.getPublishingPriority());
+                    publish(appTopic, buildKuraPayload(dataRecord));
                 }
+            }
+        } catch (final Exception e) {
+            logger.error(message.errorPublishingWireRecords(), e);
+        }
+    }
+
+    /**
+     * Publishes the provided Kura payload.
+     *
+     * @param appTopic
+     *            the application topic
+     * @param kuraPayload
+     *            the Kura payload
+     * @throws KuraException
+     *             if publishing fails
+     */
+    private void publish(final String appTopic, final KuraPayload kuraPayload) throws KuraException {
+        final CloudClient client = this.cloudClient;
+        requireNonNull(client, message.cloudClientNonNull());
+
+        if (this.cloudPublisherOptions.isControlMessage()) {
+            client.controlPublish(appTopic, kuraPayload, this.cloudPublisherOptions.getPublishingQos(),
+                    this.cloudPublisherOptions.getPublishingRetain(),
+                    this.cloudPublisherOptions.getPublishingPriority());
+        } else {
+            client.publish(appTopic, kuraPayload, this.cloudPublisherOptions.getPublishingQos(),
+                    this.cloudPublisherOptions.getPublishingRetain(),
+                    this.cloudPublisherOptions.getPublishingPriority());
+        }
+    }
 
+    /**
+     * Publishes the pending batches of aggregated {@link WireRecord}s.
+     */
+    private void publishPendingBatches() {
+        final WireRecordAggregator recordAggregator = this.aggregator;
+        if (isNull(recordAggregator)) {
+            return;
+        }
+
+        try {
+            for (final Entry<String, KuraPayload> entry : recordAggregator.drain().entrySet()) {
+                publish(entry.getKey(), entry.getValue());
             }
         } catch (final Exception e) {
             logger.error(message.errorPublishingWireRecords(), e);
         }
     }
 
+    /**
+     * Starts aggregating the received {@link WireRecord}s, if a batch size greater than one is configured. The
+     * aggregator of the previous configuration, if any, is replaced.
+     */
+    private void startBatching() {
+        final int batchSize = this.cloudPublisherOptions.getBatchSize();
+        if (batchSize <= 1) {
+            this.aggregator = null;
+            return;
+        }
+
+        final long batchInterval = this.cloudPublisherOptions.getBatchInterval();
+        synchronized (this.batchLock) {
+            this.aggregator = new WireRecordAggregator(batchSize);
+            this.batchExecutor = Executors.newSingleThreadScheduledExecutor();
+            this.batchExecutor.scheduleWithFixedDelay(this::publishPendingBatches, batchInterval, batchInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic publishing of the batches, letting a running one complete, and publishes the pending
+     * batches. The aggregator is left in place, so that the records received meanwhile keep waiting for the lock
+     * instead of being published one by one; the caller replaces or clears it while holding the lock.
+     */
+    private void stopBatching() {
+        synchronized (this.batchLock) {
+            if (nonNull(this.batchExecutor)) {
+                this.batchExecutor.shutdown();
+                try {
+                    if (!this.batchExecutor.awaitTermination(BATCH_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        logger.warn("Timeout while waiting for the running batch to be published");
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.warn("Interrupted while waiting for the running batch to be published");
+                }
+                this.batchExecutor = null;
+            }
+            if (nonNull(this.cloudClient)) {
+                publishPendingBatches();
+            }
+        }
+    }
+
     private String buildPublishAppTopic(WireRecord dataRecord) {
         Matcher matcher = TOPIC_PATTERN.matcher(this.cloudPublisherOptions.getPublishingTopic());
         StringBuffer buffer = new StringBuffer();
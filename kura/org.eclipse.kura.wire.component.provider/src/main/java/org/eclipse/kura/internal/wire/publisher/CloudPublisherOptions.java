@@ -31,6 +31,12 @@ final class CloudPublisherOptions {
 
     private static final String CLOUD_SERVICE_PID = "cloud.service.pid";
 
+    /** The Constant denoting the number of records aggregated in a single message. */
+    private static final String CONF_BATCH_SIZE = "publish.batch.size";
+
+    /** The Constant denoting the maximum time in milliseconds a record waits to be published. */
+    private static final String CONF_BATCH_INTERVAL = "publish.batch.interval";
+
     /** The Constant denoting the publisher application. */
     private static final String CONF_APPLICATION = "publish.application";
 
@@ -52,6 +58,10 @@ final class CloudPublisherOptions {
     /** The Constant application to perform (either publish or subscribe). */
     private static final String DEFAULT_APPLICATION = "W1";
 
+    private static final int DEFAULT_BATCH_SIZE = 1;
+
+    private static final int DEFAULT_BATCH_INTERVAL = 1000;
+
     private static final boolean DEFAULT_CONTROL_MESSAGE = false;
 
     private static final int DEFAULT_PRIORITY = 7;
@@ -174,4 +184,32 @@ final class CloudPublisherOptions {
         }
         return isControlMessage;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the number of records to be aggregated in a single message.
+     *
+     * @return the batch size, 1 if records are published one at a time
+     */
+    int getBatchSize() {
+        int batchSize = DEFAULT_BATCH_SIZE;
+        final Object size = this.properties.get(CONF_BATCH_SIZE);
+        if (nonNull(size) && size instanceof Integer) {
+            batchSize = (Integer) size;
+        }
+        return batchSize;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds an aggregated record waits before being published.
+     *
+     * @return the batch interval
+     */
+    long getBatchInterval() {
+        int batchInterval = DEFAULT_BATCH_INTERVAL;
+        final Object interval = this.properties.get(CONF_BATCH_INTERVAL);
+        if (nonNull(interval) && interval instanceof Integer && (Integer) interval > 0) {
+            batchInterval = (Integer) interval;
+        }
+        return batchInterval;
+    }
+}
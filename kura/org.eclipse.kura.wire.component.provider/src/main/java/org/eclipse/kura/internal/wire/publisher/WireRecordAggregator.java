@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.publisher;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireRecord;
+
+/**
+ * The Class WireRecordAggregator collects {@link WireRecord}s per publishing topic, so that the
+ * {@link CloudPublisher} can publish them as a single message.<br/>
+ * <br/>
+ *
+ * A batch of records is converted to a columnar {@link KuraPayload}, whose timestamp is the arrival time of the
+ * first record. For the record at index {@code i} in the batch, every property {@code key} is added as the metric
+ * {@code key.i} and the arrival time of the record as the metric {@code timestamp.i}. The records are kept in arrival
+ * order and indexed by their position in the batch, so records arriving within the same millisecond are all
+ * published. If a record has its own {@code timestamp} property, its value is published instead of the arrival time.
+ */
+final class WireRecordAggregator {
+
+    private static final String SAMPLE_SEPARATOR = ".";
+    private static final String TIMESTAMP = "timestamp";
+
+    private final int batchSize;
+
+    private final Map<String, List<Sample>> batches = new LinkedHashMap<>();
+
+    /**
+     * Instantiates a new aggregator.
+     *
+     * @param batchSize
+     *            the number of records that completes a batch
+     */
+    WireRecordAggregator(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds a record to the batch of the provided topic.
+     *
+     * @param topic
+     *            the publishing topic of the record
+     * @param wireRecord
+     *            the record
+     * @param timestamp
+     *            the arrival time of the record
+     * @return the payload of the batch if the record completes it, null otherwise
+     */
+    synchronized KuraPayload add(final String topic, final WireRecord wireRecord, final long timestamp) {
+        List<Sample> batch = this.batches.get(topic);
+        if (batch == null) {
+            batch = new ArrayList<>(this.batchSize);
+            this.batches.put(topic, batch);
+        }
+        batch.add(new Sample(wireRecord, timestamp));
+
+        if (batch.size() >= this.batchSize) {
+            this.batches.remove(topic);
+            return buildKuraPayload(batch);
+        }
+        return null;
+    }
+
+    /**
+     * Removes all the pending batches.
+     *
+     * @return the payloads of the pending batches, by publishing topic
+     */
+    synchronized Map<String, KuraPayload> drain() {
+        final Map<String, KuraPayload> payloads = new LinkedHashMap<>();
+        for (final Entry<String, List<Sample>> entry : this.batches.entrySet()) {
+            payloads.put(entry.getKey(), buildKuraPayload(entry.getValue()));
+        }
+        this.batches.clear();
+        return payloads;
+    }
+
+    private static KuraPayload buildKuraPayload(final List<Sample> batch) {
+        final KuraPayload kuraPayload = new KuraPayload();
+        kuraPayload.setTimestamp(new Date(batch.get(0).timestamp));
+
+        for (int i = 0; i < batch.size(); i++) {
+            final Sample sample = batch.get(i);
+            final String suffix = SAMPLE_SEPARATOR + i;
+            final Map<String, TypedValue<?>> properties = sample.wireRecord.getProperties();
+            if (!properties.containsKey(TIMESTAMP)) {
+                kuraPayload.addMetric(TIMESTAMP + suffix, sample.timestamp);
+            }
+            for (final Entry<String, TypedValue<?>> entry : properties.entrySet()) {
+                kuraPayload.addMetric(entry.getKey() + suffix, entry.getValue().getValue());
+            }
+        }
+        return kuraPayload;
+    }
+
+    private static final class Sample {
+
+        private final WireRecord wireRecord;
+        private final long timestamp;
+
+        private Sample(final WireRecord wireRecord, final long timestamp) {
+            this.wireRecord = wireRecord;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -26,10 +26,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.MessageFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.db.DbService;
@@ -47,6 +48,7 @@ import org.eclipse.kura.type.LongValue;
 import org.eclipse.kura.type.StringValue;
 import org.eclipse.kura.type.TypedValue;
 import org.eclipse.kura.util.collection.CollectionUtil;
+import org.eclipse.kura.util.collection.WriteBehindQueue;
 import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireHelperService;
@@ -90,6 +92,10 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
 
     private static final String[] TABLE_TYPE = new String[] { "TABLE" };
 
+    private static final int WRITE_BEHIND_GROUP_SIZE = 500;
+
+    private static final long WRITE_BEHIND_TERMINATION_TIMEOUT_SECONDS = 10;
+
     private DbServiceHelper dbHelper;
 
     private volatile DbService dbService;
@@ -100,6 +106,8 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
 
     private WireSupport wireSupport;
 
+    private volatile WriteBehindQueue<WireRecord> writeBehindQueue;
+
     /**
      * Binds the DB service.
      *
@@ -159,6 +167,7 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
     protected void activate(final ComponentContext componentContext, final Map<String, Object> properties) {
         logger.debug(message.activatingStore());
         this.wireRecordStoreOptions = new DbWireRecordStoreOptions(properties);
+        this.writeBehindQueue = createWriteBehindQueue(this.wireRecordStoreOptions);
         this.dbHelper = DbServiceHelper.of(this.dbService);
         this.wireSupport = this.wireHelperService.newWireSupport(this);
 
@@ -173,10 +182,17 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
      * @param properties
      *            the updated service component properties
      */
-    public void updated(final Map<String, Object> properties) {
+    public synchronized void updated(final Map<String, Object> properties) {
         logger.debug(message.updatingStore());
         this.wireRecordStoreOptions = new DbWireRecordStoreOptions(properties);
 
+        // the records still queued are persisted with the new configuration
+        final WriteBehindQueue<WireRecord> oldWriteBehindQueue = this.writeBehindQueue;
+        this.writeBehindQueue = createWriteBehindQueue(this.wireRecordStoreOptions);
+        if (nonNull(oldWriteBehindQueue)) {
+            oldWriteBehindQueue.close();
+        }
+
         final String tableName = this.wireRecordStoreOptions.getTableName();
         reconcileDB(tableName);
         logger.debug(message.updatingStoreDone());
@@ -190,9 +206,49 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
      */
     protected void deactivate(final ComponentContext componentContext) {
         logger.debug(message.deactivatingStore());
+        closeWriteBehindQueue();
         logger.debug(message.deactivatingStoreDone());
     }
 
+    /**
+     * Creates the queue of the records to be persisted in background, if the write-behind mode is enabled.
+     *
+     * @param options
+     *            the configured options
+     * @return the queue, or null if the write-behind mode is disabled
+     */
+    private WriteBehindQueue<WireRecord> createWriteBehindQueue(final DbWireRecordStoreOptions options) {
+        if (!options.isWriteBehind()) {
+            return null;
+        }
+        return new WriteBehindQueue<>("DbWireRecordStore:" + options.getTableName(),
+                options.getWriteBehindQueueCapacity(), WRITE_BEHIND_GROUP_SIZE, options.isWriteBehindDiscardRecords(),
+                this::persist);
+    }
+
+    /**
+     * Closes the write-behind queue, waiting for the queued records to be persisted.
+     */
+    private void closeWriteBehindQueue() {
+        final WriteBehindQueue<WireRecord> queue = this.writeBehindQueue;
+        if (isNull(queue)) {
+            return;
+        }
+        this.writeBehindQueue = null;
+        queue.close();
+        try {
+            if (!queue.awaitTermination(WRITE_BEHIND_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Timeout while persisting the queued records, {} records not persisted",
+                        queue.getQueueDepth());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while persisting the queued records");
+        }
+        logger.info("Write-behind queue closed: {} records persisted, {} discarded, maximum commit latency {} ms",
+                queue.getWrittenCount(), queue.getDiscardedCount(), queue.getMaxWriteLatency());
+    }
+
     /**
      * Truncates tables containing {@link WireRecord}s
      */
@@ -273,10 +329,34 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void onWireReceive(final WireEnvelope wireEvelope) {
+    public void onWireReceive(final WireEnvelope wireEvelope) {
         requireNonNull(wireEvelope, message.wireEnvelopeNonNull());
         logger.debug(message.wireEnvelopeReceived() + this.wireSupport);
 
+        final List<WireRecord> records = wireEvelope.getRecords();
+
+        final WriteBehindQueue<WireRecord> queue = this.writeBehindQueue;
+        if (nonNull(queue)) {
+            // the records are persisted in background, without waiting for the database
+            for (final WireRecord wireRecord : records) {
+                requireNonNull(wireRecord, message.wireRecordNonNull());
+                queue.add(wireRecord);
+            }
+        } else {
+            persist(records);
+        }
+
+        // emit the list of Wire Records to the downstream components
+        this.wireSupport.emit(records);
+    }
+
+    /**
+     * Persists the provided {@link WireRecord}s, truncating the table first if it reached its maximum size
+     *
+     * @param records
+     *            the {@link WireRecord}s to be persisted
+     */
+    private synchronized void persist(final List<WireRecord> records) {
         try {
             if (getTableSize() >= this.wireRecordStoreOptions.getMaximumTableSize()) {
                 truncate();
@@ -285,34 +365,30 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
             logger.warn("Exception while trying to clean db");
         }
 
-        final List<WireRecord> records = wireEvelope.getRecords();
-        for (WireRecord wireRecord : records) {
-            store(wireRecord);
-        }
-
-        // emit the list of Wire Records to the downstream components
-        this.wireSupport.emit(records);
+        store(records);
     }
 
     /**
-     * Stores the provided {@link WireRecord} in the database
+     * Stores the provided {@link WireRecord}s in the database, in a single transaction
      *
-     * @param wireRecord
-     *            the {@link WireRecord} to be stored
+     * @param wireRecords
+     *            the {@link WireRecord}s to be stored
      * @throws NullPointerException
-     *             if the provided argument is null
+     *             if any of the provided records is null
      */
-    private void store(final WireRecord wireRecord) {
-        requireNonNull(wireRecord, message.wireRecordNonNull());
+    private void store(final List<WireRecord> wireRecords) {
+        if (wireRecords.isEmpty()) {
+            return;
+        }
         int retryCount = 0;
         final String tableName = this.wireRecordStoreOptions.getTableName();
         do {
             try {
-                insertDataRecord(tableName, wireRecord);
+                insertDataRecords(tableName, wireRecords);
                 break;
             } catch (final SQLException e) {
                 logger.error(message.insertionFailed(), e);
-                reconcileDB(wireRecord, tableName);
+                reconcileDB(wireRecords, tableName);
                 retryCount++;
             }
         } while (retryCount < 2);
@@ -321,16 +397,24 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
     /**
      * Tries to reconcile the database.
      *
-     * @param wireRecord
+     * @param wireRecords
      *            against which the database columns have to be reconciled.
      * @param tableName
      *            the table name in the database that needs to be reconciled.
      */
-    private void reconcileDB(final WireRecord wireRecord, final String tableName) {
+    private void reconcileDB(final List<WireRecord> wireRecords, final String tableName) {
         try {
             if (nonNull(tableName) && !tableName.isEmpty()) {
                 reconcileTable(tableName);
-                reconcileColumns(tableName, wireRecord);
+                List<String> columns = null;
+                for (final WireRecord wireRecord : wireRecords) {
+                    // consecutive records with the same columns are reconciled once
+                    final List<String> recordColumns = new ArrayList<>(wireRecord.getProperties().keySet());
+                    if (!recordColumns.equals(columns)) {
+                        reconcileColumns(tableName, wireRecord);
+                        columns = recordColumns;
+                    }
+                }
             }
         } catch (final SQLException ee) {
             logger.error(message.errorStoring(), ee);
@@ -461,43 +545,79 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
     }
 
     /**
-     * Insert the provided {@link WireRecord} to the specified table
+     * Inserts the provided {@link WireRecord}s to the specified table in a single transaction. The records with the
+     * same set of columns share a prepared statement, and consecutive records are inserted as one JDBC batch.
      *
      * @param tableName
      *            the table name
-     * @param wireRecord
-     *            the {@link WireRecord}
+     * @param wireRecords
+     *            the {@link WireRecord}s
      * @throws SQLException
      *             the SQL exception
      * @throws NullPointerException
      *             if any of the provided arguments is null
      */
-    private void insertDataRecord(final String tableName, final WireRecord wireRecord) throws SQLException {
+    private void insertDataRecords(final String tableName, final List<WireRecord> wireRecords) throws SQLException {
         requireNonNull(tableName, message.tableNameNonNull());
-        requireNonNull(wireRecord, message.wireRecordNonNull());
 
-        final Map<String, TypedValue<?>> wireRecordProperties = wireRecord.getProperties();
+        final long timestamp = System.currentTimeMillis();
 
         Connection connection = null;
-        PreparedStatement stmt = null;
+        final Map<List<String>, PreparedStatement> statements = CollectionUtil.newHashMap();
+        boolean autoCommit = true;
         try {
             connection = this.dbHelper.getConnection();
-            stmt = prepareStatement(connection, tableName, wireRecordProperties, new Date().getTime());
-            stmt.execute();
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            // prepare the statements of all the column sets first, so that a missing column fails before any insertion
+            final List<List<String>> recordColumns = CollectionUtil.newArrayListWithCapacity(wireRecords.size());
+            for (final WireRecord wireRecord : wireRecords) {
+                requireNonNull(wireRecord, message.wireRecordNonNull());
+
+                final List<String> columns = new ArrayList<>(wireRecord.getProperties().keySet());
+                if (!statements.containsKey(columns)) {
+                    statements.put(columns, connection.prepareStatement(buildInsertStatement(tableName, columns)));
+                }
+                recordColumns.add(columns);
+            }
+
+            // preserve the insertion order, flushing the batch whenever the column set changes
+            PreparedStatement batch = null;
+            for (int i = 0; i < wireRecords.size(); i++) {
+                final List<String> columns = recordColumns.get(i);
+                final PreparedStatement stmt = statements.get(columns);
+                if (stmt != batch) {
+                    if (nonNull(batch)) {
+                        batch.executeBatch();
+                    }
+                    batch = stmt;
+                }
+                setParameters(stmt, columns, wireRecords.get(i).getProperties(), timestamp);
+                stmt.addBatch();
+            }
+            batch.executeBatch();
             connection.commit();
             logger.debug(message.stored());
         } catch (final SQLException e) {
-            this.dbHelper.rollback(connection);
+            if (nonNull(connection)) {
+                this.dbHelper.rollback(connection);
+            }
             throw e;
         } finally {
-            this.dbHelper.close(stmt);
+            this.dbHelper.close(statements.values().toArray(new Statement[statements.size()]));
+            if (nonNull(connection)) {
+                try {
+                    connection.setAutoCommit(autoCommit);
+                } catch (final SQLException e) {
+                    logger.warn("Exception while restoring the auto-commit mode", e);
+                }
+            }
             this.dbHelper.close(connection);
         }
     }
 
-    private PreparedStatement prepareStatement(Connection connection, String tableName,
-            final Map<String, TypedValue<?>> properties, long timestamp) throws SQLException {
-
+    private String buildInsertStatement(final String tableName, final List<String> columns) {
         final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
         final StringBuilder sbCols = new StringBuilder();
         final StringBuilder sbVals = new StringBuilder();
@@ -506,22 +626,24 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
         sbCols.append("TIMESTAMP");
         sbVals.append("?");
 
-        int i = 2;
-        for (Entry<String, TypedValue<?>> entry : properties.entrySet()) {
-            final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(entry.getKey());
+        for (final String column : columns) {
+            final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(column);
             sbCols.append(", ").append(sqlColName);
             sbVals.append(", ?");
         }
 
         logger.debug(message.storingRecord(sqlTableName));
-        final String sqlInsert = MessageFormat.format(SQL_INSERT_RECORD, sqlTableName, sbCols.toString(),
-                sbVals.toString());
-        final PreparedStatement stmt = connection.prepareStatement(sqlInsert);
+        return MessageFormat.format(SQL_INSERT_RECORD, sqlTableName, sbCols.toString(), sbVals.toString());
+    }
+
+    private static void setParameters(final PreparedStatement stmt, final List<String> columns,
+            final Map<String, TypedValue<?>> properties, final long timestamp) throws SQLException {
         stmt.setLong(1, timestamp);
 
-        for (Entry<String, TypedValue<?>> entry : properties.entrySet()) {
-            final DataType dataType = entry.getValue().getType();
-            final Object value = entry.getValue();
+        int i = 2;
+        for (final String column : columns) {
+            final TypedValue<?> value = properties.get(column);
+            final DataType dataType = value.getType();
             switch (dataType) {
             case BOOLEAN:
                 stmt.setBoolean(i, ((BooleanValue) value).getValue());
@@ -551,7 +673,6 @@ public final class DbWireRecordStore implements WireEmitter, WireReceiver, Confi
             }
             i++;
         }
-        return stmt;
     }
 
     /** {@inheritDoc} */
@@ -37,6 +37,14 @@ final class DbWireRecordStoreOptions {
 
     private static final String TABLE_NAME = "table.name";
 
+    private static final String WRITE_BEHIND = "write.behind";
+
+    private static final String WRITE_BEHIND_QUEUE_CAPACITY = "write.behind.queue.capacity";
+
+    private static final String WRITE_BEHIND_DISCARD_RECORDS = "write.behind.discard.records";
+
+    private static final int DEFAULT_WRITE_BEHIND_QUEUE_CAPACITY = 1000;
+
     private final Map<String, Object> properties;
 
     /**
@@ -86,4 +94,39 @@ final class DbWireRecordStoreOptions {
         }
         return tableName;
     }
+
+    /**
+     * Returns whether the records are persisted by a background writer, after being emitted downstream.
+     *
+     * @return true if the write-behind mode is enabled
+     */
+    boolean isWriteBehind() {
+        final Object writeBehind = this.properties.get(WRITE_BEHIND);
+        return nonNull(writeBehind) && writeBehind instanceof Boolean && (Boolean) writeBehind;
+    }
+
+    /**
+     * Returns the maximum number of records waiting to be persisted in write-behind mode.
+     *
+     * @return the capacity of the queue
+     */
+    int getWriteBehindQueueCapacity() {
+        int capacity = DEFAULT_WRITE_BEHIND_QUEUE_CAPACITY;
+        final Object queueCapacity = this.properties.get(WRITE_BEHIND_QUEUE_CAPACITY);
+        if (nonNull(queueCapacity) && queueCapacity instanceof Integer && (Integer) queueCapacity > 0) {
+            capacity = (Integer) queueCapacity;
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns whether the records received while the write-behind queue is full are discarded, instead of blocking
+     * the upstream components.
+     *
+     * @return true if the records are discarded
+     */
+    boolean isWriteBehindDiscardRecords() {
+        final Object discard = this.properties.get(WRITE_BEHIND_DISCARD_RECORDS);
+        return nonNull(discard) && discard instanceof Boolean && (Boolean) discard;
+    }
 }
\ No newline at end of file
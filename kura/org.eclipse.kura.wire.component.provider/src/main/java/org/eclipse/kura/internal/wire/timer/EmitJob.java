@@ -13,15 +13,10 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.wire.timer;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Collections;
 
-import org.eclipse.kura.type.TypedValue;
-import org.eclipse.kura.type.TypedValues;
 import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireRecordSchema;
 import org.eclipse.kura.wire.WireSupport;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
@@ -38,6 +33,8 @@ public final class EmitJob implements Job {
     /** Timer Field Constant */
     private static final String PROP = "TIMER";
 
+    private static final WireRecordSchema schema = new WireRecordSchema(Collections.singletonList(PROP));
+
     /**
      * Emits a {@link WireRecord} every specified interval.
      *
@@ -49,17 +46,17 @@ public final class EmitJob implements Job {
     @Override
     public void execute(final JobExecutionContext context) throws JobExecutionException {
         final TimerJobDataMap dataMap = (TimerJobDataMap) context.getJobDetail().getJobDataMap();
-        final WireSupport wireSupport = dataMap.getWireSupport();
-
-        final long currentTime = new Date().getTime();
-        final TypedValue<Long> timestamp = TypedValues.newLongValue(currentTime);
-        final Map<String, TypedValue<?>> timerProperties = new HashMap<>();
-        timerProperties.put(PROP, timestamp);
-
-        final WireRecord timerWireRecord = new WireRecord(timerProperties);
-        final List<WireRecord> timerWireRecords = new ArrayList<>();
-        timerWireRecords.add(timerWireRecord);
+        emit(dataMap.getWireSupport());
+    }
 
-        wireSupport.emit(timerWireRecords);
+    /**
+     * Emits a {@link WireRecord} containing the current time.
+     *
+     * @param wireSupport
+     *            the wire support of the Timer
+     */
+    static void emit(final WireSupport wireSupport) {
+        final WireRecord timerWireRecord = schema.newRecordBuilder().setLong(0, System.currentTimeMillis()).build();
+        wireSupport.emit(Collections.singletonList(timerWireRecord));
     }
 }
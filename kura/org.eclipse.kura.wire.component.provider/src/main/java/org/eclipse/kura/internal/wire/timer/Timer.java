@@ -44,7 +44,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The Class Timer represents a Wire Component which triggers a ticking event on
- * every interval as configured. It fires the event on every tick.
+ * every interval as configured. It fires the event on every tick.<br/>
+ * <br/>
+ *
+ * The ticks are scheduled by Quartz, unless a simple interval is configured with the precise scheduler, in which
+ * case they are emitted by a {@link TimerTicker} dedicated to this Timer.
  */
 public class Timer implements WireEmitter, ConfigurableComponent {
 
@@ -61,6 +65,8 @@ public class Timer implements WireEmitter, ConfigurableComponent {
     /** Job Key for Quartz Scheduling */
     private JobKey jobKey;
 
+    private TimerTicker ticker;
+
     private TimerOptions timerOptions;
 
     private volatile WireHelperService wireHelperService;
@@ -140,6 +146,7 @@ public class Timer implements WireEmitter, ConfigurableComponent {
      */
     protected void deactivate(final ComponentContext ctx) {
         logger.debug(message.deactivatingTimer());
+        stopTicker();
 
         try {
             if (nonNull(this.jobKey)) {
@@ -187,6 +194,15 @@ public class Timer implements WireEmitter, ConfigurableComponent {
      *             if job scheduling fails
      */
     private void doUpdate() throws SchedulerException {
+        stopTicker();
+        if ("SIMPLE".equalsIgnoreCase(this.timerOptions.getType()) && this.timerOptions.isPreciseScheduler()) {
+            if (nonNull(this.jobKey)) {
+                getScheduler().deleteJob(this.jobKey);
+                this.jobKey = null;
+            }
+            startTicker(this.timerOptions.getSimpleInterval() * this.timerOptions.getSimpleTimeUnitMultiplier());
+            return;
+        }
         if ("SIMPLE".equalsIgnoreCase(this.timerOptions.getType())) {
             scheduleSimpleInterval(
                     this.timerOptions.getSimpleInterval() * this.timerOptions.getSimpleTimeUnitMultiplier());
@@ -196,6 +212,30 @@ public class Timer implements WireEmitter, ConfigurableComponent {
         scheduleCronInterval(cronExpression);
     }
 
+    /**
+     * Starts emitting the ticks with the built-in ticker
+     *
+     * @param interval
+     *            the interval in milliseconds
+     * @throws IllegalArgumentException
+     *             if the interval is less than or equal to zero
+     */
+    private void startTicker(final long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException(message.intervalNonLessThanEqualToZero());
+        }
+        this.ticker = new TimerTicker(String.valueOf(nextJobId.incrementAndGet()), this.wireSupport, interval,
+                this.timerOptions.getMissedTickPolicy(), this.timerOptions.isEmitStatistics());
+        this.ticker.start();
+    }
+
+    private void stopTicker() {
+        if (nonNull(this.ticker)) {
+            this.ticker.stop();
+            this.ticker = null;
+        }
+    }
+
     /**
      * Creates a trigger based on the provided interval
      *
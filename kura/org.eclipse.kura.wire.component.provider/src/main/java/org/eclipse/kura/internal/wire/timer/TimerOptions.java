@@ -40,6 +40,15 @@ final class TimerOptions {
 
     private static final String PROP_INTERVAL_TYPE = "type";
 
+    private static final String PROP_SIMPLE_SCHEDULER = "simple.scheduler";
+
+    private static final String PROP_SIMPLE_MISSED_TICKS = "simple.missed.ticks";
+
+    private static final String PROP_SIMPLE_STATISTICS = "simple.statistics";
+
+    /** The value of the scheduler property selecting the built-in ticker */
+    static final String SCHEDULER_PRECISE = "PRECISE";
+
     private final Map<String, Object> properties;
 
     /**
@@ -115,4 +124,38 @@ final class TimerOptions {
 
         return timeUnit.toMillis(1);
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks if the ticks of a simple interval are emitted by the built-in ticker rather than by Quartz.
+     *
+     * @return true if the built-in ticker is used
+     */
+    boolean isPreciseScheduler() {
+        return SCHEDULER_PRECISE.equals(this.properties.get(PROP_SIMPLE_SCHEDULER));
+    }
+
+    /**
+     * Returns the policy of the built-in ticker for the ticks that could not be emitted at their scheduled time.
+     *
+     * @return the configured policy
+     * @throws IllegalArgumentException
+     *             if the configured policy is not valid
+     */
+    TimerTicker.MissedTickPolicy getMissedTickPolicy() {
+        final Object policy = this.properties.get(PROP_SIMPLE_MISSED_TICKS);
+        if (nonNull(policy) && policy instanceof String) {
+            return TimerTicker.MissedTickPolicy.valueOf((String) policy);
+        }
+        return TimerTicker.MissedTickPolicy.FIRE_ONCE;
+    }
+
+    /**
+     * Checks if the built-in ticker emits its statistics with each tick.
+     *
+     * @return true if the number of missed ticks and the jitter are emitted
+     */
+    boolean isEmitStatistics() {
+        final Object statistics = this.properties.get(PROP_SIMPLE_STATISTICS);
+        return nonNull(statistics) && statistics instanceof Boolean && (Boolean) statistics;
+    }
+}
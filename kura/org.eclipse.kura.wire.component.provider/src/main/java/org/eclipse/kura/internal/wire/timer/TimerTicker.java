@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.timer;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireRecordSchema;
+import org.eclipse.kura.wire.WireSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class TimerTicker emits the ticks of a Timer with a simple interval on a thread of its own, without going
+ * through Quartz.<br/>
+ * <br/>
+ *
+ * The ticks are scheduled on a fixed grid computed from the start time, so that the delays of the single ticks do
+ * not accumulate over time. When an emission takes longer than the interval, the ticks that could not be emitted in
+ * time are handled according to the configured {@link MissedTickPolicy}. The ticker keeps track of the delay of each
+ * tick from its scheduled time and of the missed ticks; if requested, these statistics are emitted with each tick.
+ */
+final class TimerTicker implements Runnable {
+
+    /**
+     * The policy for the ticks that could not be emitted at their scheduled time.
+     */
+    enum MissedTickPolicy {
+        /** The missed ticks are emitted one after the other, as soon as possible. */
+        FIRE_ALL,
+        /** The missed ticks are replaced by a single tick, emitted as soon as possible. */
+        FIRE_ONCE,
+        /** The missed ticks are dropped, the next tick is emitted at its scheduled time. */
+        SKIP
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(TimerTicker.class);
+
+    /** The maximum time {@link #stop()} waits for the tick being emitted. */
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private static final int TIMER_INDEX = 0;
+
+    private static final int MISSED_TICKS_INDEX = 1;
+
+    private static final int JITTER_INDEX = 2;
+
+    private static final int MAX_JITTER_INDEX = 3;
+
+    private static final WireRecordSchema statisticsSchema = new WireRecordSchema(
+            Arrays.asList("TIMER", "MISSED_TICKS", "JITTER_MICROS", "MAX_JITTER_MICROS"));
+
+    private final WireSupport wireSupport;
+
+    private final long intervalNanos;
+
+    private final MissedTickPolicy missedTickPolicy;
+
+    private final boolean emitStatistics;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private long nextTick;
+
+    private volatile Thread tickerThread;
+
+    private volatile long tickCount;
+
+    private volatile long missedTickCount;
+
+    private volatile long lastJitterMicros;
+
+    private volatile long maxJitterMicros;
+
+    /**
+     * Instantiates a new timer ticker.
+     *
+     * @param name
+     *            the name of the ticker thread
+     * @param wireSupport
+     *            the wire support emitting the ticks
+     * @param intervalMillis
+     *            the interval between the ticks, in milliseconds
+     * @param missedTickPolicy
+     *            the policy for the missed ticks
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if the interval is not positive
+     */
+    TimerTicker(final String name, final WireSupport wireSupport, final long intervalMillis,
+            final MissedTickPolicy missedTickPolicy) {
+        this(name, wireSupport, intervalMillis, missedTickPolicy, false);
+    }
+
+    /**
+     * Instantiates a new timer ticker.
+     *
+     * @param name
+     *            the name of the ticker thread
+     * @param wireSupport
+     *            the wire support emitting the ticks
+     * @param intervalMillis
+     *            the interval between the ticks, in milliseconds
+     * @param missedTickPolicy
+     *            the policy for the missed ticks
+     * @param emitStatistics
+     *            true to emit the number of missed ticks and the jitter with each tick
+     * @throws NullPointerException
+     *             if any of the arguments is null
+     * @throws IllegalArgumentException
+     *             if the interval is not positive
+     */
+    TimerTicker(final String name, final WireSupport wireSupport, final long intervalMillis,
+            final MissedTickPolicy missedTickPolicy, final boolean emitStatistics) {
+        requireNonNull(name, "Name cannot be null");
+        requireNonNull(wireSupport, "Wire Support cannot be null");
+        requireNonNull(missedTickPolicy, "Missed tick policy cannot be null");
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+
+        this.wireSupport = wireSupport;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.missedTickPolicy = missedTickPolicy;
+        this.emitStatistics = emitStatistics;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "TimerTicker:" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the next tick, already scheduled, is cancelled on stop
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Starts emitting the ticks, the first one after an interval.
+     */
+    void start() {
+        this.nextTick = System.nanoTime() + this.intervalNanos;
+        this.executor.schedule(this, this.intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops emitting the ticks. A tick being emitted is not interrupted: this method waits for its end, for at most
+     * {@link #STOP_TIMEOUT_MILLIS}, unless called while emitting the tick.
+     */
+    void stop() {
+        this.executor.shutdown();
+        try {
+            if (Thread.currentThread() != this.tickerThread
+                    && !this.executor.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                logger.warn("Timer ticker stopped while still emitting a tick");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Timer ticker stopped: {} ticks, {} missed, maximum jitter {} us", this.tickCount,
+                this.missedTickCount, this.maxJitterMicros);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+        this.tickerThread = Thread.currentThread();
+        final long jitterMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - this.nextTick);
+        this.lastJitterMicros = jitterMicros;
+        if (jitterMicros > this.maxJitterMicros) {
+            this.maxJitterMicros = jitterMicros;
+        }
+        this.tickCount++;
+
+        try {
+            if (this.emitStatistics) {
+                emitWithStatistics();
+            } else {
+                EmitJob.emit(this.wireSupport);
+            }
+        } catch (final Exception e) {
+            logger.warn("Unexpected exception while emitting timer tick", e);
+        }
+
+        scheduleNextTick();
+    }
+
+    private void emitWithStatistics() {
+        final WireRecord wireRecord = statisticsSchema.newRecordBuilder()
+                .setLong(TIMER_INDEX, System.currentTimeMillis()) //
+                .setLong(MISSED_TICKS_INDEX, this.missedTickCount) //
+                .setLong(JITTER_INDEX, this.lastJitterMicros) //
+                .setLong(MAX_JITTER_INDEX, this.maxJitterMicros) //
+                .build();
+        this.wireSupport.emit(Collections.singletonList(wireRecord));
+    }
+
+    private void scheduleNextTick() {
+        this.nextTick += this.intervalNanos;
+
+        final long now = System.nanoTime();
+        final long late = now - this.nextTick;
+        if (late >= 0 && this.missedTickPolicy != MissedTickPolicy.FIRE_ALL) {
+            // the ticks scheduled before now, except the last one, are missed
+            final long missed = late / this.intervalNanos;
+            this.nextTick += missed * this.intervalNanos;
+            if (this.missedTickPolicy == MissedTickPolicy.SKIP) {
+                this.nextTick += this.intervalNanos;
+                this.missedTickCount += missed + 1;
+            } else {
+                this.missedTickCount += missed;
+            }
+        }
+
+        if (!this.executor.isShutdown()) {
+            try {
+                this.executor.schedule(this, Math.max(0, this.nextTick - now), TimeUnit.NANOSECONDS);
+            } catch (final RejectedExecutionException e) {
+                // stopped meanwhile
+            }
+        }
+    }
+
+    /**
+     * Returns the number of emitted ticks.
+     *
+     * @return the number of ticks
+     */
+    long getTickCount() {
+        return this.tickCount;
+    }
+
+    /**
+     * Returns the number of ticks not emitted, or merged with another tick, because of a late emission.
+     *
+     * @return the number of missed ticks
+     */
+    long getMissedTickCount() {
+        return this.missedTickCount;
+    }
+
+    /**
+     * Returns the delay of the last tick from its scheduled time.
+     *
+     * @return the jitter in microseconds
+     */
+    long getLastJitterMicros() {
+        return this.lastJitterMicros;
+    }
+
+    /**
+     * Returns the largest delay of a tick from its scheduled time.
+     *
+     * @return the jitter in microseconds
+     */
+    long getMaxJitterMicros() {
+        return this.maxJitterMicros;
+    }
+}
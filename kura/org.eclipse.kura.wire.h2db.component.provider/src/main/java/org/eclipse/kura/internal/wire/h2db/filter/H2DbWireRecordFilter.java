@@ -20,16 +20,21 @@ import static org.eclipse.kura.configuration.ConfigurationService.KURA_SERVICE_P
 
 import java.sql.Blob;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.db.H2DbService;
@@ -59,7 +64,19 @@ import org.slf4j.LoggerFactory;
 /**
  * The Class DbWireRecordFilter is responsible for representing a wire component
  * which is focused on performing an user defined SQL query in a database table and emitting the result as a Wire
- * Envelope.
+ * Envelope.<br/>
+ * <br/>
+ *
+ * If an incremental column is configured, the SQL query is executed as a subquery filtered on the last value of that
+ * column read so far, so that each database read only fetches the rows added since the previous one. Unless the
+ * incremental column is {@code ID}, the rows sharing the same value of the column are ordered by their {@code ID},
+ * which must be part of the query result, and the last value of both columns is tracked, so that no row is skipped
+ * when a read ends in the middle of them. Each read is bounded by the {@code LIMIT} at the end of the SQL query, if
+ * any, or by {@link #DEFAULT_INCREMENTAL_LIMIT} rows, the remaining rows being fetched by the next reads.<br/>
+ * <br/>
+ *
+ * If a maximum number of records per envelope is configured, larger results are emitted as multiple envelopes. The
+ * envelopes are built while reading the result, and in incremental mode each one is emitted as soon as it is complete.
  */
 public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, ConfigurableComponent {
 
@@ -67,7 +84,28 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
 
     private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
 
-    private List<WireRecord> lastRecords;
+    private static final String SQL_INCREMENTAL_QUERY = "SELECT * FROM ({0}) WHERE {1} > ? ORDER BY {1} LIMIT {2};";
+
+    private static final String SQL_INCREMENTAL_FIRST_QUERY = "SELECT * FROM ({0}) ORDER BY {1} LIMIT {2};";
+
+    private static final String SQL_INCREMENTAL_ID_QUERY = "SELECT * FROM ({0}) WHERE {1} > ? OR {1} = ? AND {2} > ? ORDER BY {1}, {2} LIMIT {3};";
+
+    private static final String SQL_INCREMENTAL_ID_FIRST_QUERY = "SELECT * FROM ({0}) ORDER BY {1}, {2} LIMIT {3};";
+
+    /** A query ending with a row limit, the limit being the second group. */
+    private static final Pattern SQL_LIMIT = Pattern.compile("(?is)(.*\\S)\\s+LIMIT\\s+(\\d+)");
+
+    private static final String ID_COLUMN = "ID";
+
+    /** The maximum number of rows fetched by an incremental read, if the query does not end with a limit. */
+    static final int DEFAULT_INCREMENTAL_LIMIT = 1000;
+
+    /** The envelopes of the last database read, in non incremental mode. */
+    private List<List<WireRecord>> lastRecords;
+
+    private Object lastIncrementalValue;
+
+    private Object lastIdValue;
 
     private H2DbServiceHelper dbHelper;
 
@@ -151,6 +189,9 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
         final String oldDbServicePid = this.options.getDbServiceInstancePid();
 
         this.options = new H2DbWireRecordFilterOptions(properties);
+        this.lastRecords = null;
+        this.lastIncrementalValue = null;
+        this.lastIdValue = null;
 
         if (!oldDbServicePid.equals(this.options.getDbServiceInstancePid())) {
             restartDbServiceTracker();
@@ -182,45 +223,136 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
         this.wireSupport.consumersConnected(wires);
     }
 
-    private List<WireRecord> performSQLQuery() throws SQLException {
-        final List<WireRecord> dataRecords = new ArrayList<>();
-
+    /**
+     * Reads the rows of the SQL view and passes them to the provided consumer, in envelopes of at most the configured
+     * maximum number of records. In incremental mode the last row read is tracked after each envelope.
+     */
+    private void performSQLQuery(final Consumer<List<WireRecord>> envelopeConsumer) throws SQLException {
         Connection conn = null;
         Statement stmt = null;
         ResultSet rset = null;
         final String sqlView = this.options.getSqlView();
+        final String incrementalColumn = this.options.getIncrementalColumn();
+        final int maxRecords = this.options.getEmitMaxRecords();
         try {
             conn = this.dbHelper.getConnection();
-            stmt = conn.createStatement();
-            rset = stmt.executeQuery(sqlView);
+            if (isNull(incrementalColumn)) {
+                stmt = conn.createStatement();
+                rset = stmt.executeQuery(sqlView);
+            } else {
+                final PreparedStatement pstmt = prepareIncrementalQuery(conn, sqlView, incrementalColumn);
+                stmt = pstmt;
+                rset = pstmt.executeQuery();
+            }
 
+            // the column labels are the same for every row
+            final String[] columnLabels = getColumnLabels(rset.getMetaData());
+            final int incrementalColumnIndex = isNull(incrementalColumn) ? -1
+                    : getColumnIndex(columnLabels, incrementalColumn);
+            final int idColumnIndex = isNull(incrementalColumn) || ID_COLUMN.equals(incrementalColumn) ? -1
+                    : getColumnIndex(columnLabels, ID_COLUMN);
+
+            List<WireRecord> records = new ArrayList<>();
+            Object incrementalValue = null;
+            Object idValue = null;
             while (rset.next()) {
-                final WireRecord wireRecord = new WireRecord(convertSQLRowToWireRecord(rset));
-                dataRecords.add(wireRecord);
+                records.add(new WireRecord(convertSQLRowToWireRecord(rset, columnLabels)));
+                if (incrementalColumnIndex > 0) {
+                    incrementalValue = rset.getObject(incrementalColumnIndex);
+                }
+                if (idColumnIndex > 0) {
+                    idValue = rset.getObject(idColumnIndex);
+                }
+                if (maxRecords > 0 && records.size() >= maxRecords) {
+                    envelopeConsumer.accept(Collections.unmodifiableList(records));
+                    updateIncrementalValues(incrementalValue, idValue);
+                    records = new ArrayList<>(maxRecords);
+                }
+            }
+            if (!records.isEmpty()) {
+                envelopeConsumer.accept(Collections.unmodifiableList(records));
+                updateIncrementalValues(incrementalValue, idValue);
             }
 
             logger.debug(message.refreshed());
-        } catch (final SQLException e) {
-            throw e;
         } finally {
             this.dbHelper.close(rset);
             this.dbHelper.close(stmt);
             this.dbHelper.close(conn);
         }
+    }
 
-        return dataRecords;
+    private void updateIncrementalValues(final Object incrementalValue, final Object idValue) {
+        if (nonNull(incrementalValue)) {
+            this.lastIncrementalValue = incrementalValue;
+            this.lastIdValue = idValue;
+        }
     }
 
-    private Map<String, TypedValue<?>> convertSQLRowToWireRecord(ResultSet rset) throws SQLException {
-        final Map<String, TypedValue<?>> wireRecordProperties = new HashMap<>();
-        final ResultSetMetaData rmet = rset.getMetaData();
-        for (int i = 1; i <= rmet.getColumnCount(); i++) {
-            String fieldName = rmet.getColumnLabel(i);
-            Object dbExtractedData = rset.getObject(i);
+    private PreparedStatement prepareIncrementalQuery(final Connection conn, final String sqlView,
+            final String incrementalColumn) throws SQLException {
+        String subquery = sqlView.trim();
+        while (subquery.endsWith(";")) {
+            subquery = subquery.substring(0, subquery.length() - 1).trim();
+        }
+
+        // a limit of the query, such as the one of the default query, bounds each read instead of the whole view
+        String limit = Integer.toString(DEFAULT_INCREMENTAL_LIMIT);
+        final Matcher limitMatcher = SQL_LIMIT.matcher(subquery);
+        if (limitMatcher.matches()) {
+            subquery = limitMatcher.group(1);
+            limit = limitMatcher.group(2);
+        }
 
+        final String sqlColumn = this.dbHelper.sanitizeSqlTableAndColumnName(incrementalColumn);
+        final boolean orderById = !ID_COLUMN.equals(incrementalColumn);
+        final String sqlIdColumn = this.dbHelper.sanitizeSqlTableAndColumnName(ID_COLUMN);
+
+        final PreparedStatement stmt;
+        if (isNull(this.lastIncrementalValue)) {
+            stmt = conn.prepareStatement(orderById
+                    ? MessageFormat.format(SQL_INCREMENTAL_ID_FIRST_QUERY, subquery, sqlColumn, sqlIdColumn, limit)
+                    : MessageFormat.format(SQL_INCREMENTAL_FIRST_QUERY, subquery, sqlColumn, limit));
+        } else if (orderById) {
+            stmt = conn.prepareStatement(
+                    MessageFormat.format(SQL_INCREMENTAL_ID_QUERY, subquery, sqlColumn, sqlIdColumn, limit));
+            stmt.setObject(1, this.lastIncrementalValue);
+            stmt.setObject(2, this.lastIncrementalValue);
+            stmt.setObject(3, this.lastIdValue);
+        } else {
+            stmt = conn.prepareStatement(MessageFormat.format(SQL_INCREMENTAL_QUERY, subquery, sqlColumn, limit));
+            stmt.setObject(1, this.lastIncrementalValue);
+        }
+        return stmt;
+    }
+
+    private static String[] getColumnLabels(final ResultSetMetaData rmet) throws SQLException {
+        final String[] columnLabels = new String[rmet.getColumnCount() + 1];
+        for (int i = 1; i < columnLabels.length; i++) {
+            String fieldName = rmet.getColumnLabel(i);
             if (isNull(fieldName)) {
                 fieldName = rmet.getColumnName(i);
             }
+            columnLabels[i] = fieldName;
+        }
+        return columnLabels;
+    }
+
+    private static int getColumnIndex(final String[] columnLabels, final String column) throws SQLException {
+        for (int i = 1; i < columnLabels.length; i++) {
+            if (column.equals(columnLabels[i])) {
+                return i;
+            }
+        }
+        throw new SQLException("Column " + column + " not found in the query result");
+    }
+
+    private Map<String, TypedValue<?>> convertSQLRowToWireRecord(final ResultSet rset, final String[] columnLabels)
+            throws SQLException {
+        final Map<String, TypedValue<?>> wireRecordProperties = new HashMap<>(columnLabels.length * 4 / 3 + 1);
+        for (int i = 1; i < columnLabels.length; i++) {
+            final String fieldName = columnLabels[i];
+            Object dbExtractedData = rset.getObject(i);
 
             if (isNull(dbExtractedData)) {
                 continue;
@@ -246,6 +378,8 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
      * The cache validity is determined by the {@link H2DbWireRecordFilterOptions#CONF_CACHE_EXPIRATION_INTERVAL}
      * property
      * provided by the user in the component configuration.
+     * In incremental mode the records read are emitted only once, as they are read, so nothing new is emitted until
+     * the next read.
      */
     @Override
     public synchronized void onWireReceive(final WireEnvelope wireEnvelope) {
@@ -256,26 +390,54 @@ public class H2DbWireRecordFilter implements WireEmitter, WireReceiver, Configur
             return;
         }
 
-        if (isCacheExpired() && this.dbHelper != null) {
-            refreshCachedRecords();
+        final List<List<WireRecord>> envelopes;
+        if (nonNull(this.options.getIncrementalColumn())) {
+            envelopes = Collections.emptyList();
+            if (isCacheExpired() && emitNewRecords() > 0) {
+                return;
+            }
+        } else {
+            if (isCacheExpired()) {
+                refreshCachedRecords();
+            }
+            envelopes = nonNull(this.lastRecords) ? this.lastRecords : Collections.<List<WireRecord>> emptyList();
         }
 
-        List<WireRecord> result;
-        if (nonNull(this.lastRecords)) {
-            result = Collections.unmodifiableList(this.lastRecords);
-        } else {
-            result = Collections.unmodifiableList(new ArrayList<WireRecord>());
+        if (envelopes.isEmpty()) {
+            if (this.options.emitOnEmptyResult()) {
+                this.wireSupport.emit(Collections.unmodifiableList(new ArrayList<WireRecord>()));
+            }
+            return;
+        }
+        for (final List<WireRecord> records : envelopes) {
+            this.wireSupport.emit(records);
         }
+    }
 
-        if (!result.isEmpty() || options.emitOnEmptyResult()) {
-            this.wireSupport.emit(result);
+    /**
+     * Reads the rows added since the last read and emits them while reading.
+     *
+     * @return the number of emitted envelopes, including the ones emitted before a failure
+     */
+    private int emitNewRecords() {
+        final List<List<WireRecord>> emitted = new ArrayList<>();
+        try {
+            performSQLQuery(records -> {
+                emitted.add(records);
+                this.wireSupport.emit(records);
+            });
+        } catch (SQLException e) {
+            logger.error(message.errorFiltering(), e);
         }
+        this.lastRefreshedTime = Calendar.getInstance(this.lastRefreshedTime.getTimeZone());
+        return emitted.size();
     }
 
     private void refreshCachedRecords() {
         try {
-            final List<WireRecord> tmpWireRecords = performSQLQuery();
-            this.lastRecords = tmpWireRecords;
+            final List<List<WireRecord>> envelopes = new ArrayList<>();
+            performSQLQuery(envelopes::add);
+            this.lastRecords = envelopes;
             this.lastRefreshedTime = Calendar.getInstance(this.lastRefreshedTime.getTimeZone());
         } catch (SQLException e) {
             logger.error(message.errorFiltering(), e);
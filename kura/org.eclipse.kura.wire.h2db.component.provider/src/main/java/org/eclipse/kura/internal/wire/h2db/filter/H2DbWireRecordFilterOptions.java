@@ -40,6 +40,10 @@ final class H2DbWireRecordFilterOptions {
 
     private static final String EMIT_ON_EMPTY_RESULT = "emit.on.empty.result";
 
+    private static final String INCREMENTAL_COLUMN = "incremental.column";
+
+    private static final String EMIT_MAX_RECORDS = "emit.max.records";
+
     private final Map<String, Object> properties;
 
     /**
@@ -98,4 +102,32 @@ final class H2DbWireRecordFilterOptions {
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the column used to fetch only the rows added since the last query.
+     *
+     * @return the configured column, or null if the incremental mode is disabled
+     */
+    String getIncrementalColumn() {
+        String incrementalColumn = null;
+        final Object column = this.properties.get(INCREMENTAL_COLUMN);
+        if (nonNull(column) && column instanceof String && !((String) column).trim().isEmpty()) {
+            incrementalColumn = ((String) column).trim();
+        }
+        return incrementalColumn;
+    }
+
+    /**
+     * Returns the maximum number of records emitted in a single envelope.
+     *
+     * @return the configured maximum, 0 if the records are not split
+     */
+    int getEmitMaxRecords() {
+        int emitMaxRecords = 0;
+        final Object maxRecords = this.properties.get(EMIT_MAX_RECORDS);
+        if (nonNull(maxRecords) && maxRecords instanceof Integer) {
+            emitMaxRecords = (Integer) maxRecords;
+        }
+        return emitMaxRecords;
+    }
+}
@@ -0,0 +1,618 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.h2db.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.kura.internal.wire.h2db.common.H2DbServiceHelper;
+import org.eclipse.kura.internal.wire.h2db.store.H2DbDataTypeMapper.JdbcType;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.util.collection.CollectionUtil;
+import org.eclipse.kura.wire.WireRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class H2DbPartitionedTable splits the records of a {@link H2DbWireRecordStore} across time partitions.<br/>
+ * <br/>
+ *
+ * Each partition is a table named after the store table, followed by {@code _P} and the start of its time bucket in
+ * milliseconds since the epoch. The records are always inserted in the most recent partition, and a new partition is
+ * created when a record falls after the end of its bucket. The store table name is a view, the union of all the
+ * partitions, so that the records can be queried as if they were in a single table.<br/>
+ * <br/>
+ *
+ * The retention drops whole partitions, starting from the oldest one, as long as the remaining partitions contain
+ * at least the number of records to keep. Only if this is not enough to bring the table below its maximum size, or if
+ * no record has to be kept, the oldest remaining records are deleted row by row.<br/>
+ * <br/>
+ *
+ * The identities of the partitions continue one another, so that the {@code ID} column is unique in the view. The
+ * number of records in each partition is tracked, so that the partitions are counted only when loaded.
+ */
+final class H2DbPartitionedTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(H2DbPartitionedTable.class);
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private static final String COLUMN_NAME = "COLUMN_NAME";
+
+    private static final String DATA_TYPE = "DATA_TYPE";
+
+    private static final String TABLE_NAME = "TABLE_NAME";
+
+    private static final String TYPE_NAME = "TYPE_NAME";
+
+    private static final String PARTITION_SEPARATOR = "_P";
+
+    private static final String SQL_ADD_COLUMN = "ALTER TABLE {0} ADD COLUMN {1} {2};";
+
+    private static final String SQL_CREATE_PARTITION = "CREATE TABLE IF NOT EXISTS {0} (ID BIGINT GENERATED BY DEFAULT AS IDENTITY(START WITH {1}, INCREMENT BY 1) PRIMARY KEY, TIMESTAMP BIGINT);";
+
+    private static final String SQL_CREATE_TABLE_INDEX = "CREATE INDEX IF NOT EXISTS {0} ON {1} (TIMESTAMP DESC);";
+
+    private static final String SQL_CREATE_VIEW = "CREATE OR REPLACE VIEW {0} AS {1};";
+
+    private static final String SQL_DELETE_RANGE_TABLE = "DELETE FROM {0} WHERE rownum() <= (SELECT count(*) FROM {0}) - {1};";
+
+    private static final String SQL_DROP_COLUMN = "ALTER TABLE {0} DROP COLUMN {1};";
+
+    private static final String SQL_DROP_TABLE = "DROP TABLE IF EXISTS {0};";
+
+    private static final String SQL_DROP_VIEW = "DROP VIEW IF EXISTS {0};";
+
+    private static final String SQL_INSERT_SELECT = "INSERT INTO {0} ({1}) SELECT {1} FROM {2} ORDER BY ID;";
+
+    private static final String SQL_MAX_ID = "SELECT MAX(ID) FROM {0};";
+
+    private static final String SQL_MIN_TIMESTAMP = "SELECT MIN(TIMESTAMP) FROM {0};";
+
+    private static final String SQL_RENAME_TABLE = "ALTER TABLE {0} RENAME TO {1};";
+
+    private static final String SQL_ROW_COUNT_TABLE = "SELECT COUNT(*) FROM {0};";
+
+    private static final String SQL_TRUNCATE_TABLE = "TRUNCATE TABLE {0};";
+
+    private static final String[] TABLE_TYPE = new String[] { "TABLE" };
+
+    private static final String[] VIEW_TYPE = new String[] { "VIEW" };
+
+    private final H2DbServiceHelper dbHelper;
+
+    private final String tableName;
+
+    private final long interval;
+
+    private final LongSupplier clock;
+
+    /** The number of records in each partition, by start of time bucket. */
+    private final TreeMap<Long, Long> partitions = new TreeMap<>();
+
+    /**
+     * Instantiates a new partitioned table.
+     *
+     * @param dbHelper
+     *            the database helper
+     * @param tableName
+     *            the name of the view on the partitions
+     * @param interval
+     *            the length of the time bucket of a partition, in milliseconds
+     * @param clock
+     *            the source of the current time, in milliseconds since the epoch
+     * @throws NullPointerException
+     *             if any of the database helper, the table name or the clock is null
+     */
+    H2DbPartitionedTable(final H2DbServiceHelper dbHelper, final String tableName, final long interval,
+            final LongSupplier clock) {
+        requireNonNull(dbHelper, message.dbServiceNonNull());
+        requireNonNull(tableName, message.tableNameNonNull());
+        requireNonNull(clock);
+        this.dbHelper = dbHelper;
+        this.tableName = tableName;
+        this.interval = interval;
+        this.clock = clock;
+    }
+
+    /**
+     * Loads the existing partitions and counts their records, turning the table of an unpartitioned store into the
+     * oldest partition. Creates the first partition and the view if needed.
+     *
+     * @throws SQLException
+     *             the SQL exception
+     */
+    void reconcile() throws SQLException {
+        this.partitions.clear();
+        for (final String partition : listPartitions(this.dbHelper, this.tableName)) {
+            this.partitions.put(getBucket(partition), count(partition));
+        }
+
+        if (exists(this.tableName, TABLE_TYPE)) {
+            migrateTable();
+        }
+
+        if (this.partitions.isEmpty()) {
+            createPartition(getBucketStart(this.clock.getAsLong()), 1);
+        }
+        createView();
+    }
+
+    private void migrateTable() throws SQLException {
+        final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(this.tableName);
+        final Long minTimestamp = queryLong(MessageFormat.format(SQL_MIN_TIMESTAMP, sqlTableName));
+        long bucket = getBucketStart(isNull(minTimestamp) ? this.clock.getAsLong() : minTimestamp);
+        if (!this.partitions.isEmpty() && bucket >= this.partitions.firstKey()) {
+            // keep the records of the table older than the ones of the existing partitions
+            bucket = this.partitions.firstKey() - this.interval;
+        }
+
+        final String partition = getPartitionName(bucket);
+        logger.info("Turning table {} into partition {}", this.tableName, partition);
+        this.dbHelper.execute(MessageFormat.format(SQL_RENAME_TABLE, sqlTableName,
+                this.dbHelper.sanitizeSqlTableAndColumnName(partition)));
+        this.partitions.put(bucket, count(partition));
+    }
+
+    /**
+     * Returns the partition where the records with the provided timestamp are inserted, creating it if the timestamp
+     * falls after the bucket of the most recent partition.
+     *
+     * @param timestamp
+     *            the timestamp of the records
+     * @return the name of the partition
+     * @throws SQLException
+     *             the SQL exception
+     */
+    String getInsertPartition(final long timestamp) throws SQLException {
+        final long lastBucket = this.partitions.lastKey();
+        final long bucket = getBucketStart(timestamp);
+        if (bucket <= lastBucket) {
+            // records with an older timestamp, for instance after a clock change, go to the most recent partition
+            return getPartitionName(lastBucket);
+        }
+
+        final String lastPartition = getPartitionName(lastBucket);
+        final Long maxId = queryLong(
+                MessageFormat.format(SQL_MAX_ID, this.dbHelper.sanitizeSqlTableAndColumnName(lastPartition)));
+        final Map<String, String> columns = getColumnTypes(lastPartition);
+
+        final String partition = createPartition(bucket, isNull(maxId) ? 1 : maxId + 1);
+        final String sqlPartition = this.dbHelper.sanitizeSqlTableAndColumnName(partition);
+        for (final Entry<String, String> column : columns.entrySet()) {
+            this.dbHelper.execute(MessageFormat.format(SQL_ADD_COLUMN, sqlPartition, column.getKey(),
+                    column.getValue()));
+        }
+        createView();
+        return partition;
+    }
+
+    /**
+     * Adds the provided number of records to the count of the most recent partition.
+     *
+     * @param count
+     *            the number of inserted records
+     */
+    void addRecords(final int count) {
+        final Entry<Long, Long> last = this.partitions.lastEntry();
+        this.partitions.put(last.getKey(), last.getValue() + count);
+    }
+
+    /**
+     * Returns the number of records in all the partitions.
+     *
+     * @return the number of records
+     */
+    long getSize() {
+        long size = 0;
+        for (final long count : this.partitions.values()) {
+            size += count;
+        }
+        return size;
+    }
+
+    /**
+     * Removes the oldest records, keeping at least the provided number of records.
+     *
+     * @param noOfRecordsToKeep
+     *            the number of records to keep
+     * @param maximumSize
+     *            the maximum number of records that can remain after dropping whole partitions
+     * @throws SQLException
+     *             the SQL exception
+     */
+    void truncate(final int noOfRecordsToKeep, final int maximumSize) throws SQLException {
+        long size = getSize();
+        final List<Long> droppedBuckets = new ArrayList<>();
+        while (this.partitions.size() > 1 && size - this.partitions.firstEntry().getValue() >= noOfRecordsToKeep) {
+            final Entry<Long, Long> oldest = this.partitions.pollFirstEntry();
+            droppedBuckets.add(oldest.getKey());
+            size -= oldest.getValue();
+        }
+        if (!droppedBuckets.isEmpty()) {
+            // the view is replaced by one on the remaining partitions first, so that the table is always queryable
+            createView();
+            for (final Long bucket : droppedBuckets) {
+                final String partition = getPartitionName(bucket);
+                logger.info("Dropping partition {}", partition);
+                this.dbHelper.execute(
+                        MessageFormat.format(SQL_DROP_TABLE, this.dbHelper.sanitizeSqlTableAndColumnName(partition)));
+            }
+        }
+
+        if (size <= noOfRecordsToKeep || noOfRecordsToKeep > 0 && size < maximumSize) {
+            return;
+        }
+
+        // the oldest partition still holds too many records, delete them row by row
+        final Entry<Long, Long> oldest = this.partitions.firstEntry();
+        final String sqlPartition = this.dbHelper.sanitizeSqlTableAndColumnName(getPartitionName(oldest.getKey()));
+        final long recordsToKeep = Math.max(0, oldest.getValue() - (size - noOfRecordsToKeep));
+        if (recordsToKeep == 0) {
+            logger.info(message.truncatingTable(sqlPartition));
+            this.dbHelper.execute(MessageFormat.format(SQL_TRUNCATE_TABLE, sqlPartition));
+        } else {
+            logger.info(message.partiallyEmptyingTable(sqlPartition));
+            this.dbHelper.execute(
+                    MessageFormat.format(SQL_DELETE_RANGE_TABLE, sqlPartition, Long.toString(recordsToKeep)));
+        }
+        this.partitions.put(oldest.getKey(), Math.min(oldest.getValue(), recordsToKeep));
+    }
+
+    /**
+     * Adds the columns of the provided {@link WireRecord} missing in the most recent partition, and replaces the
+     * columns whose type changed in all the partitions.
+     *
+     * @param wireRecord
+     *            the record
+     * @throws SQLException
+     *             the SQL exception
+     */
+    void reconcileColumns(final WireRecord wireRecord) throws SQLException {
+        requireNonNull(wireRecord, message.wireRecordNonNull());
+
+        final String lastPartition = getPartitionName(this.partitions.lastKey());
+        final Map<String, Integer> lastColumns = getColumns(lastPartition);
+        final Map<String, JdbcType> addedColumns = CollectionUtil.newLinkedHashMap();
+        final Map<String, JdbcType> changedColumns = CollectionUtil.newLinkedHashMap();
+        for (final Entry<String, TypedValue<?>> entry : wireRecord.getProperties().entrySet()) {
+            final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(entry.getKey());
+            final Integer sqlColType = lastColumns.get(sqlColName);
+            final JdbcType jdbcType = H2DbDataTypeMapper.getJdbcType(entry.getValue().getType());
+            if (isNull(sqlColType)) {
+                addedColumns.put(sqlColName, jdbcType);
+            } else if (sqlColType != jdbcType.getType()) {
+                changedColumns.put(sqlColName, jdbcType);
+            }
+        }
+        if (addedColumns.isEmpty() && changedColumns.isEmpty()) {
+            return;
+        }
+
+        // the columns cannot be dropped while the view depends on them
+        dropView();
+        try {
+            for (final Long bucket : this.partitions.keySet()) {
+                final String partition = getPartitionName(bucket);
+                final String sqlPartition = this.dbHelper.sanitizeSqlTableAndColumnName(partition);
+                final Map<String, Integer> columns = bucket.equals(this.partitions.lastKey()) ? lastColumns
+                        : getColumns(partition);
+                for (final String sqlColName : changedColumns.keySet()) {
+                    if (columns.containsKey(sqlColName)) {
+                        this.dbHelper.execute(MessageFormat.format(SQL_DROP_COLUMN, sqlPartition, sqlColName));
+                    }
+                }
+            }
+
+            // the older partitions miss the new columns, the view reads them as null
+            final String sqlLastPartition = this.dbHelper.sanitizeSqlTableAndColumnName(lastPartition);
+            addColumns(sqlLastPartition, changedColumns);
+            addColumns(sqlLastPartition, addedColumns);
+        } finally {
+            createView();
+        }
+    }
+
+    private void addColumns(final String sqlPartition, final Map<String, JdbcType> columns) throws SQLException {
+        for (final Entry<String, JdbcType> column : columns.entrySet()) {
+            this.dbHelper.execute(MessageFormat.format(SQL_ADD_COLUMN, sqlPartition, column.getKey(),
+                    column.getValue().getTypeString()));
+        }
+    }
+
+    private String createPartition(final long bucket, final long firstId) throws SQLException {
+        final String partition = getPartitionName(bucket);
+        final String sqlPartition = this.dbHelper.sanitizeSqlTableAndColumnName(partition);
+        logger.info(message.creatingTable(sqlPartition));
+        this.dbHelper.execute(MessageFormat.format(SQL_CREATE_PARTITION, sqlPartition, Long.toString(firstId)));
+        this.dbHelper.execute(MessageFormat.format(SQL_CREATE_TABLE_INDEX,
+                this.dbHelper.sanitizeSqlTableAndColumnName(partition + "_TIMESTAMP"), sqlPartition));
+        this.partitions.put(bucket, 0L);
+        return partition;
+    }
+
+    /**
+     * Creates the view on all the partitions. The columns missing in a partition are read as null.
+     */
+    private void createView() throws SQLException {
+        final Map<Long, Map<String, Integer>> partitionColumns = CollectionUtil.newLinkedHashMap();
+        final Map<String, Integer> allColumns = CollectionUtil.newLinkedHashMap();
+        for (final Long bucket : this.partitions.descendingKeySet()) {
+            final Map<String, Integer> columns = getColumns(getPartitionName(bucket));
+            partitionColumns.put(bucket, columns);
+            for (final String column : columns.keySet()) {
+                if (!allColumns.containsKey(column)) {
+                    allColumns.put(column, columns.get(column));
+                }
+            }
+        }
+
+        final StringBuilder sbSelect = new StringBuilder();
+        for (final Long bucket : this.partitions.keySet()) {
+            final Map<String, Integer> columns = partitionColumns.get(bucket);
+            if (sbSelect.length() > 0) {
+                sbSelect.append(" UNION ALL ");
+            }
+            sbSelect.append("SELECT ");
+            boolean first = true;
+            for (final String column : allColumns.keySet()) {
+                if (!first) {
+                    sbSelect.append(", ");
+                }
+                first = false;
+                if (columns.containsKey(column)) {
+                    sbSelect.append(column);
+                } else {
+                    sbSelect.append("NULL AS ").append(column);
+                }
+            }
+            sbSelect.append(" FROM ")
+                    .append(this.dbHelper.sanitizeSqlTableAndColumnName(getPartitionName(bucket)));
+        }
+
+        this.dbHelper.execute(MessageFormat.format(SQL_CREATE_VIEW,
+                this.dbHelper.sanitizeSqlTableAndColumnName(this.tableName), sbSelect.toString()));
+    }
+
+    private void dropView() throws SQLException {
+        this.dbHelper.execute(
+                MessageFormat.format(SQL_DROP_VIEW, this.dbHelper.sanitizeSqlTableAndColumnName(this.tableName)));
+    }
+
+    private long getBucketStart(final long timestamp) {
+        return timestamp - Math.floorMod(timestamp, this.interval);
+    }
+
+    private String getPartitionName(final long bucket) {
+        return this.tableName + PARTITION_SEPARATOR + bucket;
+    }
+
+    private long getBucket(final String partition) {
+        return Long.parseLong(partition.substring(this.tableName.length() + PARTITION_SEPARATOR.length()));
+    }
+
+    private boolean exists(final String name, final String[] types) throws SQLException {
+        return exists(this.dbHelper, name, types);
+    }
+
+    private long count(final String partition) throws SQLException {
+        final Long count = queryLong(
+                MessageFormat.format(SQL_ROW_COUNT_TABLE, this.dbHelper.sanitizeSqlTableAndColumnName(partition)));
+        return isNull(count) ? 0 : count;
+    }
+
+    private Long queryLong(final String sql) throws SQLException {
+        Connection conn = null;
+        Statement stmt = null;
+        ResultSet rset = null;
+        try {
+            conn = this.dbHelper.getConnection();
+            stmt = conn.createStatement();
+            rset = stmt.executeQuery(sql);
+            rset.next();
+            final long value = rset.getLong(1);
+            return rset.wasNull() ? null : value;
+        } finally {
+            this.dbHelper.close(rset);
+            this.dbHelper.close(stmt);
+            this.dbHelper.close(conn);
+        }
+    }
+
+    /**
+     * Returns the types of the columns of the provided table, by sanitized column name.
+     */
+    private Map<String, Integer> getColumns(final String table) throws SQLException {
+        final Map<String, Integer> columns = CollectionUtil.newLinkedHashMap();
+        Connection conn = null;
+        ResultSet rsColumns = null;
+        try {
+            conn = this.dbHelper.getConnection();
+            final DatabaseMetaData dbMetaData = conn.getMetaData();
+            rsColumns = dbMetaData.getColumns(conn.getCatalog(), null, table, null);
+            while (rsColumns.next()) {
+                columns.put(this.dbHelper.sanitizeSqlTableAndColumnName(rsColumns.getString(COLUMN_NAME)),
+                        rsColumns.getInt(DATA_TYPE));
+            }
+        } finally {
+            this.dbHelper.close(rsColumns);
+            this.dbHelper.close(conn);
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the SQL types of the record columns of the provided table, that is all the columns but the identity and
+     * the timestamp, by sanitized column name.
+     */
+    private Map<String, String> getColumnTypes(final String table) throws SQLException {
+        final Map<String, String> columns = CollectionUtil.newLinkedHashMap();
+        Connection conn = null;
+        ResultSet rsColumns = null;
+        try {
+            conn = this.dbHelper.getConnection();
+            final DatabaseMetaData dbMetaData = conn.getMetaData();
+            rsColumns = dbMetaData.getColumns(conn.getCatalog(), null, table, null);
+            while (rsColumns.next()) {
+                final String colName = rsColumns.getString(COLUMN_NAME);
+                if ("ID".equals(colName) || "TIMESTAMP".equals(colName)) {
+                    continue;
+                }
+                final DataType dataType = H2DbDataTypeMapper.getDataType(rsColumns.getInt(DATA_TYPE));
+                final String typeString = nonNull(dataType) ? H2DbDataTypeMapper.getJdbcType(dataType).getTypeString()
+                        : rsColumns.getString(TYPE_NAME);
+                columns.put(this.dbHelper.sanitizeSqlTableAndColumnName(colName), typeString);
+            }
+        } finally {
+            this.dbHelper.close(rsColumns);
+            this.dbHelper.close(conn);
+        }
+        return columns;
+    }
+
+    private static boolean exists(final H2DbServiceHelper dbHelper, final String name, final String[] types)
+            throws SQLException {
+        Connection conn = null;
+        ResultSet rsTbls = null;
+        try {
+            conn = dbHelper.getConnection();
+            final DatabaseMetaData dbMetaData = conn.getMetaData();
+            rsTbls = dbMetaData.getTables(conn.getCatalog(), null, name, types);
+            return rsTbls.next();
+        } finally {
+            dbHelper.close(rsTbls);
+            dbHelper.close(conn);
+        }
+    }
+
+    /**
+     * Returns the names of the partitions of the provided table, from the oldest to the most recent. Only the tables
+     * named exactly as the table followed by {@code _P} and a bucket start are partitions, so that the partitions of a
+     * table whose name starts with the provided one are not returned.
+     */
+    private static List<String> listPartitions(final H2DbServiceHelper dbHelper, final String tableName)
+            throws SQLException {
+        final Pattern partitionPattern = Pattern.compile(Pattern.quote(tableName + PARTITION_SEPARATOR) + "(-?\\d+)");
+        final Map<Long, String> partitions = new TreeMap<>();
+        Connection conn = null;
+        ResultSet rsTbls = null;
+        try {
+            conn = dbHelper.getConnection();
+            final DatabaseMetaData dbMetaData = conn.getMetaData();
+            final String escape = dbMetaData.getSearchStringEscape();
+            final String namePattern = (tableName + PARTITION_SEPARATOR).replace(escape, escape + escape)
+                    .replace("_", escape + "_").replace("%", escape + "%") + "%";
+            rsTbls = dbMetaData.getTables(conn.getCatalog(), null, namePattern, TABLE_TYPE);
+            while (rsTbls.next()) {
+                final String name = rsTbls.getString(TABLE_NAME);
+                final Matcher matcher = partitionPattern.matcher(name);
+                if (matcher.matches()) {
+                    partitions.put(Long.parseLong(matcher.group(1)), name);
+                }
+            }
+        } finally {
+            dbHelper.close(rsTbls);
+            dbHelper.close(conn);
+        }
+        return new ArrayList<>(partitions.values());
+    }
+
+    /**
+     * Drops the view on the partitions of the provided table, if any.
+     *
+     * @param dbHelper
+     *            the database helper
+     * @param tableName
+     *            the name of the table
+     * @throws SQLException
+     *             the SQL exception
+     */
+    static void dropView(final H2DbServiceHelper dbHelper, final String tableName) throws SQLException {
+        if (exists(dbHelper, tableName, VIEW_TYPE)) {
+            logger.info("Dropping the view on the partitions of table {}", tableName);
+            dbHelper.execute(MessageFormat.format(SQL_DROP_VIEW, dbHelper.sanitizeSqlTableAndColumnName(tableName)));
+        }
+    }
+
+    /**
+     * Tells if the provided table has partitions.
+     *
+     * @param dbHelper
+     *            the database helper
+     * @param tableName
+     *            the name of the table
+     * @return true if at least one partition of the table exists
+     * @throws SQLException
+     *             the SQL exception
+     */
+    static boolean hasPartitions(final H2DbServiceHelper dbHelper, final String tableName) throws SQLException {
+        return !listPartitions(dbHelper, tableName).isEmpty();
+    }
+
+    /**
+     * Moves the records of the partitions of the provided table, if any, back to the table. The partitions are moved
+     * one at a time, from the oldest to the most recent, and dropped once moved.
+     *
+     * @param dbHelper
+     *            the database helper
+     * @param tableName
+     *            the name of the table, which must exist
+     * @throws SQLException
+     *             the SQL exception
+     */
+    static void mergePartitions(final H2DbServiceHelper dbHelper, final String tableName) throws SQLException {
+        final List<String> partitions = listPartitions(dbHelper, tableName);
+        if (partitions.isEmpty()) {
+            return;
+        }
+
+        logger.info("Merging the partitions of table {}", tableName);
+        final String sqlTableName = dbHelper.sanitizeSqlTableAndColumnName(tableName);
+        final H2DbPartitionedTable table = new H2DbPartitionedTable(dbHelper, tableName, 1, System::currentTimeMillis);
+        for (final String partition : partitions) {
+            final Map<String, String> columns = table.getColumnTypes(partition);
+            final Map<String, Integer> tableColumns = table.getColumns(tableName);
+            final StringBuilder sbCols = new StringBuilder("TIMESTAMP");
+            for (final Entry<String, String> column : columns.entrySet()) {
+                if (!tableColumns.containsKey(column.getKey())) {
+                    dbHelper.execute(
+                            MessageFormat.format(SQL_ADD_COLUMN, sqlTableName, column.getKey(), column.getValue()));
+                }
+                sbCols.append(", ").append(column.getKey());
+            }
+
+            final String sqlPartition = dbHelper.sanitizeSqlTableAndColumnName(partition);
+            dbHelper.execute(MessageFormat.format(SQL_INSERT_SELECT, sqlTableName, sbCols.toString(), sqlPartition));
+            dbHelper.execute(MessageFormat.format(SQL_DROP_TABLE, sqlPartition));
+        }
+    }
+}
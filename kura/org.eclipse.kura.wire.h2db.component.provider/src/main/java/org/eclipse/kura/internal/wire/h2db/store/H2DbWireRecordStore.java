@@ -27,10 +27,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.MessageFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.db.H2DbService;
@@ -48,6 +50,7 @@ import org.eclipse.kura.type.LongValue;
 import org.eclipse.kura.type.StringValue;
 import org.eclipse.kura.type.TypedValue;
 import org.eclipse.kura.util.collection.CollectionUtil;
+import org.eclipse.kura.util.collection.WriteBehindQueue;
 import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireHelperService;
@@ -98,6 +101,14 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
 
     private static final String[] TABLE_TYPE = new String[] { "TABLE" };
 
+    private static final int MAX_CACHED_INSERT_STATEMENTS = 32;
+
+    private static final int UNKNOWN_TABLE_SIZE = -1;
+
+    private static final int WRITE_BEHIND_GROUP_SIZE = 500;
+
+    private static final long WRITE_BEHIND_TERMINATION_TIMEOUT_SECONDS = 10;
+
     private H2DbServiceHelper dbHelper;
 
     private H2DbWireRecordStoreOptions wireRecordStoreOptions;
@@ -110,6 +121,41 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
 
     private ComponentContext componentContext;
 
+    private volatile WriteBehindQueue<WireRecord> writeBehindQueue;
+
+    /** The partitions of the table, or null if the table is not partitioned. */
+    private H2DbPartitionedTable partitionedTable;
+
+    /**
+     * Whether a table left partitioned by a previous configuration has already been merged back. The check is done
+     * once per configuration, not on every reconciliation after a failed insertion.
+     */
+    private boolean partitionsChecked;
+
+    /** The table the cached INSERT statements refer to. */
+    private String insertStatementsTable;
+
+    /**
+     * The INSERT statements already built, by set of columns. The map is in access order, so that the least recently
+     * used statement is evicted first.
+     */
+    private final Map<List<String>, String> insertStatements = new LinkedHashMap<List<String>, String>(16, 0.75f,
+            true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Entry<List<String>, String> eldest) {
+            return size() > MAX_CACHED_INSERT_STATEMENTS;
+        }
+    };
+
+    /**
+     * The number of rows in the table, tracked across the insertions and the truncations so that the table is counted
+     * only once, or {@link #UNKNOWN_TABLE_SIZE} if it has to be counted again.
+     */
+    private long tableSize = UNKNOWN_TABLE_SIZE;
+
     public synchronized void bindDbService(final H2DbService dbService) {
         H2DbWireRecordStore.this.dbHelper = H2DbServiceHelper.of(dbService);
         reconcileDB(wireRecordStoreOptions.getTableName());
@@ -117,6 +163,7 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
 
     public synchronized void unbindDbService(final H2DbService dbService) {
         H2DbWireRecordStore.this.dbHelper = null;
+        this.tableSize = UNKNOWN_TABLE_SIZE;
     }
 
     public void bindWireHelperService(final WireHelperService wireHelperService) {
@@ -143,6 +190,7 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
         logger.debug(message.activatingStore());
         this.componentContext = componentContext;
         this.wireRecordStoreOptions = new H2DbWireRecordStoreOptions(properties);
+        this.writeBehindQueue = createWriteBehindQueue(this.wireRecordStoreOptions);
 
         this.wireSupport = this.wireHelperService.newWireSupport(this);
 
@@ -162,6 +210,15 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
         final String oldDbServicePid = this.wireRecordStoreOptions.getDbServiceInstancePid();
 
         this.wireRecordStoreOptions = new H2DbWireRecordStoreOptions(properties);
+        this.insertStatements.clear();
+        this.tableSize = UNKNOWN_TABLE_SIZE;
+
+        // the records still queued are persisted with the new configuration
+        final WriteBehindQueue<WireRecord> oldWriteBehindQueue = this.writeBehindQueue;
+        this.writeBehindQueue = createWriteBehindQueue(this.wireRecordStoreOptions);
+        if (nonNull(oldWriteBehindQueue)) {
+            oldWriteBehindQueue.close();
+        }
 
         if (oldDbServicePid.equals(wireRecordStoreOptions.getDbServiceInstancePid())) {
             final String tableName = this.wireRecordStoreOptions.getTableName();
@@ -181,10 +238,50 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
      */
     protected void deactivate(final ComponentContext componentContext) {
         logger.debug(message.deactivatingStore());
+        closeWriteBehindQueue();
         stopDbServiceTracker();
         logger.debug(message.deactivatingStoreDone());
     }
 
+    /**
+     * Creates the queue of the records to be persisted in background, if the write-behind mode is enabled.
+     *
+     * @param options
+     *            the configured options
+     * @return the queue, or null if the write-behind mode is disabled
+     */
+    private WriteBehindQueue<WireRecord> createWriteBehindQueue(final H2DbWireRecordStoreOptions options) {
+        if (!options.isWriteBehind()) {
+            return null;
+        }
+        return new WriteBehindQueue<>("H2DbWireRecordStore:" + options.getTableName(),
+                options.getWriteBehindQueueCapacity(), WRITE_BEHIND_GROUP_SIZE, options.isWriteBehindDiscardRecords(),
+                this::persist);
+    }
+
+    /**
+     * Closes the write-behind queue, waiting for the queued records to be persisted.
+     */
+    private void closeWriteBehindQueue() {
+        final WriteBehindQueue<WireRecord> queue = this.writeBehindQueue;
+        if (isNull(queue)) {
+            return;
+        }
+        this.writeBehindQueue = null;
+        queue.close();
+        try {
+            if (!queue.awaitTermination(WRITE_BEHIND_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Timeout while persisting the queued records, {} records not persisted",
+                        queue.getQueueDepth());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while persisting the queued records");
+        }
+        logger.info("Write-behind queue closed: {} records persisted, {} discarded, maximum commit latency {} ms",
+                queue.getWrittenCount(), queue.getDiscardedCount(), queue.getMaxWriteLatency());
+    }
+
     /**
      * Truncates tables containing {@link WireRecord}s
      */
@@ -203,6 +300,15 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
     private void truncate(final int noOfRecordsToKeep) {
         final String tableName = this.wireRecordStoreOptions.getTableName();
         final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
+        if (nonNull(this.partitionedTable)) {
+            try {
+                this.partitionedTable.truncate(noOfRecordsToKeep, this.wireRecordStoreOptions.getMaximumTableSize());
+            } catch (final SQLException sqlException) {
+                logger.error(message.errorTruncatingTable(sqlTableName), sqlException);
+            }
+            return;
+        }
+
         Connection conn = null;
         ResultSet rsTbls = null;
         try {
@@ -216,21 +322,43 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
                 if (noOfRecordsToKeep == 0) {
                     logger.info(message.truncatingTable(sqlTableName));
                     this.dbHelper.execute(MessageFormat.format(SQL_TRUNCATE_TABLE, sqlTableName));
+                    this.tableSize = 0;
                 } else {
                     logger.info(message.partiallyEmptyingTable(sqlTableName));
                     this.dbHelper.execute(MessageFormat.format(SQL_DELETE_RANGE_TABLE, sqlTableName,
                             Integer.toString(noOfRecordsToKeep)));
+                    if (this.tableSize != UNKNOWN_TABLE_SIZE) {
+                        this.tableSize = Math.min(this.tableSize, noOfRecordsToKeep);
+                    }
                 }
             }
         } catch (final SQLException sqlException) {
             logger.error(message.errorTruncatingTable(sqlTableName), sqlException);
+            this.tableSize = UNKNOWN_TABLE_SIZE;
         } finally {
             this.dbHelper.close(rsTbls);
             this.dbHelper.close(conn);
         }
     }
 
-    private int getTableSize() throws SQLException {
+    /**
+     * Returns the number of rows in the table, counting them only if they are not tracked yet.
+     *
+     * @return the number of rows in the table
+     * @throws SQLException
+     *             the SQL exception
+     */
+    private long getTableSize() throws SQLException {
+        if (nonNull(this.partitionedTable)) {
+            return this.partitionedTable.getSize();
+        }
+        if (this.tableSize == UNKNOWN_TABLE_SIZE) {
+            this.tableSize = countTableRows();
+        }
+        return this.tableSize;
+    }
+
+    private int countTableRows() throws SQLException {
         final String tableName = this.wireRecordStoreOptions.getTableName();
         final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
 
@@ -265,11 +393,33 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void onWireReceive(final WireEnvelope wireEvelope) {
+    public void onWireReceive(final WireEnvelope wireEvelope) {
         requireNonNull(wireEvelope, message.wireEnvelopeNonNull());
 
         final List<WireRecord> records = wireEvelope.getRecords();
 
+        final WriteBehindQueue<WireRecord> queue = this.writeBehindQueue;
+        if (nonNull(queue)) {
+            // the records are persisted in background, without waiting for the database
+            for (final WireRecord wireRecord : records) {
+                requireNonNull(wireRecord, message.wireRecordNonNull());
+                queue.add(wireRecord);
+            }
+        } else {
+            persist(records);
+        }
+
+        // emit the list of Wire Records to the downstream components
+        this.wireSupport.emit(records);
+    }
+
+    /**
+     * Persists the provided {@link WireRecord}s, truncating the table first if it reached its maximum size
+     *
+     * @param records
+     *            the {@link WireRecord}s to be persisted
+     */
+    private synchronized void persist(final List<WireRecord> records) {
         if (dbHelper != null) {
             try {
                 if (getTableSize() >= this.wireRecordStoreOptions.getMaximumTableSize()) {
@@ -279,36 +429,33 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
                 logger.warn("Exception while trying to clean db");
             }
 
-            for (WireRecord wireRecord : records) {
-                store(wireRecord);
-            }
+            store(records);
         } else {
             logger.warn("DbService instance not attached");
         }
-
-        // emit the list of Wire Records to the downstream components
-        this.wireSupport.emit(records);
     }
 
     /**
-     * Stores the provided {@link WireRecord} in the database
+     * Stores the provided {@link WireRecord}s in the database, in a single transaction
      *
-     * @param wireRecord
-     *            the {@link WireRecord} to be stored
+     * @param wireRecords
+     *            the {@link WireRecord}s to be stored
      * @throws NullPointerException
-     *             if the provided argument is null
+     *             if any of the provided records is null
      */
-    private void store(final WireRecord wireRecord) {
-        requireNonNull(wireRecord, message.wireRecordNonNull());
+    private void store(final List<WireRecord> wireRecords) {
+        if (wireRecords.isEmpty()) {
+            return;
+        }
         int retryCount = 0;
         final String tableName = this.wireRecordStoreOptions.getTableName();
         do {
             try {
-                insertDataRecord(tableName, wireRecord);
+                insertDataRecords(tableName, wireRecords);
                 break;
             } catch (final SQLException e) {
                 logger.error(message.insertionFailed(), e);
-                reconcileDB(wireRecord, tableName);
+                reconcileDB(wireRecords, tableName);
                 retryCount++;
             }
         } while (retryCount < 2);
@@ -317,16 +464,24 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
     /**
      * Tries to reconcile the database.
      *
-     * @param wireRecord
+     * @param wireRecords
      *            against which the database columns have to be reconciled.
      * @param tableName
      *            the table name in the database that needs to be reconciled.
      */
-    private void reconcileDB(final WireRecord wireRecord, final String tableName) {
+    private void reconcileDB(final List<WireRecord> wireRecords, final String tableName) {
         try {
             if (nonNull(tableName) && !tableName.isEmpty()) {
                 reconcileTable(tableName);
-                reconcileColumns(tableName, wireRecord);
+                List<String> columns = null;
+                for (final WireRecord wireRecord : wireRecords) {
+                    // consecutive records with the same columns are reconciled once
+                    final List<String> recordColumns = new ArrayList<>(wireRecord.getProperties().keySet());
+                    if (!recordColumns.equals(columns)) {
+                        reconcileColumns(tableName, wireRecord);
+                        columns = recordColumns;
+                    }
+                }
             }
         } catch (final SQLException ee) {
             logger.error(message.errorStoring(), ee);
@@ -342,7 +497,9 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
     private synchronized void reconcileDB(final String tableName) {
         try {
             if (nonNull(dbHelper) && nonNull(tableName) && !tableName.isEmpty()) {
+                this.partitionsChecked = false;
                 reconcileTable(tableName);
+                this.tableSize = UNKNOWN_TABLE_SIZE;
             }
         } catch (final SQLException ee) {
             logger.error(message.errorStoring(), ee);
@@ -361,6 +518,23 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
      */
     private void reconcileTable(final String tableName) throws SQLException {
         requireNonNull(tableName, message.tableNameNonNull());
+        final int partitionInterval = this.wireRecordStoreOptions.getPartitionInterval();
+        if (partitionInterval > 0) {
+            final H2DbPartitionedTable table = new H2DbPartitionedTable(this.dbHelper, tableName,
+                    TimeUnit.SECONDS.toMillis(partitionInterval), this::currentTimeMillis);
+            table.reconcile();
+            this.partitionedTable = table;
+            return;
+        }
+
+        // the table may have been partitioned with a previous configuration
+        this.partitionedTable = null;
+        final boolean mergePartitions = !this.partitionsChecked
+                && H2DbPartitionedTable.hasPartitions(this.dbHelper, tableName);
+        if (mergePartitions) {
+            H2DbPartitionedTable.dropView(this.dbHelper, tableName);
+        }
+
         final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
         final Connection conn = this.dbHelper.getConnection();
         ResultSet rsTbls = null;
@@ -380,6 +554,10 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
             this.dbHelper.close(rsTbls);
             this.dbHelper.close(conn);
         }
+        if (mergePartitions) {
+            H2DbPartitionedTable.mergePartitions(this.dbHelper, tableName);
+        }
+        this.partitionsChecked = true;
     }
 
     private void createIndex(String indexname, String table, String order) throws SQLException {
@@ -403,6 +581,11 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
         requireNonNull(tableName, message.tableNameNonNull());
         requireNonNull(wireRecord, message.wireRecordNonNull());
 
+        if (nonNull(this.partitionedTable)) {
+            this.partitionedTable.reconcileColumns(wireRecord);
+            return;
+        }
+
         Connection conn = null;
         ResultSet rsColumns = null;
         final Map<String, Integer> columns = CollectionUtil.newHashMap();
@@ -443,67 +626,131 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
     }
 
     /**
-     * Insert the provided {@link WireRecord} to the specified table
+     * Inserts the provided {@link WireRecord}s to the specified table in a single transaction. The records with the
+     * same set of columns share a prepared statement, and consecutive records are inserted as one JDBC batch.
      *
      * @param tableName
      *            the table name
-     * @param wireRecord
-     *            the {@link WireRecord}
+     * @param wireRecords
+     *            the {@link WireRecord}s
      * @throws SQLException
      *             the SQL exception
      * @throws NullPointerException
      *             if any of the provided arguments is null
      */
-    private void insertDataRecord(final String tableName, final WireRecord wireRecord) throws SQLException {
+    private void insertDataRecords(final String tableName, final List<WireRecord> wireRecords) throws SQLException {
         requireNonNull(tableName, message.tableNameNonNull());
-        requireNonNull(wireRecord, message.wireRecordNonNull());
 
-        final Map<String, TypedValue<?>> wireRecordProperties = wireRecord.getProperties();
+        final long timestamp = currentTimeMillis();
+        final String insertTable = nonNull(this.partitionedTable)
+                ? this.partitionedTable.getInsertPartition(timestamp) : tableName;
 
         Connection connection = null;
-        PreparedStatement stmt = null;
+        final Map<List<String>, PreparedStatement> statements = CollectionUtil.newHashMap();
+        boolean autoCommit = true;
         try {
             connection = this.dbHelper.getConnection();
-            stmt = prepareStatement(connection, tableName, wireRecordProperties, new Date().getTime());
-            stmt.execute();
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            // prepare the statements of all the column sets first, so that a missing column fails before any insertion
+            final List<List<String>> recordColumns = CollectionUtil.newArrayListWithCapacity(wireRecords.size());
+            for (final WireRecord wireRecord : wireRecords) {
+                requireNonNull(wireRecord, message.wireRecordNonNull());
+
+                final List<String> columns = new ArrayList<>(wireRecord.getProperties().keySet());
+                if (!statements.containsKey(columns)) {
+                    statements.put(columns, connection.prepareStatement(getInsertStatement(insertTable, columns)));
+                }
+                recordColumns.add(columns);
+            }
+
+            // preserve the insertion order, flushing the batch whenever the column set changes
+            PreparedStatement batch = null;
+            for (int i = 0; i < wireRecords.size(); i++) {
+                final List<String> columns = recordColumns.get(i);
+                final PreparedStatement stmt = statements.get(columns);
+                if (stmt != batch) {
+                    if (nonNull(batch)) {
+                        batch.executeBatch();
+                    }
+                    batch = stmt;
+                }
+                setParameters(stmt, columns, wireRecords.get(i).getProperties(), timestamp);
+                stmt.addBatch();
+            }
+            batch.executeBatch();
             connection.commit();
+
+            if (nonNull(this.partitionedTable)) {
+                this.partitionedTable.addRecords(wireRecords.size());
+            } else if (this.tableSize != UNKNOWN_TABLE_SIZE) {
+                this.tableSize += wireRecords.size();
+            }
             logger.debug(message.stored());
         } catch (final SQLException e) {
-            this.dbHelper.rollback(connection);
+            if (nonNull(connection)) {
+                this.dbHelper.rollback(connection);
+            }
             throw e;
         } finally {
-            this.dbHelper.close(stmt);
+            this.dbHelper.close(statements.values().toArray(new Statement[statements.size()]));
+            if (nonNull(connection)) {
+                try {
+                    connection.setAutoCommit(autoCommit);
+                } catch (final SQLException e) {
+                    logger.warn("Exception while restoring the auto-commit mode", e);
+                }
+            }
             this.dbHelper.close(connection);
         }
     }
 
-    private PreparedStatement prepareStatement(Connection connection, String tableName,
-            final Map<String, TypedValue<?>> properties, long timestamp) throws SQLException {
+    /**
+     * Returns the INSERT statement for the provided columns, building it only if not cached yet.
+     *
+     * @param tableName
+     *            the table name
+     * @param columns
+     *            the names of the columns, in the order of the statement parameters
+     * @return the INSERT statement
+     */
+    private String getInsertStatement(final String tableName, final List<String> columns) {
+        if (!tableName.equals(this.insertStatementsTable)) {
+            this.insertStatements.clear();
+            this.insertStatementsTable = tableName;
+        }
+        String sqlInsert = this.insertStatements.get(columns);
+        if (isNull(sqlInsert)) {
+            final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
+            final StringBuilder sbCols = new StringBuilder();
+            final StringBuilder sbVals = new StringBuilder();
 
-        final String sqlTableName = this.dbHelper.sanitizeSqlTableAndColumnName(tableName);
-        final StringBuilder sbCols = new StringBuilder();
-        final StringBuilder sbVals = new StringBuilder();
+            // add the timestamp
+            sbCols.append("TIMESTAMP");
+            sbVals.append("?");
 
-        // add the timestamp
-        sbCols.append("TIMESTAMP");
-        sbVals.append("?");
+            for (final String column : columns) {
+                final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(column);
+                sbCols.append(", ").append(sqlColName);
+                sbVals.append(", ?");
+            }
 
-        int i = 2;
-        for (Entry<String, TypedValue<?>> entry : properties.entrySet()) {
-            final String sqlColName = this.dbHelper.sanitizeSqlTableAndColumnName(entry.getKey());
-            sbCols.append(", ").append(sqlColName);
-            sbVals.append(", ?");
+            logger.debug(message.storingRecord(sqlTableName));
+            sqlInsert = MessageFormat.format(SQL_INSERT_RECORD, sqlTableName, sbCols.toString(), sbVals.toString());
+            this.insertStatements.put(columns, sqlInsert);
         }
+        return sqlInsert;
+    }
 
-        logger.debug(message.storingRecord(sqlTableName));
-        final String sqlInsert = MessageFormat.format(SQL_INSERT_RECORD, sqlTableName, sbCols.toString(),
-                sbVals.toString());
-        final PreparedStatement stmt = connection.prepareStatement(sqlInsert);
+    private static void setParameters(final PreparedStatement stmt, final List<String> columns,
+            final Map<String, TypedValue<?>> properties, final long timestamp) throws SQLException {
         stmt.setLong(1, timestamp);
 
-        for (Entry<String, TypedValue<?>> entry : properties.entrySet()) {
-            final DataType dataType = entry.getValue().getType();
-            final Object value = entry.getValue();
+        int i = 2;
+        for (final String column : columns) {
+            final TypedValue<?> value = properties.get(column);
+            final DataType dataType = value.getType();
             switch (dataType) {
             case BOOLEAN:
                 stmt.setBoolean(i, ((BooleanValue) value).getValue());
@@ -533,7 +780,15 @@ public class H2DbWireRecordStore implements WireEmitter, WireReceiver, Configura
             }
             i++;
         }
-        return stmt;
+    }
+
+    /**
+     * Returns the current time, used to timestamp the records and to select their partition.
+     *
+     * @return the current time in milliseconds since the epoch
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
     }
 
     protected void restartDbServiceTracker() {
@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.osgi.service.wireadmin.Wire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class WireDispatcher delivers the envelopes emitted on an outgoing wire from a bounded queue.<br/>
+ * <br/>
+ *
+ * The queue is drained by a single task at a time, submitted to a shared executor when the first envelope is added
+ * to an empty queue, so that the envelopes of a wire are delivered in order and the outgoing wires of an emitter are
+ * served in parallel.<br/>
+ * <br/>
+ *
+ * An emitter blocked on a full queue delivers the oldest envelopes of the queue itself, whenever no other thread is
+ * delivering them. With a bounded pool of workers, this keeps the workers blocked by a slow branch from waiting for
+ * deliveries that no worker is left to run.<br/>
+ * <br/>
+ *
+ * Once the executor is shut down, the envelopes are delivered on the thread of the emitter, so that none of the
+ * accepted envelopes is lost.<br/>
+ * <br/>
+ *
+ * A dispatcher replacing another one of the same wire, when the options change, takes over the envelopes left in the
+ * queue of the replaced dispatcher: they are delivered before any of its own envelopes, never concurrently with them.
+ */
+final class WireDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(WireDispatcher.class);
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private static final long FULL_QUEUE_WAIT_MILLIS = 10;
+
+    private final Wire wire;
+
+    private final BlockingQueue<WireEnvelope> queue;
+
+    private final boolean discardEnvelopes;
+
+    private final Executor executor;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final ReentrantLock deliveryLock = new ReentrantLock();
+
+    private volatile boolean closed;
+
+    /** The replaced dispatcher of the same wire, until the envelopes left in its queue are delivered. */
+    private volatile WireDispatcher predecessor;
+
+    /**
+     * Instantiates a new wire dispatcher.
+     *
+     * @param wire
+     *            the outgoing wire
+     * @param queueCapacity
+     *            the maximum number of envelopes waiting to be delivered
+     * @param discardEnvelopes
+     *            true to discard the envelopes submitted while the queue is full, false to block the emitter
+     * @param executor
+     *            the executor running the delivery
+     */
+    WireDispatcher(final Wire wire, final int queueCapacity, final boolean discardEnvelopes,
+            final Executor executor) {
+        this(wire, queueCapacity, discardEnvelopes, executor, null);
+    }
+
+    /**
+     * Instantiates a new wire dispatcher replacing another one of the same wire. The replaced dispatcher is closed.
+     *
+     * @param wire
+     *            the outgoing wire
+     * @param queueCapacity
+     *            the maximum number of envelopes waiting to be delivered
+     * @param discardEnvelopes
+     *            true to discard the envelopes submitted while the queue is full, false to block the emitter
+     * @param executor
+     *            the executor running the delivery
+     * @param predecessor
+     *            the replaced dispatcher, whose envelopes are delivered first, or null
+     */
+    WireDispatcher(final Wire wire, final int queueCapacity, final boolean discardEnvelopes, final Executor executor,
+            final WireDispatcher predecessor) {
+        this.wire = wire;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.discardEnvelopes = discardEnvelopes;
+        this.executor = executor;
+        this.predecessor = predecessor;
+        if (predecessor != null) {
+            predecessor.close();
+        }
+    }
+
+    /**
+     * Gets the outgoing wire.
+     *
+     * @return the outgoing wire
+     */
+    Wire getWire() {
+        return this.wire;
+    }
+
+    /**
+     * Adds an envelope to the queue of the outgoing wire.
+     *
+     * @param wireEnvelope
+     *            the envelope
+     */
+    void submit(final WireEnvelope wireEnvelope) {
+        if (this.closed) {
+            return;
+        }
+
+        if (this.discardEnvelopes) {
+            if (!this.queue.offer(wireEnvelope)) {
+                logger.debug("envelope discarded");
+                return;
+            }
+        } else {
+            try {
+                while (!this.queue.offer(wireEnvelope)) {
+                    if (!deliverNext()) {
+                        if (this.queue.offer(wireEnvelope, FULL_QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                            break;
+                        }
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn(message.wireSupportInterruptedWhileSubmitting(), e);
+                return;
+            }
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (this.scheduled.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this::drain);
+            } catch (final RejectedExecutionException e) {
+                if (this.deliveryLock.isHeldByCurrentThread()) {
+                    // emitted while delivering on this wire, the outer emission drains the queue when it returns
+                    this.scheduled.set(false);
+                    return;
+                }
+                logger.debug("executor shut down, delivering on the emitter thread");
+                drain();
+            }
+        }
+    }
+
+    private void drain() {
+        do {
+            flushPredecessor(true);
+            this.deliveryLock.lock();
+            try {
+                WireEnvelope next;
+                while ((next = this.queue.poll()) != null) {
+                    deliver(next);
+                }
+            } finally {
+                this.deliveryLock.unlock();
+            }
+            this.scheduled.set(false);
+            // an envelope may have been added after the last poll, without scheduling a new task
+        } while (!this.queue.isEmpty() && this.scheduled.compareAndSet(false, true));
+    }
+
+    /**
+     * Delivers the oldest envelope of the queue on the calling thread, unless another thread is delivering.
+     *
+     * @return true if an envelope was delivered
+     */
+    private boolean deliverNext() {
+        // a thread already delivering on this wire, through a loop in the graph, must not deliver out of order
+        if (this.deliveryLock.isHeldByCurrentThread() || !this.deliveryLock.tryLock()) {
+            return false;
+        }
+        try {
+            if (!flushPredecessor(false)) {
+                return false;
+            }
+            final WireEnvelope next = this.queue.poll();
+            if (next == null) {
+                return false;
+            }
+            deliver(next);
+            return true;
+        } finally {
+            this.deliveryLock.unlock();
+        }
+    }
+
+    /**
+     * Delivers the envelopes left in the queue of the replaced dispatcher, if any.
+     *
+     * @param wait
+     *            true to wait for a delivery in progress on the replaced dispatcher, false to give up
+     * @return true if no envelope of the replaced dispatcher is left to deliver
+     */
+    private boolean flushPredecessor(final boolean wait) {
+        final WireDispatcher current = this.predecessor;
+        if (current == null) {
+            return true;
+        }
+        if (!current.flush(wait)) {
+            return false;
+        }
+        this.predecessor = null;
+        return true;
+    }
+
+    /**
+     * Delivers the envelopes of the queue on the calling thread. Used once this dispatcher has been replaced.
+     *
+     * @param wait
+     *            true to wait for a delivery in progress on another thread, false to give up
+     * @return true if the queue has been emptied
+     */
+    boolean flush(final boolean wait) {
+        if (this.deliveryLock.isHeldByCurrentThread()) {
+            // delivering on this wire through a loop in the graph, the outer delivery empties the queue
+            return false;
+        }
+        if (wait) {
+            this.deliveryLock.lock();
+        } else if (!this.deliveryLock.tryLock()) {
+            return false;
+        }
+        try {
+            if (!flushPredecessor(wait)) {
+                return false;
+            }
+            WireEnvelope next;
+            while ((next = this.queue.poll()) != null) {
+                deliver(next);
+            }
+            return true;
+        } finally {
+            this.deliveryLock.unlock();
+        }
+    }
+
+    private void deliver(final WireEnvelope wireEnvelope) {
+        try {
+            this.wire.update(wireEnvelope);
+        } catch (final Exception e) {
+            logger.warn(message.wireSupportUnexpectedExceptionWhileDispatching(), e);
+        }
+    }
+
+    /**
+     * Stops accepting new envelopes. The envelopes already in the queue are still delivered.
+     */
+    void close() {
+        this.closed = true;
+    }
+}
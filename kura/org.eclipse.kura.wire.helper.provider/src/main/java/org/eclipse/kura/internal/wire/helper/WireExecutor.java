@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class WireExecutor runs the delivery of the envelopes emitted asynchronously.<br/>
+ * <br/>
+ *
+ * Without a limit on the number of workers, every wire with pending envelopes gets a thread of its own. With a
+ * limit, the wires are served by a fixed pool of workers, and the deliveries are scheduled in the topological order
+ * of the graph: a delivery submitted while delivering an envelope is one hop further from the emitter that started
+ * the chain, and the deliveries further from the emitters run first. The downstream branches are therefore drained
+ * before the workers take more envelopes from the upstream ones, and the independent branches run concurrently.
+ */
+final class WireExecutor implements Executor {
+
+    private static final ThreadLocal<Integer> currentDepth = new ThreadLocal<>();
+
+    private final ExecutorService executor;
+
+    private final int workerThreads;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Instantiates a new wire executor.
+     *
+     * @param workerThreads
+     *            the number of workers, or 0 to use a thread per busy wire
+     */
+    WireExecutor(final int workerThreads) {
+        this.workerThreads = workerThreads;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        if (workerThreads > 0) {
+            this.executor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<Runnable>(), runnable -> {
+                        final Thread thread = new Thread(runnable, "WireWorker-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        } else {
+            this.executor = Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Returns the number of workers.
+     *
+     * @return the number of workers, 0 if there is a thread per busy wire
+     */
+    int getWorkerThreads() {
+        return this.workerThreads;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void execute(final Runnable command) {
+        final Integer depth = currentDepth.get();
+        this.executor.execute(new Delivery(command, depth == null ? 0 : depth + 1, this.sequence.getAndIncrement()));
+    }
+
+    /**
+     * Stops accepting new deliveries. The deliveries already submitted are still run.
+     */
+    void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private static final class Delivery implements Runnable, Comparable<Delivery> {
+
+        private final Runnable command;
+
+        private final int depth;
+
+        private final long sequence;
+
+        private Delivery(final Runnable command, final int depth, final long sequence) {
+            this.command = command;
+            this.depth = depth;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            currentDepth.set(this.depth);
+            try {
+                this.command.run();
+            } finally {
+                currentDepth.remove();
+            }
+        }
+
+        @Override
+        public int compareTo(final Delivery other) {
+            // the deepest first, then in submission order
+            if (this.depth != other.depth) {
+                return Integer.compare(other.depth, this.depth);
+            }
+            return Long.compare(this.sequence, other.sequence);
+        }
+    }
+}
@@ -17,6 +17,9 @@ import static java.util.Objects.requireNonNull;
 import static org.eclipse.kura.configuration.ConfigurationService.KURA_SERVICE_PID;
 import static org.osgi.framework.Constants.SERVICE_PID;
 
+import java.util.Map;
+
+import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.localization.resources.WireMessages;
 import org.eclipse.kura.util.service.ServiceUtil;
@@ -32,14 +35,19 @@ import org.osgi.service.event.EventAdmin;
 
 /**
  * The Class WireHelperServiceImpl is the implementation of
- * {@link WireHelperService}
+ * {@link WireHelperService}. Its configuration defines how the {@link WireSupport}
+ * instances it creates deliver the emitted envelopes.
  */
-public final class WireHelperServiceImpl implements WireHelperService {
+public final class WireHelperServiceImpl implements WireHelperService, ConfigurableComponent {
 
     private static final WireMessages wireMessages = LocalizationAdapter.adapt(WireMessages.class);
 
     private volatile EventAdmin eventAdmin;
 
+    private volatile WireSupportOptions options = new WireSupportOptions(null);
+
+    private volatile WireExecutor executor;
+
     /**
      * Binds the Event Admin Service.
      *
@@ -64,6 +72,43 @@ public final class WireHelperServiceImpl implements WireHelperService {
         }
     }
 
+    /**
+     * OSGi Service Component callback for activation.
+     *
+     * @param properties
+     *            the service properties
+     */
+    public void activate(final Map<String, Object> properties) {
+        updated(properties);
+    }
+
+    /**
+     * OSGi Service Component callback for updating.
+     *
+     * @param properties
+     *            the updated service properties
+     */
+    public synchronized void updated(final Map<String, Object> properties) {
+        final WireSupportOptions newOptions = new WireSupportOptions(properties);
+
+        final WireExecutor oldExecutor = this.executor;
+        if (oldExecutor == null || oldExecutor.getWorkerThreads() != newOptions.getWorkerThreads()) {
+            // the deliveries already submitted to the old executor still run
+            this.executor = new WireExecutor(newOptions.getWorkerThreads());
+            if (oldExecutor != null) {
+                oldExecutor.shutdown();
+            }
+        }
+        this.options = newOptions;
+    }
+
+    /**
+     * OSGi Service Component callback for deactivation.
+     */
+    public synchronized void deactivate() {
+        this.executor.shutdown();
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getPid(final WireComponent wireComponent) {
@@ -161,6 +206,7 @@ public final class WireHelperServiceImpl implements WireHelperService {
     /** {@inheritDoc} */
     @Override
     public WireSupport newWireSupport(final WireComponent wireComponent) {
-        return new WireSupportImpl(wireComponent, this, this.eventAdmin);
+        return new WireSupportImpl(wireComponent, this, this.eventAdmin, command -> this.executor.execute(command),
+                () -> this.options);
     }
 }
@@ -15,10 +15,15 @@ package org.eclipse.kura.internal.wire.helper;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.localization.resources.WireMessages;
@@ -35,7 +40,13 @@ import org.osgi.service.event.EventAdmin;
 import org.osgi.service.wireadmin.Wire;
 
 /**
- * The Class WireSupportImpl implements {@link WireSupport}
+ * The Class WireSupportImpl implements {@link WireSupport}<br/>
+ * <br/>
+ *
+ * By default the emitted envelopes are delivered to the outgoing wires sequentially, on the thread of the emitter.
+ * If asynchronous emission is enabled, each outgoing wire delivers the envelopes from its own queue through a
+ * {@link WireDispatcher}, and the {@link WireSupport#EMIT_EVENT_TOPIC} events of the envelopes emitted while an event
+ * is pending are coalesced into it.
  */
 final class WireSupportImpl implements WireSupport {
 
@@ -53,6 +64,18 @@ final class WireSupportImpl implements WireSupport {
 
     private String pid;
 
+    private final Event emitEvent;
+
+    private final Executor executor;
+
+    private final Supplier<WireSupportOptions> options;
+
+    private volatile WireSupportOptions dispatcherOptions;
+
+    private volatile List<WireDispatcher> dispatchers = Collections.emptyList();
+
+    private final AtomicBoolean emitEventPending = new AtomicBoolean();
+
     /**
      * Instantiates a new wire support implementation.
      *
@@ -62,14 +85,20 @@ final class WireSupportImpl implements WireSupport {
      *            the Wire Helper service
      * @param eventAdmin
      *            the Event Admin service
+     * @param executor
+     *            the executor delivering the envelopes when emitting asynchronously
+     * @param options
+     *            the supplier of the current wire support options
      * @throws NullPointerException
      *             if any of the provided arguments is null
      */
     WireSupportImpl(final WireComponent wireSupporter, final WireHelperService wireHelperService,
-            final EventAdmin eventAdmin) {
+            final EventAdmin eventAdmin, final Executor executor, final Supplier<WireSupportOptions> options) {
         requireNonNull(wireSupporter, message.wireSupportedComponentNonNull());
         requireNonNull(wireHelperService, message.wireHelperServiceNonNull());
         requireNonNull(eventAdmin, message.eventAdminNonNull());
+        requireNonNull(executor, message.executorNonNull());
+        requireNonNull(options, message.optionsNonNull());
 
         this.outgoingWires = CollectionUtil.newArrayList();
         this.incomingWires = CollectionUtil.newArrayList();
@@ -77,27 +106,161 @@ final class WireSupportImpl implements WireSupport {
         this.pid = wireHelperService.getPid(wireSupporter);
         this.wireSupporter = wireSupporter;
         this.eventAdmin = eventAdmin;
+        this.executor = executor;
+        this.options = options;
+
+        final Map<String, Object> properties = CollectionUtil.newHashMap();
+        properties.put("emitter", this.pid);
+        this.emitEvent = new Event(WireSupport.EMIT_EVENT_TOPIC, properties);
     }
 
     /** {@inheritDoc} */
     @Override
     public synchronized void consumersConnected(final Wire[] wires) {
-        this.outgoingWires = Arrays.asList(wires);
+        this.outgoingWires = wires == null ? Collections.<Wire> emptyList() : Arrays.asList(wires);
+        if (this.dispatcherOptions != null) {
+            updateDispatchers(this.dispatcherOptions);
+        }
     }
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void emit(final List<WireRecord> wireRecords) {
+    public void emit(final List<WireRecord> wireRecords) {
         requireNonNull(wireRecords, message.wireRecordsNonNull());
         if (this.wireSupporter instanceof WireEmitter) {
             final WireEnvelope wei = new WireEnvelope(emitterPid, wireRecords);
+            final List<WireDispatcher> currentDispatchers = getDispatchers(this.options.get());
+            if (currentDispatchers == null) {
+                emitSynchronously(wei);
+                return;
+            }
+            for (final WireDispatcher dispatcher : currentDispatchers) {
+                dispatcher.submit(wei);
+            }
+            postEmitEvent();
+        }
+    }
+
+    private synchronized void emitSynchronously(final WireEnvelope wei) {
+        for (final Wire wire : this.outgoingWires) {
+            wire.update(wei);
+        }
+        this.eventAdmin.postEvent(this.emitEvent);
+    }
+
+    private void postEmitEvent() {
+        if (this.emitEventPending.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(() -> {
+                    this.emitEventPending.set(false);
+                    this.eventAdmin.postEvent(this.emitEvent);
+                });
+            } catch (final RejectedExecutionException e) {
+                // the executor is shut down, the event is posted on the emitter thread
+                this.emitEventPending.set(false);
+                this.eventAdmin.postEvent(this.emitEvent);
+            }
+        }
+    }
+
+    /**
+     * Returns the dispatchers of the outgoing wires, creating them again if the options changed.
+     *
+     * @param currentOptions
+     *            the current wire support options
+     * @return the dispatchers, or null if the envelopes are delivered synchronously
+     */
+    private List<WireDispatcher> getDispatchers(final WireSupportOptions currentOptions) {
+        if (this.dispatcherOptions != currentOptions) {
+            synchronized (this) {
+                if (this.dispatcherOptions != currentOptions) {
+                    replaceDispatchers(currentOptions);
+                }
+            }
+        }
+        return this.dispatcherOptions.isEmitAsync() ? this.dispatchers : null;
+    }
+
+    /**
+     * Replaces the dispatchers of the outgoing wires with dispatchers using the new options. The envelopes queued by
+     * the replaced dispatchers are handed over to the new ones, or delivered on the calling thread if the envelopes
+     * are now delivered synchronously, so that they precede the envelopes emitted afterwards.
+     * Must be called holding the monitor of this instance.
+     */
+    private void replaceDispatchers(final WireSupportOptions currentOptions) {
+        final List<WireDispatcher> replacedDispatchers = this.dispatchers;
+        this.dispatchers = Collections.emptyList();
+        if (!currentOptions.isEmitAsync()) {
+            for (final WireDispatcher dispatcher : replacedDispatchers) {
+                dispatcher.close();
+                dispatcher.flush(true);
+            }
+            updateDispatchers(currentOptions);
+            return;
+        }
+
+        final List<WireDispatcher> newDispatchers = new ArrayList<>(this.outgoingWires.size());
+        for (final Wire wire : this.outgoingWires) {
+            WireDispatcher replaced = null;
+            for (final WireDispatcher dispatcher : replacedDispatchers) {
+                if (dispatcher.getWire() == wire) {
+                    replaced = dispatcher;
+                }
+            }
+            newDispatchers.add(new WireDispatcher(wire, currentOptions.getQueueCapacity(),
+                    currentOptions.isDiscardEnvelopes(), this.executor, replaced));
+        }
+        for (final WireDispatcher dispatcher : replacedDispatchers) {
+            dispatcher.close();
+        }
+        this.dispatchers = newDispatchers;
+        this.dispatcherOptions = currentOptions;
+    }
+
+    /**
+     * Creates the dispatchers of the outgoing wires that have none, keeping the existing ones.
+     * Must be called holding the monitor of this instance.
+     */
+    private void updateDispatchers(final WireSupportOptions currentOptions) {
+        closeDispatchers(this.outgoingWires);
+
+        final List<WireDispatcher> newDispatchers = new ArrayList<>(this.outgoingWires.size());
+        if (currentOptions.isEmitAsync()) {
             for (final Wire wire : this.outgoingWires) {
-                wire.update(wei);
+                WireDispatcher dispatcher = findDispatcher(wire);
+                if (dispatcher == null) {
+                    dispatcher = new WireDispatcher(wire, currentOptions.getQueueCapacity(),
+                            currentOptions.isDiscardEnvelopes(), this.executor);
+                }
+                newDispatchers.add(dispatcher);
+            }
+        }
+        this.dispatchers = newDispatchers;
+        this.dispatcherOptions = currentOptions;
+    }
+
+    /**
+     * Closes the dispatchers of the wires not in the provided list, and removes them from the current dispatchers.
+     */
+    private void closeDispatchers(final List<Wire> keptWires) {
+        final List<WireDispatcher> keptDispatchers = new ArrayList<>(this.dispatchers.size());
+        for (final WireDispatcher dispatcher : this.dispatchers) {
+            if (keptWires.contains(dispatcher.getWire())) {
+                keptDispatchers.add(dispatcher);
+            } else {
+                dispatcher.close();
+            }
+        }
+        this.dispatchers = keptDispatchers;
+    }
+
+    private WireDispatcher findDispatcher(final Wire wire) {
+        for (final WireDispatcher dispatcher : this.dispatchers) {
+            if (dispatcher.getWire() == wire) {
+                return dispatcher;
             }
-            final Map<String, Object> properties = CollectionUtil.newHashMap();
-            properties.put("emitter", pid);
-            this.eventAdmin.postEvent(new Event(WireSupport.EMIT_EVENT_TOPIC, properties));
         }
+        return null;
     }
 
     /**
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static java.util.Objects.nonNull;
+
+import java.util.Map;
+
+/**
+ * The Class WireSupportOptions is responsible to provide the options of the
+ * {@link WireSupportImpl} instances created by the Wire Helper Service
+ */
+final class WireSupportOptions {
+
+    /** The Constant denoting if the envelopes are delivered asynchronously. */
+    private static final String CONF_EMIT_ASYNC = "emit.async";
+
+    /** The Constant denoting the capacity of the queue of each outgoing wire. */
+    private static final String CONF_QUEUE_CAPACITY = "emit.queue.capacity";
+
+    /** The Constant denoting if the envelopes are discarded when the queue is full. */
+    private static final String CONF_DISCARD_ENVELOPES = "emit.discard.envelopes";
+
+    /** The Constant denoting the number of workers delivering the envelopes. */
+    private static final String CONF_WORKER_THREADS = "emit.worker.threads";
+
+    private static final boolean DEFAULT_EMIT_ASYNC = false;
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 50;
+
+    private static final boolean DEFAULT_DISCARD_ENVELOPES = false;
+
+    private static final int DEFAULT_WORKER_THREADS = 0;
+
+    private final boolean emitAsync;
+
+    private final int queueCapacity;
+
+    private final boolean discardEnvelopes;
+
+    private final int workerThreads;
+
+    /**
+     * Instantiates a new wire support options.
+     *
+     * @param properties
+     *            the properties, or null to use the default options
+     */
+    WireSupportOptions(final Map<String, Object> properties) {
+        this.emitAsync = getProperty(properties, CONF_EMIT_ASYNC, DEFAULT_EMIT_ASYNC);
+        this.queueCapacity = getProperty(properties, CONF_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY);
+        this.discardEnvelopes = getProperty(properties, CONF_DISCARD_ENVELOPES, DEFAULT_DISCARD_ENVELOPES);
+        this.workerThreads = Math.max(0, getProperty(properties, CONF_WORKER_THREADS, DEFAULT_WORKER_THREADS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getProperty(final Map<String, Object> properties, final String key, final T defaultValue) {
+        if (nonNull(properties)) {
+            final Object value = properties.get(key);
+            if (nonNull(value) && defaultValue.getClass().isInstance(value)) {
+                return (T) value;
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Checks if each outgoing wire delivers the emitted envelopes from its own queue
+     *
+     * @return true if the envelopes are delivered asynchronously
+     */
+    boolean isEmitAsync() {
+        return this.emitAsync;
+    }
+
+    /**
+     * Returns the maximum number of envelopes in the queue of each outgoing wire
+     *
+     * @return the queue capacity
+     */
+    int getQueueCapacity() {
+        return this.queueCapacity;
+    }
+
+    /**
+     * Checks if the envelopes are discarded when the queue of an outgoing wire is full, otherwise the emitter blocks
+     * until the envelope can be enqueued
+     *
+     * @return true if the envelopes are discarded
+     */
+    boolean isDiscardEnvelopes() {
+        return this.discardEnvelopes;
+    }
+
+    /**
+     * Returns the number of workers delivering the envelopes, when emitting asynchronously
+     *
+     * @return the number of workers, 0 if each outgoing wire with pending envelopes gets a thread of its own
+     */
+    int getWorkerThreads() {
+        return this.workerThreads;
+    }
+}
@@ -47,10 +47,15 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
 
     private static final String SCRIPT_PROPERTY_KEY = "script";
     private static final String SCRIPT_CONTEXT_DROP_PROPERTY_KEY = "script.context.drop";
+    private static final String SCRIPT_STATELESS_PROPERTY_KEY = "script.stateless";
+    private static final String SCRIPT_POOL_SIZE_PROPERTY_KEY = "script.pool.size";
 
     private CompiledScript script;
     private Bindings bindings;
 
+    private SharedContext sharedContext = new SharedContext();
+    private volatile ScriptInstancePool pool;
+
     private volatile WireHelperService wireHelperService;
     private WireSupport wireSupport;
 
@@ -73,7 +78,7 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
         this.wireSupport = this.wireHelperService.newWireSupport(this);
 
         this.scriptEngine = createEngine();
-        this.bindings = createBindings();
+        this.bindings = createBindings(this.scriptEngine, this.sharedContext);
 
         updated(properties);
 
@@ -82,6 +87,7 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
 
     public void deactivate() {
         logger.info(message.deactivating());
+        this.pool = null;
         logger.info(message.deactivatingDone());
     }
 
@@ -95,48 +101,97 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
             return;
         }
 
+        final boolean dropContext = (Boolean) properties.getOrDefault(SCRIPT_CONTEXT_DROP_PROPERTY_KEY, false);
+        if (dropContext) {
+            this.sharedContext = new SharedContext();
+        }
+
         this.script = null;
+        this.pool = null;
         try {
-            this.script = ((Compilable) this.scriptEngine).compile(scriptSource);
+            if ((Boolean) properties.getOrDefault(SCRIPT_STATELESS_PROPERTY_KEY, false)) {
+                int poolSize = (Integer) properties.getOrDefault(SCRIPT_POOL_SIZE_PROPERTY_KEY, 0);
+                if (poolSize <= 0) {
+                    poolSize = Runtime.getRuntime().availableProcessors();
+                }
+                this.pool = new ScriptInstancePool(scriptSource, poolSize, this.sharedContext);
+                logger.debug("Evaluating the script with up to {} concurrent instances", poolSize);
+            } else {
+                this.script = ((Compilable) this.scriptEngine).compile(scriptSource);
+            }
         } catch (ScriptException e) {
             logger.warn(message.errorScriptCompileFalied(), e);
         }
 
-        if (this.bindings == null || (Boolean) properties.getOrDefault(SCRIPT_CONTEXT_DROP_PROPERTY_KEY, false)) {
-            this.bindings = createBindings();
+        if (this.bindings == null || dropContext) {
+            this.bindings = createBindings(this.scriptEngine, this.sharedContext);
         }
 
         logger.info(message.updatingDone());
     }
 
     @Override
-    public synchronized void onWireReceive(WireEnvelope wireEnvelope) {
-        if (this.script == null) {
-            logger.warn(message.errorScriptCompileFalied());
+    public void onWireReceive(WireEnvelope wireEnvelope) {
+        final ScriptInstancePool currentPool = this.pool;
+        if (currentPool != null) {
+            onWireReceiveStateless(currentPool, wireEnvelope);
             return;
         }
 
-        try {
-            final WireEnvelopeWrapper inputEnvelopeWrapper = new WireEnvelopeWrapper(
-                    new WireRecordListWrapper(wireEnvelope.getRecords()), wireEnvelope.getEmitterPid());
-            final OutputWireRecordListWrapper outputEnvelopeWrapper = new OutputWireRecordListWrapper();
+        synchronized (this) {
+            if (this.script == null) {
+                logger.warn(message.errorScriptCompileFalied());
+                return;
+            }
 
-            this.bindings.put("input", inputEnvelopeWrapper);
-            this.bindings.put("output", outputEnvelopeWrapper);
+            try {
+                final List<WireRecord> result = evaluate(this.script, this.bindings, wireEnvelope);
 
-            this.script.eval(this.bindings);
+                if (result != null) {
+                    this.wireSupport.emit(result);
+                }
+            } catch (Exception e) {
+                logger.warn(message.errorExecutingScript(), e);
+            }
+        }
+    }
 
-            final List<WireRecord> result = outputEnvelopeWrapper.getRecords();
+    private void onWireReceiveStateless(ScriptInstancePool currentPool, WireEnvelope wireEnvelope) {
+        try {
+            final List<WireRecord> result;
+            final ScriptInstancePool.ScriptInstance instance = currentPool.borrow();
+            try {
+                result = instance.evaluate(wireEnvelope);
+            } finally {
+                currentPool.release(instance);
+            }
 
             if (result != null) {
                 this.wireSupport.emit(result);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn(message.errorExecutingScript(), e);
         } catch (Exception e) {
             logger.warn(message.errorExecutingScript(), e);
         }
     }
 
-    private ScriptEngine createEngine() {
+    static List<WireRecord> evaluate(CompiledScript script, Bindings bindings, WireEnvelope wireEnvelope)
+            throws ScriptException {
+        final WireEnvelopeWrapper inputEnvelopeWrapper = new WireEnvelopeWrapper(
+                new WireRecordListWrapper(wireEnvelope.getRecords()), wireEnvelope.getEmitterPid());
+        final OutputWireRecordListWrapper outputEnvelopeWrapper = new OutputWireRecordListWrapper();
+
+        bindings.put("input", inputEnvelopeWrapper);
+        bindings.put("output", outputEnvelopeWrapper);
+
+        script.eval(bindings);
+
+        return outputEnvelopeWrapper.getRecords();
+    }
+
+    static ScriptEngine createEngine() {
         NashornScriptEngineFactory factory = new NashornScriptEngineFactory();
         ScriptEngine scriptEngine = factory.getScriptEngine(className -> false);
 
@@ -159,10 +214,11 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
         return scriptEngine;
     }
 
-    private Bindings createBindings() {
-        Bindings bindings = this.scriptEngine.createBindings();
+    static Bindings createBindings(ScriptEngine scriptEngine, SharedContext sharedContext) {
+        Bindings bindings = scriptEngine.createBindings();
 
         bindings.put("logger", logger);
+        bindings.put("context", sharedContext);
 
         bindings.put("newWireRecord", (Supplier<WireRecordWrapper>) WireRecordWrapper::new);
 
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.wire.script.filter.provider;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireRecord;
+
+/**
+ * The pool of script instances used by a {@link ScriptFilter} in stateless mode. Each instance has its own script
+ * engine, compiled script and bindings, so that the instances can evaluate different envelopes at the same time.
+ * The instances are created when needed, up to the size of the pool; when all of them are busy, the evaluations
+ * wait for one to be released.
+ */
+final class ScriptInstancePool {
+
+    private final String source;
+
+    private final SharedContext sharedContext;
+
+    private final int size;
+
+    private final BlockingQueue<ScriptInstance> idleInstances;
+
+    private final AtomicInteger instanceCount = new AtomicInteger();
+
+    /**
+     * Instantiates a new pool, with a first instance.
+     *
+     * @param source
+     *            the source of the script
+     * @param size
+     *            the maximum number of instances
+     * @param sharedContext
+     *            the context shared by the instances
+     * @throws ScriptException
+     *             if the script cannot be compiled
+     */
+    ScriptInstancePool(final String source, final int size, final SharedContext sharedContext)
+            throws ScriptException {
+        this.source = source;
+        this.size = Math.max(1, size);
+        this.sharedContext = sharedContext;
+        this.idleInstances = new ArrayBlockingQueue<>(this.size);
+
+        // the first instance reports a script that does not compile as soon as it is configured
+        this.idleInstances.add(new ScriptInstance());
+        this.instanceCount.set(1);
+    }
+
+    /**
+     * Returns the maximum number of instances.
+     *
+     * @return the size of the pool
+     */
+    int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Takes an instance from the pool, creating it or waiting for one to be released if needed. The instance must
+     * be given back with {@link #release(ScriptInstance)}.
+     *
+     * @return the instance
+     * @throws ScriptException
+     *             if a new instance cannot be created
+     * @throws InterruptedException
+     *             if interrupted while waiting for an instance
+     */
+    ScriptInstance borrow() throws ScriptException, InterruptedException {
+        final ScriptInstance instance = this.idleInstances.poll();
+        if (instance != null) {
+            return instance;
+        }
+
+        int count;
+        while ((count = this.instanceCount.get()) < this.size) {
+            if (this.instanceCount.compareAndSet(count, count + 1)) {
+                try {
+                    return new ScriptInstance();
+                } catch (final ScriptException | RuntimeException e) {
+                    this.instanceCount.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+        return this.idleInstances.take();
+    }
+
+    /**
+     * Gives an instance back to the pool.
+     *
+     * @param instance
+     *            the instance
+     */
+    void release(final ScriptInstance instance) {
+        this.idleInstances.offer(instance);
+    }
+
+    /**
+     * A script compiled by a script engine of its own.
+     */
+    final class ScriptInstance {
+
+        private final CompiledScript script;
+
+        private final Bindings bindings;
+
+        private ScriptInstance() throws ScriptException {
+            final ScriptEngine engine = ScriptFilter.createEngine();
+            this.script = ((Compilable) engine).compile(ScriptInstancePool.this.source);
+            this.bindings = ScriptFilter.createBindings(engine, ScriptInstancePool.this.sharedContext);
+        }
+
+        /**
+         * Evaluates the script for an envelope.
+         *
+         * @param wireEnvelope
+         *            the received envelope
+         * @return the records to emit, or null if the script did not add any
+         * @throws ScriptException
+         *             if the evaluation fails
+         */
+        List<WireRecord> evaluate(final WireEnvelope wireEnvelope) throws ScriptException {
+            return ScriptFilter.evaluate(this.script, this.bindings, wireEnvelope);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.wire.script.filter.provider;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.wire.script.filter.localization.ScriptFilterMessages;
+
+/**
+ * The state shared by the executions of the script of a {@link ScriptFilter}, available to the script as the
+ * {@code context} global variable.<br/>
+ * <br/>
+ *
+ * In stateless mode the script is evaluated concurrently by several script engines, which do not share their global
+ * variables, so this object is the only way for the evaluations to share state. All the operations are atomic. The
+ * functions passed to {@link #compute(String, BiFunction)} are evaluated while holding a lock on the key and should
+ * be short.
+ */
+public class SharedContext {
+
+    private static final ScriptFilterMessages messages = LocalizationAdapter.adapt(ScriptFilterMessages.class);
+
+    private final ConcurrentMap<String, Object> values = new ConcurrentHashMap<>();
+
+    public Object get(String key) {
+        return this.values.get(requireNonNull(key, messages.errorNonNull()));
+    }
+
+    public boolean has(String key) {
+        return this.values.containsKey(requireNonNull(key, messages.errorNonNull()));
+    }
+
+    public Object put(String key, Object value) {
+        requireNonNull(key, messages.errorNonNull());
+        if (value == null) {
+            return this.values.remove(key);
+        }
+        return this.values.put(key, value);
+    }
+
+    public Object putIfAbsent(String key, Object value) {
+        return this.values.putIfAbsent(requireNonNull(key, messages.errorNonNull()),
+                requireNonNull(value, messages.errorNonNull()));
+    }
+
+    public Object remove(String key) {
+        return this.values.remove(requireNonNull(key, messages.errorNonNull()));
+    }
+
+    public Object compute(String key, BiFunction<String, Object, Object> function) {
+        return this.values.compute(requireNonNull(key, messages.errorNonNull()),
+                requireNonNull(function, messages.errorNonNull()));
+    }
+
+    public long addAndGet(String key, long delta) {
+        return (Long) this.values.merge(requireNonNull(key, messages.errorNonNull()), delta,
+                (previous, increment) -> ((Number) previous).longValue() + (Long) increment);
+    }
+}
@@ -369,12 +369,13 @@ public final class AssetTest {
 
         List<AD> ads = ocd.getAD();
         assertNotNull(ads);
-        assertEquals(10, ads.size()); // description, driver, 8 from BaseChannelDescriptor and StubChannelDescriptor
+        assertEquals(20, ads.size()); // description, driver, 18 from BaseChannelDescriptor and StubChannelDescriptor
 
         assertEquals("asset.desc", ads.get(0).getId());
         assertEquals("driver.pid", ads.get(1).getId());
 
-        String[] expectedValues = { "#+name", "#+type", "#+value.type", "#unit.id" };
+        String[] expectedValues = { "#+name", "#+type", "#+value.type", "#+listen", "#+report.on.change",
+                "#+report.deadband", "#+report.deadband.percent", "#+report.max.silence", "#unit.id" };
         for (int i = 0; i < expectedValues.length; i += 2) {
             String id = ads.get(i * 2 + 2).getId();
             String id2 = ads.get(i * 2 + 3).getId();
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.core.util.GZipUtil;
+import org.eclipse.kura.message.KuraPayload;
+import org.junit.Test;
+
+public class CloudPayloadCompressorTest {
+
+    @Test
+    public void testBelowThresholdIsNotCompressed() {
+        CloudPayloadCompressor compressor = new CloudPayloadCompressor(100, null);
+
+        byte[] source = new byte[99];
+        assertSame(source, compressor.compress(source));
+
+        compressor.close();
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        CloudPayloadCompressor compressor = new CloudPayloadCompressor(0, "");
+
+        byte[] source = new byte[1000];
+        for (int i = 0; i < 2; i++) {
+            // the second round reuses the pooled deflater
+            byte[] compressed = compressor.compress(source);
+            assertTrue(compressed.length < source.length);
+            assertTrue(GZipUtil.isCompressed(compressed));
+            assertArrayEquals(source, GZipUtil.decompress(compressed));
+        }
+
+        compressor.close();
+    }
+
+    @Test
+    public void testIncompressibleIsNotCompressed() {
+        CloudPayloadCompressor compressor = new CloudPayloadCompressor(0, null);
+
+        byte[] source = new byte[200];
+        new Random(0).nextBytes(source);
+        assertSame(source, compressor.compress(source));
+
+        compressor.close();
+    }
+
+    @Test
+    public void testDictionary() throws IOException, KuraException {
+        String dictionary = "temperature,pressure,humidity";
+        CloudPayloadCompressor compressor = new CloudPayloadCompressor(0, dictionary);
+
+        KuraPayload payload = new KuraPayload();
+        payload.addMetric("temperature", 21.5);
+        payload.addMetric("humidity", 40);
+        byte[] source = new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+
+        byte[] compressed = compressor.compress(source);
+        assertTrue(compressed.length < source.length);
+        assertTrue(compressed.length < new CloudPayloadCompressor(0, null).compress(source).length);
+        assertTrue(compressor.isCompressed(compressed));
+        assertFalse(new CloudPayloadCompressor(0, "other").isCompressed(compressed));
+        assertArrayEquals(source, compressor.decompress(compressed));
+
+        KuraPayload decoded = new CloudPayloadProtoBufDecoderImpl(compressed, compressor).buildFromByteArray();
+        assertEquals(21.5, decoded.getMetric("temperature"));
+        assertEquals(40, decoded.getMetric("humidity"));
+
+        compressor.close();
+    }
+}
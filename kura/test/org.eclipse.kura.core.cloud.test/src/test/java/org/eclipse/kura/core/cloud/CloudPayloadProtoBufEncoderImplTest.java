@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.KuraInvalidMessageException;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto;
+import org.eclipse.kura.core.message.protobuf.KuraPayloadProto.KuraPayload.KuraMetric;
+import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.message.KuraPosition;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UninitializedMessageException;
+
+public class CloudPayloadProtoBufEncoderImplTest {
+
+    @Test
+    public void testEncodingMatchesGeneratedMessage() throws IOException {
+        KuraPayload payload = new KuraPayload();
+        payload.setTimestamp(new Date(1500000000000L));
+        KuraPosition position = new KuraPosition();
+        position.setLatitude(45.1);
+        position.setLongitude(13.2);
+        position.setSatellites(7);
+        payload.setPosition(position);
+        payload.addMetric("string", "välue € 😀");
+        payload.addMetric("int", -5);
+        payload.addMetric("bytes", new byte[] { 1, 2, 3 });
+        payload.setBody(new byte[] { 4, 5 });
+
+        KuraPayloadProto.KuraPayload.Builder builder = KuraPayloadProto.KuraPayload.newBuilder()
+                .setTimestamp(1500000000000L)
+                .setPosition(KuraPayloadProto.KuraPayload.KuraPosition.newBuilder().setLatitude(45.1)
+                        .setLongitude(13.2).setSatellites(7))
+                .setBody(ByteString.copyFrom(new byte[] { 4, 5 }));
+        // metrics are encoded in the iteration order of the payload
+        for (String name : payload.metricNames()) {
+            KuraMetric.Builder metric = KuraMetric.newBuilder().setName(name);
+            if ("string".equals(name)) {
+                metric.setType(KuraMetric.ValueType.STRING).setStringValue("välue € 😀");
+            } else if ("int".equals(name)) {
+                metric.setType(KuraMetric.ValueType.INT32).setIntValue(-5);
+            } else {
+                metric.setType(KuraMetric.ValueType.BYTES).setBytesValue(ByteString.copyFrom(new byte[] { 1, 2, 3 }));
+            }
+            builder.addMetric(metric);
+        }
+        KuraPayloadProto.KuraPayload expected = builder.build();
+
+        CloudPayloadProtoBufEncoderImpl encoder = new CloudPayloadProtoBufEncoderImpl(payload);
+        assertEquals(expected.getSerializedSize(), encoder.getSerializedSize());
+        assertArrayEquals(expected.toByteArray(), encoder.getBytes());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, KuraException {
+        KuraPayload payload = new KuraPayload();
+        payload.setTimestamp(new Date());
+        payload.addMetric("double", 1.5);
+        payload.addMetric("float", 2.5f);
+        payload.addMetric("long", Long.MIN_VALUE);
+        payload.addMetric("bool", true);
+        payload.addMetric("unpaired", "a\ud800b");
+        payload.addMetric("null", null);
+
+        byte[] bytes = new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+        KuraPayload decoded = new CloudPayloadProtoBufDecoderImpl(bytes).buildFromByteArray();
+
+        assertEquals(payload.getTimestamp(), decoded.getTimestamp());
+        assertNull(decoded.getPosition());
+        assertNull(decoded.getBody());
+        assertEquals(5, decoded.metrics().size());
+        assertEquals(1.5, decoded.getMetric("double"));
+        assertEquals(2.5f, decoded.getMetric("float"));
+        assertEquals(Long.MIN_VALUE, decoded.getMetric("long"));
+        assertEquals(true, decoded.getMetric("bool"));
+        assertEquals("a?b", decoded.getMetric("unpaired"));
+    }
+
+    @Test
+    public void testDecodeGeneratedMessage() throws IOException, KuraException {
+        KuraPayloadProto.KuraPayload message = KuraPayloadProto.KuraPayload.newBuilder()
+                .setPosition(KuraPayloadProto.KuraPayload.KuraPosition.newBuilder().setLatitude(1).setLongitude(2)
+                        .setTimestamp(42))
+                .addMetric(KuraMetric.newBuilder().setName("empty").setType(KuraMetric.ValueType.STRING))
+                .setBody(ByteString.copyFrom(new byte[] { 9 })).build();
+
+        KuraPayload decoded = new CloudPayloadProtoBufDecoderImpl(message.toByteArray()).buildFromByteArray();
+
+        assertNull(decoded.getTimestamp());
+        assertEquals(1.0, decoded.getPosition().getLatitude(), 0.0);
+        assertEquals(2.0, decoded.getPosition().getLongitude(), 0.0);
+        assertEquals(new Date(42), decoded.getPosition().getTimestamp());
+        assertNull(decoded.getPosition().getAltitude());
+        assertEquals("", decoded.getMetric("empty"));
+        assertArrayEquals(new byte[] { 9 }, decoded.getBody());
+    }
+
+    @Test(expected = KuraInvalidMessageException.class)
+    public void testDecodeMissingMetricType() throws IOException, KuraException {
+        byte[] bytes = KuraPayloadProto.KuraPayload.newBuilder()
+                .addMetric(KuraMetric.newBuilder().setName("metric").setType(KuraMetric.ValueType.INT32))
+                .build().toByteArray();
+
+        // drop the type field of the metric: tag (3 bytes), length, name (8 bytes), type (2 bytes)
+        byte[] truncated = new byte[bytes.length - 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        truncated[2] = (byte) (truncated[2] - 2);
+
+        new CloudPayloadProtoBufDecoderImpl(truncated).buildFromByteArray();
+    }
+
+    @Test(expected = UninitializedMessageException.class)
+    public void testEncodePositionWithoutLongitude() throws IOException {
+        // the required fields of the position are checked as the generated message does
+        KuraPosition position = new KuraPosition();
+        position.setLatitude(1.0);
+        KuraPayload payload = new KuraPayload();
+        payload.setPosition(position);
+
+        new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+    }
+}
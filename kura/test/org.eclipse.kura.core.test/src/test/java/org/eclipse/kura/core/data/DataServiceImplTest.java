@@ -9,7 +9,9 @@
 package org.eclipse.kura.core.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
@@ -17,11 +19,13 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +46,7 @@ import org.eclipse.kura.status.CloudConnectionStatusService;
 import org.eclipse.kura.watchdog.WatchdogService;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.osgi.service.component.ComponentContext;
 
 public class DataServiceImplTest {
@@ -527,6 +532,8 @@ public class DataServiceImplTest {
 
         doThrow(new KuraStoreException("test")).when(storeMock).confirmed(msgId);
 
+        TestUtil.setFieldValue(svc, "confirmationExecutor", Executors.newSingleThreadExecutor());
+
         Map<String, Object> properties = new HashMap<>();
         properties.put("in-flight-messages.max-number", 0);
         DataServiceOptions dataServiceOptions = new DataServiceOptions(properties);
@@ -535,7 +542,91 @@ public class DataServiceImplTest {
 
         svc.onMessageConfirmed(token);
 
-        verify(storeMock, times(1)).confirmed(msgId);
+        verify(storeMock, timeout(1000).times(1)).confirmed(msgId);
+    }
+
+    @Test
+    public void testMessageConfirmedBeforeTracked() throws Throwable {
+        // the confirmation arrives while the transport is publishing, before the publisher tracks the token
+
+        DataServiceImpl svc = new DataServiceImpl();
+        DataStore storeMock = mock(DataStore.class);
+        Map<DataTransportToken, Integer> inFlightMsgIds = initConfirmation(svc, storeMock);
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        svc.setDataTransportService(dtsMock);
+
+        DataTransportToken token = new DataTransportToken(42, "session");
+        when(dtsMock.publish("topic", null, 1, false)).thenAnswer(invocation -> {
+            svc.onMessageConfirmed(token);
+            return token;
+        });
+
+        PublishLane lane = new PublishLane("default", Integer.MIN_VALUE, Integer.MAX_VALUE, null, 0);
+        TestUtil.invokePrivate(svc, "publishInternal", new Class<?>[] { DataMessage.class, PublishLane.class },
+                new DataMessage.Builder(7).withTopic("topic").withQos(1).build(), lane);
+
+        assertTrue(inFlightMsgIds.isEmpty());
+        verify(storeMock, times(1)).published(7, 42, "session");
+        verify(storeMock, timeout(1000).times(1)).confirmed(7);
+    }
+
+    @Test
+    public void testStaleConfirmationIgnored() throws Throwable {
+        // a duplicate confirmation of an old message does not confirm a new message with the same MQTT message ID
+
+        DataServiceImpl svc = new DataServiceImpl();
+        DataStore storeMock = mock(DataStore.class);
+        Map<DataTransportToken, Integer> inFlightMsgIds = initConfirmation(svc, storeMock);
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        svc.setDataTransportService(dtsMock);
+
+        DataTransportToken token = new DataTransportToken(42, "session");
+        DataTransportToken otherToken = new DataTransportToken(43, "session");
+
+        // received while no message is being published
+        svc.onMessageConfirmed(token);
+
+        // received while another message is being published
+        when(dtsMock.publish("other", null, 1, false)).thenAnswer(invocation -> {
+            svc.onMessageConfirmed(token);
+            return otherToken;
+        });
+        when(dtsMock.publish("topic", null, 1, false)).thenReturn(token);
+
+        PublishLane lane = new PublishLane("default", Integer.MIN_VALUE, Integer.MAX_VALUE, null, 0);
+        TestUtil.invokePrivate(svc, "publishInternal", new Class<?>[] { DataMessage.class, PublishLane.class },
+                new DataMessage.Builder(6).withTopic("other").withQos(1).build(), lane);
+        TestUtil.invokePrivate(svc, "publishInternal", new Class<?>[] { DataMessage.class, PublishLane.class },
+                new DataMessage.Builder(7).withTopic("topic").withQos(1).build(), lane);
+
+        verify(storeMock, times(1)).published(7, 42, "session");
+        assertEquals(7, (int) inFlightMsgIds.get(token));
+        assertEquals(6, (int) inFlightMsgIds.get(otherToken));
+        Map<?, ?> earlyConfirmedTokens = (Map<?, ?>) TestUtil.getFieldValue(svc, "earlyConfirmedTokens");
+        assertTrue(earlyConfirmedTokens.isEmpty());
+
+        // the real confirmation
+        svc.onMessageConfirmed(token);
+        verify(storeMock, timeout(1000).times(1)).confirmed(7);
+        verify(storeMock, times(0)).confirmed(6);
+    }
+
+    private Map<DataTransportToken, Integer> initConfirmation(DataServiceImpl svc, DataStore storeMock)
+            throws NoSuchFieldException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("in-flight-messages.max-number", 10);
+        DataServiceOptions dataServiceOptions = new DataServiceOptions(properties);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", dataServiceOptions);
+
+        TestUtil.setFieldValue(svc, "store", storeMock);
+
+        Map<DataTransportToken, Integer> inFlightMsgIds = new HashMap<>();
+        TestUtil.setFieldValue(svc, "inFlightMsgIds", inFlightMsgIds);
+
+        TestUtil.setFieldValue(svc, "confirmationExecutor", Executors.newSingleThreadExecutor());
+        return inFlightMsgIds;
     }
 
     @Test
@@ -669,4 +760,88 @@ public class DataServiceImplTest {
         verify(congestionMock, times(1)).schedule((Runnable) anyObject(), eq(100L), eq(TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testPublishBatchStopsAtInFlightWindow() throws Throwable {
+        // publish a batch of messages; the batch ends when the in-flight window is full
+
+        DataServiceImpl svc = new DataServiceImpl();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("in-flight-messages.max-number", 1);
+        properties.put("enable.rate.limit", false);
+        properties.put("publish.batch.size", 10);
+        DataServiceOptions dataServiceOptions = new DataServiceOptions(properties);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", dataServiceOptions);
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+
+        Map<DataTransportToken, Integer> inFlightMsgIds = new HashMap<>();
+        TestUtil.setFieldValue(svc, "inFlightMsgIds", inFlightMsgIds);
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        svc.setDataTransportService(dtsMock);
+
+        DataTransportToken token = new DataTransportToken(42, "session");
+        when(dtsMock.publish("qos0", null, 0, false)).thenReturn(null);
+        when(dtsMock.publish("qos1", null, 1, false)).thenReturn(token);
+
+        List<DataMessage> messages = Arrays.asList(new DataMessage.Builder(1).withTopic("qos0").build(),
+                new DataMessage.Builder(2).withTopic("qos1").withQos(1).build(),
+                new DataMessage.Builder(3).withTopic("qos1").withQos(1).build());
+
+        PublishLane lane = new PublishLane("default", Integer.MIN_VALUE, Integer.MAX_VALUE, null, 0);
+        List<DataMessage> published = (List<DataMessage>) TestUtil.invokePrivate(svc, "publishBatchInternal",
+                new Class<?>[] { List.class, PublishLane.class }, messages, lane);
+
+        assertEquals(2, published.size());
+        assertEquals(1, inFlightMsgIds.size());
+        assertEquals(2, (int) inFlightMsgIds.get(token));
+
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(storeMock, times(1)).published(captor.capture());
+        Map<Integer, DataTransportToken> publishedTokens = captor.getValue();
+        assertEquals(2, publishedTokens.size());
+        assertTrue(publishedTokens.containsKey(1));
+        assertNull(publishedTokens.get(1));
+        assertEquals(token, publishedTokens.get(2));
+    }
+
+    @Test
+    public void testPublishBatchStopsAtLaneInFlightBudget() throws Throwable {
+        DataServiceImpl svc = new DataServiceImpl();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("in-flight-messages.max-number", 10);
+        properties.put("enable.rate.limit", false);
+        DataServiceOptions dataServiceOptions = new DataServiceOptions(properties);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", dataServiceOptions);
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+
+        Map<DataTransportToken, Integer> inFlightMsgIds = new HashMap<>();
+        TestUtil.setFieldValue(svc, "inFlightMsgIds", inFlightMsgIds);
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        svc.setDataTransportService(dtsMock);
+
+        when(dtsMock.publish("qos1", null, 1, false)).thenReturn(new DataTransportToken(1, "session"),
+                new DataTransportToken(2, "session"));
+
+        List<DataMessage> messages = Arrays.asList(new DataMessage.Builder(1).withTopic("qos1").withQos(1).build(),
+                new DataMessage.Builder(2).withTopic("qos1").withQos(1).build());
+
+        PublishLane lane = new PublishLane("bulk", 8, Integer.MAX_VALUE, null, 1);
+        List<DataMessage> published = (List<DataMessage>) TestUtil.invokePrivate(svc, "publishBatchInternal",
+                new Class<?>[] { List.class, PublishLane.class }, messages, lane);
+
+        assertEquals(1, published.size());
+        assertFalse(lane.isInFlightBudgetAvailable());
+
+        lane.disable();
+        published = (List<DataMessage>) TestUtil.invokePrivate(svc, "publishBatchInternal",
+                new Class<?>[] { List.class, PublishLane.class }, messages, lane);
+        assertTrue(published.isEmpty());
+    }
 }
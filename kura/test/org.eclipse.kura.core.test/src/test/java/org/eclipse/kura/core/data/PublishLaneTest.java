@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PublishLaneTest {
+
+    @Test
+    public void testDefaultLane() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("enable.rate.limit", true);
+
+        List<PublishLane> lanes = PublishLane.createLanes(new DataServiceOptions(properties));
+
+        assertEquals(1, lanes.size());
+        assertTrue(lanes.get(0).isDefault());
+        assertNotNull(lanes.get(0).getThrottle());
+        assertTrue(lanes.get(0).isInFlightBudgetAvailable());
+
+        // the rate limit options do not apply to the framework priorities
+        assertFalse(lanes.get(0).isThrottled(4));
+        assertTrue(lanes.get(0).isThrottled(5));
+    }
+
+    @Test
+    public void testConfiguredLanes() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("enable.rate.limit", true);
+        properties.put("publish.lanes", "bulk:8:1:1:2; control:0:0 ;telemetry:5");
+
+        List<PublishLane> lanes = PublishLane.createLanes(new DataServiceOptions(properties));
+
+        assertEquals(3, lanes.size());
+
+        PublishLane control = lanes.get(0);
+        assertEquals("control", control.getName());
+        assertTrue(control.accepts(-1));
+        assertTrue(control.accepts(4));
+        assertFalse(control.accepts(5));
+        assertNull(control.getThrottle());
+        assertFalse(control.isThrottled(0));
+
+        PublishLane telemetry = lanes.get(1);
+        assertEquals("telemetry", telemetry.getName());
+        assertEquals(5, telemetry.getMinPriority());
+        assertEquals(7, telemetry.getMaxPriority());
+        assertNotNull(telemetry.getThrottle());
+        assertTrue(telemetry.isThrottled(5));
+
+        PublishLane bulk = lanes.get(2);
+        assertEquals("bulk", bulk.getName());
+        assertTrue(bulk.accepts(100));
+        assertNotNull(bulk.getThrottle());
+        assertTrue(bulk.isThrottled(8));
+
+        bulk.addInFlightMessage(1);
+        assertTrue(bulk.isInFlightBudgetAvailable());
+        bulk.addInFlightMessage(2);
+        assertFalse(bulk.isInFlightBudgetAvailable());
+        bulk.removeInFlightMessage(1);
+        assertTrue(bulk.isInFlightBudgetAvailable());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalLane() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("publish.lanes", "control");
+
+        PublishLane.createLanes(new DataServiceOptions(properties));
+    }
+
+    @Test
+    public void testIllegalLanesRejectedBeforeSorting() {
+        String[] illegalSpecs = { "telemetry:5;control", "telemetry:5;control:low", "telemetry:5;control:0:x",
+                "telemetry:5;:0", "telemetry:5:-1", "control:0:1:1:2:3", "control:0;telemetry:5;bulk:5" };
+
+        for (String illegalSpec : illegalSpecs) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("publish.lanes", illegalSpec);
+            try {
+                PublishLane.createLanes(new DataServiceOptions(properties));
+                fail("Expected an IllegalArgumentException for " + illegalSpec);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testLaneRateAppliesToAllPriorities() {
+        // a rate configured on a lane also limits the priorities below 5
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("publish.lanes", "control:0:10;telemetry:5:0");
+
+        List<PublishLane> lanes = PublishLane.createLanes(new DataServiceOptions(properties));
+
+        assertTrue(lanes.get(0).isThrottled(0));
+        assertTrue(lanes.get(0).isThrottled(-1));
+        assertFalse(lanes.get(1).isThrottled(5));
+    }
+}
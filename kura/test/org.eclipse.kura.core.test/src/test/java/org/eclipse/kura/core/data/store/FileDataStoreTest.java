@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileDataStoreTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("filedatastore").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(this.directory);
+    }
+
+    @Test
+    public void testNextMessageInPriorityOrder() throws KuraStoreException {
+        FileDataStore store = new FileDataStore(this.directory, 65536);
+        store.start(null, 900, 60, 100);
+
+        store.store("low", new byte[] { 1 }, 0, false, 7);
+        store.store("high", new byte[] { 2 }, 1, true, 0);
+
+        List<DataMessage> msgs = store.getNextMessages(10);
+        assertEquals(2, msgs.size());
+        assertEquals("high", msgs.get(0).getTopic());
+        assertArrayEquals(new byte[] { 2 }, msgs.get(0).getPayload());
+        assertEquals("low", msgs.get(1).getTopic());
+
+        List<DataMessage> lowMsgs = store.getNextMessages(5, 9, 10);
+        assertEquals(1, lowMsgs.size());
+        assertEquals("low", lowMsgs.get(0).getTopic());
+
+        store.published(msgs.get(0).getId(), 5, "session");
+        assertEquals("low", store.getNextMessage().getTopic());
+        assertEquals(1, store.allInFlightMessagesNoPayload().size());
+
+        store.stop();
+    }
+
+    @Test
+    public void testStateSurvivesRestart() throws KuraStoreException {
+        FileDataStore store = new FileDataStore(this.directory, 65536);
+        store.start(null, 900, 60, 100);
+
+        DataMessage first = store.store("topic", new byte[] { 1, 2, 3 }, 1, false, 5);
+        DataMessage second = store.store("topic", null, 1, false, 5);
+        store.published(first.getId(), 7, "session");
+        store.stop();
+
+        store = new FileDataStore(this.directory, 65536);
+        store.start(null, 900, 60, 100);
+
+        assertEquals(2, store.getMessageCount());
+        DataMessage inFlight = store.allInFlightMessagesNoPayload().get(0);
+        assertEquals(first.getId(), inFlight.getId());
+        assertEquals(7, inFlight.getPublishedMessageId());
+        assertEquals("session", inFlight.getSessionId());
+
+        DataMessage next = store.getNextMessage();
+        assertEquals(second.getId(), next.getId());
+        assertNull(next.getPayload());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, store.get(first.getId()).getPayload());
+
+        DataMessage third = store.store("topic", new byte[0], 0, false, 5);
+        assertEquals(second.getId() + 1, third.getId());
+
+        store.stop();
+    }
+
+    @Test
+    public void testStaleSegmentsAreDeleted() throws KuraStoreException {
+        FileDataStore store = new FileDataStore(this.directory, 100);
+        store.start(null, 900, 60, 100);
+
+        // each record fills a segment
+        DataMessage first = store.store("topic", new byte[80], 0, false, 5);
+        store.store("topic", new byte[80], 0, false, 5);
+        assertEquals(2, this.directory.listFiles((dir, name) -> name.endsWith(".seg")).length);
+
+        store.published(first.getId());
+        store.deleteStaleMessages(0);
+
+        assertEquals(1, store.getMessageCount());
+        assertEquals(2, store.getMessageCountHighWaterMark());
+        assertNull(store.get(first.getId()));
+        assertNotNull(store.getNextMessage());
+        assertEquals(1, this.directory.listFiles((dir, name) -> name.endsWith(".seg")).length);
+
+        store.stop();
+    }
+
+    @Test
+    public void testDeletedInFlightMessagesStayDeleted() throws KuraStoreException {
+        FileDataStore store = new FileDataStore(this.directory, 65536);
+        store.start(null, 900, 60, 100);
+
+        DataMessage dropped = store.store("topic", new byte[] { 1 }, 1, false, 5);
+        store.published(dropped.getId(), 3, "session");
+        store.dropAllInFlightMessages();
+        store.deleteStaleMessages(0);
+        assertEquals(0, store.getMessageCount());
+
+        // neither a later state transition nor a restart brings the purged message back
+        store.unpublishAllInFlighMessages();
+        assertNull(store.getNextMessage());
+        store.stop();
+
+        store = new FileDataStore(this.directory, 65536);
+        store.start(null, 900, 60, 100);
+        assertEquals(0, store.getMessageCount());
+        assertNull(store.getNextMessage());
+        assertNull(store.get(dropped.getId()));
+
+        store.repair();
+        store.stop();
+        store = new FileDataStore(this.directory, 65536);
+        store.start(null, 900, 60, 100);
+        assertEquals(0, store.getMessageCount());
+        assertNull(store.getNextMessage());
+
+        store.stop();
+    }
+
+    @Test
+    public void testCapacity() throws KuraStoreException {
+        FileDataStore store = new FileDataStore(this.directory, 65536);
+        store.start(null, 900, 60, 1);
+
+        store.store("topic", new byte[0], 0, false, 5);
+        try {
+            store.store("topic", new byte[0], 0, false, 5);
+            fail("Exception expected");
+        } catch (KuraStoreCapacityReachedException e) {
+            // expected
+        }
+
+        // life-cycle messages bypass the capacity check
+        store.store("topic", new byte[0], 0, false, 1);
+        assertEquals(2, store.getMessageCount());
+
+        store.stop();
+    }
+}
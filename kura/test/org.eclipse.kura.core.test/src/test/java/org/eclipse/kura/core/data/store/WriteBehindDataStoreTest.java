@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.data.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.kura.KuraStoreCapacityReachedException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.core.data.DataMessage;
+import org.eclipse.kura.db.H2DbService;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class WriteBehindDataStoreTest {
+
+    @Test
+    public void testStoreAssignsIdsWithoutWriting() throws KuraStoreException {
+        DbDataStore dbStoreMock = mock(DbDataStore.class);
+        when(dbStoreMock.getMaxMessageId()).thenReturn(41);
+
+        WriteBehindDataStore store = new WriteBehindDataStore(dbStoreMock, 10, 100000);
+        store.start(mock(H2DbService.class), 900, 60, 100);
+
+        DataMessage first = store.store("topic", new byte[0], 0, false, 5);
+        DataMessage second = store.store("topic", new byte[0], 1, false, 5);
+
+        assertEquals(42, first.getId());
+        assertEquals(43, second.getId());
+        verify(dbStoreMock, never()).storeAll(anyObject());
+
+        store.stop();
+    }
+
+    @Test
+    public void testStopFlushesInPriorityOrder() throws KuraStoreException {
+        DbDataStore dbStoreMock = mock(DbDataStore.class);
+
+        WriteBehindDataStore store = new WriteBehindDataStore(dbStoreMock, 10, 100000);
+        store.start(mock(H2DbService.class), 900, 60, 100);
+
+        store.store("low", new byte[0], 0, false, 7);
+        store.store("high", new byte[0], 0, false, 0);
+        store.store("low", new byte[0], 0, false, 7);
+
+        store.stop();
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(dbStoreMock, times(1)).storeAll(captor.capture());
+        List<DataMessage> flushed = captor.getValue();
+        assertEquals(3, flushed.size());
+        assertEquals(2, flushed.get(0).getId());
+        assertEquals(1, flushed.get(1).getId());
+        assertEquals(3, flushed.get(2).getId());
+    }
+
+    @Test
+    public void testPublishFromBufferWithoutFlush() throws KuraStoreException {
+        DbDataStore dbStoreMock = mock(DbDataStore.class);
+        DataMessage persisted = new DataMessage.Builder(1).withTopic("persisted").withPriority(5).build();
+        when(dbStoreMock.getMaxMessageId()).thenReturn(1);
+        when(dbStoreMock.getNextMessage()).thenReturn(persisted);
+        when(dbStoreMock.getNextMessages(10)).thenReturn(Arrays.asList(persisted));
+
+        WriteBehindDataStore store = new WriteBehindDataStore(dbStoreMock, 10, 100000);
+        store.start(mock(H2DbService.class), 900, 60, 100);
+
+        store.store("low", new byte[0], 1, false, 7);
+        store.store("high", new byte[0], 1, false, 0);
+
+        // the buffered message with a higher priority comes before the persisted one
+        DataMessage next = store.getNextMessage();
+        assertEquals(3, next.getId());
+        List<DataMessage> nextMessages = store.getNextMessages(10);
+        assertEquals(3, nextMessages.size());
+        assertEquals(3, nextMessages.get(0).getId());
+        assertEquals(1, nextMessages.get(1).getId());
+        assertEquals(2, nextMessages.get(2).getId());
+
+        // the publication and the confirmation of a buffered message do not write it
+        store.published(3, 77, "session");
+        store.confirmed(3);
+        store.published(1, 78, "session");
+        verify(dbStoreMock, never()).storeAll(anyObject());
+        verify(dbStoreMock, never()).published(3, 77, "session");
+        verify(dbStoreMock, never()).confirmed(3);
+        verify(dbStoreMock).published(1, 78, "session");
+
+        assertEquals(2, store.getNextMessages(10).size());
+        assertNotNull(store.get(3).getConfirmedOn());
+
+        // the state of the buffered messages is written with them
+        store.stop();
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(dbStoreMock, times(1)).storeAll(captor.capture());
+        List<DataMessage> flushed = captor.getValue();
+        assertEquals(2, flushed.size());
+        assertEquals(3, flushed.get(0).getId());
+        assertNotNull(flushed.get(0).getPublishedOn());
+        assertEquals(77, flushed.get(0).getPublishedMessageId());
+        assertEquals("session", flushed.get(0).getSessionId());
+        assertNotNull(flushed.get(0).getConfirmedOn());
+        assertNull(flushed.get(1).getPublishedOn());
+    }
+
+    @Test
+    public void testIdsWrapAround() throws KuraStoreException {
+        DbDataStore dbStoreMock = mock(DbDataStore.class);
+        when(dbStoreMock.getMaxMessageId()).thenReturn(Integer.MAX_VALUE - 1);
+
+        WriteBehindDataStore store = new WriteBehindDataStore(dbStoreMock, 10, 100000);
+        store.start(mock(H2DbService.class), 900, 60, 100);
+
+        assertEquals(Integer.MAX_VALUE, store.store("topic", new byte[0], 0, false, 5).getId());
+        assertEquals(1, store.store("topic", new byte[0], 0, false, 5).getId());
+        store.stop();
+
+        when(dbStoreMock.getMaxMessageId()).thenReturn(Integer.MAX_VALUE);
+        store.start(mock(H2DbService.class), 900, 60, 100);
+
+        assertEquals(1, store.store("topic", new byte[0], 0, false, 5).getId());
+        store.stop();
+    }
+
+    @Test
+    public void testFullBufferIsSpilled() throws KuraStoreException {
+        DbDataStore dbStoreMock = mock(DbDataStore.class);
+
+        WriteBehindDataStore store = new WriteBehindDataStore(dbStoreMock, 2, 100000);
+        store.start(mock(H2DbService.class), 900, 60, 100);
+
+        store.store("topic", new byte[0], 0, false, 5);
+        store.store("topic", new byte[0], 0, false, 5);
+        verify(dbStoreMock, never()).storeAll(anyObject());
+
+        store.store("topic", new byte[0], 0, false, 5);
+        verify(dbStoreMock, times(1)).storeAll(anyObject());
+
+        store.stop();
+    }
+
+    @Test
+    public void testFailedSpillRejectsMessage() throws KuraStoreException {
+        DbDataStore dbStoreMock = mock(DbDataStore.class);
+
+        WriteBehindDataStore store = new WriteBehindDataStore(dbStoreMock, 1, 100000);
+        store.start(mock(H2DbService.class), 900, 60, 100);
+
+        store.store("topic", new byte[0], 0, false, 5);
+
+        doThrow(new KuraStoreException("test")).when(dbStoreMock).storeAll(anyObject());
+        try {
+            store.store("topic", new byte[0], 0, false, 5);
+            fail("Exception expected");
+        } catch (KuraStoreException e) {
+            // expected
+        }
+        verify(dbStoreMock, times(1)).storeAll(anyObject());
+
+        store.stop();
+    }
+
+    @Test
+    public void testCapacityIncludesBufferedMessages() throws KuraStoreException {
+        DbDataStore dbStoreMock = mock(DbDataStore.class);
+        when(dbStoreMock.getMessageCount()).thenReturn(1);
+
+        WriteBehindDataStore store = new WriteBehindDataStore(dbStoreMock, 10, 100000);
+        store.start(mock(H2DbService.class), 900, 60, 2);
+
+        store.store("topic", new byte[0], 0, false, 5);
+        try {
+            store.store("topic", new byte[0], 0, false, 5);
+            fail("Exception expected");
+        } catch (KuraStoreCapacityReachedException e) {
+            // expected
+        }
+
+        // life-cycle messages bypass the capacity check
+        store.store("topic", new byte[0], 0, false, 0);
+
+        assertEquals(3, store.getMessageCount());
+        assertEquals(3, store.getMessageCountHighWaterMark());
+
+        store.stop();
+    }
+}
@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.driver.modbus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.junit.After;
+import org.junit.Test;
+
+public class ModbusDriverTest {
+
+    private ModbusTcpSlave slave;
+
+    private ModbusDriver driver;
+
+    @After
+    public void tearDown() throws Exception {
+        if (this.driver != null) {
+            this.driver.deactivate(null);
+        }
+        if (this.slave != null) {
+            this.slave.close();
+        }
+    }
+
+    @Test
+    public void testAggregatedRead() throws Exception {
+        startSlave(1);
+        this.slave.registers[0] = 0xFFFE;
+        this.slave.registers[1] = 0xFFFE;
+        this.slave.registers[2] = 0x3FC0; // 1.5f
+        this.slave.registers[3] = 0x0000;
+        this.slave.registers[4] = 0x0004;
+        this.slave.coils[3] = true;
+
+        List<ChannelRecord> records = Arrays.asList(
+                createReadRecord("int16", DataType.INTEGER, 1, ModbusArea.HOLDING_REGISTERS, 0, ModbusDataType.INT16),
+                createReadRecord("uint16", DataType.INTEGER, 1, ModbusArea.HOLDING_REGISTERS, 1,
+                        ModbusDataType.UINT16),
+                createReadRecord("float", DataType.FLOAT, 1, ModbusArea.HOLDING_REGISTERS, 2, ModbusDataType.FLOAT),
+                createReadRecord("bit", DataType.BOOLEAN, 1, ModbusArea.HOLDING_REGISTERS, 4, ModbusDataType.BIT),
+                createReadRecord("coil2", DataType.BOOLEAN, 1, ModbusArea.COILS, 2, ModbusDataType.INT16),
+                createReadRecord("coil3", DataType.BOOLEAN, 1, ModbusArea.COILS, 3, ModbusDataType.INT16));
+        records.get(3).getChannelConfig().put(ModbusChannelDescriptor.BIT_INDEX_ID, 2);
+
+        this.driver.read(records);
+
+        for (ChannelRecord record : records) {
+            assertEquals(record.getChannelName(), ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        }
+        assertEquals(-2, records.get(0).getValue().getValue());
+        assertEquals(0xFFFE, records.get(1).getValue().getValue());
+        assertEquals(1.5f, records.get(2).getValue().getValue());
+        assertEquals(true, records.get(3).getValue().getValue());
+        assertEquals(false, records.get(4).getValue().getValue());
+        assertEquals(true, records.get(5).getValue().getValue());
+
+        // one request per memory area
+        assertEquals(2, this.slave.requests.size());
+    }
+
+    @Test
+    public void testPipelinedRead() throws Exception {
+        // the slave answers, in reverse order, only after receiving three requests
+        startSlave(3);
+        this.slave.registers[10] = 10;
+        this.slave.registers[20] = 20;
+
+        List<ChannelRecord> records = Arrays.asList(
+                createReadRecord("unit1", DataType.INTEGER, 1, ModbusArea.HOLDING_REGISTERS, 10,
+                        ModbusDataType.INT16),
+                createReadRecord("unit2", DataType.INTEGER, 2, ModbusArea.HOLDING_REGISTERS, 20,
+                        ModbusDataType.INT16),
+                createReadRecord("unit3", DataType.INTEGER, 3, ModbusArea.INPUT_REGISTERS, 10,
+                        ModbusDataType.INT16));
+
+        this.driver.read(records);
+
+        for (ChannelRecord record : records) {
+            assertEquals(record.getChannelName(), ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        }
+        assertEquals(10, records.get(0).getValue().getValue());
+        assertEquals(20, records.get(1).getValue().getValue());
+        assertEquals(10, records.get(2).getValue().getValue());
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        startSlave(1);
+        this.slave.registers[7] = 0x00F0;
+
+        List<ChannelRecord> records = Arrays.asList(
+                createWriteRecord("int32", TypedValues.newIntegerValue(0x12345678), ModbusArea.HOLDING_REGISTERS, 5,
+                        ModbusDataType.INT32),
+                createWriteRecord("bit", TypedValues.newBooleanValue(true), ModbusArea.HOLDING_REGISTERS, 7,
+                        ModbusDataType.BIT),
+                createWriteRecord("coil", TypedValues.newBooleanValue(true), ModbusArea.COILS, 12,
+                        ModbusDataType.INT16));
+
+        this.driver.write(records);
+
+        for (ChannelRecord record : records) {
+            assertEquals(record.getChannelName(), ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        }
+        assertEquals(0x1234, this.slave.registers[5]);
+        assertEquals(0x5678, this.slave.registers[6]);
+        assertEquals(0x00F1, this.slave.registers[7]);
+        assertTrue(this.slave.coils[12]);
+    }
+
+    @Test
+    public void testExceptionResponse() throws Exception {
+        startSlave(1);
+
+        ChannelRecord invalid = createReadRecord("invalid", DataType.INTEGER, 1, ModbusArea.HOLDING_REGISTERS,
+                ModbusTcpSlave.SIZE, ModbusDataType.INT16);
+        this.driver.read(Collections.singletonList(invalid));
+
+        assertEquals(ChannelFlag.FAILURE, invalid.getChannelStatus().getChannelFlag());
+
+        // the connection is still usable
+        ChannelRecord valid = createReadRecord("valid", DataType.INTEGER, 1, ModbusArea.HOLDING_REGISTERS, 0,
+                ModbusDataType.INT16);
+        this.driver.read(Collections.singletonList(valid));
+
+        assertEquals(ChannelFlag.SUCCESS, valid.getChannelStatus().getChannelFlag());
+        assertEquals(1, this.slave.connections);
+    }
+
+    @Test
+    public void testSilentSlaveDoesNotBlockOtherBlocks() throws Exception {
+        // with a single outstanding request, the request of a slave that never answers expires and frees its slot
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("max.outstanding.requests", 1);
+        properties.put("response.timeout", 500);
+        startSlave(1, properties);
+        this.slave.silentUnits.add(1);
+        this.slave.registers[10] = 10;
+
+        // the block of the silent unit is submitted first
+        List<ChannelRecord> records = Arrays.asList(
+                createReadRecord("silent", DataType.INTEGER, 1, ModbusArea.HOLDING_REGISTERS, 10,
+                        ModbusDataType.INT16),
+                createReadRecord("unit2", DataType.INTEGER, 2, ModbusArea.HOLDING_REGISTERS, 10,
+                        ModbusDataType.INT16));
+
+        this.driver.read(records);
+
+        assertEquals(ChannelFlag.FAILURE, records.get(0).getChannelStatus().getChannelFlag());
+        assertEquals(ChannelFlag.SUCCESS, records.get(1).getChannelStatus().getChannelFlag());
+        assertEquals(10, records.get(1).getValue().getValue());
+        assertEquals(1, this.slave.connections);
+        assertEquals(2, this.slave.requests.size());
+    }
+
+    private void startSlave(int batchSize) throws IOException {
+        startSlave(batchSize, new HashMap<>());
+    }
+
+    private void startSlave(int batchSize, Map<String, Object> options) throws IOException {
+        this.slave = new ModbusTcpSlave(batchSize);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("host.ip", "127.0.0.1");
+        properties.put("port", this.slave.getPort());
+        properties.put("response.timeout", 2000);
+        properties.putAll(options);
+
+        this.driver = new ModbusDriver();
+        this.driver.activate(null, properties);
+    }
+
+    private static ChannelRecord createReadRecord(String name, DataType valueType, int unitId, ModbusArea area,
+            int address, ModbusDataType dataType) {
+        ChannelRecord record = ChannelRecord.createReadRecord(name, valueType);
+        record.setChannelConfig(createChannelConfig(unitId, area, address, dataType));
+        return record;
+    }
+
+    private static ChannelRecord createWriteRecord(String name, TypedValue<?> value, ModbusArea area, int address,
+            ModbusDataType dataType) {
+        ChannelRecord record = ChannelRecord.createWriteRecord(name, value);
+        record.setChannelConfig(createChannelConfig(1, area, address, dataType));
+        return record;
+    }
+
+    private static Map<String, Object> createChannelConfig(int unitId, ModbusArea area, int address,
+            ModbusDataType dataType) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ModbusChannelDescriptor.UNIT_ID_ID, unitId);
+        config.put(ModbusChannelDescriptor.MEMORY_AREA_ID, area.name());
+        config.put(ModbusChannelDescriptor.MEMORY_ADDRESS_ID, address);
+        config.put(ModbusChannelDescriptor.MODBUS_DATA_TYPE_ID, dataType.name());
+        config.put(ModbusChannelDescriptor.BIT_INDEX_ID, 0);
+        return config;
+    }
+
+    /**
+     * A Modbus TCP slave serving all the unit identifiers from the same memory. The responses are sent when
+     * {@code batchSize} requests have been received, in reverse order. The requests for the {@code silentUnits} are
+     * never answered.
+     */
+    private static final class ModbusTcpSlave implements Runnable {
+
+        static final int SIZE = 100;
+
+        final int[] registers = new int[SIZE];
+
+        final boolean[] coils = new boolean[SIZE];
+
+        final List<byte[]> requests = Collections.synchronizedList(new ArrayList<>());
+
+        final Set<Integer> silentUnits = Collections.synchronizedSet(new HashSet<>());
+
+        volatile int connections;
+
+        private final ServerSocket serverSocket;
+
+        private final int batchSize;
+
+        ModbusTcpSlave(int batchSize) throws IOException {
+            this.batchSize = batchSize;
+            this.serverSocket = new ServerSocket(0);
+            Thread thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return this.serverSocket.getLocalPort();
+        }
+
+        void close() throws IOException {
+            this.serverSocket.close();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    try (Socket socket = this.serverSocket.accept()) {
+                        this.connections++;
+                        serve(new DataInputStream(socket.getInputStream()), socket.getOutputStream());
+                    } catch (IOException e) {
+                        if (this.serverSocket.isClosed()) {
+                            return;
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                // stop serving
+            }
+        }
+
+        private void serve(DataInputStream in, OutputStream out) throws IOException {
+            List<byte[]> batch = new ArrayList<>();
+            while (true) {
+                byte[] header = new byte[7];
+                in.readFully(header);
+                byte[] pdu = new byte[((header[4] & 0xff) << 8 | header[5] & 0xff) - 1];
+                in.readFully(pdu);
+                this.requests.add(pdu);
+                if (this.silentUnits.contains(header[6] & 0xff)) {
+                    continue;
+                }
+
+                byte[] response = process(pdu);
+                byte[] frame = new byte[7 + response.length];
+                System.arraycopy(header, 0, frame, 0, 7);
+                frame[4] = (byte) (response.length + 1 >> 8);
+                frame[5] = (byte) (response.length + 1);
+                System.arraycopy(response, 0, frame, 7, response.length);
+                batch.add(frame);
+
+                if (batch.size() == this.batchSize) {
+                    Collections.reverse(batch);
+                    for (byte[] f : batch) {
+                        out.write(f);
+                    }
+                    out.flush();
+                    batch.clear();
+                }
+            }
+        }
+
+        private byte[] process(byte[] pdu) {
+            int functionCode = pdu[0];
+            int address = (pdu[1] & 0xff) << 8 | pdu[2] & 0xff;
+            int quantity = (pdu[3] & 0xff) << 8 | pdu[4] & 0xff;
+            if (functionCode == 5 || functionCode == 6) {
+                quantity = 1;
+            }
+            if (address + quantity > SIZE) {
+                return new byte[] { (byte) (functionCode | 0x80), 2 };
+            }
+
+            switch (functionCode) {
+            case 1:
+            case 2: {
+                byte[] response = new byte[2 + (quantity + 7) / 8];
+                response[0] = (byte) functionCode;
+                response[1] = (byte) (response.length - 2);
+                for (int i = 0; i < quantity; i++) {
+                    if (this.coils[address + i]) {
+                        response[2 + i / 8] |= 1 << i % 8;
+                    }
+                }
+                return response;
+            }
+            case 3:
+            case 4: {
+                byte[] response = new byte[2 + quantity * 2];
+                response[0] = (byte) functionCode;
+                response[1] = (byte) (quantity * 2);
+                for (int i = 0; i < quantity; i++) {
+                    response[2 + i * 2] = (byte) (this.registers[address + i] >> 8);
+                    response[3 + i * 2] = (byte) this.registers[address + i];
+                }
+                return response;
+            }
+            case 5:
+                this.coils[address] = (pdu[3] & 0xff) == 0xff;
+                return pdu;
+            case 6:
+                this.registers[address] = (pdu[3] & 0xff) << 8 | pdu[4] & 0xff;
+                return pdu;
+            case 15:
+                for (int i = 0; i < quantity; i++) {
+                    this.coils[address + i] = (pdu[6 + i / 8] >> i % 8 & 1) == 1;
+                }
+                return Arrays.copyOf(pdu, 5);
+            case 16:
+                for (int i = 0; i < quantity; i++) {
+                    this.registers[address + i] = (pdu[6 + i * 2] & 0xff) << 8 | pdu[7 + i * 2] & 0xff;
+                }
+                return Arrays.copyOf(pdu, 5);
+            default:
+                return new byte[] { (byte) (functionCode | 0x80), 1 };
+            }
+        }
+    }
+}
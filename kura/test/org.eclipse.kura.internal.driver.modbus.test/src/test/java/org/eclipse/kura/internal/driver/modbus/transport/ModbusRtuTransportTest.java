@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.driver.modbus.transport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModbusRtuTransportTest {
+
+    private static final byte[] READ_REQUEST = { 0x03, 0x00, 0x00, 0x00, 0x01 };
+
+    private PipedOutputStream slaveOut;
+
+    private ByteArrayOutputStream sent;
+
+    private ModbusRtuTransport transport;
+
+    @Before
+    public void setUp() throws IOException {
+        this.slaveOut = new PipedOutputStream();
+        this.sent = new ByteArrayOutputStream();
+        this.transport = new ModbusRtuTransport(new PipedInputStream(this.slaveOut), this.sent, () -> {
+        }, 500, "test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.slaveOut.close();
+        this.transport.close();
+    }
+
+    @Test
+    public void testCrc() {
+        byte[] frame = { 0x01, 0x03, 0x00, 0x00, 0x00, 0x0A, (byte) 0xC5, (byte) 0xCD };
+        assertEquals(0xCDC5, ModbusRtuTransport.crc16(frame, 6));
+        assertEquals(0, ModbusRtuTransport.crc16(frame, 8));
+    }
+
+    @Test
+    public void testFragmentedResponse() throws Exception {
+        ModbusTransaction transaction = this.transport.submit(1, READ_REQUEST);
+
+        byte[] request = this.sent.toByteArray();
+        assertEquals(8, request.length);
+        assertEquals(1, request[0]);
+        assertEquals(0, ModbusRtuTransport.crc16(request, request.length));
+
+        byte[] response = createFrame(1, 0x03, 0x02, 0x12, 0x34);
+        this.slaveOut.write(response, 0, 3);
+        this.slaveOut.flush();
+        Thread.sleep(50);
+        this.slaveOut.write(response, 3, response.length - 3);
+        this.slaveOut.flush();
+
+        assertArrayEquals(new byte[] { 0x03, 0x02, 0x12, 0x34 }, transaction.getResponse());
+    }
+
+    @Test
+    public void testExceptionResponse() throws Exception {
+        ModbusTransaction transaction = this.transport.submit(1, READ_REQUEST);
+        this.slaveOut.write(createFrame(1, 0x83, 0x02));
+        this.slaveOut.flush();
+
+        try {
+            transaction.getResponse();
+            fail("Exception was expected.");
+        } catch (ModbusException e) {
+            assertEquals(2, e.getExceptionCode());
+        }
+    }
+
+    @Test
+    public void testCorruptedResponse() throws Exception {
+        ModbusTransaction transaction = this.transport.submit(1, READ_REQUEST);
+        byte[] response = createFrame(1, 0x03, 0x02, 0x12, 0x34);
+        response[3] ^= 0x01;
+        this.slaveOut.write(response);
+        this.slaveOut.flush();
+
+        try {
+            transaction.getResponse();
+            fail("Exception was expected.");
+        } catch (ModbusException e) {
+            assertEquals(0, e.getExceptionCode());
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        ModbusTransaction transaction = this.transport.submit(1, READ_REQUEST);
+        try {
+            transaction.getResponse();
+            fail("Exception was expected.");
+        } catch (ModbusException e) {
+            // expected
+        }
+
+        // the line is free again, the late bytes of the previous response are dropped
+        this.slaveOut.write(createFrame(1, 0x03, 0x02, 0x00, 0x01), 0, 2);
+        this.slaveOut.flush();
+        Thread.sleep(50);
+
+        transaction = this.transport.submit(2, READ_REQUEST);
+        this.slaveOut.write(createFrame(2, 0x03, 0x02, 0x00, 0x02));
+        this.slaveOut.flush();
+
+        assertArrayEquals(new byte[] { 0x03, 0x02, 0x00, 0x02 }, transaction.getResponse());
+    }
+
+    @Test
+    public void testUnexpectedBytesDropped() throws Exception {
+        // the late response of another slave and a response to another function precede the expected response
+        ModbusTransaction transaction = this.transport.submit(2, READ_REQUEST);
+
+        this.slaveOut.write(createFrame(1, 0x03, 0x02, 0x00, 0x01));
+        this.slaveOut.write(createFrame(2, 0x04, 0x02, 0x00, 0x03));
+        this.slaveOut.write(createFrame(2, 0x03, 0x02, 0x00, 0x02));
+        this.slaveOut.flush();
+
+        assertArrayEquals(new byte[] { 0x03, 0x02, 0x00, 0x02 }, transaction.getResponse());
+    }
+
+    private static byte[] createFrame(int unitId, int... pdu) {
+        byte[] frame = new byte[pdu.length + 3];
+        frame[0] = (byte) unitId;
+        for (int i = 0; i < pdu.length; i++) {
+            frame[i + 1] = (byte) pdu[i];
+        }
+        int crc = ModbusRtuTransport.crc16(frame, frame.length - 2);
+        frame[frame.length - 2] = (byte) crc;
+        frame[frame.length - 1] = (byte) (crc >> 8);
+        return frame;
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.driver.modbus.transport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ModbusTcpTransportTest {
+
+    private static final byte[] READ_REQUEST = { 0x03, 0x00, 0x00, 0x00, 0x01 };
+
+    private static final byte[] RESPONSE = { 0x03, 0x02, 0x12, 0x34 };
+
+    private ServerSocket serverSocket;
+
+    private Socket slave;
+
+    private ModbusTcpTransport transport;
+
+    @Before
+    public void setUp() throws IOException {
+        this.serverSocket = new ServerSocket(0);
+        this.transport = new ModbusTcpTransport("127.0.0.1", this.serverSocket.getLocalPort(), 500, 2);
+        this.slave = this.serverSocket.accept();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.transport.close();
+        this.slave.close();
+        this.serverSocket.close();
+    }
+
+    @Test
+    public void testOtherProtocolDropped() throws Exception {
+        // a frame of another protocol with the same transaction identifier is not taken as the response
+        ModbusTransaction transaction = this.transport.submit(1, READ_REQUEST);
+        byte[] request = readRequest();
+
+        OutputStream out = this.slave.getOutputStream();
+        out.write(createFrame(request, 1, 1, new byte[] { 0x03, 0x02, 0x00, 0x00 }));
+        out.write(createFrame(request, 0, 1, RESPONSE));
+        out.flush();
+
+        assertArrayEquals(RESPONSE, transaction.getResponse());
+    }
+
+    @Test
+    public void testOtherUnitRejected() throws Exception {
+        ModbusTransaction transaction = this.transport.submit(1, READ_REQUEST);
+        byte[] request = readRequest();
+
+        OutputStream out = this.slave.getOutputStream();
+        out.write(createFrame(request, 0, 2, RESPONSE));
+        out.flush();
+
+        try {
+            transaction.getResponse();
+            fail("Exception was expected.");
+        } catch (ModbusException e) {
+            // expected
+        }
+
+        // the connection is still usable
+        assertTrue(this.transport.isOpen());
+        transaction = this.transport.submit(1, READ_REQUEST);
+        request = readRequest();
+        out.write(createFrame(request, 0, 1, RESPONSE));
+        out.flush();
+
+        assertArrayEquals(RESPONSE, transaction.getResponse());
+    }
+
+    private byte[] readRequest() throws IOException {
+        DataInputStream in = new DataInputStream(this.slave.getInputStream());
+        byte[] header = new byte[7];
+        in.readFully(header);
+        byte[] pdu = new byte[((header[4] & 0xff) << 8 | header[5] & 0xff) - 1];
+        in.readFully(pdu);
+        return header;
+    }
+
+    private static byte[] createFrame(byte[] requestHeader, int protocolId, int unitId, byte[] pdu) {
+        byte[] frame = new byte[7 + pdu.length];
+        frame[0] = requestHeader[0];
+        frame[1] = requestHeader[1];
+        frame[2] = (byte) (protocolId >> 8);
+        frame[3] = (byte) protocolId;
+        frame[4] = (byte) (pdu.length + 1 >> 8);
+        frame[5] = (byte) (pdu.length + 1);
+        frame[6] = (byte) unitId;
+        System.arraycopy(pdu, 0, frame, 7, pdu.length);
+        return frame;
+    }
+}
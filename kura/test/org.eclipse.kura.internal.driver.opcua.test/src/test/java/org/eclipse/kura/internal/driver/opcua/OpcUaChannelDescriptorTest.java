@@ -39,7 +39,7 @@ public class OpcUaChannelDescriptorTest {
         List<Tad> description = (List<Tad>) descriptor.getDescriptor();
 
         assertNotNull(description);
-        assertEquals(4, description.size());
+        assertEquals(7, description.size());
 
         assertEquals(NODE_ID, description.get(0).getName());
         assertEquals(NODE_NAMESPACE_INDEX, description.get(1).getName());
@@ -48,6 +48,27 @@ public class OpcUaChannelDescriptorTest {
 
         assertEquals(NODE_ID_TYPE, description.get(3).getName());
         assertEquals(4, description.get(3).getOption().size());
+
+        assertEquals("listen.sampling.interval", description.get(4).getName());
+        assertEquals("listen.queue.size", description.get(5).getName());
+        assertEquals("listen.deadband", description.get(6).getName());
+    }
+
+    @Test
+    public void testGetListenerParameters() {
+        Map<String, Object> properties = new HashMap<>();
+
+        assertEquals(1000.0, OpcUaChannelDescriptor.getSamplingInterval(properties), 0.0);
+        assertEquals(10, OpcUaChannelDescriptor.getQueueSize(properties));
+        assertEquals(0.0, OpcUaChannelDescriptor.getDeadband(properties), 0.0);
+
+        properties.put("listen.sampling.interval", "250.0");
+        properties.put("listen.queue.size", "1");
+        properties.put("listen.deadband", "0.5");
+
+        assertEquals(250.0, OpcUaChannelDescriptor.getSamplingInterval(properties), 0.0);
+        assertEquals(1, OpcUaChannelDescriptor.getQueueSize(properties));
+        assertEquals(0.5, OpcUaChannelDescriptor.getDeadband(properties), 0.0);
     }
 
     @Test
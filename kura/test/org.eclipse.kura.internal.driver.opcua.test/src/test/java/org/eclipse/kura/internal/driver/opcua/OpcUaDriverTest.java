@@ -9,159 +9,88 @@
 package org.eclipse.kura.internal.driver.opcua;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.listener.ChannelEvent;
+import org.eclipse.kura.channel.listener.ChannelListener;
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.crypto.CryptoService;
 import org.eclipse.kura.driver.Driver.ConnectionException;
 import org.eclipse.kura.driver.PreparedRead;
 import org.eclipse.kura.type.DataType;
-import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
 import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
-import org.eclipse.milo.opcua.sdk.client.api.AddressSpace;
-import org.eclipse.milo.opcua.sdk.client.api.nodes.VariableNode;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaMonitoredItem;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.sdk.client.subscriptions.OpcUaSubscriptionManager;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.IdType;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadResponse;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteResponse;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
 import org.junit.Test;
 
 public class OpcUaDriverTest {
 
     @SuppressWarnings("unchecked")
-    @Test
-    public void testGetTypedValue() throws Throwable {
-        // test getTypedValue
-
-        String methodName = "getTypedValue";
-
-        OpcUaDriver svc = new OpcUaDriver();
-
-        DataType expectedValueType = DataType.BOOLEAN;
-        Object containedValue = true;
-
-        Optional<TypedValue<?>> value = (Optional<TypedValue<?>>) TestUtil.invokePrivate(svc, methodName,
-                expectedValueType, containedValue);
-
-        assertTrue(value.isPresent());
-        assertEquals(expectedValueType, value.get().getType());
-        assertEquals(containedValue, value.get().getValue());
-
-        expectedValueType = DataType.INTEGER;
-        containedValue = 10;
-
-        value = (Optional<TypedValue<?>>) TestUtil.invokePrivate(svc, methodName, expectedValueType, containedValue);
-
-        assertTrue(value.isPresent());
-        assertEquals(expectedValueType, value.get().getType());
-        assertEquals(containedValue, value.get().getValue());
-
-        expectedValueType = DataType.LONG;
-        containedValue = 123456789123456L;
-
-        value = (Optional<TypedValue<?>>) TestUtil.invokePrivate(svc, methodName, expectedValueType, containedValue);
-
-        assertTrue(value.isPresent());
-        assertEquals(expectedValueType, value.get().getType());
-        assertEquals(containedValue, value.get().getValue());
-
-        expectedValueType = DataType.FLOAT;
-        containedValue = 12.3f;
-
-        value = (Optional<TypedValue<?>>) TestUtil.invokePrivate(svc, methodName, expectedValueType, containedValue);
-
-        assertTrue(value.isPresent());
-        assertEquals(expectedValueType, value.get().getType());
-        assertEquals(containedValue, value.get().getValue());
-
-        expectedValueType = DataType.DOUBLE;
-        containedValue = 123.4;
-
-        value = (Optional<TypedValue<?>>) TestUtil.invokePrivate(svc, methodName, expectedValueType, containedValue);
-
-        assertTrue(value.isPresent());
-        assertEquals(expectedValueType, value.get().getType());
-        assertEquals(containedValue, value.get().getValue());
-
-        expectedValueType = DataType.STRING;
-        containedValue = "test";
-
-        value = (Optional<TypedValue<?>>) TestUtil.invokePrivate(svc, methodName, expectedValueType, containedValue);
-
-        assertTrue(value.isPresent());
-        assertEquals(expectedValueType, value.get().getType());
-        assertEquals(containedValue, value.get().getValue());
-
-        expectedValueType = DataType.BYTE_ARRAY;
-        containedValue = "test".getBytes("utf8");
-
-        value = (Optional<TypedValue<?>>) TestUtil.invokePrivate(svc, methodName, expectedValueType, containedValue);
-
-        assertTrue(value.isPresent());
-        assertEquals(expectedValueType, value.get().getType());
-
-        // FIXME check if this serialization is really OK in case of byte[] on the input
-        // assertArrayEquals((byte[]) containedValue, (byte[]) value.get().getValue());
-
-        // also test a few exception cases
-        expectedValueType = null;
-        containedValue = "test";
-
-        value = (Optional<TypedValue<?>>) TestUtil.invokePrivate(svc, methodName, expectedValueType, containedValue);
-
-        assertFalse(value.isPresent());
-
-        expectedValueType = DataType.INTEGER;
-        containedValue = "test";
-
-        value = (Optional<TypedValue<?>>) TestUtil.invokePrivate(svc, methodName, expectedValueType, containedValue);
-
-        assertFalse(value.isPresent());
-    }
-
     @Test
     public void testReadNoNode() throws ConnectionException, NoSuchFieldException {
         // test read with a missing node exception
 
         OpcUaDriver svc = new OpcUaDriver();
 
-        OpcUaClient clientMock = mock(OpcUaClient.class);
-        TestUtil.setFieldValue(svc, "client", clientMock);
-
-        AddressSpace asMock = mock(AddressSpace.class);
-        when(clientMock.getAddressSpace()).thenReturn(asMock);
+        OpcUaClient clientMock = prepareClient(svc);
 
         doAnswer(invocation -> {
-            NodeId nodeId = invocation.getArgumentAt(0, NodeId.class);
+            List<ReadValueId> readValueIds = invocation.getArgumentAt(2, List.class);
+            NodeId nodeId = readValueIds.get(0).getNodeId();
 
             assertEquals(1, ((UInteger) nodeId.getIdentifier()).intValue());
             assertEquals(1, nodeId.getNamespaceIndex().intValue());
             assertEquals(IdType.Numeric, nodeId.getType());
 
-            return null; // cause exception later on
-        }).when(asMock).createVariableNode(anyObject());
+            DataValue[] results = { new DataValue(new StatusCode(StatusCodes.Bad_NodeIdUnknown)) };
+            return CompletableFuture.completedFuture(new ReadResponse(null, results, null));
+        }).when(clientMock).read(anyDouble(), anyObject(), anyObject());
 
         List<ChannelRecord> records = new ArrayList<>();
         ChannelRecord record = ChannelRecord.createReadRecord("ch1", DataType.BOOLEAN);
@@ -227,9 +156,7 @@ public class OpcUaDriverTest {
         assertEquals(123, record.getValue().getValue());
     }
 
-    protected void prepareForSuccessfulRead(OpcUaDriver svc, String val)
-            throws NoSuchFieldException, InterruptedException, ExecutionException, TimeoutException {
-
+    protected OpcUaClient prepareClient(OpcUaDriver svc) throws NoSuchFieldException {
         Map<String, Object> properties = new HashMap<>();
         properties.put("request.timeout", 1);
         CryptoService csMock = mock(CryptoService.class);
@@ -238,28 +165,250 @@ public class OpcUaDriverTest {
 
         OpcUaClient clientMock = mock(OpcUaClient.class);
         TestUtil.setFieldValue(svc, "client", clientMock);
+        return clientMock;
+    }
 
-        AddressSpace asMock = mock(AddressSpace.class);
-        when(clientMock.getAddressSpace()).thenReturn(asMock);
-
-        Variant variant = new Variant(val);
-        DataValue value = new DataValue(variant, StatusCode.GOOD);
-
-        CompletableFuture<DataValue> futureValue = mock(CompletableFuture.class);
-        when(futureValue.get(1000, TimeUnit.MILLISECONDS)).thenReturn(value);
+    protected void prepareForSuccessfulRead(OpcUaDriver svc, String val)
+            throws NoSuchFieldException, InterruptedException, ExecutionException, TimeoutException {
 
-        VariableNode node = mock(VariableNode.class);
-        when(node.readValue()).thenReturn(futureValue);
+        OpcUaClient clientMock = prepareClient(svc);
 
         doAnswer(invocation -> {
-            NodeId nodeId = invocation.getArgumentAt(0, NodeId.class);
+            List<ReadValueId> readValueIds = invocation.getArgumentAt(2, List.class);
+            assertEquals(1, readValueIds.size());
+            NodeId nodeId = readValueIds.get(0).getNodeId();
 
             assertEquals(1, ((UInteger) nodeId.getIdentifier()).intValue());
             assertEquals(1, nodeId.getNamespaceIndex().intValue());
             assertEquals(IdType.Numeric, nodeId.getType());
 
-            return node;
-        }).when(asMock).createVariableNode(anyObject());
+            DataValue[] results = { new DataValue(new Variant(val), StatusCode.GOOD) };
+            return CompletableFuture.completedFuture(new ReadResponse(null, results, null));
+        }).when(clientMock).read(anyDouble(), anyObject(), anyObject());
+    }
+
+    private static ChannelRecord createRecord(ChannelRecord record, int nodeId) {
+        Map<String, Object> channelConfig = new HashMap<>();
+        channelConfig.put("node.namespace.index", "1");
+        channelConfig.put("node.id.type", "NUMERIC");
+        channelConfig.put("opcua.type", "DEFINED_BY_JAVA_TYPE");
+        channelConfig.put("node.id", Integer.toString(nodeId));
+        record.setChannelConfig(channelConfig);
+        return record;
+    }
+
+    @Test
+    public void testBatchedRead() throws ConnectionException, NoSuchFieldException {
+        // test that the nodes are read in as few requests as allowed by the server, all issued before waiting
+
+        OpcUaDriver svc = new OpcUaDriver();
+
+        OpcUaClient clientMock = prepareClient(svc);
+        TestUtil.setFieldValue(svc, "maxNodesPerRead", 2);
+
+        List<Runnable> pendingResponses = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<ReadValueId> readValueIds = invocation.getArgumentAt(2, List.class);
+            assertTrue(readValueIds.size() <= 2);
+
+            DataValue[] results = new DataValue[readValueIds.size()];
+            for (int i = 0; i < results.length; i++) {
+                int nodeId = ((UInteger) readValueIds.get(i).getNodeId().getIdentifier()).intValue();
+                results[i] = new DataValue(new Variant(nodeId * 10), StatusCode.GOOD);
+            }
+
+            // the server answers only once all the requests have been received
+            CompletableFuture<ReadResponse> response = new CompletableFuture<>();
+            pendingResponses.add(() -> response.complete(new ReadResponse(null, results, null)));
+            if (pendingResponses.size() == 3) {
+                pendingResponses.forEach(Runnable::run);
+            }
+            return response;
+        }).when(clientMock).read(anyDouble(), anyObject(), anyObject());
+
+        List<ChannelRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            records.add(createRecord(ChannelRecord.createReadRecord("ch" + i, DataType.INTEGER), i));
+        }
+
+        svc.read(records);
+
+        verify(clientMock, times(3)).read(anyDouble(), anyObject(), anyObject());
+        for (int i = 1; i <= 5; i++) {
+            ChannelRecord record = records.get(i - 1);
+            assertEquals(ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+            assertEquals(i * 10, record.getValue().getValue());
+        }
+    }
+
+    @Test
+    public void testBatchedWrite() throws ConnectionException, NoSuchFieldException {
+        // test that the nodes are written in a single request and that the failures are reported per channel
+
+        OpcUaDriver svc = new OpcUaDriver();
+
+        OpcUaClient clientMock = prepareClient(svc);
+
+        doAnswer(invocation -> {
+            List<WriteValue> writeValues = invocation.getArgumentAt(0, List.class);
+            assertEquals(2, writeValues.size());
+            assertEquals(1, ((UInteger) writeValues.get(0).getNodeId().getIdentifier()).intValue());
+            assertEquals(3, ((UInteger) writeValues.get(1).getNodeId().getIdentifier()).intValue());
+            assertEquals(5, writeValues.get(0).getValue().getValue().getValue());
+
+            StatusCode[] results = { StatusCode.GOOD, new StatusCode(StatusCodes.Bad_NotWritable) };
+            return CompletableFuture.completedFuture(new WriteResponse(null, results, null));
+        }).when(clientMock).write(anyObject());
+
+        List<ChannelRecord> records = new ArrayList<>();
+        records.add(createRecord(ChannelRecord.createWriteRecord("ch1", TypedValues.newIntegerValue(5)), 1));
+        ChannelRecord invalidRecord = ChannelRecord.createWriteRecord("ch2", TypedValues.newIntegerValue(6));
+        invalidRecord.setChannelConfig(new HashMap<>());
+        records.add(invalidRecord);
+        records.add(createRecord(ChannelRecord.createWriteRecord("ch3", TypedValues.newIntegerValue(7)), 3));
+
+        svc.write(records);
+
+        verify(clientMock, times(1)).write(anyObject());
+        assertEquals(ChannelFlag.SUCCESS, records.get(0).getChannelStatus().getChannelFlag());
+        assertEquals(ChannelFlag.FAILURE, records.get(1).getChannelStatus().getChannelFlag());
+        assertEquals(ChannelFlag.FAILURE, records.get(2).getChannelStatus().getChannelFlag());
+    }
+
+    @Test
+    public void testChannelListener() throws ConnectionException, NoSuchFieldException {
+        // test that a listener is notified by a monitored item of its node
+
+        OpcUaDriver svc = new OpcUaDriver();
+
+        OpcUaClient clientMock = prepareClient(svc);
+        OpcUaSubscriptionManager subscriptionManagerMock = mock(OpcUaSubscriptionManager.class);
+        when(clientMock.getSubscriptionManager()).thenReturn(subscriptionManagerMock);
+
+        UaSubscription subscriptionMock = mock(UaSubscription.class);
+        when(subscriptionMock.getSubscriptionId()).thenReturn(UInteger.valueOf(7));
+        when(subscriptionManagerMock.createSubscription(1000.0))
+                .thenReturn(CompletableFuture.completedFuture(subscriptionMock));
+        when(subscriptionManagerMock.deleteSubscription(UInteger.valueOf(7)))
+                .thenReturn(CompletableFuture.completedFuture(subscriptionMock));
+
+        AtomicReference<Consumer<DataValue>> valueConsumer = new AtomicReference<>();
+        doAnswer(invocation -> {
+            List<MonitoredItemCreateRequest> requests = invocation.getArgumentAt(1, List.class);
+            assertEquals(1, requests.size());
+            MonitoredItemCreateRequest request = requests.get(0);
+            assertEquals(1, ((UInteger) request.getItemToMonitor().getNodeId().getIdentifier()).intValue());
+            assertEquals(MonitoringMode.Reporting, request.getMonitoringMode());
+            assertEquals(250.0, request.getRequestedParameters().getSamplingInterval(), 0.0);
+            assertEquals(5, request.getRequestedParameters().getQueueSize().intValue());
+            assertNotNull(request.getRequestedParameters().getFilter());
+
+            UaMonitoredItem itemMock = mock(UaMonitoredItem.class);
+            when(itemMock.getStatusCode()).thenReturn(StatusCode.GOOD);
+            doAnswer(setter -> {
+                valueConsumer.set(setter.getArgumentAt(0, Consumer.class));
+                return null;
+            }).when(itemMock).setValueConsumer(any(Consumer.class));
+
+            invocation.getArgumentAt(2, BiConsumer.class).accept(itemMock, 0);
+            return CompletableFuture.completedFuture(Arrays.asList(itemMock));
+        }).when(subscriptionMock).createMonitoredItems(anyObject(), anyObject(), anyObject());
+
+        Map<String, Object> channelConfig = createRecord(ChannelRecord.createReadRecord("ch1", DataType.INTEGER), 1)
+                .getChannelConfig();
+        channelConfig.put("+name", "ch1");
+        channelConfig.put("+value.type", "INTEGER");
+        channelConfig.put("listen.sampling.interval", "250");
+        channelConfig.put("listen.queue.size", "5");
+        channelConfig.put("listen.deadband", "0.5");
+
+        List<ChannelEvent> events = new ArrayList<>();
+        ChannelListener listener = events::add;
+        svc.registerChannelListener(channelConfig, listener);
+
+        assertNotNull(valueConsumer.get());
+        valueConsumer.get().accept(new DataValue(new Variant(42), StatusCode.GOOD));
+        valueConsumer.get().accept(new DataValue(new StatusCode(StatusCodes.Bad_NoCommunication)));
+        valueConsumer.get().accept(new DataValue(new Variant(43), StatusCode.GOOD, new DateTime(new Date(1000L)),
+                new DateTime(new Date(2000L))));
+        valueConsumer.get()
+                .accept(new DataValue(new Variant(44), StatusCode.GOOD, null, new DateTime(new Date(3000L))));
+
+        assertEquals(4, events.size());
+        ChannelRecord record = events.get(0).getChannelRecord();
+        assertEquals("ch1", record.getChannelName());
+        assertEquals(ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        assertEquals(42, record.getValue().getValue());
+        assertEquals(ChannelFlag.FAILURE, events.get(1).getChannelRecord().getChannelStatus().getChannelFlag());
+        // the source timestamp is used, falling back to the server timestamp
+        assertEquals(1000L, events.get(2).getChannelRecord().getTimestamp());
+        assertEquals(3000L, events.get(3).getChannelRecord().getTimestamp());
+
+        svc.unregisterChannelListener(listener);
+
+        verify(subscriptionManagerMock).deleteSubscription(UInteger.valueOf(7));
+    }
+
+    @Test
+    public void testFailedMonitoredItemDiscarded() throws ConnectionException, NoSuchFieldException {
+        // a monitored item created with a bad status is deleted, with its subscription if it is the only item
+
+        OpcUaDriver svc = new OpcUaDriver();
+
+        OpcUaClient clientMock = prepareClient(svc);
+        OpcUaSubscriptionManager subscriptionManagerMock = mock(OpcUaSubscriptionManager.class);
+        when(clientMock.getSubscriptionManager()).thenReturn(subscriptionManagerMock);
+
+        UaSubscription subscriptionMock = mock(UaSubscription.class);
+        when(subscriptionMock.getSubscriptionId()).thenReturn(UInteger.valueOf(7));
+        when(subscriptionManagerMock.createSubscription(1000.0))
+                .thenReturn(CompletableFuture.completedFuture(subscriptionMock));
+        when(subscriptionManagerMock.deleteSubscription(UInteger.valueOf(7)))
+                .thenReturn(CompletableFuture.completedFuture(subscriptionMock));
+        when(subscriptionMock.deleteMonitoredItems(anyObject()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+
+        List<StatusCode> statusCodes = new ArrayList<>(Arrays.asList(new StatusCode(StatusCodes.Bad_NodeIdUnknown),
+                StatusCode.GOOD, new StatusCode(StatusCodes.Bad_NodeIdUnknown)));
+        List<UaMonitoredItem> items = new ArrayList<>();
+        doAnswer(invocation -> {
+            UaMonitoredItem itemMock = mock(UaMonitoredItem.class);
+            when(itemMock.getStatusCode()).thenReturn(statusCodes.remove(0));
+            items.add(itemMock);
+            invocation.getArgumentAt(2, BiConsumer.class).accept(itemMock, 0);
+            return CompletableFuture.completedFuture(Arrays.asList(itemMock));
+        }).when(subscriptionMock).createMonitoredItems(anyObject(), anyObject(), anyObject());
+
+        Map<String, Object> channelConfig = createRecord(ChannelRecord.createReadRecord("ch1", DataType.INTEGER), 1)
+                .getChannelConfig();
+        channelConfig.put("+name", "ch1");
+        channelConfig.put("+value.type", "INTEGER");
+
+        // the only item fails, the subscription is deleted
+        try {
+            svc.registerChannelListener(channelConfig, event -> {
+            });
+            fail("Exception was expected.");
+        } catch (ConnectionException e) {
+            // expected
+        }
+        verify(subscriptionManagerMock).deleteSubscription(UInteger.valueOf(7));
+        assertNull(TestUtil.getFieldValue(svc, "subscription"));
+
+        // another item is registered in a new subscription, only the failed item is deleted
+        svc.registerChannelListener(channelConfig, event -> {
+        });
+        try {
+            svc.registerChannelListener(channelConfig, event -> {
+            });
+            fail("Exception was expected.");
+        } catch (ConnectionException e) {
+            // expected
+        }
+        verify(subscriptionManagerMock, times(2)).createSubscription(1000.0);
+        verify(subscriptionManagerMock, times(1)).deleteSubscription(UInteger.valueOf(7));
+        verify(subscriptionMock).deleteMonitoredItems(Collections.singletonList(items.get(2)));
+        assertNotNull(TestUtil.getFieldValue(svc, "subscription"));
     }
 
     @Test
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.driver.opcua;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.ULong;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.junit.Test;
+
+public class ValueConvertersTest {
+
+    @Test
+    public void testConvert() throws Exception {
+        assertConverted(true, DataType.BOOLEAN, true);
+        assertConverted(10, DataType.INTEGER, 10);
+        assertConverted(123456789123456L, DataType.LONG, 123456789123456L);
+        assertConverted(12.3f, DataType.FLOAT, 12.3f);
+        assertConverted(123.4, DataType.DOUBLE, 123.4);
+        assertConverted("test", DataType.STRING, "test");
+
+        byte[] bytes = "test".getBytes("utf8");
+        assertArrayEquals(bytes, (byte[]) convert(VariableType.DEFINED_BY_JAVA_TYPE, DataType.BYTE_ARRAY, bytes));
+        assertArrayEquals(bytes, (byte[]) convert(VariableType.BYTE_STRING, DataType.BYTE_ARRAY, ByteString.of(bytes)));
+        assertArrayEquals(new byte[] { 1, (byte) 0xff }, (byte[]) convert(VariableType.BYTE_ARRAY,
+                DataType.BYTE_ARRAY, new UByte[] { UByte.valueOf(1), UByte.valueOf(255) }));
+    }
+
+    @Test
+    public void testConvertNumbers() {
+        // numbers are converted to the value type of the channel
+        assertConverted(10, DataType.LONG, 10L);
+        assertConverted(UInteger.valueOf(4000000000L), DataType.LONG, 4000000000L);
+        assertConverted(ULong.valueOf(7), DataType.LONG, 7L);
+        assertConverted((short) -3, DataType.INTEGER, -3);
+        assertConverted(UShort.valueOf(65535), DataType.INTEGER, 65535);
+        assertConverted(5L, DataType.INTEGER, 5);
+        assertConverted(10, DataType.DOUBLE, 10.0);
+        assertConverted(2.5, DataType.FLOAT, 2.5f);
+        assertConverted(0.1f, DataType.DOUBLE, 0.1);
+        assertConverted(3, DataType.STRING, "3");
+        assertConverted("42", DataType.INTEGER, 42);
+        assertConverted("TRUE", DataType.BOOLEAN, true);
+
+        // as parsing their string representation would, the numbers that do not fit are rejected
+        assertNotConverted(4000000000L, DataType.INTEGER);
+        assertNotConverted(UInteger.valueOf(4000000000L), DataType.INTEGER);
+        assertNotConverted(ULong.valueOf("18446744073709551615"), DataType.LONG);
+        assertNotConverted(1.0, DataType.LONG);
+        assertNotConverted(1.5f, DataType.INTEGER);
+        assertNotConverted("test", DataType.INTEGER);
+        assertNotConverted("test", DataType.DOUBLE);
+    }
+
+    @Test
+    public void testConvertWithNodeType() {
+        // values matching the type of the node and values of other types give the same results
+        List<VariableType> opcuaTypes = Arrays.asList(VariableType.values());
+        List<Object> values = Arrays.asList(true, (byte) -1, (short) 300, 70000, 5000000000L, UByte.valueOf(200),
+                UShort.valueOf(60000), UInteger.valueOf(4000000000L), ULong.valueOf(9), 1.5f, 2.25, "12", "x");
+
+        for (DataType valueType : DataType.values()) {
+            if (valueType == DataType.BYTE_ARRAY) {
+                continue;
+            }
+            ValueConverter converter = ValueConverters.forTypes(VariableType.DEFINED_BY_JAVA_TYPE, valueType);
+            for (VariableType opcuaType : opcuaTypes) {
+                ValueConverter nodeConverter = ValueConverters.forTypes(opcuaType, valueType);
+                for (Object value : values) {
+                    assertEquals(opcuaType + " " + valueType + " " + value, getValue(converter.convert(value)),
+                            getValue(nodeConverter.convert(value)));
+                }
+            }
+        }
+    }
+
+    private static Object getValue(Optional<TypedValue<?>> value) {
+        return value.map(TypedValue::getValue).orElse(null);
+    }
+
+    private static Object convert(VariableType opcuaType, DataType valueType, Object value) {
+        Optional<TypedValue<?>> result = ValueConverters.forTypes(opcuaType, valueType).convert(value);
+
+        assertTrue(result.isPresent());
+        assertEquals(valueType, result.get().getType());
+        return result.get().getValue();
+    }
+
+    private static void assertConverted(Object value, DataType valueType, Object expected) {
+        assertEquals(expected, convert(VariableType.DEFINED_BY_JAVA_TYPE, valueType, value));
+    }
+
+    private static void assertNotConverted(Object value, DataType valueType) {
+        assertFalse(ValueConverters.forTypes(VariableType.DEFINED_BY_JAVA_TYPE, valueType).convert(value).isPresent());
+    }
+}
@@ -9,12 +9,19 @@
 package org.eclipse.kura.internal.wire.asset;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,8 +36,12 @@ import org.eclipse.kura.channel.ChannelType;
 import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.channel.listener.ChannelEvent;
+import org.eclipse.kura.channel.listener.ChannelListener;
 import org.eclipse.kura.type.BooleanValue;
 import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.DoubleValue;
+import org.eclipse.kura.type.IntegerValue;
 import org.eclipse.kura.type.LongValue;
 import org.eclipse.kura.type.StringValue;
 import org.eclipse.kura.type.TypedValue;
@@ -142,4 +153,224 @@ public class WireAssetTest {
         verify(mockDriver).write(any());
     }
 
+    @Test
+    public void testEmitFromSchema() throws NoSuchFieldException, ConnectionException {
+        Channel channel1 = new Channel("channel1", ChannelType.READ, DataType.INTEGER, new HashMap<>());
+        Channel channel2 = new Channel("channel2", ChannelType.READ, DataType.INTEGER, new HashMap<>());
+
+        Map<String, Channel> channels = new HashMap<>();
+        channels.put(channel1.getName(), channel1);
+        channels.put(channel2.getName(), channel2);
+
+        AssetConfiguration assetConfiguration = new AssetConfiguration("description", "driverPid", channels);
+
+        WireAsset wireAsset = new WireAsset();
+        TestUtil.setFieldValue(wireAsset, "kuraServicePid", "componentName");
+        TestUtil.setFieldValue(wireAsset, "assetConfiguration", assetConfiguration);
+
+        Driver mockDriver = mock(Driver.class);
+        wireAsset.setDriver(mockDriver);
+
+        // the second read fails on channel2
+        int[] reads = new int[1];
+        doAnswer(invocation -> {
+            List<ChannelRecord> records = (List<ChannelRecord>) invocation.getArguments()[0];
+            for (ChannelRecord record : records) {
+                record.setValue(new IntegerValue(reads[0]));
+                record.setTimestamp(42);
+                boolean failure = reads[0] > 0 && "channel2".equals(record.getChannelName());
+                record.setChannelStatus(new ChannelStatus(failure ? ChannelFlag.FAILURE : ChannelFlag.SUCCESS));
+            }
+            reads[0]++;
+            return null;
+        }).when(mockDriver).read(any());
+
+        List<WireRecord> emitted = new ArrayList<>();
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        TestUtil.setFieldValue(wireAsset, "wireSupport", mockWireSupport);
+        doAnswer(invocation -> {
+            emitted.addAll((List<WireRecord>) invocation.getArguments()[0]);
+            return null;
+        }).when(mockWireSupport).emit(any());
+
+        WireEnvelope wireEnvelope = new WireEnvelope("pid", Collections.emptyList());
+        wireAsset.onWireReceive(wireEnvelope);
+        Object layout = TestUtil.getFieldValue(wireAsset, "channelRecordLayout");
+        wireAsset.onWireReceive(wireEnvelope);
+        assertSame(layout, TestUtil.getFieldValue(wireAsset, "channelRecordLayout"));
+
+        assertEquals(2, emitted.size());
+
+        Map<String, TypedValue<?>> expected = new HashMap<>();
+        expected.put("assetName", new StringValue("componentName"));
+        expected.put("channel1", new IntegerValue(0));
+        expected.put("channel1_timestamp", new LongValue(42));
+        expected.put("channel2", new IntegerValue(0));
+        expected.put("channel2_timestamp", new LongValue(42));
+        assertEquals(expected, emitted.get(0).getProperties());
+        assertEquals(expected.hashCode(), emitted.get(0).getProperties().hashCode());
+
+        Map<String, TypedValue<?>> properties = emitted.get(1).getProperties();
+        assertEquals(3, properties.size());
+        assertEquals(new IntegerValue(1), properties.get("channel1"));
+        assertFalse(properties.containsKey("channel2"));
+        assertFalse(properties.containsKey("channel2_timestamp"));
+        assertEquals(3, properties.entrySet().size());
+
+        // the primitive timestamp is wrapped once, then read by key or by entry as the same instance
+        TypedValue<?> timestamp = properties.get("channel1_timestamp");
+        assertSame(timestamp, properties.get("channel1_timestamp"));
+        for (Map.Entry<String, TypedValue<?>> entry : properties.entrySet()) {
+            assertSame(properties.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    @Test
+    public void testChannelListener() throws NoSuchFieldException, ConnectionException {
+        Map<String, Object> listenConfig = new HashMap<>();
+        listenConfig.put("+listen", "true");
+        Channel channel1 = new Channel("channel1", ChannelType.READ, DataType.INTEGER, listenConfig);
+        Channel channel2 = new Channel("channel2", ChannelType.READ, DataType.INTEGER, new HashMap<>());
+
+        Map<String, Channel> channels = new HashMap<>();
+        channels.put(channel1.getName(), channel1);
+        channels.put(channel2.getName(), channel2);
+
+        AssetConfiguration assetConfiguration = new AssetConfiguration("description", "driverPid", channels);
+
+        WireAsset wireAsset = new WireAsset();
+        TestUtil.setFieldValue(wireAsset, "kuraServicePid", "componentName");
+        TestUtil.setFieldValue(wireAsset, "assetConfiguration", assetConfiguration);
+
+        List<WireRecord> emitted = new ArrayList<>();
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        TestUtil.setFieldValue(wireAsset, "wireSupport", mockWireSupport);
+        doAnswer(invocation -> {
+            emitted.addAll((List<WireRecord>) invocation.getArguments()[0]);
+            return null;
+        }).when(mockWireSupport).emit(any());
+
+        // only the channel configured with the listen property is monitored
+        List<ChannelListener> listeners = new ArrayList<>();
+        Driver mockDriver = mock(Driver.class);
+        doAnswer(invocation -> {
+            listeners.add((ChannelListener) invocation.getArguments()[1]);
+            return null;
+        }).when(mockDriver).registerChannelListener(eq(listenConfig), any());
+
+        wireAsset.setDriver(mockDriver);
+
+        assertEquals(1, listeners.size());
+        verify(mockDriver, never()).registerChannelListener(eq(channel2.getConfiguration()), any());
+
+        ChannelRecord record = channel1.createReadRecord();
+        record.setValue(new IntegerValue(5));
+        record.setTimestamp(42);
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+        listeners.get(0).onChannelEvent(new ChannelEvent(record));
+
+        assertEquals(1, emitted.size());
+        Map<String, TypedValue<?>> expected = new HashMap<>();
+        expected.put("assetName", new StringValue("componentName"));
+        expected.put("channel1", new IntegerValue(5));
+        expected.put("channel1_timestamp", new LongValue(42));
+        assertEquals(expected, emitted.get(0).getProperties());
+
+        // the listener is removed from the driver when it goes away
+        wireAsset.setDriver(null);
+
+        verify(mockDriver).unregisterChannelListener(listeners.get(0));
+    }
+
+    @Test
+    public void testReportByException() throws NoSuchFieldException, ConnectionException {
+        Map<String, Object> temperatureConfig = new HashMap<>();
+        temperatureConfig.put("+report.on.change", true);
+        temperatureConfig.put("+report.deadband", 0.5);
+        temperatureConfig.put("+report.max.silence", 1000L);
+        Map<String, Object> levelConfig = new HashMap<>();
+        levelConfig.put("+report.on.change", "true");
+        levelConfig.put("+report.deadband.percent", "10");
+        Map<String, Object> stateConfig = new HashMap<>();
+        stateConfig.put("+report.on.change", true);
+
+        Map<String, Channel> channels = new HashMap<>();
+        channels.put("temperature", new Channel("temperature", ChannelType.READ, DataType.DOUBLE, temperatureConfig));
+        channels.put("level", new Channel("level", ChannelType.READ, DataType.DOUBLE, levelConfig));
+        channels.put("state", new Channel("state", ChannelType.READ, DataType.BOOLEAN, stateConfig));
+        channels.put("counter", new Channel("counter", ChannelType.READ, DataType.INTEGER, new HashMap<>()));
+
+        WireAsset wireAsset = new WireAsset();
+        TestUtil.setFieldValue(wireAsset, "kuraServicePid", "componentName");
+        TestUtil.setFieldValue(wireAsset, "assetConfiguration",
+                new AssetConfiguration("description", "driverPid", channels));
+
+        // temperature, level, state and timestamp of each read
+        Object[][] reads = { { 20.0, 100.0, false, 0L }, { 20.3, 105.0, false, 100L }, { 20.6, 111.0, true, 200L },
+                { 20.6, 111.0, true, 1300L } };
+        int[] readCount = new int[1];
+        Driver mockDriver = mock(Driver.class);
+        doAnswer(invocation -> {
+            Object[] read = reads[readCount[0]];
+            for (ChannelRecord record : (List<ChannelRecord>) invocation.getArguments()[0]) {
+                switch (record.getChannelName()) {
+                case "temperature":
+                    record.setValue(new DoubleValue((Double) read[0]));
+                    break;
+                case "level":
+                    record.setValue(new DoubleValue((Double) read[1]));
+                    break;
+                case "state":
+                    record.setValue(new BooleanValue((Boolean) read[2]));
+                    break;
+                default:
+                    record.setValue(new IntegerValue(readCount[0]));
+                    break;
+                }
+                record.setTimestamp((Long) read[3]);
+                record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+            }
+            readCount[0]++;
+            return null;
+        }).when(mockDriver).read(any());
+        wireAsset.setDriver(mockDriver);
+
+        List<WireRecord> emitted = new ArrayList<>();
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        TestUtil.setFieldValue(wireAsset, "wireSupport", mockWireSupport);
+        doAnswer(invocation -> {
+            emitted.addAll((List<WireRecord>) invocation.getArguments()[0]);
+            return null;
+        }).when(mockWireSupport).emit(any());
+
+        WireEnvelope wireEnvelope = new WireEnvelope("pid", Collections.emptyList());
+        wireAsset.onWireReceive(wireEnvelope);
+        Object layout = TestUtil.getFieldValue(wireAsset, "channelRecordLayout");
+        for (int i = 1; i < reads.length; i++) {
+            wireAsset.onWireReceive(wireEnvelope);
+            // the layout of all the channels is kept whatever the subset of reported channels
+            assertSame(layout, TestUtil.getFieldValue(wireAsset, "channelRecordLayout"));
+        }
+
+        assertEquals(4, emitted.size());
+        // the first values are always reported
+        assertReported(emitted.get(0), "temperature", "level", "state", "counter");
+        // the changes are within the deadbands
+        assertReported(emitted.get(1), "counter");
+        assertEquals(new IntegerValue(1), emitted.get(1).getProperties().get("counter"));
+        // the changes from the last reported values exceed the deadbands
+        assertReported(emitted.get(2), "temperature", "level", "state", "counter");
+        assertEquals(new DoubleValue(20.6), emitted.get(2).getProperties().get("temperature"));
+        // no changes, but the temperature was not reported for longer than its maximum silence
+        assertReported(emitted.get(3), "temperature", "counter");
+    }
+
+    private static void assertReported(WireRecord wireRecord, String... channelNames) {
+        Map<String, TypedValue<?>> properties = wireRecord.getProperties();
+        assertEquals(1 + 2 * channelNames.length, properties.size());
+        for (String channelName : Arrays.asList(channelNames)) {
+            assertTrue(properties.containsKey(channelName));
+            assertTrue(properties.containsKey(channelName + "_timestamp"));
+        }
+    }
 }
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.junit.Test;
+
+public class ExpressionFilterTest {
+
+    @Test
+    public void testEvaluate() {
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("i", TypedValues.newIntegerValue(7));
+        properties.put("l", TypedValues.newLongValue(3L));
+        properties.put("d", TypedValues.newDoubleValue(2.5));
+        properties.put("s", TypedValues.newStringValue("on"));
+        properties.put("channel 1", TypedValues.newBooleanValue(true));
+
+        assertEquals(17, evaluate("1 + 2 * i + 2", properties));
+        assertEquals(10L, evaluate("i + l", properties));
+        assertEquals(17.5, evaluate("i * d", properties));
+        assertEquals(3, evaluate("i / 2", properties));
+        assertEquals(1.5f, evaluate("3f / 2", properties));
+        assertEquals(-7, evaluate("-i", properties));
+        assertEquals(true, evaluate("i == 7L && s == 'on' && `channel 1`", properties));
+        assertEquals(false, evaluate("i > 7 || !`channel 1`", properties));
+        assertEquals("value: on", evaluate("\"value: \" + s", properties));
+        assertEquals(3L, evaluate("round(d)", properties));
+        assertEquals(3L, evaluate("min(i, l)", properties));
+        assertEquals(7.0, evaluate("max(i, d)", properties));
+        assertEquals("high", evaluate("i >= 5 ? 'high' : 'low'", properties));
+
+        // missing properties and divisions by zero are undefined
+        assertNull(evaluate("missing + 1", properties));
+        assertNull(evaluate("i / 0", properties));
+        assertEquals(false, evaluate("missing > 1", properties));
+        assertEquals(true, evaluate("missing == null", properties));
+    }
+
+    @Test
+    public void testCompileErrors() {
+        for (String source : Arrays.asList("1 +", "(1 + 2", "a = 1", "foo(1)", "'abc", "1 + true", "a b")) {
+            try {
+                ExpressionParser.parseExpression(source);
+                fail("Expected an error compiling " + source);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testFilterAndProject() {
+        List<List<WireRecord>> emitted = new ArrayList<>();
+        ExpressionFilter filter = createFilter(emitted);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("filter.expression", "celsius > 20");
+        properties.put("projection", "fahrenheit = celsius * 1.8 + 32; `alarm!` = celsius >= 30;");
+        filter.activate(properties);
+
+        filter.onWireReceive(createWireEnvelope(10, 25, 30));
+
+        assertEquals(1, emitted.size());
+        List<WireRecord> records = emitted.get(0);
+        assertEquals(2, records.size());
+        assertEquals(2, records.get(0).getProperties().size());
+        assertEquals(77.0, records.get(0).getProperties().get("fahrenheit").getValue());
+        assertEquals(false, records.get(0).getProperties().get("alarm!").getValue());
+        assertEquals(86.0, records.get(1).getProperties().get("fahrenheit").getValue());
+        assertEquals(true, records.get(1).getProperties().get("alarm!").getValue());
+
+        // no records left, nothing emitted
+        filter.onWireReceive(createWireEnvelope(5));
+        assertEquals(1, emitted.size());
+
+        properties.put("projection.retain", true);
+        filter.updated(properties);
+
+        filter.onWireReceive(createWireEnvelope(25));
+        assertEquals(2, emitted.size());
+        Map<String, TypedValue<?>> retained = emitted.get(1).get(0).getProperties();
+        assertEquals(3, retained.size());
+        assertEquals(25, retained.get("celsius").getValue());
+        assertEquals(77.0, retained.get("fahrenheit").getValue());
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        ExpressionFilter filter = new ExpressionFilter();
+        filter.bindWireHelperService(wireHelperServiceMock);
+        when(wireHelperServiceMock.newWireSupport(filter)).thenReturn(wireSupportMock);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("filter.expression", "celsius >");
+        filter.activate(properties);
+
+        filter.onWireReceive(createWireEnvelope(25));
+
+        verify(wireSupportMock, never()).emit(anyObject());
+    }
+
+    private static Object evaluate(String source, Map<String, TypedValue<?>> properties) {
+        return ExpressionParser.parseExpression(source).evaluate(properties);
+    }
+
+    private static ExpressionFilter createFilter(List<List<WireRecord>> emitted) {
+        WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        doAnswer(invocation -> {
+            emitted.add((List<WireRecord>) invocation.getArguments()[0]);
+            return null;
+        }).when(wireSupportMock).emit(anyObject());
+
+        ExpressionFilter filter = new ExpressionFilter();
+        filter.bindWireHelperService(wireHelperServiceMock);
+        when(wireHelperServiceMock.newWireSupport(filter)).thenReturn(wireSupportMock);
+        return filter;
+    }
+
+    private static WireEnvelope createWireEnvelope(int... temperatures) {
+        List<WireRecord> records = new ArrayList<>();
+        for (int temperature : temperatures) {
+            Map<String, TypedValue<?>> properties = new HashMap<>();
+            properties.put("celsius", TypedValues.newIntegerValue(temperature));
+            records.add(new WireRecord(properties));
+        }
+        return new WireEnvelope("emitter", records);
+    }
+}
@@ -11,10 +11,13 @@ package org.eclipse.kura.internal.wire.fifo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -181,6 +184,54 @@ public class FifoTest {
 
         assertFalse("Not all envelopes expected to be processed", wiresLatch.await(1000, TimeUnit.MILLISECONDS));
         assertEquals(1, wiresLatch.getCount());
+        assertEquals(4, fifo.getDiscardedEnvelopes());
+    }
+
+    @Test
+    public void testBatchDrain() throws InterruptedException {
+        CountDownLatch firstEmitLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        CountDownLatch wiresLatch = new CountDownLatch(2);
+        List<Integer> emittedSizes = new ArrayList<>();
+
+        Fifo fifo = new Fifo();
+
+        WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        fifo.bindWireHelperService(wireHelperServiceMock);
+
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        doAnswer(invocation -> {
+            List<WireRecord> wireRecords = (List<WireRecord>) invocation.getArguments()[0];
+            emittedSizes.add(wireRecords.size());
+            firstEmitLatch.countDown();
+            releaseLatch.await(1, TimeUnit.SECONDS); // keep the next envelopes in the queue
+            wiresLatch.countDown();
+            return null;
+        }).when(wireSupportMock).emit(anyObject());
+        when(wireHelperServiceMock.newWireSupport(fifo)).thenReturn(wireSupportMock);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("discard.envelopes", false);
+        properties.put("queue.capacity", 5);
+        properties.put("batch.drain", true);
+
+        fifo.activate(properties);
+
+        fifo.onWireReceive(createWireEnvelope());
+        assertTrue(firstEmitLatch.await(1, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            fifo.onWireReceive(createWireEnvelope());
+        }
+        assertEquals(5, fifo.getQueueDepth());
+
+        releaseLatch.countDown();
+
+        assertTrue(wiresLatch.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 5), emittedSizes);
+        assertEquals(0, fifo.getQueueDepth());
+        assertEquals(0, fifo.getDiscardedEnvelopes());
+
+        fifo.deactivate();
     }
 
     private WireEnvelope createWireEnvelope() {
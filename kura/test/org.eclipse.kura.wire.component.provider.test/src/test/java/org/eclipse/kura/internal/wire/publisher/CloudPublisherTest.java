@@ -9,9 +9,13 @@
 package org.eclipse.kura.internal.wire.publisher;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -21,15 +25,22 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.cloud.CloudClient;
 import org.eclipse.kura.cloud.CloudService;
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.type.LongValue;
 import org.eclipse.kura.type.StringValue;
 import org.eclipse.kura.type.TypedValue;
 import org.eclipse.kura.wire.WireEnvelope;
@@ -39,6 +50,7 @@ import org.junit.Test;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
+import org.mockito.ArgumentCaptor;
 import org.osgi.service.component.ComponentContext;
 
 public class CloudPublisherTest {
@@ -210,4 +222,246 @@ public class CloudPublisherTest {
         verify(cloudClientMock, times(1)).controlPublish(eq(topic), (KuraPayload) anyObject(), eq(qos), eq(retain),
                 eq(prio));
     }
+
+    @Test
+    public void testOnWireReceiveBatch() throws InvalidSyntaxException, NoSuchFieldException, KuraException {
+        // test aggregating records in a single message, the last one is published on deactivation
+
+        int prio = 7;
+        int qos = 0;
+        boolean retain = false;
+        String topic = "my test topic";
+
+        CloudPublisher cp = new CloudPublisher();
+
+        WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        cp.bindWireHelperService(wireHelperServiceMock);
+
+        BundleContext bundleCtxMock = mock(BundleContext.class);
+        Filter filter = mock(Filter.class);
+        when(bundleCtxMock.createFilter(anyString())).thenReturn(filter);
+
+        ComponentContext ctxMock = mock(ComponentContext.class);
+        when(ctxMock.getBundleContext()).thenReturn(bundleCtxMock);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("cloud.service.pid", "cspid");
+        properties.put("publish.priority", prio);
+        properties.put("publish.qos", qos);
+        properties.put("publish.retain", retain);
+        properties.put("publish.topic", "$topic");
+        properties.put("publish.batch.size", 2);
+        properties.put("publish.batch.interval", 3600000);
+
+        cp.activate(ctxMock, properties);
+
+        CloudService cloudServiceMock = mock(CloudService.class);
+        CloudClient cloudClientMock = mock(CloudClient.class);
+
+        TestUtil.setFieldValue(cp, "cloudService", cloudServiceMock);
+        TestUtil.setFieldValue(cp, "cloudClient", cloudClientMock);
+
+        List<WireRecord> wireRecords = new ArrayList<WireRecord>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+            recordProps.put("key", new StringValue("val" + i));
+            recordProps.put("topic", new StringValue(topic));
+            wireRecords.add(new WireRecord(recordProps));
+        }
+
+        cp.onWireReceive(new WireEnvelope("emitter", wireRecords));
+
+        ArgumentCaptor<KuraPayload> captor = ArgumentCaptor.forClass(KuraPayload.class);
+        verify(cloudClientMock, times(1)).publish(eq(topic), captor.capture(), eq(qos), eq(retain), eq(prio));
+        KuraPayload payload = captor.getValue();
+        assertEquals(6, payload.metrics().size());
+        assertEquals("val0", payload.getMetric("key.0"));
+        assertEquals("val1", payload.getMetric("key.1"));
+        assertEquals(payload.getTimestamp().getTime(), payload.getMetric("timestamp.0"));
+
+        cp.deactivate(ctxMock);
+
+        verify(cloudClientMock, times(2)).publish(eq(topic), captor.capture(), eq(qos), eq(retain), eq(prio));
+        payload = captor.getValue();
+        assertEquals(3, payload.metrics().size());
+        assertEquals("val2", payload.getMetric("key.0"));
+    }
+
+    @Test
+    public void testBatchKeepsRecordsOfTheSameMillisecond() throws NoSuchFieldException, KuraException {
+        // records with the same arrival time and a timestamp property of their own are all published
+
+        WireRecordAggregator aggregator = new WireRecordAggregator(3);
+        long now = System.currentTimeMillis();
+
+        KuraPayload payload = null;
+        for (int i = 0; i < 3; i++) {
+            Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+            recordProps.put("key", new StringValue("val" + i));
+            if (i == 2) {
+                recordProps.put("timestamp", new LongValue(42L));
+            }
+            payload = aggregator.add("topic", new WireRecord(recordProps), now);
+        }
+
+        assertNotNull(payload);
+        assertEquals(6, payload.metrics().size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("val" + i, payload.getMetric("key." + i));
+        }
+        assertEquals(now, payload.getMetric("timestamp.0"));
+        assertEquals(now, payload.getMetric("timestamp.1"));
+        assertEquals(42L, payload.getMetric("timestamp.2"));
+    }
+
+    @Test
+    public void testNoRecordLostOnUpdate() throws Exception {
+        // records received while the configuration is updated are published either in the old or in the new batch
+
+        CloudPublisher cp = new CloudPublisher();
+
+        WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        cp.bindWireHelperService(wireHelperServiceMock);
+
+        BundleContext bundleCtxMock = mock(BundleContext.class);
+        Filter filter = mock(Filter.class);
+        when(bundleCtxMock.createFilter(anyString())).thenReturn(filter);
+
+        ComponentContext ctxMock = mock(ComponentContext.class);
+        when(ctxMock.getBundleContext()).thenReturn(bundleCtxMock);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("cloud.service.pid", "cspid");
+        properties.put("publish.topic", "topic");
+        properties.put("publish.batch.size", 1000);
+        properties.put("publish.batch.interval", 3600000);
+
+        cp.activate(ctxMock, properties);
+
+        CloudClient cloudClientMock = mock(CloudClient.class);
+        AtomicInteger publishedRecords = new AtomicInteger();
+        when(cloudClientMock.publish(anyString(), (KuraPayload) anyObject(), anyInt(), anyBoolean(), anyInt()))
+                .thenAnswer(invocation -> {
+                    KuraPayload payload = (KuraPayload) invocation.getArguments()[1];
+                    publishedRecords.addAndGet(payload.metrics().size() / 2);
+                    return 0;
+                });
+
+        TestUtil.setFieldValue(cp, "cloudService", mock(CloudService.class));
+        TestUtil.setFieldValue(cp, "cloudClient", cloudClientMock);
+
+        int records = 2000;
+        Thread emitter = new Thread(() -> {
+            for (int i = 0; i < records; i++) {
+                Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+                recordProps.put("key", new StringValue("val" + i));
+                cp.onWireReceive(new WireEnvelope("emitter", Collections.singletonList(new WireRecord(recordProps))));
+            }
+        });
+        emitter.start();
+        while (emitter.isAlive()) {
+            cp.updated(properties);
+        }
+        emitter.join();
+
+        cp.deactivate(ctxMock);
+
+        assertEquals(records, publishedRecords.get());
+    }
+
+    @Test
+    public void testUnbatchedPublishNotSerialized() throws Exception {
+        // with batching disabled, the records of different emitters are published concurrently
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("cloud.service.pid", "cspid");
+        properties.put("publish.topic", "topic");
+
+        CloudClient cloudClientMock = mock(CloudClient.class);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        when(cloudClientMock.publish(anyString(), (KuraPayload) anyObject(), anyInt(), anyBoolean(), anyInt()))
+                .thenAnswer(invocation -> barrier.await(10, TimeUnit.SECONDS));
+
+        CloudPublisher cp = activate(properties, cloudClientMock);
+
+        List<Thread> emitters = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            Thread emitter = new Thread(() -> {
+                cp.onWireReceive(newEnvelope("val"));
+                if (barrier.isBroken()) {
+                    failures.incrementAndGet();
+                }
+            });
+            emitters.add(emitter);
+            emitter.start();
+        }
+        for (Thread emitter : emitters) {
+            emitter.join();
+        }
+
+        assertEquals(0, failures.get());
+        verify(cloudClientMock, times(2)).publish(anyString(), (KuraPayload) anyObject(), anyInt(), anyBoolean(),
+                anyInt());
+    }
+
+    @Test
+    public void testRunningBatchCompletesOnDeactivate() throws Exception {
+        // the batch being published when the component is deactivated completes before deactivate returns
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("cloud.service.pid", "cspid");
+        properties.put("publish.topic", "topic");
+        properties.put("publish.batch.size", 1000);
+        properties.put("publish.batch.interval", 10);
+
+        CloudClient cloudClientMock = mock(CloudClient.class);
+        CountDownLatch publishing = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean completed = new AtomicBoolean();
+        when(cloudClientMock.publish(anyString(), (KuraPayload) anyObject(), anyInt(), anyBoolean(), anyInt()))
+                .thenAnswer(invocation -> {
+                    publishing.countDown();
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                    completed.set(true);
+                    return 0;
+                });
+
+        CloudPublisher cp = activate(properties, cloudClientMock);
+
+        cp.onWireReceive(newEnvelope("val"));
+        assertTrue(publishing.await(10, TimeUnit.SECONDS));
+        cp.deactivate(mock(ComponentContext.class));
+
+        assertTrue(completed.get());
+        assertFalse(interrupted.get());
+        verify(cloudClientMock, times(1)).publish(anyString(), (KuraPayload) anyObject(), anyInt(), anyBoolean(),
+                anyInt());
+    }
+
+    private static CloudPublisher activate(Map<String, Object> properties, CloudClient cloudClient)
+            throws InvalidSyntaxException, NoSuchFieldException {
+        CloudPublisher cp = new CloudPublisher();
+        cp.bindWireHelperService(mock(WireHelperService.class));
+
+        BundleContext bundleCtxMock = mock(BundleContext.class);
+        when(bundleCtxMock.createFilter(anyString())).thenReturn(mock(Filter.class));
+        ComponentContext ctxMock = mock(ComponentContext.class);
+        when(ctxMock.getBundleContext()).thenReturn(bundleCtxMock);
+
+        cp.activate(ctxMock, properties);
+        TestUtil.setFieldValue(cp, "cloudService", mock(CloudService.class));
+        TestUtil.setFieldValue(cp, "cloudClient", cloudClient);
+        return cp;
+    }
+
+    private static WireEnvelope newEnvelope(String value) {
+        Map<String, TypedValue<?>> recordProps = new HashMap<>();
+        recordProps.put("key", new StringValue(value));
+        return new WireEnvelope("emitter", Collections.singletonList(new WireRecord(recordProps)));
+    }
 }
@@ -9,19 +9,29 @@
 package org.eclipse.kura.internal.wire.timer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.kura.core.testutil.TestUtil;
+import org.eclipse.kura.type.TypedValue;
 import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
 import org.eclipse.kura.wire.WireSupport;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
@@ -152,4 +162,123 @@ public class TimerTest {
         verify(mockScheduler).scheduleJob(any(), any());
     }
 
+    @Test
+    public void testActivatePrecise() throws SchedulerException, NoSuchFieldException, InterruptedException {
+        WireHelperService mockWireHelperService = mock(WireHelperService.class);
+        Scheduler mockScheduler = mock(Scheduler.class);
+
+        Timer timer = new Timer() {
+
+            @Override
+            protected Scheduler getScheduler() throws SchedulerException {
+                return mockScheduler;
+            }
+        };
+
+        timer.bindWireHelperService(mockWireHelperService);
+
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        when(mockWireHelperService.newWireSupport(timer)).thenReturn(mockWireSupport);
+
+        CountDownLatch ticks = new CountDownLatch(5);
+        doAnswer(invocation -> {
+            List<WireRecord> records = (List<WireRecord>) invocation.getArguments()[0];
+            assertEquals(1, records.size());
+            assertNotNull(records.get(0).getProperties().get("TIMER"));
+            ticks.countDown();
+            return null;
+        }).when(mockWireSupport).emit(any());
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("type", "SIMPLE");
+        properties.put("simple.interval", 20);
+        properties.put("simple.time.unit", "MILLISECONDS");
+        properties.put("simple.scheduler", "PRECISE");
+
+        timer.activate(null, properties);
+
+        assertTrue(ticks.await(5, TimeUnit.SECONDS));
+        TimerTicker ticker = (TimerTicker) TestUtil.getFieldValue(timer, "ticker");
+        assertTrue(ticker.getTickCount() >= 5);
+        verify(mockScheduler, never()).scheduleJob(any(), any());
+
+        timer.deactivate(null);
+        assertEquals(null, TestUtil.getFieldValue(timer, "ticker"));
+    }
+
+    @Test
+    public void testTickerMissedTicks() throws InterruptedException {
+        // each tick takes longer than the interval
+        CountDownLatch ticks = new CountDownLatch(3);
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        doAnswer(invocation -> {
+            Thread.sleep(55);
+            ticks.countDown();
+            return null;
+        }).when(mockWireSupport).emit(any());
+
+        TimerTicker ticker = new TimerTicker("test", mockWireSupport, 20, TimerTicker.MissedTickPolicy.SKIP);
+        ticker.start();
+        assertTrue(ticks.await(5, TimeUnit.SECONDS));
+        ticker.stop();
+
+        // two ticks out of three are skipped
+        assertTrue(ticker.getMissedTickCount() >= 2 * (ticker.getTickCount() - 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTickerStatistics() throws InterruptedException {
+        // the statistics emitted with the ticks are the ones of the ticker
+        List<Map<String, TypedValue<?>>> emitted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch ticks = new CountDownLatch(3);
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        doAnswer(invocation -> {
+            List<WireRecord> records = (List<WireRecord>) invocation.getArguments()[0];
+            emitted.add(records.get(0).getProperties());
+            Thread.sleep(55);
+            ticks.countDown();
+            return null;
+        }).when(mockWireSupport).emit(any());
+
+        TimerTicker ticker = new TimerTicker("test", mockWireSupport, 20, TimerTicker.MissedTickPolicy.SKIP, true);
+        ticker.start();
+        assertTrue(ticks.await(5, TimeUnit.SECONDS));
+        ticker.stop();
+
+        Map<String, TypedValue<?>> last = emitted.get(emitted.size() - 1);
+        assertNotNull(last.get("TIMER"));
+        assertTrue((Long) last.get("MISSED_TICKS").getValue() > 0);
+        assertTrue((Long) last.get("MISSED_TICKS").getValue() <= ticker.getMissedTickCount());
+        assertTrue((Long) last.get("JITTER_MICROS").getValue() >= 0);
+        assertTrue((Long) last.get("MAX_JITTER_MICROS").getValue() <= ticker.getMaxJitterMicros());
+    }
+
+    @Test
+    public void testTickerStopWaitsForTick() throws InterruptedException {
+        // stopping does not interrupt the tick being emitted and returns after it
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean completed = new AtomicBoolean();
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        doAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            completed.set(true);
+            return null;
+        }).when(mockWireSupport).emit(any());
+
+        TimerTicker ticker = new TimerTicker("test", mockWireSupport, 20, TimerTicker.MissedTickPolicy.SKIP);
+        ticker.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ticker.stop();
+
+        assertTrue(completed.get());
+        assertFalse(interrupted.get());
+        assertEquals(1, ticker.getTickCount());
+    }
 }
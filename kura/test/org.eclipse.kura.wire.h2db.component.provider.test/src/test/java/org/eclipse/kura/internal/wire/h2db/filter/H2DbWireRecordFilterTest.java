@@ -12,26 +12,33 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.db.H2DbService;
 import org.eclipse.kura.internal.wire.h2db.common.H2DbServiceHelper;
+import org.eclipse.kura.type.LongValue;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
 import org.eclipse.kura.wire.WireSupport;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.osgi.service.wireadmin.Wire;
 
 public class H2DbWireRecordFilterTest {
@@ -193,6 +200,34 @@ public class H2DbWireRecordFilterTest {
         verify(mockWireSupport).emit(any());
     }
 
+    @Test
+    public void testOnWireReceiveWithoutDbService() {
+        // nothing is emitted while no database service is bound, not even an empty result
+
+        WireHelperService mockWireHelperService = mock(WireHelperService.class);
+
+        H2DbWireRecordFilter filter = new H2DbWireRecordFilter() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                // no database service
+            }
+        };
+        filter.bindWireHelperService(mockWireHelperService);
+
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        when(mockWireHelperService.newWireSupport(filter)).thenReturn(mockWireSupport);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("sql.view", "sql command");
+        properties.put("emit.on.empty.result", true);
+
+        filter.activate(null, properties);
+        filter.onWireReceive(mock(WireEnvelope.class));
+
+        verify(mockWireSupport, never()).emit(any());
+    }
+
     @Test
     public void testPolled() {
         H2DbService mockDbService = mock(H2DbService.class);
@@ -286,4 +321,133 @@ public class H2DbWireRecordFilterTest {
         verify(mockWireSupport).updated(mockWire, 42);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIncrementalQuery() throws SQLException {
+        // fetch only the new rows, emitted in envelopes of at most 2 records
+        DriverManager.registerDriver(new org.h2.Driver());
+        String url = "jdbc:h2:mem:filterdb;DB_CLOSE_DELAY=-1";
+        Connection connection = DriverManager.getConnection(url, "SA", "");
+        connection.prepareStatement("CREATE TABLE \"data\" (ID BIGINT PRIMARY KEY, \"value\" INTEGER)").execute();
+
+        H2DbService mockDbService = mock(H2DbService.class);
+        when(mockDbService.getConnection()).thenAnswer(invocation -> DriverManager.getConnection(url, "SA", ""));
+
+        WireHelperService mockWireHelperService = mock(WireHelperService.class);
+
+        H2DbWireRecordFilter filter = new H2DbWireRecordFilter() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                bindDbService(mockDbService);
+            }
+        };
+        filter.bindWireHelperService(mockWireHelperService);
+
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        when(mockWireHelperService.newWireSupport(filter)).thenReturn(mockWireSupport);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("cache.expiration.interval", 0);
+        properties.put("sql.view", "SELECT * FROM \"data\";");
+        properties.put("incremental.column", "ID");
+        properties.put("emit.max.records", 2);
+        properties.put("emit.on.empty.result", false);
+
+        filter.activate(null, properties);
+
+        for (int i = 1; i <= 3; i++) {
+            connection.prepareStatement("INSERT INTO \"data\" VALUES (" + i + ", " + i * 10 + ")").execute();
+        }
+
+        WireEnvelope mockWireEnvelope = mock(WireEnvelope.class);
+        filter.onWireReceive(mockWireEnvelope);
+
+        ArgumentCaptor<List<WireRecord>> captor = ArgumentCaptor.forClass((Class) List.class);
+        verify(mockWireSupport, times(2)).emit(captor.capture());
+        assertEquals(2, captor.getAllValues().get(0).size());
+        assertEquals(1, captor.getAllValues().get(1).size());
+        assertEquals(new LongValue(3), captor.getAllValues().get(1).get(0).getProperties().get("ID"));
+
+        // nothing new, nothing emitted
+        filter.onWireReceive(mockWireEnvelope);
+        verify(mockWireSupport, times(2)).emit(any());
+
+        connection.prepareStatement("INSERT INTO \"data\" VALUES (4, 40)").execute();
+        filter.onWireReceive(mockWireEnvelope);
+
+        captor = ArgumentCaptor.forClass((Class) List.class);
+        verify(mockWireSupport, times(3)).emit(captor.capture());
+        List<WireRecord> records = captor.getAllValues().get(2);
+        assertEquals(1, records.size());
+        assertEquals(new LongValue(4), records.get(0).getProperties().get("ID"));
+
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIncrementalQueryWithSharedTimestampsAndLimit() throws SQLException {
+        // rows sharing a timestamp across the limit of a read are not skipped
+        DriverManager.registerDriver(new org.h2.Driver());
+        String url = "jdbc:h2:mem:filterlimitdb;DB_CLOSE_DELAY=-1";
+        Connection connection = DriverManager.getConnection(url, "SA", "");
+        connection.prepareStatement("CREATE TABLE \"data\" (ID BIGINT PRIMARY KEY, TIMESTAMP BIGINT)").execute();
+
+        H2DbService mockDbService = mock(H2DbService.class);
+        when(mockDbService.getConnection()).thenAnswer(invocation -> DriverManager.getConnection(url, "SA", ""));
+
+        WireHelperService mockWireHelperService = mock(WireHelperService.class);
+
+        H2DbWireRecordFilter filter = new H2DbWireRecordFilter() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                bindDbService(mockDbService);
+            }
+        };
+        filter.bindWireHelperService(mockWireHelperService);
+
+        WireSupport mockWireSupport = mock(WireSupport.class);
+        when(mockWireHelperService.newWireSupport(filter)).thenReturn(mockWireSupport);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("cache.expiration.interval", 0);
+        properties.put("sql.view", "SELECT * FROM \"data\" LIMIT 2;");
+        properties.put("incremental.column", "TIMESTAMP");
+        properties.put("emit.max.records", 1);
+        properties.put("emit.on.empty.result", false);
+
+        filter.activate(null, properties);
+
+        // five rows, the second to the fourth with the same timestamp
+        long[] timestamps = { 1000, 2000, 2000, 2000, 3000 };
+        for (int i = 0; i < timestamps.length; i++) {
+            connection.prepareStatement("INSERT INTO \"data\" VALUES (" + (i + 1) + ", " + timestamps[i] + ")")
+                    .execute();
+        }
+
+        WireEnvelope mockWireEnvelope = mock(WireEnvelope.class);
+        for (int i = 0; i < 4; i++) {
+            filter.onWireReceive(mockWireEnvelope);
+        }
+
+        ArgumentCaptor<List<WireRecord>> captor = ArgumentCaptor.forClass((Class) List.class);
+        verify(mockWireSupport, times(timestamps.length)).emit(captor.capture());
+        for (int i = 0; i < timestamps.length; i++) {
+            List<WireRecord> records = captor.getAllValues().get(i);
+            assertEquals(1, records.size());
+            assertEquals(new LongValue(i + 1), records.get(0).getProperties().get("ID"));
+        }
+
+        // the limit of the view does not stop the next reads
+        connection.prepareStatement("INSERT INTO \"data\" VALUES (6, 3000)").execute();
+        filter.onWireReceive(mockWireEnvelope);
+
+        captor = ArgumentCaptor.forClass((Class) List.class);
+        verify(mockWireSupport, times(timestamps.length + 1)).emit(captor.capture());
+        assertEquals(new LongValue(6), captor.getAllValues().get(timestamps.length).get(0).getProperties().get("ID"));
+
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
 }
@@ -9,8 +9,12 @@
 package org.eclipse.kura.internal.wire.h2db.store;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
@@ -22,6 +26,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.db.H2DbService;
@@ -429,4 +434,243 @@ public class H2DbWireRecordStoreTest {
         connection.prepareStatement("SHUTDOWN").execute();
     }
 
+    @Test
+    public void testInterleavedColumnSets() throws SQLException {
+        // store an envelope whose records alternate between two column sets, check the insertion order is preserved
+        Connection connection = getConnection();
+
+        H2DbService dbServiceMock = mock(H2DbService.class);
+        when(dbServiceMock.getConnection()).thenReturn(connection);
+
+        H2DbWireRecordStore store = new H2DbWireRecordStore() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                bindDbService(dbServiceMock);
+            }
+        };
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(store)).thenReturn(wireSupportMock);
+
+        store.bindWireHelperService(whsMock);
+
+        ComponentContext ctx = mock(ComponentContext.class);
+        Map<String, Object> props = new HashMap<String, Object>();
+        String tableName = "H2_STORE_BATCH_TEST";
+        props.put("table.name", tableName);
+
+        // init
+        store.activate(ctx, props);
+
+        List<WireRecord> wireRecords = new ArrayList<WireRecord>();
+        for (int i = 0; i < 6; i++) {
+            Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+            if (i % 3 == 2) {
+                recordProps.put("intkey", new IntegerValue(i));
+            } else {
+                recordProps.put("key", new StringValue("val" + i));
+            }
+            wireRecords.add(new WireRecord(recordProps));
+        }
+        store.onWireReceive(new WireEnvelope("emitter", wireRecords));
+
+        ResultSet resultSet = connection.prepareStatement("SELECT * FROM " + tableName + " ORDER BY ID")
+                .executeQuery();
+        for (int i = 0; i < 6; i++) {
+            assertTrue(resultSet.next());
+            if (i % 3 == 2) {
+                assertEquals(i, resultSet.getInt("intkey"));
+                assertNull(resultSet.getString("key"));
+            } else {
+                assertEquals("val" + i, resultSet.getString("key"));
+            }
+        }
+        assertFalse(resultSet.next());
+
+        // deinit
+        store.deactivate(null);
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    @Test
+    public void testWriteBehind() throws SQLException {
+        // records are emitted right away and persisted in background, the queued records are persisted on deactivation
+        Connection connection = getConnection();
+
+        H2DbService dbServiceMock = mock(H2DbService.class);
+        when(dbServiceMock.getConnection()).thenReturn(connection);
+
+        H2DbWireRecordStore store = new H2DbWireRecordStore() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                bindDbService(dbServiceMock);
+            }
+        };
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(store)).thenReturn(wireSupportMock);
+
+        store.bindWireHelperService(whsMock);
+
+        ComponentContext ctx = mock(ComponentContext.class);
+        Map<String, Object> props = new HashMap<String, Object>();
+        String tableName = "H2_STORE_WRITE_BEHIND_TEST";
+        props.put("table.name", tableName);
+        props.put("write.behind", true);
+
+        // init
+        store.activate(ctx, props);
+
+        List<WireRecord> wireRecords = new ArrayList<WireRecord>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+            recordProps.put("key", new IntegerValue(i));
+            wireRecords.add(new WireRecord(recordProps));
+        }
+        for (int i = 0; i < 20; i++) {
+            store.onWireReceive(new WireEnvelope("emitter", wireRecords));
+        }
+        verify(wireSupportMock, times(20)).emit(wireRecords);
+
+        // deinit, waits for the queued records
+        store.deactivate(null);
+
+        ResultSet resultSet = connection.prepareStatement("SELECT count(*) FROM " + tableName).executeQuery();
+        resultSet.next();
+        assertEquals("Unexpected number of records", 200, resultSet.getInt(1));
+
+        resultSet = connection.prepareStatement("SELECT \"key\" FROM " + tableName + " ORDER BY ID").executeQuery();
+        for (int i = 0; i < 200; i++) {
+            assertTrue(resultSet.next());
+            assertEquals(i % 10, resultSet.getInt(1));
+        }
+
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    @Test
+    public void testPartitions() throws SQLException {
+        // store records across time partitions, check the view and the retention, then merge the partitions back
+        Connection connection = getConnection();
+
+        H2DbService dbServiceMock = mock(H2DbService.class);
+        when(dbServiceMock.getConnection()).thenReturn(connection);
+
+        AtomicLong clock = new AtomicLong(1500000000000L);
+        H2DbWireRecordStore store = new H2DbWireRecordStore() {
+
+            @Override
+            protected void restartDbServiceTracker() {
+                bindDbService(dbServiceMock);
+            }
+
+            @Override
+            protected long currentTimeMillis() {
+                return clock.get();
+            }
+        };
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        WireSupport wireSupportMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(store)).thenReturn(wireSupportMock);
+
+        store.bindWireHelperService(whsMock);
+
+        ComponentContext ctx = mock(ComponentContext.class);
+        Map<String, Object> props = new HashMap<String, Object>();
+        String tableName = "H2_STORE_PARTITION_TEST";
+        props.put("table.name", tableName);
+        props.put("cleanup.records.keep", 3);
+        props.put("maximum.table.size", 5);
+        props.put("partition.interval", 1);
+
+        // tables whose name only starts like a partition are not partitions
+        connection.prepareStatement("CREATE TABLE " + tableName + "_P1_BACKUP (ID BIGINT)").execute();
+        connection.prepareStatement("CREATE TABLE " + tableName + "_PX (ID BIGINT)").execute();
+
+        // init, the first partition is created for the current second
+        store.activate(ctx, props);
+        assertEquals(1, countPartitions(connection, tableName));
+
+        List<WireRecord> wireRecords = new ArrayList<WireRecord>();
+        for (int i = 0; i < 2; i++) {
+            Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+            recordProps.put("key", new IntegerValue(i));
+            wireRecords.add(new WireRecord(recordProps));
+        }
+        WireEnvelope wireEvelope = new WireEnvelope("emitter", wireRecords);
+
+        // one envelope per partition
+        for (int i = 0; i < 3; i++) {
+            if (i > 0) {
+                clock.addAndGet(1000);
+            }
+            store.onWireReceive(wireEvelope);
+        }
+        assertEquals(3, countPartitions(connection, tableName));
+        assertEquals(6, count(connection, tableName));
+
+        ResultSet resultSet = connection.prepareStatement("SELECT ID FROM " + tableName + " ORDER BY ID")
+                .executeQuery();
+        for (int i = 1; i <= 6; i++) {
+            assertTrue(resultSet.next());
+            assertEquals(i, resultSet.getLong(1));
+        }
+
+        // the maximum size is reached, the oldest partition is dropped
+        store.onWireReceive(wireEvelope);
+        assertEquals(2, countPartitions(connection, tableName));
+        assertEquals(6, count(connection, tableName));
+
+        // the partition of the records is dropped before a new column is added to the most recent partition
+        Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("other", new StringValue("val"));
+        List<WireRecord> otherRecords = new ArrayList<WireRecord>();
+        otherRecords.add(new WireRecord(recordProps));
+        store.updated(props);
+        store.onWireReceive(new WireEnvelope("emitter", otherRecords));
+
+        resultSet = connection
+                .prepareStatement("SELECT count(*) FROM " + tableName + " WHERE \"other\" IS NULL").executeQuery();
+        resultSet.next();
+        assertEquals(4, resultSet.getInt(1));
+        assertEquals(1, countPartitions(connection, tableName));
+        assertEquals(5, count(connection, tableName));
+
+        // disable the partitions
+        props.put("partition.interval", 0);
+        store.updated(props);
+
+        assertEquals(0, countPartitions(connection, tableName));
+        assertEquals(5, count(connection, tableName));
+        ResultSet tables = connection.getMetaData().getTables(null, null, tableName, new String[] { "TABLE" });
+        assertTrue(tables.next());
+        assertEquals(0, count(connection, tableName + "_P1_BACKUP"));
+        assertEquals(0, count(connection, tableName + "_PX"));
+
+        // deinit
+        store.deactivate(null);
+        connection.prepareStatement("SHUTDOWN").execute();
+    }
+
+    private static int count(Connection connection, String tableName) throws SQLException {
+        ResultSet resultSet = connection.prepareStatement("SELECT count(*) FROM " + tableName).executeQuery();
+        resultSet.next();
+        return resultSet.getInt(1);
+    }
+
+    private static int countPartitions(Connection connection, String tableName) throws SQLException {
+        ResultSet tables = connection.getMetaData().getTables(null, null, tableName + "_P%", new String[] { "TABLE" });
+        int count = 0;
+        while (tables.next()) {
+            if (tables.getString("TABLE_NAME").matches(tableName + "_P-?\\d+")) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
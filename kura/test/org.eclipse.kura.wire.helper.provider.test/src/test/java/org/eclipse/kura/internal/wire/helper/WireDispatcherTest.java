@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kura.type.IntegerValue;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireRecord;
+import org.junit.Test;
+import org.osgi.service.wireadmin.Wire;
+
+public class WireDispatcherTest {
+
+    @Test
+    public void testFifoPerWireWithConcurrentEmitters() throws InterruptedException {
+        // the envelopes of each emitter are delivered in order, one at a time, with a queue often full
+
+        int emitters = 4;
+        int envelopes = 500;
+
+        List<WireEnvelope> delivered = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger activeDeliveries = new AtomicInteger();
+        AtomicInteger maxActiveDeliveries = new AtomicInteger();
+        Wire wire = mock(Wire.class);
+        doAnswer(invocation -> {
+            maxActiveDeliveries.accumulateAndGet(activeDeliveries.incrementAndGet(), Math::max);
+            delivered.add((WireEnvelope) invocation.getArguments()[0]);
+            activeDeliveries.decrementAndGet();
+            return null;
+        }).when(wire).update(anyObject());
+
+        WireExecutor executor = new WireExecutor(2);
+        WireDispatcher dispatcher = new WireDispatcher(wire, 4, false, executor);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < emitters; i++) {
+            String emitterPid = "emitter" + i;
+            Thread thread = new Thread(() -> {
+                for (int seq = 0; seq < envelopes; seq++) {
+                    dispatcher.submit(newEnvelope(emitterPid, seq));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        waitForDeliveries(delivered, emitters * envelopes);
+        executor.shutdown();
+
+        assertEquals(emitters * envelopes, delivered.size());
+        assertEquals(1, maxActiveDeliveries.get());
+
+        Map<String, Integer> lastSequences = new HashMap<>();
+        synchronized (delivered) {
+            for (WireEnvelope envelope : delivered) {
+                int seq = getSequence(envelope);
+                Integer last = lastSequences.put(envelope.getEmitterPid(), seq);
+                assertEquals(last == null ? 0 : last + 1, seq);
+            }
+        }
+    }
+
+    @Test
+    public void testDeliveryAfterExecutorShutdown() {
+        // once the executor is shut down, the envelopes are delivered on the emitter thread
+
+        List<WireEnvelope> delivered = new ArrayList<>();
+        Wire wire = mock(Wire.class);
+        doAnswer(invocation -> {
+            delivered.add((WireEnvelope) invocation.getArguments()[0]);
+            return null;
+        }).when(wire).update(anyObject());
+
+        WireExecutor executor = new WireExecutor(1);
+        executor.shutdown();
+
+        WireDispatcher dispatcher = new WireDispatcher(wire, 4, false, executor);
+        for (int seq = 0; seq < 10; seq++) {
+            dispatcher.submit(newEnvelope("emitter", seq));
+        }
+
+        assertEquals(10, delivered.size());
+        for (int seq = 0; seq < 10; seq++) {
+            assertEquals(seq, getSequence(delivered.get(seq)));
+        }
+    }
+
+    @Test
+    public void testQueuedEnvelopesDeliveredAfterClose() throws InterruptedException {
+        // the envelopes accepted before closing are delivered, the ones submitted afterwards are ignored
+
+        CountDownLatch release = new CountDownLatch(1);
+        List<WireEnvelope> delivered = Collections.synchronizedList(new ArrayList<>());
+        Wire wire = mock(Wire.class);
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            delivered.add((WireEnvelope) invocation.getArguments()[0]);
+            return null;
+        }).when(wire).update(anyObject());
+
+        WireExecutor executor = new WireExecutor(1);
+        WireDispatcher dispatcher = new WireDispatcher(wire, 10, false, executor);
+        for (int seq = 0; seq < 3; seq++) {
+            dispatcher.submit(newEnvelope("emitter", seq));
+        }
+        dispatcher.close();
+        dispatcher.submit(newEnvelope("emitter", 3));
+        executor.shutdown();
+        release.countDown();
+
+        waitForDeliveries(delivered, 3);
+        Thread.sleep(100);
+        assertEquals(3, delivered.size());
+    }
+
+    static WireEnvelope newEnvelope(String emitterPid, int seq) {
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("seq", new IntegerValue(seq));
+        return new WireEnvelope(emitterPid, Collections.singletonList(new WireRecord(properties)));
+    }
+
+    static int getSequence(WireEnvelope envelope) {
+        return (Integer) envelope.getRecords().get(0).getProperties().get("seq").getValue();
+    }
+
+    static void waitForDeliveries(List<WireEnvelope> delivered, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (delivered.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("missing deliveries: " + delivered.size(), delivered.size() >= count);
+    }
+}
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.kura.type.IntegerValue;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireEmitter;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.service.wireadmin.Wire;
+
+public class WireSupportImplTest {
+
+    @Test
+    public void testFifoPerWireWithConcurrentEmitters() throws InterruptedException {
+        // every outgoing wire receives the records of each emitting thread in order
+
+        int threads = 4;
+        int envelopes = 300;
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("emit.async", true);
+        properties.put("emit.queue.capacity", 4);
+        WireSupportOptions options = new WireSupportOptions(properties);
+
+        List<List<WireEnvelope>> delivered = new ArrayList<>();
+        Wire[] wires = new Wire[2];
+        for (int i = 0; i < wires.length; i++) {
+            List<WireEnvelope> wireDeliveries = Collections.synchronizedList(new ArrayList<>());
+            delivered.add(wireDeliveries);
+            wires[i] = newWire(wireDeliveries);
+        }
+
+        WireExecutor executor = new WireExecutor(2);
+        WireSupportImpl wireSupport = newWireSupport(mock(EventAdmin.class), executor, options);
+        wireSupport.consumersConnected(wires);
+
+        List<Thread> emitters = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            Thread emitter = new Thread(() -> {
+                for (int seq = 0; seq < envelopes; seq++) {
+                    wireSupport.emit(Collections.singletonList(newRecord(thread, seq)));
+                }
+            });
+            emitters.add(emitter);
+            emitter.start();
+        }
+        for (Thread emitter : emitters) {
+            emitter.join();
+        }
+
+        for (List<WireEnvelope> wireDeliveries : delivered) {
+            WireDispatcherTest.waitForDeliveries(wireDeliveries, threads * envelopes);
+            int[] lastSequences = new int[threads];
+            synchronized (wireDeliveries) {
+                for (WireEnvelope envelope : wireDeliveries) {
+                    Map<String, TypedValue<?>> record = envelope.getRecords().get(0).getProperties();
+                    int thread = (Integer) record.get("thread").getValue();
+                    int seq = (Integer) record.get("seq").getValue();
+                    assertEquals(lastSequences[thread], seq);
+                    lastSequences[thread] = seq + 1;
+                }
+            }
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testEmitAfterExecutorShutdown() {
+        // with the executor shut down, the envelopes and the emit events are delivered on the emitter thread
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("emit.async", true);
+        WireSupportOptions options = new WireSupportOptions(properties);
+
+        List<WireEnvelope> delivered = new ArrayList<>();
+        EventAdmin eventAdmin = mock(EventAdmin.class);
+        WireSupportImpl wireSupport = newWireSupport(eventAdmin, command -> {
+            throw new RejectedExecutionException();
+        }, options);
+        wireSupport.consumersConnected(new Wire[] { newWire(delivered) });
+
+        for (int seq = 0; seq < 5; seq++) {
+            wireSupport.emit(Collections.singletonList(newRecord(0, seq)));
+        }
+
+        assertEquals(5, delivered.size());
+        for (int seq = 0; seq < 5; seq++) {
+            assertEquals(seq, delivered.get(seq).getRecords().get(0).getProperties().get("seq").getValue());
+        }
+        verify(eventAdmin, atLeastOnce()).postEvent((Event) anyObject());
+    }
+
+    @Test
+    public void testQueuedEnvelopesHandedOverOnOptionsChange() throws InterruptedException {
+        // the envelopes queued before the options change are delivered first, one at a time, then the new ones
+
+        testOptionsChange(true);
+    }
+
+    @Test
+    public void testQueuedEnvelopesDeliveredBeforeSynchronousEmit() throws InterruptedException {
+        // switching to synchronous emission delivers the queued envelopes before the first synchronous one
+
+        testOptionsChange(false);
+    }
+
+    private static void testOptionsChange(boolean emitAsync) throws InterruptedException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("emit.async", true);
+        properties.put("emit.queue.capacity", 10);
+        AtomicReference<WireSupportOptions> options = new AtomicReference<>(new WireSupportOptions(properties));
+
+        CountDownLatch release = new CountDownLatch(1);
+        List<WireEnvelope> delivered = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger activeDeliveries = new AtomicInteger();
+        AtomicInteger maxActiveDeliveries = new AtomicInteger();
+        Wire wire = mock(Wire.class);
+        doAnswer(invocation -> {
+            maxActiveDeliveries.accumulateAndGet(activeDeliveries.incrementAndGet(), Math::max);
+            release.await(10, TimeUnit.SECONDS);
+            delivered.add((WireEnvelope) invocation.getArguments()[0]);
+            activeDeliveries.decrementAndGet();
+            return null;
+        }).when(wire).update(anyObject());
+
+        WireExecutor executor = new WireExecutor(2);
+        WireEmitter emitter = mock(WireEmitter.class);
+        WireHelperService wireHelperService = mock(WireHelperService.class);
+        when(wireHelperService.getServicePid(emitter)).thenReturn("emitter");
+        when(wireHelperService.getPid(emitter)).thenReturn("emitter");
+        WireSupportImpl wireSupport = new WireSupportImpl(emitter, wireHelperService, mock(EventAdmin.class),
+                executor, options::get);
+        wireSupport.consumersConnected(new Wire[] { wire });
+
+        for (int seq = 0; seq < 3; seq++) {
+            wireSupport.emit(Collections.singletonList(newRecord(0, seq)));
+        }
+
+        properties.put("emit.async", emitAsync);
+        properties.put("emit.queue.capacity", 5);
+        options.set(new WireSupportOptions(properties));
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        releaser.start();
+        for (int seq = 3; seq < 6; seq++) {
+            wireSupport.emit(Collections.singletonList(newRecord(0, seq)));
+        }
+        releaser.join();
+
+        WireDispatcherTest.waitForDeliveries(delivered, 6);
+        executor.shutdown();
+
+        assertEquals(1, maxActiveDeliveries.get());
+        for (int seq = 0; seq < 6; seq++) {
+            assertEquals(seq, delivered.get(seq).getRecords().get(0).getProperties().get("seq").getValue());
+        }
+    }
+
+    private static WireSupportImpl newWireSupport(EventAdmin eventAdmin, Executor executor,
+            WireSupportOptions options) {
+        WireEmitter emitter = mock(WireEmitter.class);
+        WireHelperService wireHelperService = mock(WireHelperService.class);
+        when(wireHelperService.getServicePid(emitter)).thenReturn("emitter");
+        when(wireHelperService.getPid(emitter)).thenReturn("emitter");
+        return new WireSupportImpl(emitter, wireHelperService, eventAdmin, executor, () -> options);
+    }
+
+    private static Wire newWire(List<WireEnvelope> delivered) {
+        Wire wire = mock(Wire.class);
+        doAnswer(invocation -> {
+            delivered.add((WireEnvelope) invocation.getArguments()[0]);
+            return null;
+        }).when(wire).update(anyObject());
+        return wire;
+    }
+
+    private static WireRecord newRecord(int thread, int seq) {
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("thread", new IntegerValue(thread));
+        properties.put("seq", new IntegerValue(seq));
+        return new WireRecord(properties);
+    }
+}
@@ -11,6 +11,7 @@ package org.eclipse.kura.wire.script.filter.provider;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -19,9 +20,15 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.type.StringValue;
@@ -118,4 +125,54 @@ public class ScriptFilterTest {
         svc.onWireReceive(null);
     }
 
+    @Test
+    public void testStatelessEvaluation() throws Exception {
+        // envelopes evaluated concurrently, sharing state through the context
+
+        ScriptFilter svc = new ScriptFilter();
+
+        WireHelperService whsMock = mock(WireHelperService.class);
+        svc.bindWireHelperService(whsMock);
+
+        WireSupport wsMock = mock(WireSupport.class);
+        when(whsMock.newWireSupport(svc)).thenReturn(wsMock);
+
+        Set<Long> counters = Collections.synchronizedSet(new HashSet<>());
+        doAnswer(invocation -> {
+            List<WireRecord> records = invocation.getArgumentAt(0, List.class);
+            counters.add((Long) records.get(0).getProperties().get("counter").getValue());
+            return null;
+        }).when(wsMock).emit(anyObject());
+
+        Map<String, Object> properties = new HashMap<>();
+        String script = "var rec = newWireRecord();\n" // one record per envelope
+                + "rec.counter = newLongValue(context.addAndGet('counter', 1));\n"
+                + "context.compute('last', function(key, value) { return input.emitterPid; });\n"
+                + "output.add(rec);";
+        properties.put("script", script);
+        properties.put("script.stateless", true);
+        properties.put("script.pool.size", 2);
+        svc.activate(properties);
+
+        assertNull(TestUtil.getFieldValue(svc, "script"));
+        assertNotNull(TestUtil.getFieldValue(svc, "pool"));
+
+        WireEnvelope wireEnvelope = new WireEnvelope("emitter", new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 40; i++) {
+            executor.execute(() -> svc.onWireReceive(wireEnvelope));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        verify(wsMock, times(40)).emit(anyObject());
+        assertEquals(40, counters.size());
+        assertTrue(counters.contains(40L));
+
+        SharedContext context = (SharedContext) TestUtil.getFieldValue(svc, "sharedContext");
+        assertEquals("emitter", context.get("last"));
+
+        svc.deactivate();
+    }
+
 }